@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.memory;
+
+import me.mneri.offer.OfferApplication;
+import me.mneri.offer.data.entity.EntityFactory;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compare the change logs of the in-memory engine, {@link OfferJournal} ({@code stream}) and {@link MappedOfferLog}
+ * ({@code mapped}):
+ * <ul>
+ *     <li>{@link #append()}: the throughput of single offer appends, not forced;</li>
+ *     <li>{@link #replay()}: the time to replay a log of one million events.</li>
+ * </ul>
+ * The appended log is compacted away after each iteration, so that the files don't grow with the run.
+ *
+ * @author Massimo Neri
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+public class OfferLogBenchmark {
+    private static final int EVENT_COUNT = 1_000_000;
+
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private Collection<Offer> appended;
+
+    private OfferLog appendLog;
+
+    private ConfigurableApplicationContext context;
+
+    private EntityFactory entityFactory;
+
+    private User publisher;
+
+    private OfferLog replayLog;
+
+    @Param({"stream", "mapped"})
+    private String type;
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Measurement(iterations = 5, time = 1)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 3, time = 1)
+    public void append() throws IOException {
+        appendLog.append(OfferEventType.UPDATED, appended);
+    }
+
+    @TearDown(Level.Iteration)
+    public void compact() throws IOException {
+        appendLog.compact(Collections.emptyList(), appendLog.roll());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Measurement(iterations = 5)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    public long replay() throws IOException {
+        LongAdder count = new LongAdder();
+        replayLog.replay(publisherId -> Optional.of(publisher), offer -> count.increment());
+        return count.sum();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(OfferApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "eureka.client.enabled=false",
+                        "logging.level.me.mneri.offer=INFO",
+                        "spring.cloud.config.enabled=false",
+                        "spring.datasource.name=offer-log-benchmark")
+                .run();
+
+        entityFactory = context.getBean(EntityFactory.class);
+        publisher = entityFactory.createUser();
+        publisher.setUsername("publisher");
+        appended = Collections.singletonList(offer());
+
+        appendLog = createLog(Files.createTempDirectory("offer-log-benchmark"));
+        appendLog.open();
+
+        replayLog = createLog(Files.createTempDirectory("offer-log-benchmark"));
+        replayLog.open();
+        List<Offer> batch = new ArrayList<>(1024);
+
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            batch.add(offer());
+
+            if (batch.size() == 1024 || i == EVENT_COUNT - 1) {
+                replayLog.append(OfferEventType.CREATED, batch);
+                batch.clear();
+            }
+        }
+
+        replayLog.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        appendLog.close();
+        context.close();
+    }
+
+    private OfferLog createLog(Path directory) {
+        return type.equals("mapped")
+                ? new MappedOfferLog(directory, entityFactory, false, SEGMENT_SIZE)
+                : new OfferJournal(directory, entityFactory, false);
+    }
+
+    private Offer offer() {
+        long now = System.currentTimeMillis();
+        Offer offer = entityFactory.restoreOffer(UUID.randomUUID(), new Date(now), new Date(now + 86400000L), 0);
+        offer.setTitle("Free Coffee");
+        offer.setDescription("Buy one and get one free!");
+        offer.setPrice(BigDecimal.TEN);
+        offer.setCurrency("GBP");
+        offer.setPublisher(publisher);
+        return offer;
+    }
+}
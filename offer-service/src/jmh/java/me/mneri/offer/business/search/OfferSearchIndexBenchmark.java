@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.search;
+
+import me.mneri.offer.OfferApplication;
+import me.mneri.offer.data.entity.EntityFactory;
+import me.mneri.offer.data.entity.Offer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the latency of {@link OfferSearchIndex#search(String, Date, int, int)}, a first page of 24 offers, over an
+ * index of synthetic offers.
+ * <p>
+ * Titles and descriptions are drawn from a vocabulary of 10000 words with a Zipf-like distribution, so that queries
+ * mix frequent terms, with long postings, and rare ones.
+ *
+ * @author Massimo Neri
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class OfferSearchIndexBenchmark {
+    private static final int PAGE_SIZE = 24;
+
+    private static final int VOCABULARY_SIZE = 10000;
+
+    private ConfigurableApplicationContext context;
+
+    private Date now;
+
+    @Param({"100000", "1000000"})
+    private int offerCount;
+
+    private OfferSearchIndex offerSearchIndex;
+
+    @Benchmark
+    public List<UUID> search() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return offerSearchIndex.search(word(random) + " " + word(random), now, 0, PAGE_SIZE);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(OfferApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "eureka.client.enabled=false",
+                        "logging.level.me.mneri.offer=INFO",
+                        "spring.cloud.config.enabled=false",
+                        "spring.datasource.name=offer-search-index-benchmark")
+                .run();
+
+        EntityFactory entityFactory = context.getBean(EntityFactory.class);
+        offerSearchIndex = context.getBean(OfferSearchIndex.class);
+        now = new Date();
+        Date endTime = new Date(now.getTime() + TimeUnit.DAYS.toMillis(1));
+        Random random = new Random(0);
+
+        for (int i = 0; i < offerCount; i++) {
+            Offer offer = entityFactory.restoreOffer(UUID.randomUUID(), now, endTime, 0);
+            offer.setTitle(words(random, 4));
+            offer.setDescription(words(random, 16));
+            offerSearchIndex.index(offer);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private static String word(Random random) {
+        // Squaring skews the draw towards the first words of the vocabulary
+        double draw = random.nextDouble();
+        return "w" + (int) (draw * draw * VOCABULARY_SIZE);
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder words = new StringBuilder();
+
+        for (int i = 0; i < count; i++) {
+            words.append(word(random)).append(' ');
+        }
+
+        return words.toString();
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.service;
+
+import me.mneri.offer.OfferApplication;
+import me.mneri.offer.business.pojo.OfferCreate;
+import me.mneri.offer.business.pojo.Paging;
+import me.mneri.offer.data.entity.Offer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Slice;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the JPA engine ({@link OfferServiceJpa}) with the in-memory engine ({@link OfferServiceMemory}) on the
+ * hottest service calls:
+ * <ul>
+ *     <li>{@link #findAllOpen()}: a 128 offers page of the open offers;</li>
+ *     <li>{@link #findById()}: the lookup of a random offer.</li>
+ * </ul>
+ * The application runs without the web layer against an H2 database; 8192 offers are created through the service of
+ * the engine under test. Run with more threads ({@code -t}) to compare the engines under contention.
+ *
+ * @author Massimo Neri
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class OfferEngineBenchmark {
+    private static final UUID ADMIN_ID = UUID.fromString("b4d9a272-4685-2647-91d6-185b65e60bdf");
+
+    private static final int OFFER_COUNT = 8192;
+
+    private static final int PAGE_SIZE = 128;
+
+    private ConfigurableApplicationContext context;
+
+    @Param({"jpa", "memory"})
+    private String engine;
+
+    private List<UUID> offerIds;
+
+    private OfferService offerService;
+
+    private Paging paging;
+
+    @Benchmark
+    public Slice<Offer> findAllOpen() {
+        return offerService.findAllOpen(paging);
+    }
+
+    @Benchmark
+    public Optional<Offer> findById() {
+        return offerService.findById(offerIds.get(ThreadLocalRandom.current().nextInt(offerIds.size())));
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(OfferApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles(engine.equals("memory") ? "memory" : "default")
+                .properties(
+                        "business.memory.directory=" + Files.createTempDirectory("offer-engine-benchmark"),
+                        "eureka.client.enabled=false",
+                        "logging.level.me.mneri.offer=INFO",
+                        "spring.cloud.config.enabled=false",
+                        "spring.datasource.name=offer-engine-benchmark")
+                .run();
+
+        // Writes need a publisher, reads are open to anyone; the authentication is shared by all the threads
+        SecurityContextHolder.setStrategyName(SecurityContextHolder.MODE_GLOBAL);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "admin", null, AuthorityUtils.createAuthorityList("offer:write-any")));
+
+        offerService = context.getBean(OfferService.class);
+        offerIds = new ArrayList<>(OFFER_COUNT);
+
+        for (int i = 0; i < OFFER_COUNT; i += PAGE_SIZE) {
+            List<OfferCreate> creates = new ArrayList<>(PAGE_SIZE);
+
+            for (int j = 0; j < PAGE_SIZE; j++) {
+                OfferCreate create = new OfferCreate();
+                create.setTitle("Free Coffee");
+                create.setDescription("Buy one and get one free!");
+                create.setPrice(BigDecimal.TEN);
+                create.setCurrency("GBP");
+                create.setTtl(TimeUnit.DAYS.toMillis(1) + i + j);
+                creates.add(create);
+            }
+
+            offerService.saveAll(creates, ADMIN_ID).forEach(offer -> offerIds.add(offer.getId()));
+        }
+
+        paging = new Paging();
+        paging.setPageSize(PAGE_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+        context.close();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.service;
+
+import me.mneri.offer.OfferApplication;
+import me.mneri.offer.business.pojo.Paging;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.projection.OfferSummary;
+import me.mneri.offer.presentation.dto.OfferDto;
+import me.mneri.offer.presentation.dto.OfferSummaryDto;
+import me.mneri.offer.presentation.mapping.PresentationLayerMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the two ways of serving a 128 offers page of {@code GET /offers}, from the service call to the DTOs:
+ * <ul>
+ *     <li>{@link #entityPage()}: {@link Offer} entities loaded through JPA and mapped to full DTOs;</li>
+ *     <li>{@link #summaryPage()}: {@link OfferSummary}s read through JDBC and mapped to summary DTOs.</li>
+ * </ul>
+ * The application runs without the web layer against an H2 database of 1024 offers, each with a description of the
+ * maximum length, the worst case for the entity page. Run with {@code -prof gc} to compare the allocation rates as
+ * well.
+ *
+ * @author Massimo Neri
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class OfferListingBenchmark {
+    private static final int PAGE_SIZE = 128;
+
+    private ConfigurableApplicationContext context;
+
+    private OfferService offerService;
+
+    private Paging paging;
+
+    private PresentationLayerMapper presentationLayerMapper;
+
+    @Benchmark
+    public List<OfferDto> entityPage() {
+        Slice<Offer> offers = offerService.findAllOpen(paging);
+        return presentationLayerMapper.mapOfferToOfferDto(offers);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(OfferApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "eureka.client.enabled=false",
+                        "logging.level.me.mneri.offer=INFO",
+                        "spring.cloud.config.enabled=false",
+                        "spring.datasource.name=offer-listing-benchmark")
+                .run();
+
+        context.getBean(JdbcTemplate.class).update(
+                "insert into offer (id, title, description, publisher, price, currency, cancelled, create_time, "
+                        + "end_time) select random_uuid(), 'Free Coffee', "
+                        + "repeat('x', " + Offer.DESCRIPTION_MAX_LENGTH + "), "
+                        + "u.id, 10, 'GBP', false, now(), dateadd('DAY', 1, now()) "
+                        + "from system_range(1, 1024) cross join user u");
+
+        offerService = context.getBean(OfferService.class);
+        presentationLayerMapper = context.getBean(PresentationLayerMapper.class);
+
+        paging = new Paging();
+        paging.setPageSize(PAGE_SIZE);
+
+        // Listings are open to anyone but method security still wants an authentication, shared by all the threads
+        SecurityContextHolder.setStrategyName(SecurityContextHolder.MODE_GLOBAL);
+        SecurityContextHolder.getContext().setAuthentication(new AnonymousAuthenticationToken(
+                "benchmark", "anonymous", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+        context.close();
+    }
+
+    @Benchmark
+    public List<OfferSummaryDto> summaryPage() {
+        Slice<OfferSummary> offers = offerService.findAllOpenSummaries(paging);
+        return presentationLayerMapper.mapOfferSummaryToOfferSummaryDto(offers);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.converter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.persistence.AttributeConverter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the string and the binary {@link UUID} representations on a full scan of a 1M rows H2 table.
+ * <p>
+ * Each benchmark reads one UUID column and maps every row back to a {@link UUID} through the corresponding converter.
+ *
+ * @author Massimo Neri
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class UUIDConverterBenchmark {
+    private static final int ROWS = 1_000_000;
+
+    private static final int BATCH_SIZE = 10_000;
+
+    private final AttributeConverter<UUID, byte[]> binaryConverter = new UUIDConverter();
+
+    private final AttributeConverter<UUID, String> stringConverter = new StringUUIDConverter();
+
+    private Connection connection;
+
+    private long scan(String sql, ColumnReader reader, Blackhole blackhole) throws SQLException {
+        long rows = 0;
+
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                blackhole.consume(reader.read(resultSet));
+                rows++;
+            }
+        }
+
+        return rows;
+    }
+
+    @Benchmark
+    public long scanBinary(Blackhole blackhole) throws SQLException {
+        return scan("select bin from uuid_scan", resultSet ->
+                binaryConverter.convertToEntityAttribute(resultSet.getBytes(1)), blackhole);
+    }
+
+    @Benchmark
+    public long scanString(Blackhole blackhole) throws SQLException {
+        return scan("select str from uuid_scan", resultSet ->
+                stringConverter.convertToEntityAttribute(resultSet.getString(1)), blackhole);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:uuid-converter-benchmark");
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table uuid_scan (str varchar(36) not null, bin binary(16) not null)");
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement("insert into uuid_scan values (?, ?)")) {
+            for (int i = 1; i <= ROWS; i++) {
+                UUID uuid = UUID.randomUUID();
+                statement.setString(1, stringConverter.convertToDatabaseColumn(uuid));
+                statement.setBytes(2, binaryConverter.convertToDatabaseColumn(uuid));
+                statement.addBatch();
+
+                if (i % BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @FunctionalInterface
+    private interface ColumnReader {
+        UUID read(ResultSet resultSet) throws SQLException;
+    }
+
+    /**
+     * The string converter used before the binary representation was introduced.
+     */
+    private static class StringUUIDConverter implements AttributeConverter<UUID, String> {
+        @Override
+        public String convertToDatabaseColumn(UUID uuid) {
+            return uuid == null ? null : uuid.toString();
+        }
+
+        @Override
+        public UUID convertToEntityAttribute(String string) {
+            return string == null ? null : UUID.fromString(string);
+        }
+    }
+}
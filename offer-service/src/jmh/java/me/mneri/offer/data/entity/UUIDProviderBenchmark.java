@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.entity;
+
+import me.mneri.offer.data.converter.UUIDCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the random and the time-ordered {@link UUIDProvider}s.
+ * <p>
+ * {@link #insert(Table)} measures the throughput of single row inserts into a table keyed by binary UUIDs, starting from a
+ * table of {@value #INITIAL_ROWS} rows. {@link #create()} measures the id generation alone, from several threads.
+ *
+ * @author Massimo Neri
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class UUIDProviderBenchmark {
+    private static final int INITIAL_ROWS = 500_000;
+
+    @Param({"random", "time-ordered"})
+    private String provider;
+
+    private UUIDProvider uuidProvider;
+
+    @Benchmark
+    @Threads(4)
+    public UUID create() {
+        return uuidProvider.createRandomUuid();
+    }
+
+    @Benchmark
+    public int insert(Table table) throws SQLException {
+        return table.insert(uuidProvider.createRandomUuid());
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        uuidProvider = "random".equals(provider)
+                ? new UUIDProviderImpl()
+                : new TimeOrderedUUIDProvider(Clock.systemUTC());
+    }
+
+    @State(Scope.Thread)
+    public static class Table {
+        private Connection connection;
+
+        private PreparedStatement insert;
+
+        private int insert(UUID uuid) throws SQLException {
+            insert.setBytes(1, UUIDCodec.encode(uuid));
+            return insert.executeUpdate();
+        }
+
+        @Setup(Level.Iteration)
+        public void setUp(UUIDProviderBenchmark benchmark) throws SQLException {
+            connection = DriverManager.getConnection("jdbc:h2:mem:uuid-provider-benchmark");
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("create table uuid_insert (id binary(16) not null, primary key (id))");
+            }
+
+            insert = connection.prepareStatement("insert into uuid_insert (id) values (?)");
+
+            for (int i = 0; i < INITIAL_ROWS; i++) {
+                insert(benchmark.uuidProvider.createRandomUuid());
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws SQLException {
+            insert.close();
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.repository;
+
+import me.mneri.offer.OfferApplication;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.entity.Offer_;
+import me.mneri.offer.data.specification.OfferSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Clock;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.data.jpa.domain.Specification.where;
+
+/**
+ * Compare, for each fixed shape of the open offers listings, the {@link OfferSpec} Criteria query built on every call
+ * with the declared query of {@link OfferRepository}, which only binds its parameters:
+ * <ul>
+ *     <li>{@code open*}: the first page of the open offers;</li>
+ *     <li>{@code openAfter*}: the page of the open offers following a cursor;</li>
+ *     <li>{@code openByPublisher*}: the first page of the open offers of a publisher;</li>
+ *     <li>{@code countOpen*}: the number of open offers.</li>
+ * </ul>
+ * Pages are small so that the difference is dominated by building and rendering the query rather than by reading the
+ * rows. The application runs without the web layer against an H2 database of 64 offers per user.
+ *
+ * @author Massimo Neri
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class OfferQueryBenchmark {
+    private static final UUID ADMIN_ID = UUID.fromString("b4d9a272-4685-2647-91d6-185b65e60bdf");
+
+    private static final Sort OPEN_ORDER = Sort.by(Offer_.END_TIME, Offer_.ID);
+
+    private static final int PAGE_SIZE = 8;
+
+    private Clock clock;
+
+    private ConfigurableApplicationContext context;
+
+    private Offer cursor;
+
+    private OfferRepository offerRepository;
+
+    @Benchmark
+    public long countOpenCriteria() {
+        return offerRepository.count(where(OfferSpec.isOpen(clock)));
+    }
+
+    @Benchmark
+    public long countOpenDeclared() {
+        return offerRepository.countAllOpen(new Date(clock.millis()));
+    }
+
+    @Benchmark
+    public Slice<Offer> openAfterCriteria() {
+        return offerRepository.findSlice(
+                where(OfferSpec.isOpen(clock)).and(OfferSpec.isAfter(cursor.getEndTime(), cursor.getId())),
+                PageRequest.of(0, PAGE_SIZE, OPEN_ORDER));
+    }
+
+    @Benchmark
+    public Slice<Offer> openAfterDeclared() {
+        return offerRepository.findAllOpenAfter(
+                new Date(clock.millis()), cursor.getEndTime(), cursor.getId(), PageRequest.of(0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Slice<Offer> openByPublisherCriteria() {
+        return offerRepository.findSlice(
+                where(OfferSpec.isOpen(clock)).and(OfferSpec.publisherIdIsEqualTo(ADMIN_ID)),
+                PageRequest.of(0, PAGE_SIZE, OPEN_ORDER));
+    }
+
+    @Benchmark
+    public Slice<Offer> openByPublisherDeclared() {
+        return offerRepository.findAllOpenByPublisherId(
+                ADMIN_ID, new Date(clock.millis()), PageRequest.of(0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Slice<Offer> openCriteria() {
+        return offerRepository.findSlice(where(OfferSpec.isOpen(clock)), PageRequest.of(0, PAGE_SIZE, OPEN_ORDER));
+    }
+
+    @Benchmark
+    public Slice<Offer> openDeclared() {
+        return offerRepository.findAllOpen(new Date(clock.millis()), PageRequest.of(0, PAGE_SIZE));
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(OfferApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "eureka.client.enabled=false",
+                        "logging.level.me.mneri.offer=INFO",
+                        "spring.cloud.config.enabled=false",
+                        "spring.datasource.name=offer-query-benchmark")
+                .run();
+
+        context.getBean(JdbcTemplate.class).update(
+                "insert into offer (id, title, description, publisher, price, currency, cancelled, create_time, "
+                        + "end_time) select random_uuid(), 'Free Coffee', 'Buy one and get one free!', "
+                        + "u.id, 10, 'GBP', false, now(), dateadd('DAY', 1, now()) "
+                        + "from system_range(1, 64) cross join user u");
+
+        clock = context.getBean(Clock.class);
+        offerRepository = context.getBean(OfferRepository.class);
+
+        // The cursor is the last offer of the first page
+        Slice<Offer> first = offerRepository.findAllOpen(new Date(clock.millis()), PageRequest.of(0, PAGE_SIZE));
+        cursor = first.getContent().get(first.getNumberOfElements() - 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.security.filter;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.time.Clock;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the cost of {@link JWTAuthenticationFilter} for a single request.
+ * <p>
+ * The user details are resolved by a stub, so only the token handling is measured:
+ * <ul>
+ *     <li>{@link #coldToken()}: a valid token seen for the first time, the verified token cache is emptied before
+ *     every request;</li>
+ *     <li>{@link #warmToken()}: a valid token already verified;</li>
+ *     <li>{@link #invalidToken()}: a token with a wrong signature.</li>
+ * </ul>
+ *
+ * @author Massimo Neri
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3)
+public class JWTAuthenticationFilterBenchmark {
+    private static final String SECRET = "secret";
+
+    private JWTAuthenticationFilter filter;
+
+    private MockHttpServletRequest invalidRequest;
+
+    private MockHttpServletRequest validRequest;
+
+    private VerifiedTokenCache verifiedTokenCache;
+
+    private static MockHttpServletRequest createRequest(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/offers");
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+
+    @Benchmark
+    public Object coldToken() throws IOException, ServletException {
+        verifiedTokenCache.invalidateAll();
+        return doFilter(validRequest);
+    }
+
+    private Object doFilter(MockHttpServletRequest request) throws IOException, ServletException {
+        // OncePerRequestFilter marks the request as filtered, use a fresh attribute set every time
+        request.clearAttributes();
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    @Benchmark
+    public Object invalidToken() throws IOException, ServletException {
+        return doFilter(invalidRequest);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Clock clock = Clock.systemUTC();
+        UserDetails userDetails = User.withUsername("admin")
+                .password("password")
+                .authorities(AuthorityUtils.createAuthorityList("offer:write", "offer:delete"))
+                .build();
+
+        verifiedTokenCache = new VerifiedTokenCache(SECRET, 10_000, clock, new SimpleMeterRegistry());
+        filter = new JWTAuthenticationFilter(username -> userDetails, verifiedTokenCache);
+
+        Date expiresAt = new Date(clock.millis() + TimeUnit.DAYS.toMillis(1));
+        validRequest = createRequest(JWT.create()
+                .withSubject("admin")
+                .withExpiresAt(expiresAt)
+                .sign(Algorithm.HMAC256(SECRET)));
+        invalidRequest = createRequest(JWT.create()
+                .withSubject("admin")
+                .withExpiresAt(expiresAt)
+                .sign(Algorithm.HMAC256("another")));
+    }
+
+    @Benchmark
+    public Object warmToken() throws IOException, ServletException {
+        return doFilter(validRequest);
+    }
+}
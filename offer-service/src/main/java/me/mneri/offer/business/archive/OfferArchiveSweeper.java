@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.archive;
+
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.data.repository.OfferBulkRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Scheduled sweeper moving closed offers from the {@code offer} table to the {@code offer_archive} table.
+ * <p>
+ * Cancelled offers are archived at the first sweep, expired offers once the grace period has elapsed; archived offers
+ * are deleted after the retention period. Offers are moved in chunks, each in its own short transaction, so that the
+ * sweeper never holds many locks for long. Single-offer lookups fall back to the archive, see
+ * {@link me.mneri.offer.business.cache.CacheConfiguration}. The {@code memory} profile drops closed offers in the
+ * offer store instead.
+ *
+ * @author Massimo Neri
+ */
+@Component
+@ConditionalOnProperty(name = "business.archive.enabled", havingValue = "true")
+@Log4j2
+@Profile("!memory")
+public class OfferArchiveSweeper {
+    private final int chunkSize;
+
+    private final Clock clock;
+
+    private final Duration grace;
+
+    private final OfferBulkRepository offerBulkRepository;
+
+    private final Duration retention;
+
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Create a new instance.
+     *
+     * @param clock               The clock.
+     * @param offerBulkRepository The offer bulk repository.
+     * @param transactionManager  The transaction manager.
+     * @param chunkSize           The maximum number of offers moved or deleted per transaction.
+     * @param grace               The time expired offers stay in the {@code offer} table.
+     * @param retention           The time offers stay in the archive.
+     */
+    protected OfferArchiveSweeper(Clock clock,
+                                  OfferBulkRepository offerBulkRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${business.archive.chunk-size}") int chunkSize,
+                                  @Value("${business.archive.grace}") Duration grace,
+                                  @Value("${business.archive.retention}") Duration retention) {
+        this.chunkSize = chunkSize;
+        this.clock = clock;
+        this.grace = grace;
+        this.offerBulkRepository = offerBulkRepository;
+        this.retention = retention;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Archive the closed offers, then purge the archive.
+     */
+    @Scheduled(fixedDelayString = "${business.archive.sweep-delay}",
+            initialDelayString = "${business.archive.sweep-delay}")
+    public void sweep() {
+        long now = clock.millis();
+        int archived = 0;
+        int purged = 0;
+        int count;
+
+        do {
+            List<UUID> offerIds = transactionTemplate.execute(status ->
+                    offerBulkRepository.archiveClosed(new Date(now), new Date(now - grace.toMillis()), chunkSize));
+            count = offerIds.size();
+            archived += count;
+        } while (count == chunkSize);
+
+        do {
+            count = transactionTemplate.execute(status ->
+                    offerBulkRepository.purgeArchivedBefore(new Date(now - retention.toMillis()), chunkSize));
+            purged += count;
+        } while (count == chunkSize);
+
+        log.debug("Offers swept; archived: {}, purged: {}", archived, purged);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import me.mneri.offer.data.entity.EntityFactory;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.entity.User;
+import me.mneri.offer.data.repository.ArchivedOfferRepository;
+import me.mneri.offer.data.repository.OfferRepository;
+import me.mneri.offer.data.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Configuration of the business layer caches.
+ * <p>
+ * Cached entities are detached copies created by {@link EntityFactory}; offers are cached together with their
+ * publisher. Offers moved to the archive are still loaded, from the archive, so that lookups report them as closed
+ * rather than missing. Hit, miss and eviction counters are published as {@code cache.*} metrics.
+ *
+ * @author Massimo Neri
+ */
+@Configuration
+class CacheConfiguration {
+    /**
+     * The {@link Offer} cache.
+     *
+     * @param archivedOfferRepository The archived offer repository.
+     * @param entityFactory           The entity factory.
+     * @param meterRegistry           The meter registry.
+     * @param offerRepository         The offer repository.
+     * @param maximumSize             The maximum number of cached offers.
+     * @return The offer cache.
+     */
+    @Bean
+    protected VersionedCache<UUID, Offer> offerCache(ArchivedOfferRepository archivedOfferRepository,
+                                                     EntityFactory entityFactory,
+                                                     MeterRegistry meterRegistry,
+                                                     OfferRepository offerRepository,
+                                                     @Value("${business.cache.offer.maximum-size}") long maximumSize) {
+        VersionedCache<UUID, Offer> cache = new VersionedCache<>(
+                maximumSize,
+                offerId -> {
+                    Optional<Offer> offer = offerRepository.findWithPublisherById(offerId).map(entityFactory::copyOffer);
+                    return offer.isPresent()
+                            ? offer
+                            : archivedOfferRepository.findWithPublisherById(offerId).map(entityFactory::copyOffer);
+                },
+                Offer::getVersion);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.asCache(), "offer");
+        return cache;
+    }
+
+    /**
+     * The {@link User} cache.
+     *
+     * @param entityFactory  The entity factory.
+     * @param meterRegistry  The meter registry.
+     * @param userRepository The user repository.
+     * @param maximumSize    The maximum number of cached users.
+     * @return The user cache.
+     */
+    @Bean
+    protected VersionedCache<UUID, User> userCache(EntityFactory entityFactory,
+                                                   MeterRegistry meterRegistry,
+                                                   UserRepository userRepository,
+                                                   @Value("${business.cache.user.maximum-size}") long maximumSize) {
+        VersionedCache<UUID, User> cache = new VersionedCache<>(
+                maximumSize,
+                userId -> userRepository.findById(userId).map(entityFactory::copyUser),
+                User::getVersion);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.asCache(), "user");
+        return cache;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.cache;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import me.mneri.offer.data.entity.User;
+import me.mneri.offer.data.event.UserChangedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Evict the {@link User} cache entries of users changed outside of the business services.
+ *
+ * @author Massimo Neri
+ */
+@Component
+@RequiredArgsConstructor(access = AccessLevel.PROTECTED)
+class UserCacheEvictionListener {
+    private final VersionedCache<UUID, User> userCache;
+
+    /**
+     * Evict the changed user once the transaction commits.
+     * <p>
+     * The event is received when the change is flushed, while the transaction is still active, so that
+     * {@link VersionedCache#evict(Object)} can defer the eviction until after the commit.
+     *
+     * @param event The event.
+     */
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        userCache.evict(event.getUserId());
+    }
+}
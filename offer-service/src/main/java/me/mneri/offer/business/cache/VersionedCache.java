@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.NonNull;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import static me.mneri.offer.business.transaction.TransactionHelper.afterCommit;
+
+/**
+ * Bounded read-through cache of versioned values.
+ * <p>
+ * Values are loaded by the loader in the calling thread, so loads take part in the caller's transaction. Concurrent
+ * misses on the same key are coalesced: the first caller loads the value and the others wait for its result. Absent
+ * values are not cached.
+ * <p>
+ * Writers evict their keys after the transaction commits, and only if the cached version is older than the committed
+ * one. Loads still in flight at eviction time are discarded too, since they may have read the state preceding the
+ * commit. Cached values are shared between threads and must not be modified.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ * @author Massimo Neri
+ */
+public class VersionedCache<K, V> {
+    private final AsyncCache<K, V> cache;
+
+    private final Function<K, Optional<V>> loader;
+
+    private final ToLongFunction<V> versionExtractor;
+
+    /**
+     * Create a new cache.
+     *
+     * @param maximumSize      The maximum number of values in the cache.
+     * @param loader           The function loading the value of a key.
+     * @param versionExtractor The function returning the version of a value.
+     */
+    public VersionedCache(long maximumSize,
+                          @NonNull Function<K, Optional<V>> loader,
+                          @NonNull ToLongFunction<V> versionExtractor) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .buildAsync();
+        this.loader = loader;
+        this.versionExtractor = versionExtractor;
+    }
+
+    /**
+     * Return a synchronous view of the underlying cache, for monitoring purposes.
+     *
+     * @return The underlying cache.
+     */
+    public Cache<K, V> asCache() {
+        return cache.synchronous();
+    }
+
+    /**
+     * Evict the specified key once the current transaction commits, or immediately if there is no transaction.
+     *
+     * @param key The key.
+     */
+    public void evict(@NonNull K key) {
+        afterCommit(() -> cache.synchronous().invalidate(key));
+    }
+
+    /**
+     * Evict the specified key once the current transaction commits, or immediately if there is no transaction, unless
+     * the cached value is at least as recent as the specified value.
+     * <p>
+     * The version of {@code value} is read after the commit, when it reflects the committed state.
+     *
+     * @param key   The key.
+     * @param value The value being written.
+     */
+    public void evictOlderThan(@NonNull K key, @NonNull V value) {
+        afterCommit(() -> cache.asMap().computeIfPresent(key, (k, future) -> isAtLeast(future, value) ? future : null));
+    }
+
+    /**
+     * Return the value of the specified key, loading it if it is not cached.
+     *
+     * @param key The key.
+     * @return The value, or an empty optional if the loader found no value.
+     */
+    public Optional<V> get(@NonNull K key) {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> future = cache.get(key, (k, executor) -> load);
+
+        if (future == load) {
+            try {
+                load.complete(loader.apply(key).orElse(null));
+            } catch (RuntimeException e) {
+                load.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        try {
+            return Optional.ofNullable(future.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    private boolean isAtLeast(CompletableFuture<V> future, V value) {
+        if (!future.isDone() || future.isCompletedExceptionally()) {
+            return false;
+        }
+
+        V cached = future.join();
+        return cached != null && versionExtractor.applyAsLong(cached) >= versionExtractor.applyAsLong(value);
+    }
+}
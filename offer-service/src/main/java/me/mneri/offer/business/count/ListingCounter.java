@@ -0,0 +1,175 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.count;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.business.expiry.OfferExpiryScheduler;
+import me.mneri.offer.business.pojo.Count;
+import me.mneri.offer.business.pojo.CountMode;
+import me.mneri.offer.business.query.OfferQuery;
+import me.mneri.offer.business.service.OfferService;
+import me.mneri.offer.data.entity.User;
+import me.mneri.offer.data.event.UserChangedEvent;
+import me.mneri.offer.data.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static me.mneri.offer.business.transaction.TransactionHelper.afterCommit;
+
+/**
+ * Source of the totals of the listings.
+ * <p>
+ * Unfiltered listings are counted without a query per request by counters kept in memory: the open offers are the
+ * offers tracked by the {@link OfferExpiryScheduler}, which follows creates, cancels and expiries, up to one tick late
+ * for the expiries, so that count is approximate; the enabled users are counted at startup, incremented as users are
+ * created and adjusted as users are enabled, disabled or removed. Exact offer counts, and filtered listings, are counted
+ * by the database, or by the in-memory engine: an exact count runs a count query on every request, an approximate count
+ * is served from a bounded cache, keyed by the normalised filter, for at most the freshness bound. The hit, miss and
+ * eviction counters of the cache are published as {@code cache.*} metrics, with the {@code offer-count} tag.
+ *
+ * @author Massimo Neri
+ */
+@Component
+@Log4j2
+public class ListingCounter {
+    private final Cache<String, Long> approximateCounts;
+
+    private final AtomicLong enabledUserCount = new AtomicLong();
+
+    private final OfferExpiryScheduler offerExpiryScheduler;
+
+    private final OfferService offerService;
+
+    private final UserRepository userRepository;
+
+    /**
+     * Create a new instance.
+     *
+     * @param meterRegistry        The meter registry.
+     * @param offerExpiryScheduler The offer expiry scheduler.
+     * @param offerService         The offer service.
+     * @param userRepository       The user repository.
+     * @param freshness            How long an approximate count is served before being counted again.
+     * @param maximumSize          The maximum number of cached approximate counts.
+     */
+    protected ListingCounter(MeterRegistry meterRegistry,
+                             OfferExpiryScheduler offerExpiryScheduler,
+                             OfferService offerService,
+                             UserRepository userRepository,
+                             @Value("${business.count.approximate.freshness}") Duration freshness,
+                             @Value("${business.count.approximate.maximum-size}") long maximumSize) {
+        this.approximateCounts = Caffeine.newBuilder()
+                .expireAfterWrite(freshness)
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        this.offerExpiryScheduler = offerExpiryScheduler;
+        this.offerService = offerService;
+        this.userRepository = userRepository;
+        CaffeineCacheMetrics.monitor(meterRegistry, approximateCounts, "offer-count");
+    }
+
+    /**
+     * Count the enabled users.
+     *
+     * @param mode The count mode, can be {@code null}.
+     * @return The exact count, or {@code null} if the mode is {@link CountMode#NONE}.
+     */
+    public Count countEnabledUsers(CountMode mode) {
+        if (mode == null || mode == CountMode.NONE) {
+            return null;
+        }
+
+        return new Count(enabledUserCount.get(), true);
+    }
+
+    /**
+     * Count the open offers matching the specified query.
+     * <p>
+     * The unfiltered count is read from the {@link OfferExpiryScheduler}, that stops tracking expired offers up to one
+     * tick late, so it is approximate; an exact count is served from the offer service.
+     *
+     * @param query The query.
+     * @param mode  The count mode, can be {@code null}.
+     * @return The count, or {@code null} if the mode is {@link CountMode#NONE}.
+     */
+    public Count countOpenOffers(@NonNull OfferQuery query, CountMode mode) {
+        if (mode == null || mode == CountMode.NONE) {
+            return null;
+        }
+
+        if (mode == CountMode.EXACT) {
+            return new Count(offerService.countAllOpen(query), true);
+        }
+
+        if (query.getSpecification() == null) {
+            return new Count(offerExpiryScheduler.getOpenCount(), false);
+        }
+
+        // Key by the normalised filter only, the order does not change the count
+        Long count = approximateCounts.get(query.getFilter(), key -> offerService.countAllOpen(query));
+        return new Count(count, false);
+    }
+
+    /**
+     * Count the enabled users at startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        enabledUserCount.set(userRepository.countAllEnabled());
+        log.info("Enabled users counted; count: {}", enabledUserCount.get());
+    }
+
+    /**
+     * Apply the change of the enabled status of a user once the transaction changing the user commits, or immediately
+     * if there is no transaction.
+     *
+     * @param event The event.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.getEnabledDelta() != 0) {
+            long count = enabledUserCount.addAndGet(event.getEnabledDelta());
+            log.debug("Enabled users counted; userId: {}, count: {}", event.getUserId(), count);
+        }
+    }
+
+    /**
+     * Count the specified user, if enabled, once the current transaction commits, or immediately if there is no
+     * transaction.
+     *
+     * @param user The created user.
+     */
+    public void onUserCreated(@NonNull User user) {
+        if (user.isEnabled()) {
+            afterCommit(enabledUserCount::incrementAndGet);
+        }
+    }
+}
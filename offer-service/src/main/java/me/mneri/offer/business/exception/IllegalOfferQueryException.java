@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.exception;
+
+/**
+ * Thrown when the specified filter or sort expression of an offer listing is not legal.
+ *
+ * @author Massimo Neri
+ */
+public class IllegalOfferQueryException extends Exception {
+    private final String expression;
+
+    private final String reason;
+
+    /**
+     * Create a new instance.
+     *
+     * @param expression The expression.
+     * @param reason     The reason the expression is not legal.
+     */
+    public IllegalOfferQueryException(String expression, String reason) {
+        this.expression = expression;
+        this.reason = reason;
+    }
+
+    /**
+     * Return the expression.
+     *
+     * @return The expression.
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    @Override
+    public String getMessage() {
+        return String.format("The specified offer query is not legal: expression=%s, reason=%s", getExpression(),
+                getReason());
+    }
+
+    /**
+     * Return the reason the expression is not legal.
+     *
+     * @return The reason.
+     */
+    public String getReason() {
+        return reason;
+    }
+}
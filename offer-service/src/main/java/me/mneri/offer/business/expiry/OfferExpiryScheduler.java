@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.expiry;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.repository.OfferViewRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static me.mneri.offer.business.transaction.TransactionHelper.afterCommit;
+
+/**
+ * Tracker of the end time of the open {@link Offer}s, publishing an {@link OfferExpiredEvent} when an offer expires.
+ * <p>
+ * End times are kept in a {@link TimingWheel} loaded at startup by the active offer engine and kept up to date by the
+ * offer service on create, TTL update and cancel; changes are applied once the transaction commits. The wheel advances
+ * on the application {@link Clock}, so tests can fast-forward time and call {@link #advance()}. The number of tracked
+ * offers, that is the number of open offers, is published as the {@code offer.open} gauge.
+ *
+ * @author Massimo Neri
+ */
+@Component
+@Log4j2
+public class OfferExpiryScheduler {
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    private final Clock clock;
+
+    private final OfferViewRepository offerViewRepository;
+
+    private final TimingWheel<UUID> wheel;
+
+    /**
+     * Create a new instance.
+     *
+     * @param applicationEventPublisher The application event publisher.
+     * @param clock                     The clock.
+     * @param meterRegistry             The meter registry.
+     * @param offerViewRepository       The offer view repository.
+     * @param tickMillis                The resolution of the expiry, in milliseconds.
+     * @param wheelSize                 The number of buckets of each level of the wheel.
+     */
+    protected OfferExpiryScheduler(ApplicationEventPublisher applicationEventPublisher,
+                                   Clock clock,
+                                   MeterRegistry meterRegistry,
+                                   OfferViewRepository offerViewRepository,
+                                   @Value("${business.expiry.tick-millis}") long tickMillis,
+                                   @Value("${business.expiry.wheel-size}") int wheelSize) {
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.clock = clock;
+        this.offerViewRepository = offerViewRepository;
+        this.wheel = new TimingWheel<>(tickMillis, wheelSize, clock.millis());
+        Gauge.builder("offer.open", this, OfferExpiryScheduler::getOpenCount).register(meterRegistry);
+    }
+
+    /**
+     * Advance the wheel to the current time and publish the expiry of the offers whose end time has passed.
+     */
+    @Scheduled(fixedDelayString = "${business.expiry.tick-millis}")
+    public void advance() {
+        List<UUID> expired;
+
+        synchronized (wheel) {
+            expired = wheel.advance(clock.millis());
+        }
+
+        // Events are published outside of the lock, listeners are free to call back
+        for (UUID offerId : expired) {
+            applicationEventPublisher.publishEvent(new OfferExpiredEvent(offerId));
+        }
+
+        if (!expired.isEmpty()) {
+            log.debug("Offers expired; count: {}", expired.size());
+        }
+    }
+
+    /**
+     * Stop tracking the specified offer once the current transaction commits, or immediately if there is no
+     * transaction.
+     *
+     * @param offerId The id of the offer.
+     */
+    public void cancel(@NonNull UUID offerId) {
+        afterCommit(() -> {
+            synchronized (wheel) {
+                wheel.cancel(offerId);
+            }
+        });
+    }
+
+    /**
+     * Delay by the specified TTL the expiry of the specified offer once the current transaction commits, or immediately
+     * if there is no transaction. Offers that are not tracked are ignored.
+     *
+     * @param offerId The id of the offer.
+     * @param ttl     The TTL added to the end time, in milliseconds.
+     */
+    public void extend(@NonNull UUID offerId, long ttl) {
+        afterCommit(() -> {
+            synchronized (wheel) {
+                wheel.deadline(offerId).ifPresent(deadline -> wheel.schedule(offerId, deadline + ttl));
+            }
+        });
+    }
+
+    /**
+     * Return the number of tracked offers, that is the number of open offers.
+     *
+     * @return The number of open offers.
+     */
+    public int getOpenCount() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    /**
+     * Track the offers open in the repository. Called at startup by
+     * {@link me.mneri.offer.business.service.OfferLoader} only: under the {@code memory} profile the offer store
+     * schedules the offers it recovers.
+     */
+    public void load() {
+        Date now = new Date(clock.millis());
+
+        offerViewRepository.forEachOpenEndTime(now, (offerId, endTime) -> {
+            synchronized (wheel) {
+                // Offers created meanwhile have the most recent end time
+                if (!wheel.deadline(offerId).isPresent()) {
+                    wheel.schedule(offerId, endTime.getTime());
+                }
+            }
+        });
+
+        log.info("Open offers loaded; count: {}", getOpenCount());
+    }
+
+    /**
+     * Track the specified offer, expiring at the specified end time, once the current transaction commits, or
+     * immediately if there is no transaction.
+     *
+     * @param offerId The id of the offer.
+     * @param endTime The end time of the offer.
+     */
+    public void schedule(@NonNull UUID offerId, @NonNull Date endTime) {
+        long deadline = endTime.getTime();
+
+        afterCommit(() -> {
+            synchronized (wheel) {
+                wheel.schedule(offerId, deadline);
+            }
+        });
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.expiry;
+
+import org.springframework.lang.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel of keys expiring at a deadline.
+ * <p>
+ * Level {@code i} has {@code wheelSize} buckets, each spanning {@code tickMillis * wheelSize^i} milliseconds. A key is
+ * placed in the lowest level whose buckets reach its deadline; as time advances, the bucket of a higher level that
+ * becomes current is redistributed to the lower levels. Levels are added as needed, so there is no horizon. Scheduling
+ * and cancelling are constant time; advancing is linear in the elapsed ticks and the expired keys.
+ * <p>
+ * Keys expire once time has advanced past the end of the tick of their deadline, so never early and at most one tick
+ * late. The wheel is not thread-safe.
+ *
+ * @param <K> The type of the keys.
+ * @author Massimo Neri
+ */
+public class TimingWheel<K> {
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+
+    private final List<Entry<K>[]> levels = new ArrayList<>();
+
+    private final long tickMillis;
+
+    private final int wheelSize;
+
+    /**
+     * The start of the current tick; the keys whose deadline precedes it have expired.
+     */
+    private long currentTime;
+
+    /**
+     * Create a new wheel.
+     *
+     * @param tickMillis  The duration of a tick of the lowest level, in milliseconds.
+     * @param wheelSize   The number of buckets of each level.
+     * @param startMillis The start time, in milliseconds.
+     * @throws IllegalArgumentException If the tick duration is not positive or the wheel has less than two buckets.
+     */
+    public TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick duration is less or equal to 0.");
+        }
+
+        if (wheelSize < 2) {
+            throw new IllegalArgumentException("Wheel size is less than 2.");
+        }
+
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.currentTime = Math.floorDiv(startMillis, tickMillis) * tickMillis;
+    }
+
+    /**
+     * Advance the wheel to the specified time and return the keys expired meanwhile.
+     *
+     * @param nowMillis The current time, in milliseconds.
+     * @return The expired keys, no longer in the wheel.
+     */
+    public List<K> advance(long nowMillis) {
+        List<K> expired = new ArrayList<>();
+
+        while (currentTime + tickMillis <= nowMillis) {
+            if (entries.isEmpty()) {
+                currentTime = Math.floorDiv(nowMillis, tickMillis) * tickMillis;
+                break;
+            }
+
+            drain(0, slot(currentTime, 0), entry -> {
+                entries.remove(entry.key);
+                expired.add(entry.key);
+            });
+
+            currentTime += tickMillis;
+
+            // Redistribute the buckets becoming current, from the highest level so that entries can move down twice
+            int level = 0;
+
+            while (level + 1 < levels.size() && currentTime % tick(level + 1) == 0) {
+                level++;
+            }
+
+            for (; level > 0; level--) {
+                drain(level, slot(currentTime, level), this::place);
+            }
+        }
+
+        return expired;
+    }
+
+    /**
+     * Cancel the specified key.
+     *
+     * @param key The key.
+     * @return {@code true} if the key was in the wheel, {@code false} otherwise.
+     */
+    public boolean cancel(@NonNull K key) {
+        Entry<K> entry = entries.remove(key);
+
+        if (entry == null) {
+            return false;
+        }
+
+        entry.unlink();
+        return true;
+    }
+
+    /**
+     * Return the deadline of the specified key.
+     *
+     * @param key The key.
+     * @return The deadline in milliseconds, or an empty optional if the key is not in the wheel.
+     */
+    public Optional<Long> deadline(@NonNull K key) {
+        Entry<K> entry = entries.get(key);
+        return entry == null ? Optional.empty() : Optional.of(entry.deadline);
+    }
+
+    /**
+     * Schedule the specified key to expire at the specified deadline, replacing its previous deadline if any.
+     *
+     * @param key      The key.
+     * @param deadline The deadline, in milliseconds.
+     * @return {@code true} if the key was scheduled, {@code false} if the deadline precedes the current tick, in which
+     * case the key is not in the wheel.
+     */
+    public boolean schedule(@NonNull K key, long deadline) {
+        cancel(key);
+
+        if (deadline < currentTime) {
+            return false;
+        }
+
+        Entry<K> entry = new Entry<>(key, deadline);
+        entries.put(key, entry);
+        place(entry);
+
+        return true;
+    }
+
+    /**
+     * Return the number of keys in the wheel.
+     *
+     * @return The number of keys.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Remove all the entries of the specified bucket and pass them to the specified action.
+     */
+    private void drain(int level, int slot, Consumer<Entry<K>> action) {
+        if (level >= levels.size()) {
+            return;
+        }
+
+        Entry<K> head = levels.get(level)[slot];
+
+        while (head.next != head) {
+            Entry<K> entry = head.next;
+            entry.unlink();
+            action.accept(entry);
+        }
+    }
+
+    /**
+     * Put the specified entry in the bucket of the lowest level reaching its deadline.
+     */
+    private void place(Entry<K> entry) {
+        int level = 0;
+
+        while (!reaches(level, entry.deadline)) {
+            if (tick(level) > Long.MAX_VALUE / wheelSize / wheelSize) {
+                // The next level would overflow: park the entry in the farthest bucket, it will be placed again
+                bucket(level, slot(currentTime, level) == 0 ? wheelSize - 1 : slot(currentTime, level) - 1)
+                        .linkBefore(entry);
+                return;
+            }
+
+            level++;
+        }
+
+        bucket(level, slot(entry.deadline, level)).linkBefore(entry);
+    }
+
+    /**
+     * Return {@code true} if the buckets of the specified level reach the specified deadline.
+     */
+    private boolean reaches(int level, long deadline) {
+        long tick = tick(level);
+        return Math.floorDiv(deadline, tick) - Math.floorDiv(currentTime, tick) < wheelSize;
+    }
+
+    /**
+     * Return the sentinel of the specified bucket, creating the level if needed.
+     */
+    @SuppressWarnings("unchecked")
+    private Entry<K> bucket(int level, int slot) {
+        while (levels.size() <= level) {
+            Entry<K>[] buckets = new Entry[wheelSize];
+
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Entry<>(null, 0);
+            }
+
+            levels.add(buckets);
+        }
+
+        return levels.get(level)[slot];
+    }
+
+    /**
+     * Return the index of the bucket of the specified level containing the specified time.
+     */
+    private int slot(long time, int level) {
+        return (int) Math.floorMod(Math.floorDiv(time, tick(level)), (long) wheelSize);
+    }
+
+    /**
+     * Return the span of a bucket of the specified level.
+     */
+    private long tick(int level) {
+        long tick = tickMillis;
+
+        for (int i = 0; i < level; i++) {
+            tick *= wheelSize;
+        }
+
+        return tick;
+    }
+
+    /**
+     * Entry of a bucket, linked in a circular list. The sentinel of each bucket is an entry without key.
+     */
+    private static final class Entry<K> {
+        private final long deadline;
+
+        private final K key;
+
+        private Entry<K> next = this;
+
+        private Entry<K> prev = this;
+
+        private Entry(K key, long deadline) {
+            this.deadline = deadline;
+            this.key = key;
+        }
+
+        private void linkBefore(Entry<K> entry) {
+            entry.prev = prev;
+            entry.next = this;
+            prev.next = entry;
+            prev = entry;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            next = this;
+            prev = this;
+        }
+    }
+}
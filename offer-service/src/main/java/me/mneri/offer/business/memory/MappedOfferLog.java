@@ -0,0 +1,414 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.memory;
+
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.data.entity.EntityFactory;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.entity.User;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * {@link OfferLog} written to memory-mapped segments of fixed size.
+ * <p>
+ * The base is the {@code base} file, the segments are the {@code segment-*} files. A record is framed by its length
+ * and the CRC-32 of its content. Segments are zero filled when mapped, so a zero length marks the end of the written
+ * records; a record not fitting the rest of a segment rolls the log to the next one. Replay stops reading a file at
+ * the first record failing its CRC, that is a record torn by a crash. Once opened, the log resumes appending to the
+ * last segment right after its last valid record, zeroing what a crash left past it, so that restarts don't leave a
+ * mostly empty segment behind.
+ * <p>
+ * Unless forced on each append, changes reach the storage device when the operating system writes the mapped pages
+ * back, or when {@link #force()} is called: the store forces the log at a fixed delay, so that the appends of that
+ * interval share a single force. Files are mapped whole, so they can't exceed 2 GB.
+ *
+ * @author Massimo Neri
+ */
+@Log4j2
+class MappedOfferLog implements OfferLog {
+    /**
+     * Action performed on the content of a record.
+     */
+    @FunctionalInterface
+    private interface RecordAction {
+        void accept(byte[] record) throws IOException;
+    }
+
+    private static final String BASE = "base";
+
+    private static final String BASE_TEMP = "base.tmp";
+
+    private static final int HEADER_SIZE = 8;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    private final CRC32 crc = new CRC32();
+
+    private final DataOutputStream data = new DataOutputStream(buffer);
+
+    private final Path directory;
+
+    private final EntityFactory entityFactory;
+
+    private final boolean fsync;
+
+    private volatile MappedByteBuffer segment;
+
+    private long segmentNumber;
+
+    private final int segmentSize;
+
+    /**
+     * Create a new instance.
+     *
+     * @param directory     The directory of the base and of the segments.
+     * @param entityFactory The entity factory.
+     * @param fsync         {@code true} to force the segment to the storage device after each append.
+     * @param segmentSize   The size of a segment, in bytes.
+     */
+    MappedOfferLog(Path directory, EntityFactory entityFactory, boolean fsync, int segmentSize) {
+        this.directory = directory;
+        this.entityFactory = entityFactory;
+        this.fsync = fsync;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void append(OfferEventType type, Collection<Offer> offers) throws IOException {
+        for (Offer offer : offers) {
+            byte[] record = encode(type, offer);
+
+            if (HEADER_SIZE + record.length > segmentSize) {
+                throw new IOException("Offer record larger than a segment; offerId: " + offer.getId());
+            }
+
+            if (segment.remaining() < HEADER_SIZE + record.length) {
+                roll();
+            }
+
+            crc.reset();
+            crc.update(record, 0, record.length);
+            segment.putInt(record.length);
+            segment.putInt((int) crc.getValue());
+            segment.put(record);
+        }
+
+        if (fsync) {
+            segment.force();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        MappedByteBuffer current = segment;
+
+        if (current != null) {
+            current.force();
+            // The mapping is released when the buffer is collected
+            segment = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void compact(Collection<Offer> offers, long firstSegment) throws IOException {
+        Path temp = directory.resolve(BASE_TEMP);
+        CRC32 baseCrc = new CRC32();
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteArrayOutputStream baseBuffer = new ByteArrayOutputStream();
+            DataOutputStream baseData = new DataOutputStream(baseBuffer);
+
+            for (Offer offer : offers) {
+                baseBuffer.reset();
+                OfferCodec.write(baseData, offer.isCancelled() ? OfferEventType.CANCELLED : OfferEventType.UPDATED,
+                        offer);
+                byte[] record = baseBuffer.toByteArray();
+                baseCrc.reset();
+                baseCrc.update(record, 0, record.length);
+
+                ByteBuffer framed = ByteBuffer.allocate(HEADER_SIZE + record.length);
+                framed.putInt(record.length).putInt((int) baseCrc.getValue()).put(record).flip();
+
+                while (framed.hasRemaining()) {
+                    channel.write(framed);
+                }
+            }
+
+            channel.force(true);
+        }
+
+        Files.move(temp, directory.resolve(BASE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        for (long number : segments()) {
+            if (number < firstSegment) {
+                Files.delete(segmentPath(number));
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void force() {
+        MappedByteBuffer current = segment;
+
+        if (current != null) {
+            current.force();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Long> segments = segments();
+
+        if (segments.isEmpty()) {
+            mapSegment(0, true);
+            return;
+        }
+
+        long last = segments.get(segments.size() - 1);
+        Path path = segmentPath(last);
+
+        // A segment written with another segment size is left as it is
+        if (Files.size(path) != segmentSize) {
+            mapSegment(last + 1, true);
+            return;
+        }
+
+        mapSegment(last, false);
+        int end = read(path, segment.duplicate(), record -> {
+        });
+        clearFrom(end);
+        segment.position(end);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void replay(Function<UUID, Optional<User>> publishers, Consumer<Offer> action) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        Path base = directory.resolve(BASE);
+
+        if (Files.exists(base)) {
+            replay(base, publishers, action);
+        }
+
+        for (long number : segments()) {
+            replay(segmentPath(number), publishers, action);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long roll() throws IOException {
+        close();
+        mapSegment(segmentNumber + 1, true);
+        return segmentNumber;
+    }
+
+    /**
+     * Zero the current segment from the specified position to its end, writing only the bytes that are not zero
+     * already.
+     *
+     * @param position The position.
+     */
+    private void clearFrom(int position) {
+        int i = position;
+
+        for (; i + Long.BYTES <= segmentSize; i += Long.BYTES) {
+            if (segment.getLong(i) != 0) {
+                segment.putLong(i, 0);
+            }
+        }
+
+        for (; i < segmentSize; i++) {
+            if (segment.get(i) != 0) {
+                segment.put(i, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Encode a record of the specified change.
+     *
+     * @param type  The type of the change.
+     * @param offer The state of the offer after the change.
+     * @return The record.
+     * @throws IOException If an I/O error occurs.
+     */
+    private byte[] encode(OfferEventType type, Offer offer) throws IOException {
+        buffer.reset();
+        OfferCodec.write(data, type, offer);
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Map the segment with the specified number.
+     *
+     * @param number The number of the segment.
+     * @param create {@code true} to create the segment, {@code false} to map an existing one.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void mapSegment(long number, boolean create) throws IOException {
+        OpenOption[] options = create
+                ? new OpenOption[]{StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE}
+                : new OpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE};
+
+        try (FileChannel channel = FileChannel.open(segmentPath(number), options)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            segmentNumber = number;
+        }
+    }
+
+    /**
+     * Read the valid records of the specified buffer, from its position, up to the end of the written records or up to
+     * the first torn record.
+     *
+     * @param path   The file of the buffer, for logging.
+     * @param input  The buffer.
+     * @param action The action to perform on the content of each valid record.
+     * @return The position following the last valid record.
+     * @throws IOException If the action throws it.
+     */
+    private static int read(Path path, ByteBuffer input, RecordAction action) throws IOException {
+        CRC32 readCrc = new CRC32();
+
+        while (input.remaining() >= HEADER_SIZE) {
+            int start = input.position();
+            int length = input.getInt();
+            int checksum = input.getInt();
+
+            if (length == 0) {
+                return start;
+            }
+
+            if (length < 0 || length > input.remaining()) {
+                log.warn("Offer log record torn, read stopped; file: {}", path);
+                return start;
+            }
+
+            byte[] record = new byte[length];
+            input.get(record);
+            readCrc.reset();
+            readCrc.update(record, 0, length);
+
+            if ((int) readCrc.getValue() != checksum) {
+                log.warn("Offer log record failing its CRC, read stopped; file: {}", path);
+                return start;
+            }
+
+            action.accept(record);
+        }
+
+        return input.position();
+    }
+
+    /**
+     * Replay the records of the specified file.
+     *
+     * @param path       The file.
+     * @param publishers The function resolving the publishers by id.
+     * @param action     The action to perform on each replayed offer.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void replay(Path path, Function<UUID, Optional<User>> publishers, Consumer<Offer> action)
+            throws IOException {
+        MappedByteBuffer input;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            input = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        read(path, input, record -> OfferCodec
+                .read(new DataInputStream(new ByteArrayInputStream(record)), entityFactory, publishers)
+                .ifPresent(action));
+    }
+
+    /**
+     * Return the path of the segment with the specified number.
+     *
+     * @param number The number of the segment.
+     * @return The path.
+     */
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%020d", SEGMENT_PREFIX, number));
+    }
+
+    /**
+     * Return the numbers of the existing segments, in ascending order.
+     *
+     * @return The numbers of the segments.
+     * @throws IOException If an I/O error occurs.
+     */
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.memory;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import me.mneri.offer.data.entity.EntityFactory;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.entity.User;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Binary encoding of the records of an {@link OfferLog}.
+ * <p>
+ * A record holds the type of the change and the whole state of the offer after it; the publisher is stored by id.
+ *
+ * @author Massimo Neri
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class OfferCodec {
+    private static final OfferEventType[] TYPES = OfferEventType.values();
+
+    /**
+     * Read a record from the specified input.
+     *
+     * @param input         The input.
+     * @param entityFactory The entity factory.
+     * @param publishers    The function resolving the publishers by id.
+     * @return The offer, or an empty optional if the publisher can't be resolved.
+     * @throws IOException If an I/O error occurs.
+     */
+    static Optional<Offer> read(DataInput input, EntityFactory entityFactory,
+                                Function<UUID, Optional<User>> publishers) throws IOException {
+        int type = input.readUnsignedByte();
+
+        if (type >= TYPES.length) {
+            throw new IOException("Unknown offer event type: " + type);
+        }
+
+        UUID id = new UUID(input.readLong(), input.readLong());
+        UUID publisherId = new UUID(input.readLong(), input.readLong());
+        Date createTime = new Date(input.readLong());
+        Date endTime = new Date(input.readLong());
+        long version = input.readLong();
+        boolean cancelled = input.readBoolean();
+        String currency = input.readUTF();
+        BigDecimal price = new BigDecimal(input.readUTF());
+        String title = input.readBoolean() ? input.readUTF() : null;
+        String description = input.readBoolean() ? input.readUTF() : null;
+
+        return publishers.apply(publisherId).map(publisher -> {
+            Offer offer = entityFactory.restoreOffer(id, createTime, endTime, version);
+            offer.setCancelled(cancelled);
+            offer.setCurrency(currency);
+            offer.setDescription(description);
+            offer.setPrice(price);
+            offer.setPublisher(publisher);
+            offer.setTitle(title);
+            return offer;
+        });
+    }
+
+    /**
+     * Write a record to the specified output.
+     *
+     * @param output The output.
+     * @param type   The type of the change.
+     * @param offer  The state of the offer after the change.
+     * @throws IOException If an I/O error occurs.
+     */
+    static void write(DataOutput output, OfferEventType type, Offer offer) throws IOException {
+        output.writeByte(type.ordinal());
+        output.writeLong(offer.getId().getMostSignificantBits());
+        output.writeLong(offer.getId().getLeastSignificantBits());
+        output.writeLong(offer.getPublisher().getId().getMostSignificantBits());
+        output.writeLong(offer.getPublisher().getId().getLeastSignificantBits());
+        output.writeLong(offer.getCreateTime().getTime());
+        output.writeLong(offer.getEndTime().getTime());
+        output.writeLong(offer.getVersion());
+        output.writeBoolean(offer.isCancelled());
+        output.writeUTF(offer.getCurrency());
+        output.writeUTF(offer.getPrice().toPlainString());
+        writeNullable(output, offer.getTitle());
+        writeNullable(output, offer.getDescription());
+    }
+
+    /**
+     * Write the specified nullable string to the specified output.
+     *
+     * @param output The output.
+     * @param value  The string, can be {@code null}.
+     * @throws IOException If an I/O error occurs.
+     */
+    private static void writeNullable(DataOutput output, String value) throws IOException {
+        output.writeBoolean(value != null);
+
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+}
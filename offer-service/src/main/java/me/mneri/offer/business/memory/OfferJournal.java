@@ -0,0 +1,277 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.memory;
+
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.data.entity.EntityFactory;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.entity.User;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link OfferLog} written through buffered file streams.
+ * <p>
+ * The base is the {@code snapshot} file, the segments are the {@code log-*} files. Each record is prefixed by a magic
+ * number; a record torn by a crash ends the replay of its segment.
+ *
+ * @author Massimo Neri
+ */
+@Log4j2
+class OfferJournal implements OfferLog {
+    private static final int MAGIC = 0x4f464652;
+
+    private static final String SEGMENT_PREFIX = "log-";
+
+    private static final String SNAPSHOT = "snapshot";
+
+    private static final String SNAPSHOT_TEMP = "snapshot.tmp";
+
+    private final Path directory;
+
+    private final EntityFactory entityFactory;
+
+    private final boolean fsync;
+
+    private volatile FileChannel segmentChannel;
+
+    private long segmentNumber;
+
+    private DataOutputStream segmentOutput;
+
+    /**
+     * Create a new instance.
+     *
+     * @param directory     The directory of the snapshot and of the segments.
+     * @param entityFactory The entity factory.
+     * @param fsync         {@code true} to force the segment to the storage device after each append.
+     */
+    OfferJournal(Path directory, EntityFactory entityFactory, boolean fsync) {
+        this.directory = directory;
+        this.entityFactory = entityFactory;
+        this.fsync = fsync;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void append(OfferEventType type, Collection<Offer> offers) throws IOException {
+        for (Offer offer : offers) {
+            segmentOutput.writeInt(MAGIC);
+            OfferCodec.write(segmentOutput, type, offer);
+        }
+
+        segmentOutput.flush();
+
+        if (fsync) {
+            segmentChannel.force(false);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        if (segmentOutput != null) {
+            segmentOutput.close();
+            segmentOutput = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void compact(Collection<Offer> offers, long firstSegment) throws IOException {
+        Path temp = directory.resolve(SNAPSHOT_TEMP);
+
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(file))) {
+            for (Offer offer : offers) {
+                output.writeInt(MAGIC);
+                OfferCodec.write(output, offer.isCancelled() ? OfferEventType.CANCELLED : OfferEventType.UPDATED,
+                        offer);
+            }
+
+            output.flush();
+            file.getChannel().force(true);
+        }
+
+        Files.move(temp, directory.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+
+        for (long number : segments()) {
+            if (number < firstSegment) {
+                Files.delete(segmentPath(number));
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void force() throws IOException {
+        FileChannel channel = segmentChannel;
+
+        if (channel != null && channel.isOpen()) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Long> segments = segments();
+        openSegment(segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void replay(Function<UUID, Optional<User>> publishers, Consumer<Offer> action) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        Path snapshot = directory.resolve(SNAPSHOT);
+
+        if (Files.exists(snapshot)) {
+            replay(snapshot, publishers, action);
+        }
+
+        for (long number : segments()) {
+            replay(segmentPath(number), publishers, action);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long roll() throws IOException {
+        force();
+        close();
+        openSegment(segmentNumber + 1);
+        return segmentNumber;
+    }
+
+    /**
+     * Return {@code true} if the specified input has at least one more byte.
+     *
+     * @param input The input.
+     * @return {@code true} if the input has more bytes, {@code false} otherwise.
+     * @throws IOException If an I/O error occurs.
+     */
+    private boolean hasNext(DataInputStream input) throws IOException {
+        input.mark(1);
+        boolean next = input.read() != -1;
+        input.reset();
+        return next;
+    }
+
+    /**
+     * Open the segment with the specified number for appending.
+     *
+     * @param number The number of the segment.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void openSegment(long number) throws IOException {
+        FileOutputStream segment = new FileOutputStream(segmentPath(number).toFile(), true);
+        segmentChannel = segment.getChannel();
+        segmentNumber = number;
+        segmentOutput = new DataOutputStream(new BufferedOutputStream(segment));
+    }
+
+    /**
+     * Replay the records of the specified file.
+     *
+     * @param path       The file.
+     * @param publishers The function resolving the publishers by id.
+     * @param action     The action to perform on each replayed offer.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void replay(Path path, Function<UUID, Optional<User>> publishers, Consumer<Offer> action)
+            throws IOException {
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream input = new DataInputStream(new BufferedInputStream(file))) {
+            while (hasNext(input)) {
+                if (input.readInt() != MAGIC) {
+                    throw new IOException("Corrupted offer journal record; file: " + path);
+                }
+
+                OfferCodec.read(input, entityFactory, publishers).ifPresent(action);
+            }
+        } catch (EOFException e) {
+            log.warn("Offer journal truncated, replay stopped at the last complete record; file: {}", path);
+        }
+    }
+
+    /**
+     * Return the path of the segment with the specified number.
+     *
+     * @param number The number of the segment.
+     * @return The path.
+     */
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%020d", SEGMENT_PREFIX, number));
+    }
+
+    /**
+     * Return the numbers of the existing segments, in ascending order.
+     *
+     * @return The numbers of the segments.
+     * @throws IOException If an I/O error occurs.
+     */
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
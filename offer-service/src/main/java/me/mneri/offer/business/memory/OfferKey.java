@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.memory;
+
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import me.mneri.offer.data.entity.Offer;
+
+import java.util.UUID;
+
+/**
+ * Key of the open offer indexes of {@link OfferStore}: offers are ordered by end time, then by id.
+ *
+ * @author Massimo Neri
+ */
+@EqualsAndHashCode
+@RequiredArgsConstructor
+final class OfferKey implements Comparable<OfferKey> {
+    /**
+     * The greatest id, following any other id in the key order.
+     */
+    private static final UUID MAX_ID = new UUID(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final long endTime;
+
+    @NonNull
+    private final UUID id;
+
+    /**
+     * Return the key of the specified offer.
+     *
+     * @param offer The offer.
+     * @return The key.
+     */
+    static OfferKey of(Offer offer) {
+        return new OfferKey(offer.getEndTime().getTime(), offer.getId());
+    }
+
+    /**
+     * Return the greatest key with the specified end time: the keys following it have a later end time.
+     *
+     * @param endTime The end time.
+     * @return The key.
+     */
+    static OfferKey last(long endTime) {
+        return new OfferKey(endTime, MAX_ID);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int compareTo(OfferKey other) {
+        int result = Long.compare(endTime, other.endTime);
+        return result != 0 ? result : id.compareTo(other.id);
+    }
+}
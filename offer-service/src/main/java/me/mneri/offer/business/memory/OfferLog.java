@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.memory;
+
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.entity.User;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Durable record of the content of an {@link OfferStore}: a compacted base holding one record per offer, plus a log of
+ * the changes written since, split in numbered segments.
+ * <p>
+ * Compaction first rolls the log to a new segment, then writes the base from the live offers and drops the segments
+ * preceding the new one. Since the offers are read while writes go on, the base may already hold states also found in
+ * the live segments: replaying keeps, for each offer, the state with the highest version, so records can be replayed
+ * any number of times. Offers missing from the live offers, superseded or past the retention, are dropped.
+ * <p>
+ * Implementations are not required to be thread-safe, except for {@link #force()} and
+ * {@link #compact(Collection, long)}, which may run concurrently with the other methods; the store serializes the
+ * other calls.
+ *
+ * @author Massimo Neri
+ */
+interface OfferLog extends Closeable {
+    /**
+     * Append the specified changes to the log.
+     *
+     * @param type   The type of the changes.
+     * @param offers The states of the offers after the changes.
+     * @throws IOException If an I/O error occurs.
+     */
+    void append(OfferEventType type, Collection<Offer> offers) throws IOException;
+
+    /**
+     * Replace the base with the specified offers, then drop the segments preceding the specified one.
+     *
+     * @param offers       The live offers.
+     * @param firstSegment The first segment holding changes that could be missing from the offers.
+     * @throws IOException If an I/O error occurs.
+     */
+    void compact(Collection<Offer> offers, long firstSegment) throws IOException;
+
+    /**
+     * Force the appended changes to the storage device.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    void force() throws IOException;
+
+    /**
+     * Open the log: the following changes are appended after the last valid record of the last segment.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    void open() throws IOException;
+
+    /**
+     * Replay the base and the segments, in order.
+     * <p>
+     * Records of publishers that can't be resolved are skipped.
+     *
+     * @param publishers The function resolving the publishers by id.
+     * @param action     The action to perform on each replayed offer.
+     * @throws IOException If an I/O error occurs.
+     */
+    void replay(Function<UUID, Optional<User>> publishers, Consumer<Offer> action) throws IOException;
+
+    /**
+     * Close the current segment and open the next one.
+     *
+     * @return The number of the new segment, to pass to {@link #compact(Collection, long)}.
+     * @throws IOException If an I/O error occurs.
+     */
+    long roll() throws IOException;
+}
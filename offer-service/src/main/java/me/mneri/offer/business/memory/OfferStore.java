@@ -0,0 +1,376 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.memory;
+
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.business.cache.VersionedCache;
+import me.mneri.offer.business.expiry.OfferExpiredEvent;
+import me.mneri.offer.business.expiry.OfferExpiryScheduler;
+import me.mneri.offer.business.search.OfferSearchIndex;
+import me.mneri.offer.data.entity.EntityFactory;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory store of the offers, for the {@code memory} profile.
+ * <p>
+ * Offers are kept as detached entities that are never modified once stored: a change stores a new copy with the next
+ * version. The open offers are indexed by end time and id, globally and per publisher, in skip lists, so that listings
+ * are range scans. Reads don't lock; writes are serialized, recorded by an {@link OfferLog} and only then published
+ * to the indexes, so that a restart recovers them. The log is forced and compacted at fixed delays; closed offers are
+ * dropped once their end time is older than the archive retention.
+ *
+ * @author Massimo Neri
+ */
+@Component
+@Log4j2
+@Profile("memory")
+public class OfferStore {
+    private final Clock clock;
+
+    private final OfferExpiryScheduler offerExpiryScheduler;
+
+    private final OfferLog offerLog;
+
+    private final OfferSearchIndex offerSearchIndex;
+
+    private final Map<UUID, Offer> offers = new ConcurrentHashMap<>();
+
+    private final ConcurrentNavigableMap<OfferKey, Offer> open = new ConcurrentSkipListMap<>();
+
+    private final Map<UUID, ConcurrentNavigableMap<OfferKey, Offer>> openByPublisher = new ConcurrentHashMap<>();
+
+    private final long retentionMillis;
+
+    private final VersionedCache<UUID, User> userCache;
+
+    /**
+     * Create a new instance.
+     *
+     * @param clock                The clock.
+     * @param entityFactory        The entity factory.
+     * @param offerExpiryScheduler The offer expiry scheduler.
+     * @param offerSearchIndex     The offer search index.
+     * @param userCache            The user cache, resolving the publishers of recovered offers.
+     * @param logType              The type of the change log, {@code stream} or {@code mapped}.
+     * @param directory            The directory of the change log.
+     * @param fsync                {@code true} to force the change log to the storage device after each write.
+     * @param segmentSize          The size of a segment of the {@code mapped} change log.
+     * @param retention            The time closed offers are kept after their end time.
+     */
+    protected OfferStore(Clock clock,
+                         EntityFactory entityFactory,
+                         OfferExpiryScheduler offerExpiryScheduler,
+                         OfferSearchIndex offerSearchIndex,
+                         VersionedCache<UUID, User> userCache,
+                         @Value("${business.memory.log}") String logType,
+                         @Value("${business.memory.directory}") String directory,
+                         @Value("${business.memory.fsync}") boolean fsync,
+                         @Value("${business.memory.segment-size}") DataSize segmentSize,
+                         @Value("${business.archive.retention}") Duration retention) {
+        this.clock = clock;
+        this.offerExpiryScheduler = offerExpiryScheduler;
+        this.offerLog = createLog(logType, Paths.get(directory), entityFactory, fsync, segmentSize);
+        this.offerSearchIndex = offerSearchIndex;
+        this.retentionMillis = retention.toMillis();
+        this.userCache = userCache;
+    }
+
+    /**
+     * Close the change log.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        offerLog.close();
+    }
+
+    /**
+     * Return the open offers following the specified cursor, ordered by end time and id.
+     * <p>
+     * The result is a live view: it reflects the writes that happen while it is iterated.
+     *
+     * @param now          The instant the offers must be open at.
+     * @param afterEndTime The end time of the cursor, can be {@code null}.
+     * @param afterId      The id of the cursor, can be {@code null}.
+     * @return The open offers.
+     */
+    public Collection<Offer> findOpenAfter(Date now, Date afterEndTime, UUID afterId) {
+        return tail(open, now, afterEndTime, afterId);
+    }
+
+    /**
+     * Return the open offers of the specified publisher following the specified cursor, ordered by end time and id.
+     * <p>
+     * The result is a live view: it reflects the writes that happen while it is iterated.
+     *
+     * @param publisherId  The id of the publisher.
+     * @param now          The instant the offers must be open at.
+     * @param afterEndTime The end time of the cursor, can be {@code null}.
+     * @param afterId      The id of the cursor, can be {@code null}.
+     * @return The open offers.
+     */
+    public Collection<Offer> findOpenByPublisherAfter(UUID publisherId, Date now, Date afterEndTime, UUID afterId) {
+        ConcurrentNavigableMap<OfferKey, Offer> index = openByPublisher.get(publisherId);
+        return index == null ? Collections.emptyList() : tail(index, now, afterEndTime, afterId);
+    }
+
+    /**
+     * Force the changes recorded since the last force to the storage device.
+     * <p>
+     * Unless the log forces each write, this bounds the changes a power failure can lose to the force interval.
+     */
+    @Scheduled(fixedDelayString = "${business.memory.force-interval}")
+    public void force() {
+        try {
+            offerLog.force();
+        } catch (IOException e) {
+            log.error("Cannot force the offer log", e);
+        }
+    }
+
+    /**
+     * Return the offer with the specified id, open or closed.
+     *
+     * @param offerId The id of the offer.
+     * @return The offer.
+     */
+    public Optional<Offer> get(@NonNull UUID offerId) {
+        return Optional.ofNullable(offers.get(offerId));
+    }
+
+    /**
+     * Store the specified new offers.
+     *
+     * @param created The new offers.
+     * @throws UncheckedIOException If the offers can't be recorded.
+     */
+    public synchronized void insertAll(@NonNull Collection<Offer> created) {
+        append(OfferEventType.CREATED, created);
+        created.forEach(offer -> publish(null, offer));
+    }
+
+    /**
+     * Stop indexing the specified offer as open once it expires.
+     *
+     * @param event The expiry event.
+     */
+    @EventListener
+    public void onOfferExpired(OfferExpiredEvent event) {
+        Offer offer = offers.get(event.getOfferId());
+
+        if (offer != null && offer.isExpired(clock)) {
+            unindex(offer);
+        }
+    }
+
+    /**
+     * Recover the offers from the change log, track the expiry of the open ones and index them for search.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @PostConstruct
+    public synchronized void recover() throws IOException {
+        offerLog.replay(userCache::get, offer -> {
+            Offer previous = offers.get(offer.getId());
+
+            if (previous == null || previous.getVersion() <= offer.getVersion()) {
+                publish(previous, offer);
+            }
+        });
+        offerLog.open();
+
+        open.values().forEach(offer -> offerExpiryScheduler.schedule(offer.getId(), offer.getEndTime()));
+        open.values().forEach(offerSearchIndex::index);
+        log.info("Offers recovered; count: {}, open: {}", offers.size(), open.size());
+    }
+
+    /**
+     * Replace the specified current state of an offer with the specified next state, unless the offer was written
+     * meanwhile.
+     *
+     * @param current The current state, as read from the store.
+     * @param next    The next state.
+     * @return {@code true} if the offer was replaced, {@code false} if the current state is not the stored one.
+     * @throws UncheckedIOException If the next state can't be recorded.
+     */
+    public synchronized boolean replace(@NonNull Offer current, @NonNull Offer next) {
+        if (offers.get(current.getId()) != current) {
+            return false;
+        }
+
+        OfferEventType type = next.isCancelled() && !current.isCancelled()
+                ? OfferEventType.CANCELLED : OfferEventType.UPDATED;
+        append(type, Collections.singletonList(next));
+        publish(current, next);
+        return true;
+    }
+
+    /**
+     * Compact the change log into a snapshot of the store, along with the offers past the retention.
+     */
+    @Scheduled(fixedDelayString = "${business.memory.snapshot-delay}")
+    public void snapshot() {
+        long retainedAfter = clock.millis() - retentionMillis;
+
+        for (Offer offer : offers.values()) {
+            if (offer.getEndTime().getTime() < retainedAfter && offers.remove(offer.getId(), offer)) {
+                unindex(offer);
+            }
+        }
+
+        try {
+            long firstSegment;
+
+            synchronized (this) {
+                firstSegment = offerLog.roll();
+            }
+
+            // Writes go on meanwhile, to the new segment: the snapshot may hold some of them, replay is idempotent
+            offerLog.compact(offers.values(), firstSegment);
+            log.debug("Offer snapshot taken; count: {}", offers.size());
+        } catch (IOException e) {
+            log.error("Cannot take the offer snapshot", e);
+        }
+    }
+
+    /**
+     * Record the specified change of the specified offers in the change log.
+     *
+     * @param type    The type of the change.
+     * @param written The offers.
+     */
+    private void append(OfferEventType type, Collection<Offer> written) {
+        try {
+            offerLog.append(type, written);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Create the change log of the specified type.
+     *
+     * @param type          The type of the change log, {@code stream} or {@code mapped}.
+     * @param directory     The directory of the change log.
+     * @param entityFactory The entity factory.
+     * @param fsync         {@code true} to force the change log to the storage device after each write.
+     * @param segmentSize   The size of a segment of the {@code mapped} change log.
+     * @return The change log.
+     */
+    private static OfferLog createLog(String type, Path directory, EntityFactory entityFactory, boolean fsync,
+                                      DataSize segmentSize) {
+        switch (type) {
+            case "mapped":
+                return new MappedOfferLog(directory, entityFactory, fsync, Math.toIntExact(segmentSize.toBytes()));
+            case "stream":
+                return new OfferJournal(directory, entityFactory, fsync);
+            default:
+                throw new IllegalArgumentException("Unknown offer log type: " + type);
+        }
+    }
+
+    /**
+     * Make the specified next state of an offer visible, replacing the specified previous state.
+     * <p>
+     * The next state is indexed before the previous one is removed, so a concurrent scan never misses the offer.
+     *
+     * @param previous The previous state, can be {@code null}.
+     * @param next     The next state.
+     */
+    private void publish(Offer previous, Offer next) {
+        offers.put(next.getId(), next);
+        OfferKey key = OfferKey.of(next);
+        boolean indexed = !next.isCancelled() && next.getEndTime().getTime() > clock.millis();
+
+        if (indexed) {
+            open.put(key, next);
+            openByPublisher
+                    .computeIfAbsent(next.getPublisher().getId(), publisherId -> new ConcurrentSkipListMap<>())
+                    .put(key, next);
+        }
+
+        // Offers are equal by id: under the same key, the next state has already replaced the previous one
+        if (previous != null && !(indexed && key.equals(OfferKey.of(previous)))) {
+            unindex(previous);
+        }
+    }
+
+    /**
+     * Return the entries of the specified index open at the specified instant and following the specified cursor.
+     *
+     * @param index        The index.
+     * @param now          The instant the offers must be open at.
+     * @param afterEndTime The end time of the cursor, can be {@code null}.
+     * @param afterId      The id of the cursor, can be {@code null}.
+     * @return The offers.
+     */
+    private Collection<Offer> tail(NavigableMap<OfferKey, Offer> index, Date now, Date afterEndTime, UUID afterId) {
+        OfferKey from = OfferKey.last(now.getTime());
+
+        if (afterEndTime != null && afterId != null) {
+            OfferKey cursor = new OfferKey(afterEndTime.getTime(), afterId);
+            from = cursor.compareTo(from) > 0 ? cursor : from;
+        }
+
+        return Collections.unmodifiableCollection(index.tailMap(from, false).values());
+    }
+
+    /**
+     * Remove the specified state of an offer from the open indexes, if still indexed.
+     *
+     * @param offer The state of the offer.
+     */
+    private void unindex(Offer offer) {
+        OfferKey key = OfferKey.of(offer);
+        open.remove(key, offer);
+        ConcurrentNavigableMap<OfferKey, Offer> index = openByPublisher.get(offer.getPublisher().getId());
+
+        if (index != null) {
+            index.remove(key, offer);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.pojo;
+
+import lombok.Value;
+import me.mneri.offer.data.entity.Offer;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Position of the last {@link Offer} of a page in the {@code (key, id)} ordering of a listing.
+ * <p>
+ * A page requested with a cursor starts right after the offer the cursor points to. The key is the value of the sort
+ * property of the listing: the end time, by default, or the create time in epoch milliseconds, or the price in
+ * hundredths. Since open offers are ordered by end time by default, offers expiring during a scan always lie before
+ * the cursor and never shift the following pages.
+ *
+ * @author Massimo Neri
+ */
+@Value
+public class Cursor {
+    long key;
+
+    UUID id;
+
+    /**
+     * Create a new instance.
+     *
+     * @param key The value of the sort property of the offer.
+     * @param id  The id of the offer.
+     */
+    public Cursor(long key, UUID id) {
+        this.key = key;
+        this.id = id;
+    }
+
+    /**
+     * Create a new instance in the end time ordering.
+     *
+     * @param endTime The end time of the offer.
+     * @param id      The id of the offer.
+     */
+    public Cursor(Date endTime, UUID id) {
+        this(endTime.getTime(), id);
+    }
+
+    /**
+     * Return the key as an end time, in the end time ordering.
+     *
+     * @return The end time.
+     */
+    public Date getEndTime() {
+        return new Date(key);
+    }
+}
@@ -22,6 +22,10 @@ import lombok.Data;
 
 /**
  * Data for paging API results.
+ * <p>
+ * If {@code cursor} is set the page starts right after the cursor and {@code pageNumber} is ignored; otherwise the
+ * page is located by its number (offset mode). {@code countMode} tells whether, and how, the total of the listing is
+ * counted; {@code null} stands for {@link CountMode#NONE}.
  *
  * @author Massimo Neri
  */
@@ -30,4 +34,8 @@ public class Paging {
     private Integer pageNumber;
 
     private Integer pageSize;
+
+    private Cursor cursor;
+
+    private CountMode countMode;
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.query;
+
+import me.mneri.offer.business.pojo.Cursor;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.entity.Offer_;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.Path;
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Orders of the open offer listings.
+ * <p>
+ * Each order sorts by a property of the offer and breaks ties by id, in the same direction, so that listings can be
+ * paged with a {@link Cursor} holding the property value as its key. Each order is backed by an index starting with
+ * {@code cancelled} and ending with {@code id}: ascending orders scan it forward, descending orders backward.
+ *
+ * @author Massimo Neri
+ */
+public enum OfferOrder {
+    CREATE_TIME(Offer_.CREATE_TIME, Sort.Direction.ASC),
+
+    CREATE_TIME_DESC(Offer_.CREATE_TIME, Sort.Direction.DESC),
+
+    END_TIME(Offer_.END_TIME, Sort.Direction.ASC),
+
+    END_TIME_DESC(Offer_.END_TIME, Sort.Direction.DESC),
+
+    PRICE(Offer_.PRICE, Sort.Direction.ASC),
+
+    PRICE_DESC(Offer_.PRICE, Sort.Direction.DESC);
+
+    private final Sort.Direction direction;
+
+    private final String property;
+
+    OfferOrder(String property, Sort.Direction direction) {
+        this.direction = direction;
+        this.property = property;
+    }
+
+    /**
+     * Return the order with the specified name: the name of the sort property, prefixed by {@code -} for the
+     * descending order.
+     *
+     * @param name The name.
+     * @return The order, or {@code null} if no order has the specified name.
+     */
+    static OfferOrder byName(String name) {
+        boolean descending = name.startsWith("-");
+        String property = descending ? name.substring(1) : name;
+
+        for (OfferOrder order : values()) {
+            if (order.property.equals(property) && order.direction.isDescending() == descending) {
+                return order;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Return the comparator of the offers in this order.
+     *
+     * @return The comparator.
+     */
+    public Comparator<Offer> comparator() {
+        Comparator<Offer> ascending = Comparator.comparingLong(this::key).thenComparing(Offer::getId);
+        return direction.isAscending() ? ascending : ascending.reversed();
+    }
+
+    /**
+     * Return the sort of this order.
+     * <p>
+     * The sort starts with {@code cancelled}, constant over open offers, so that it matches the columns of the backing
+     * index and the database reads the index in order instead of sorting the rows.
+     *
+     * @return The sort.
+     */
+    public Sort getSort() {
+        return Sort.by(direction, Offer_.CANCELLED, property, Offer_.ID);
+    }
+
+    /**
+     * Return whether the specified offer follows the specified cursor in this order.
+     *
+     * @param offer  The offer.
+     * @param cursor The cursor.
+     * @return {@code true} if the offer follows the cursor, {@code false} otherwise.
+     */
+    public boolean isAfter(Offer offer, Cursor cursor) {
+        int comparison = Long.compare(key(offer), cursor.getKey());
+
+        if (comparison == 0) {
+            comparison = offer.getId().compareTo(cursor.getId());
+        }
+
+        return direction.isAscending() ? comparison > 0 : comparison < 0;
+    }
+
+    /**
+     * Return the specification of the offers following the specified cursor in this order.
+     *
+     * @param cursor The cursor.
+     * @return The specification.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public Specification<Offer> isAfter(Cursor cursor) {
+        Comparable value = value(cursor.getKey());
+        UUID id = cursor.getId();
+
+        return (root, query, builder) -> {
+            Path<Comparable> path = root.get(property);
+
+            return direction.isAscending()
+                    ? builder.or(
+                            builder.greaterThan(path, value),
+                            builder.and(builder.equal(path, value), builder.greaterThan(root.get(Offer_.id), id)))
+                    : builder.or(
+                            builder.lessThan(path, value),
+                            builder.and(builder.equal(path, value), builder.lessThan(root.get(Offer_.id), id)));
+        };
+    }
+
+    /**
+     * Return the cursor key of the specified offer in this order.
+     *
+     * @param offer The offer.
+     * @return The key.
+     */
+    public long key(Offer offer) {
+        switch (property) {
+            case Offer_.CREATE_TIME:
+                return offer.getCreateTime().getTime();
+            case Offer_.PRICE:
+                // Prices have two decimal digits, see the offer table
+                return offer.getPrice().movePointRight(2).longValue();
+            default:
+                return offer.getEndTime().getTime();
+        }
+    }
+
+    /**
+     * Return the property value a cursor key stands for in this order.
+     *
+     * @param key The key.
+     * @return The property value.
+     */
+    private Comparable<?> value(long key) {
+        return property.equals(Offer_.PRICE) ? BigDecimal.valueOf(key, 2) : new Date(key);
+    }
+}
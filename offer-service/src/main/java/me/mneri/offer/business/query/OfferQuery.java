@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.query;
+
+import lombok.Value;
+import me.mneri.offer.data.entity.Offer;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.function.Predicate;
+
+/**
+ * Compiled filter and order of an open offer listing.
+ * <p>
+ * The filter is compiled both into a {@link Specification}, for the repositories, and into a {@link Predicate}, for
+ * the in-memory engine; the two select the same offers. The filter expression is kept in its normalised form, so that it
+ * can key the caches of anything derived from the query. Queries hold no state of their own and can be shared.
+ *
+ * @author Massimo Neri
+ */
+@Value
+public class OfferQuery {
+    /**
+     * The query with no filter, in the default order.
+     */
+    public static final OfferQuery ALL = new OfferQuery(null, null, offer -> true, OfferOrder.END_TIME);
+
+    /**
+     * The normalised filter expression, {@code null} if there is no filter.
+     */
+    String filter;
+
+    /**
+     * The specification of the filter, {@code null} if there is no filter.
+     */
+    Specification<Offer> specification;
+
+    Predicate<Offer> predicate;
+
+    OfferOrder order;
+}
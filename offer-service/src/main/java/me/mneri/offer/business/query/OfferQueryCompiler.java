@@ -0,0 +1,425 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.query;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import me.mneri.offer.business.exception.IllegalOfferQueryException;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.entity.Offer_;
+import me.mneri.offer.data.entity.User_;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Compiler of the filter and sort expressions of the open offer listings into {@link OfferQuery}s.
+ * <p>
+ * A filter is a list of conditions joined by {@code and}; a condition is a property, an operator and a value separated
+ * by spaces, for example {@code currency eq GBP and price lt 50 and endTime lt PT1H}:
+ * <ul>
+ *     <li>{@code price}: {@code eq}, {@code ne}, {@code lt}, {@code le}, {@code gt} or {@code ge} a decimal
+ *     number;</li>
+ *     <li>{@code currency}: {@code eq} or {@code ne} a currency code;</li>
+ *     <li>{@code createTime}, {@code endTime}: {@code lt}, {@code le}, {@code gt} or {@code ge} an ISO-8601 instant or
+ *     an ISO-8601 duration, possibly negative, relative to the time of the listing;</li>
+ *     <li>{@code publisher}: {@code eq} a user id.</li>
+ * </ul>
+ * A sort is the name of an {@link OfferOrder}: {@code price}, {@code createTime} or {@code endTime}, prefixed by
+ * {@code -} for the descending order; the default order is {@code endTime}.
+ * <p>
+ * Expressions are normalised first: conditions are joined by a single {@code and}, tokens are separated by a single space
+ * and operators are lower case. Compiled queries are kept in a bounded cache keyed by the normalised expressions, so
+ * that repeated query shapes are not parsed again, however they are spaced. The hit, miss and eviction counters of the cache are published as {@code cache.*} metrics, with the
+ * {@code offer-query} tag.
+ *
+ * @author Massimo Neri
+ */
+@Component
+public class OfferQueryCompiler {
+    private static final Pattern AND = Pattern.compile("\\s+and\\s+");
+
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private final Cache<List<String>, OfferQuery> cache;
+
+    private final Clock clock;
+
+    /**
+     * Create a new instance.
+     *
+     * @param clock         The clock.
+     * @param meterRegistry The meter registry.
+     * @param maximumSize   The maximum number of cached queries.
+     */
+    protected OfferQueryCompiler(Clock clock,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${business.query.cache.maximum-size}") long maximumSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        this.clock = clock;
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "offer-query");
+    }
+
+    /**
+     * Compile the specified filter and sort expressions.
+     *
+     * @param filter The filter expression, can be {@code null}.
+     * @param sort   The sort expression, can be {@code null}.
+     * @return The query.
+     * @throws IllegalOfferQueryException If an expression is not legal.
+     */
+    public OfferQuery compile(String filter, String sort) throws IllegalOfferQueryException {
+        String normalizedFilter = normalizeFilter(filter);
+        String normalizedSort = isBlank(sort) ? null : sort.trim();
+
+        if (normalizedFilter == null && normalizedSort == null) {
+            return OfferQuery.ALL;
+        }
+
+        List<String> key = Arrays.asList(normalizedFilter, normalizedSort);
+        OfferQuery query = cache.getIfPresent(key);
+
+        if (query == null) {
+            query = new OfferQuery(normalizedFilter, null, offer -> true, order(normalizedSort));
+
+            if (normalizedFilter != null) {
+                for (String condition : AND.split(normalizedFilter)) {
+                    query = and(query, condition(normalizedFilter, condition));
+                }
+            }
+
+            cache.put(key, query);
+        }
+
+        return query;
+    }
+
+    /**
+     * Return the specified query restricted by the specified condition.
+     *
+     * @param query     The query.
+     * @param condition The condition.
+     * @return The restricted query.
+     */
+    private static OfferQuery and(OfferQuery query, OfferQuery condition) {
+        Specification<Offer> specification = query.getSpecification() == null
+                ? condition.getSpecification()
+                : query.getSpecification().and(condition.getSpecification());
+
+        return new OfferQuery(query.getFilter(), specification, query.getPredicate().and(condition.getPredicate()),
+                query.getOrder());
+    }
+
+    /**
+     * Compile the specified condition of the specified filter.
+     *
+     * @param filter    The filter.
+     * @param condition The condition.
+     * @return The query selecting the offers satisfying the condition.
+     * @throws IllegalOfferQueryException If the condition is not legal.
+     */
+    private OfferQuery condition(String filter, String condition) throws IllegalOfferQueryException {
+        String[] tokens = SPACES.split(condition.trim());
+
+        if (tokens.length != 3) {
+            throw new IllegalOfferQueryException(filter, "Condition is not <property> <operator> <value>: "
+                    + condition);
+        }
+
+        String property = tokens[0];
+        Operator operator = Operator.byName(tokens[1]);
+        String value = tokens[2];
+
+        if (operator == null) {
+            throw new IllegalOfferQueryException(filter, "Unknown operator: " + tokens[1]);
+        }
+
+        try {
+            switch (property) {
+                case Offer_.CREATE_TIME:
+                    return time(filter, Offer_.CREATE_TIME, operator, value, Offer::getCreateTime);
+                case Offer_.CURRENCY:
+                    return currency(filter, operator, value);
+                case Offer_.END_TIME:
+                    return time(filter, Offer_.END_TIME, operator, value, Offer::getEndTime);
+                case Offer_.PRICE:
+                    return price(operator, new BigDecimal(value));
+                case Offer_.PUBLISHER:
+                    return publisher(filter, operator, UUID.fromString(value));
+                default:
+                    throw new IllegalOfferQueryException(filter, "Unknown property: " + property);
+            }
+        } catch (DateTimeException | IllegalArgumentException e) {
+            // NumberFormatException is an IllegalArgumentException
+            throw new IllegalOfferQueryException(filter, "Illegal value of " + property + ": " + value);
+        }
+    }
+
+    /**
+     * Compile a condition on the currency.
+     *
+     * @param filter   The filter.
+     * @param operator The operator.
+     * @param value    The currency code.
+     * @return The query selecting the offers satisfying the condition.
+     * @throws IllegalOfferQueryException If the operator is not supported.
+     */
+    private static OfferQuery currency(String filter, Operator operator, String value)
+            throws IllegalOfferQueryException {
+        if (operator != Operator.EQ && operator != Operator.NE) {
+            throw new IllegalOfferQueryException(filter, "Currency only supports eq and ne");
+        }
+
+        String currency = value.toUpperCase(Locale.ROOT);
+
+        return new OfferQuery(
+                null,
+                (root, query, builder) -> operator.toPredicate(builder, root.get(Offer_.currency), currency),
+                offer -> operator.test(offer.getCurrency().compareTo(currency)),
+                null);
+    }
+
+    /**
+     * Return whether the specified expression is missing or blank.
+     *
+     * @param expression The expression, can be {@code null}.
+     * @return {@code true} if the expression is missing or blank, {@code false} otherwise.
+     */
+    private static boolean isBlank(String expression) {
+        return expression == null || expression.trim().isEmpty();
+    }
+
+    /**
+     * Normalise the specified filter expression: conditions are joined by a single {@code and}, tokens are separated by
+     * a single space and operators are lower case.
+     *
+     * @param filter The filter expression, can be {@code null}.
+     * @return The normalised filter expression, or {@code null} if the expression is missing or blank.
+     */
+    private static String normalizeFilter(String filter) {
+        if (isBlank(filter)) {
+            return null;
+        }
+
+        StringJoiner conditions = new StringJoiner(" and ");
+
+        for (String condition : AND.split(filter.trim())) {
+            String[] tokens = SPACES.split(condition.trim());
+
+            if (tokens.length == 3) {
+                tokens[1] = tokens[1].toLowerCase(Locale.ROOT);
+            }
+
+            conditions.add(String.join(" ", tokens));
+        }
+
+        return conditions.toString();
+    }
+
+    /**
+     * Compile the specified sort expression.
+     *
+     * @param sort The sort expression, can be {@code null}.
+     * @return The order.
+     * @throws IllegalOfferQueryException If the expression is not the name of an order.
+     */
+    private static OfferOrder order(String sort) throws IllegalOfferQueryException {
+        if (isBlank(sort)) {
+            return OfferOrder.END_TIME;
+        }
+
+        OfferOrder order = OfferOrder.byName(sort.trim());
+
+        if (order == null) {
+            throw new IllegalOfferQueryException(sort, "Unknown sort: " + sort);
+        }
+
+        return order;
+    }
+
+    /**
+     * Compile a condition on the price.
+     *
+     * @param operator The operator.
+     * @param price    The price.
+     * @return The query selecting the offers satisfying the condition.
+     */
+    private static OfferQuery price(Operator operator, BigDecimal price) {
+        return new OfferQuery(
+                null,
+                (root, query, builder) -> operator.toPredicate(builder, root.get(Offer_.price), price),
+                offer -> operator.test(offer.getPrice().compareTo(price)),
+                null);
+    }
+
+    /**
+     * Compile a condition on the publisher.
+     *
+     * @param filter      The filter.
+     * @param operator    The operator.
+     * @param publisherId The id of the publisher.
+     * @return The query selecting the offers satisfying the condition.
+     * @throws IllegalOfferQueryException If the operator is not supported.
+     */
+    private static OfferQuery publisher(String filter, Operator operator, UUID publisherId)
+            throws IllegalOfferQueryException {
+        if (operator != Operator.EQ) {
+            throw new IllegalOfferQueryException(filter, "Publisher only supports eq");
+        }
+
+        return new OfferQuery(
+                null,
+                // Compare the foreign key column, no need to join the user table
+                (root, query, builder) -> builder.equal(root.get(Offer_.publisher).get(User_.id), publisherId),
+                offer -> offer.getPublisher().getId().equals(publisherId),
+                null);
+    }
+
+    /**
+     * Compile a condition on a time property.
+     *
+     * @param filter   The filter.
+     * @param property The name of the property.
+     * @param operator The operator.
+     * @param value    The value: an ISO-8601 instant, or an ISO-8601 duration relative to the time of the listing.
+     * @param getter   The getter of the property.
+     * @return The query selecting the offers satisfying the condition.
+     * @throws IllegalOfferQueryException If the operator is not supported.
+     */
+    private OfferQuery time(String filter, String property, Operator operator, String value,
+                            Function<Offer, Date> getter) throws IllegalOfferQueryException {
+        if (operator == Operator.EQ || operator == Operator.NE) {
+            throw new IllegalOfferQueryException(filter, "Times only support lt, le, gt and ge");
+        }
+
+        LongSupplier millis;
+
+        if (value.startsWith("P") || value.startsWith("-P")) {
+            long offset = Duration.parse(value).toMillis();
+            millis = () -> clock.millis() + offset;
+        } else {
+            long instant = Instant.parse(value).toEpochMilli();
+            millis = () -> instant;
+        }
+
+        return new OfferQuery(
+                null,
+                (root, query, builder) -> operator.toPredicate(builder, root.<Date>get(property),
+                        new Date(millis.getAsLong())),
+                offer -> operator.test(Long.compare(getter.apply(offer).getTime(), millis.getAsLong())),
+                null);
+    }
+
+    /**
+     * Comparison operators of the conditions.
+     */
+    private enum Operator {
+        EQ, NE, LT, LE, GT, GE;
+
+        /**
+         * Return the operator with the specified name, ignoring case.
+         *
+         * @param name The name.
+         * @return The operator, or {@code null} if no operator has the specified name.
+         */
+        static Operator byName(String name) {
+            for (Operator operator : values()) {
+                if (operator.name().equalsIgnoreCase(name)) {
+                    return operator;
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * Return whether the specified result of a comparison satisfies this operator.
+         *
+         * @param comparison The result of the comparison of the property with the value.
+         * @return {@code true} if the comparison satisfies this operator, {@code false} otherwise.
+         */
+        boolean test(int comparison) {
+            switch (this) {
+                case EQ:
+                    return comparison == 0;
+                case NE:
+                    return comparison != 0;
+                case LT:
+                    return comparison < 0;
+                case LE:
+                    return comparison <= 0;
+                case GT:
+                    return comparison > 0;
+                default:
+                    return comparison >= 0;
+            }
+        }
+
+        /**
+         * Return the criteria predicate comparing the specified expression with the specified value.
+         *
+         * @param builder    The criteria builder.
+         * @param expression The expression.
+         * @param value      The value.
+         * @param <Y>        The type of the value.
+         * @return The predicate.
+         */
+        <Y extends Comparable<? super Y>> Predicate toPredicate(CriteriaBuilder builder,
+                                                               Expression<? extends Y> expression,
+                                                               Y value) {
+            switch (this) {
+                case EQ:
+                    return builder.equal(expression, value);
+                case NE:
+                    return builder.notEqual(expression, value);
+                case LT:
+                    return builder.lessThan(expression, value);
+                case LE:
+                    return builder.lessThanOrEqualTo(expression, value);
+                case GT:
+                    return builder.greaterThan(expression, value);
+                default:
+                    return builder.greaterThanOrEqualTo(expression, value);
+            }
+        }
+    }
+}
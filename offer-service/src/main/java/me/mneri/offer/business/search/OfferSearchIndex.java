@@ -0,0 +1,458 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.search;
+
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.business.expiry.OfferExpiredEvent;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.repository.OfferViewRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static me.mneri.offer.business.transaction.TransactionHelper.afterCommit;
+
+/**
+ * In-process full-text index over the title and the description of the open {@link Offer}s.
+ * <p>
+ * The index is loaded at startup by the active offer engine and kept up to date by the offer services on create,
+ * update, TTL update and cancel, and by the expiry events; as for the expiry scheduler, changes are applied once the
+ * transaction commits. Each offer is a document with a number assigned in order of indexing; terms map to
+ * {@link PostingList}s of document numbers. A changed offer is indexed again under a new number and its previous
+ * document is marked deleted; deleted documents are dropped from the postings once they outnumber the live ones.
+ * <p>
+ * Queries match any of their terms and rank the offers by BM25; the scores are accumulated in a {@link ScoreTable}
+ * sized by the postings of the query terms, so a query costs as much as its matches, not as the whole index. Document
+ * frequencies count the deleted documents until they are dropped, which slightly skews the ranking in the meantime.
+ * Searches share a read lock, changes take the write lock.
+ *
+ * @author Massimo Neri
+ */
+@Component
+@Log4j2
+public class OfferSearchIndex {
+    private static final float B = 0.75f;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final float K1 = 1.2f;
+
+    /**
+     * The number of deleted documents below which the postings are never rewritten.
+     */
+    private static final int MIN_DELETED_TO_COMPACT = 1024;
+
+    private final Clock clock;
+
+    private final BitSet deleted = new BitSet();
+
+    private int deletedCount;
+
+    private int docCount;
+
+    private final Map<UUID, Integer> docs = new HashMap<>();
+
+    private long[] endTimes = new long[INITIAL_CAPACITY];
+
+    private int[] lengths = new int[INITIAL_CAPACITY];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private UUID[] offerIds = new UUID[INITIAL_CAPACITY];
+
+    private final OfferViewRepository offerViewRepository;
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    private long totalLength;
+
+    /**
+     * Create a new instance.
+     *
+     * @param clock               The clock.
+     * @param offerViewRepository The offer view repository.
+     */
+    protected OfferSearchIndex(Clock clock, OfferViewRepository offerViewRepository) {
+        this.clock = clock;
+        this.offerViewRepository = offerViewRepository;
+    }
+
+    /**
+     * Delay by the specified TTL the end time of the specified offer once the current transaction commits, or
+     * immediately if there is no transaction. Offers that are not indexed are ignored.
+     *
+     * @param offerId The id of the offer.
+     * @param ttl     The TTL added to the end time, in milliseconds.
+     */
+    public void extend(@NonNull UUID offerId, long ttl) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+
+            try {
+                Integer doc = docs.get(offerId);
+
+                if (doc != null) {
+                    endTimes[doc] += ttl;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Index the current state of the specified offer once the current transaction commits, or immediately if there is
+     * no transaction, replacing its previous state.
+     *
+     * @param offer The offer.
+     */
+    public void index(@NonNull Offer offer) {
+        UUID offerId = offer.getId();
+        List<String> terms = terms(offer.getTitle(), offer.getDescription());
+        long endTime = offer.getEndTime().getTime();
+
+        afterCommit(() -> put(offerId, terms, endTime, true));
+    }
+
+    /**
+     * Index the offers open in the repository. Called at startup by
+     * {@link me.mneri.offer.business.service.OfferLoader} only: under the {@code memory} profile the offer store
+     * indexes the offers it recovers.
+     */
+    public void load() {
+        Date now = new Date(clock.millis());
+
+        // Offers indexed meanwhile have the most recent state
+        offerViewRepository.forEachOpen(now, view -> put(view.getId(), terms(view.getTitle(), view.getDescription()),
+                view.getEndTime().getTime(), false));
+
+        log.info("Offer search index loaded; count: {}", size());
+    }
+
+    /**
+     * Remove the expired offer.
+     *
+     * @param event The event.
+     */
+    @EventListener
+    public void onOfferExpired(OfferExpiredEvent event) {
+        delete(event.getOfferId());
+    }
+
+    /**
+     * Remove the specified offer once the current transaction commits, or immediately if there is no transaction.
+     *
+     * @param offerId The id of the offer.
+     */
+    public void remove(@NonNull UUID offerId) {
+        afterCommit(() -> delete(offerId));
+    }
+
+    /**
+     * Return the ids of the offers matching any term of the specified query and open at the specified instant, from
+     * the most to the least relevant.
+     *
+     * @param query  The query.
+     * @param now    The instant the offers must be open at.
+     * @param offset The number of matching offers to skip.
+     * @param limit  The maximum number of ids to return.
+     * @return The ids of the matching offers.
+     */
+    public List<UUID> search(@NonNull String query, @NonNull Date now, int offset, int limit) {
+        Set<String> terms = new LinkedHashSet<>(OfferAnalyzer.tokenize(query));
+
+        if (terms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        long millis = now.getTime();
+        lock.readLock().lock();
+
+        try {
+            int liveCount = docs.size();
+
+            if (liveCount == 0) {
+                return Collections.emptyList();
+            }
+
+            float averageLength = Math.max(1f, (float) totalLength / liveCount);
+            List<PostingList> lists = new ArrayList<>(terms.size());
+            long postingCount = 0;
+
+            for (String term : terms) {
+                PostingList list = postings.get(term);
+
+                if (list != null) {
+                    lists.add(list);
+                    postingCount += list.count();
+                }
+            }
+
+            // Sized for every posting, deleted and expired documents included, so that it never grows
+            ScoreTable scores = new ScoreTable((int) Math.min(postingCount, docCount));
+
+            for (PostingList list : lists) {
+                // Capped, since the count of the postings includes the deleted documents
+                int docFrequency = Math.min(list.count(), liveCount);
+                float idf = (float) Math.log(1 + (liveCount - docFrequency + 0.5) / (docFrequency + 0.5));
+                PostingList.Reader reader = list.reader();
+
+                while (reader.next()) {
+                    int doc = reader.doc();
+
+                    if (deleted.get(doc) || endTimes[doc] <= millis) {
+                        continue;
+                    }
+
+                    float frequency = reader.frequency();
+                    scores.add(doc, idf * frequency * (K1 + 1)
+                            / (frequency + K1 * (1 - B + B * lengths[doc] / averageLength)));
+                }
+            }
+
+            return top(scores, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return the slice, located by the specified pageable, of the ids of the offers matching any term of the
+     * specified query and open at the specified instant, from the most to the least relevant.
+     * <p>
+     * The sort of the pageable is ignored.
+     *
+     * @param query    The query.
+     * @param now      The instant the offers must be open at.
+     * @param pageable The pageable.
+     * @return The slice of the ids of the matching offers.
+     */
+    public Slice<UUID> search(@NonNull String query, @NonNull Date now, @NonNull Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(search(query, now, 0, Integer.MAX_VALUE));
+        }
+
+        // Fetch one more id to know whether a next slice exists
+        List<UUID> offerIds = search(query, now, (int) pageable.getOffset(), pageable.getPageSize() + 1);
+        boolean hasNext = offerIds.size() > pageable.getPageSize();
+
+        return new SliceImpl<>(hasNext ? offerIds.subList(0, pageable.getPageSize()) : offerIds, pageable, hasNext);
+    }
+
+    /**
+     * Return the number of indexed offers.
+     *
+     * @return The number of indexed offers.
+     */
+    public int size() {
+        lock.readLock().lock();
+
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Drop the deleted documents from the postings and renumber the live ones, preserving their order.
+     * <p>
+     * Must be called holding the write lock.
+     */
+    private void compact() {
+        int[] renumbered = new int[docCount];
+        int liveCount = 0;
+
+        for (int doc = 0; doc < docCount; doc++) {
+            if (deleted.get(doc)) {
+                renumbered[doc] = -1;
+                continue;
+            }
+
+            renumbered[doc] = liveCount;
+            endTimes[liveCount] = endTimes[doc];
+            lengths[liveCount] = lengths[doc];
+            offerIds[liveCount] = offerIds[doc];
+            docs.put(offerIds[doc], liveCount);
+            liveCount++;
+        }
+
+        Arrays.fill(offerIds, liveCount, docCount, null);
+        postings.replaceAll((term, list) -> list.remap(renumbered));
+        postings.values().removeIf(list -> list == null);
+        deleted.clear();
+        deletedCount = 0;
+        docCount = liveCount;
+        log.debug("Offer search index compacted; count: {}, terms: {}", liveCount, postings.size());
+    }
+
+    /**
+     * Mark deleted the document of the specified offer, if any.
+     *
+     * @param offerId The id of the offer.
+     */
+    private void delete(UUID offerId) {
+        lock.writeLock().lock();
+
+        try {
+            deleteLocked(offerId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Mark deleted the document of the specified offer, if any, and compact the index once the deleted documents
+     * outnumber the live ones.
+     * <p>
+     * Must be called holding the write lock.
+     *
+     * @param offerId The id of the offer.
+     */
+    private void deleteLocked(UUID offerId) {
+        Integer doc = docs.remove(offerId);
+
+        if (doc == null) {
+            return;
+        }
+
+        deleted.set(doc);
+        deletedCount++;
+        totalLength -= lengths[doc];
+
+        if (deletedCount >= MIN_DELETED_TO_COMPACT && deletedCount > docs.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Index the specified terms as the document of the specified offer.
+     *
+     * @param offerId The id of the offer.
+     * @param terms   The terms of the offer.
+     * @param endTime The end time of the offer.
+     * @param replace {@code true} to replace the document of the offer, if any; {@code false} to keep it.
+     */
+    private void put(UUID offerId, List<String> terms, long endTime, boolean replace) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        terms.forEach(term -> frequencies.merge(term, 1, Integer::sum));
+
+        lock.writeLock().lock();
+
+        try {
+            if (!replace && docs.containsKey(offerId)) {
+                return;
+            }
+
+            deleteLocked(offerId);
+
+            int doc = docCount++;
+
+            if (doc == offerIds.length) {
+                endTimes = Arrays.copyOf(endTimes, doc * 2);
+                lengths = Arrays.copyOf(lengths, doc * 2);
+                offerIds = Arrays.copyOf(offerIds, doc * 2);
+            }
+
+            docs.put(offerId, doc);
+            endTimes[doc] = endTime;
+            lengths[doc] = terms.size();
+            offerIds[doc] = offerId;
+            totalLength += terms.size();
+            frequencies.forEach((term, frequency) -> postings.computeIfAbsent(term, key -> new PostingList())
+                    .add(doc, frequency));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Return the terms of an offer with the specified title and description.
+     *
+     * @param title       The title.
+     * @param description The description, can be {@code null}.
+     * @return The terms.
+     */
+    private static List<String> terms(String title, String description) {
+        List<String> terms = new ArrayList<>(OfferAnalyzer.tokenize(title));
+        terms.addAll(OfferAnalyzer.tokenize(description));
+        return terms;
+    }
+
+    /**
+     * Return the ids of the best scoring documents among the specified matches.
+     * <p>
+     * Ties are broken by document number, so the ranking is stable across searches.
+     *
+     * @param scores The scores of the matching documents.
+     * @param offset The number of best documents to skip.
+     * @param limit  The maximum number of ids to return.
+     * @return The ids, from the best to the worst scoring document.
+     */
+    private List<UUID> top(ScoreTable scores, int offset, int limit) {
+        int k = (int) Math.min((long) offset + limit, scores.size());
+        // The queue holds slots of the table
+        Comparator<Integer> worstFirst = Comparator.<Integer>comparingDouble(scores::score)
+                .thenComparing(Comparator.<Integer>comparingInt(scores::doc).reversed());
+        PriorityQueue<Integer> best = new PriorityQueue<>(Math.max(1, k), worstFirst);
+
+        for (int slot = 0; slot < scores.capacity() && k > 0; slot++) {
+            if (scores.doc(slot) == ScoreTable.FREE) {
+                continue;
+            }
+
+            if (best.size() < k) {
+                best.add(slot);
+            } else if (worstFirst.compare(slot, best.peek()) > 0) {
+                best.poll();
+                best.add(slot);
+            }
+        }
+
+        UUID[] ranked = new UUID[best.size()];
+
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = offerIds[scores.doc(best.poll())];
+        }
+
+        return offset >= ranked.length
+                ? Collections.emptyList()
+                : Arrays.asList(ranked).subList(offset, ranked.length);
+    }
+}
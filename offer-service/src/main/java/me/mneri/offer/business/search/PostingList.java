@@ -0,0 +1,169 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.search;
+
+import java.util.Arrays;
+
+/**
+ * Compressed list of the documents containing a term, in ascending document order.
+ * <p>
+ * Each posting is the gap from the previous document followed by the frequency of the term in the document, both
+ * written as variable-length integers of 7 bits per byte: the gaps of frequent terms are small and take a single byte.
+ * Postings can only be appended; documents are removed by rewriting the list with {@link #remap(int[])}.
+ *
+ * @author Massimo Neri
+ */
+final class PostingList {
+    private byte[] bytes = new byte[8];
+
+    private int count;
+
+    private int lastDoc = -1;
+
+    private int size;
+
+    /**
+     * Append a posting; the document must follow the last appended one.
+     *
+     * @param doc       The document.
+     * @param frequency The frequency of the term in the document.
+     */
+    void add(int doc, int frequency) {
+        if (size + 10 > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + 10));
+        }
+
+        write(doc - lastDoc);
+        write(frequency);
+        lastDoc = doc;
+        count++;
+    }
+
+    /**
+     * Return the number of postings, that is the number of documents containing the term.
+     *
+     * @return The number of postings.
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * Return a new reader positioned before the first posting.
+     *
+     * @return The reader.
+     */
+    Reader reader() {
+        return new Reader();
+    }
+
+    /**
+     * Return a copy of this list with the documents renumbered by the specified mapping.
+     * <p>
+     * The mapping must preserve the order of the documents; documents mapped to a negative number are dropped.
+     *
+     * @param docs The new number of each document.
+     * @return The copy, or {@code null} if all the documents were dropped.
+     */
+    PostingList remap(int[] docs) {
+        PostingList copy = new PostingList();
+        Reader reader = reader();
+
+        while (reader.next()) {
+            int doc = docs[reader.doc()];
+
+            if (doc >= 0) {
+                copy.add(doc, reader.frequency());
+            }
+        }
+
+        if (copy.count == 0) {
+            return null;
+        }
+
+        copy.bytes = Arrays.copyOf(copy.bytes, copy.size);
+        return copy;
+    }
+
+    private void write(int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        bytes[size++] = (byte) value;
+    }
+
+    /**
+     * Forward-only reader of the postings.
+     */
+    final class Reader {
+        private int doc = -1;
+
+        private int frequency;
+
+        private int position;
+
+        /**
+         * Return the document of the current posting.
+         *
+         * @return The document.
+         */
+        int doc() {
+            return doc;
+        }
+
+        /**
+         * Return the frequency of the term in the document of the current posting.
+         *
+         * @return The frequency.
+         */
+        int frequency() {
+            return frequency;
+        }
+
+        /**
+         * Move to the next posting.
+         *
+         * @return {@code true} if there is a next posting, {@code false} otherwise.
+         */
+        boolean next() {
+            if (position >= size) {
+                return false;
+            }
+
+            doc += read();
+            frequency = read();
+            return true;
+        }
+
+        private int read() {
+            int value = 0;
+
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+}
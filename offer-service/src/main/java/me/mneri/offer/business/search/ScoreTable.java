@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.search;
+
+import java.util.Arrays;
+
+/**
+ * Sparse accumulator of the scores of the documents matching a query.
+ * <p>
+ * Documents and scores are kept in two parallel arrays, addressed by open addressing with linear probing; the arrays
+ * are at most half full, and double when they would not be. The size is that of the matches, not of the index, so a
+ * search for rare terms allocates little.
+ *
+ * @author Massimo Neri
+ */
+final class ScoreTable {
+    /**
+     * The document of the free slots.
+     */
+    static final int FREE = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] docs;
+
+    private int mask;
+
+    private float[] scores;
+
+    private int size;
+
+    /**
+     * Create a new table for the specified number of documents, which it holds without growing.
+     *
+     * @param expectedSize The expected number of documents.
+     */
+    ScoreTable(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+
+        while (capacity < 2L * expectedSize) {
+            capacity <<= 1;
+        }
+
+        allocate(capacity);
+    }
+
+    /**
+     * Add the specified score to the score of the specified document.
+     *
+     * @param doc   The document, not negative.
+     * @param score The score.
+     */
+    void add(int doc, float score) {
+        int slot = slot(doc);
+
+        while (docs[slot] != FREE) {
+            if (docs[slot] == doc) {
+                scores[slot] += score;
+                return;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        docs[slot] = doc;
+        scores[slot] = score;
+
+        if (++size * 2 > docs.length) {
+            grow();
+        }
+    }
+
+    /**
+     * Return the number of slots; slots holding no document hold {@link #FREE}.
+     *
+     * @return The number of slots.
+     */
+    int capacity() {
+        return docs.length;
+    }
+
+    /**
+     * Return the document of the specified slot.
+     *
+     * @param slot The slot.
+     * @return The document, or {@link #FREE} if the slot holds no document.
+     */
+    int doc(int slot) {
+        return docs[slot];
+    }
+
+    /**
+     * Return the score of the document of the specified slot.
+     *
+     * @param slot The slot.
+     * @return The score.
+     */
+    float score(int slot) {
+        return scores[slot];
+    }
+
+    /**
+     * Return the number of documents.
+     *
+     * @return The number of documents.
+     */
+    int size() {
+        return size;
+    }
+
+    private void allocate(int capacity) {
+        docs = new int[capacity];
+        Arrays.fill(docs, FREE);
+        mask = capacity - 1;
+        scores = new float[capacity];
+    }
+
+    private void grow() {
+        int[] oldDocs = docs;
+        float[] oldScores = scores;
+        allocate(oldDocs.length * 2);
+
+        for (int i = 0; i < oldDocs.length; i++) {
+            if (oldDocs[i] != FREE) {
+                int slot = slot(oldDocs[i]);
+
+                while (docs[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+
+                docs[slot] = oldDocs[i];
+                scores[slot] = oldScores[i];
+            }
+        }
+    }
+
+    private int slot(int doc) {
+        // Documents are dense and often consecutive: spread them so that runs don't collide
+        int hash = doc * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -20,21 +20,24 @@ package me.mneri.offer.business.service;
 
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
+import me.mneri.offer.business.cache.VersionedCache;
 import me.mneri.offer.data.entity.Offer;
 import me.mneri.offer.data.entity.User;
 import me.mneri.offer.data.repository.OfferRepository;
-import me.mneri.offer.data.repository.UserRepository;
-import me.mneri.offer.data.specification.OfferSpec;
-import me.mneri.offer.data.specification.UserSpec;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.UUID;
 
-import static org.springframework.data.jpa.domain.Specification.where;
-
 /**
  * Helper class for service authorization.
+ * <p>
+ * User checks are answered from the user cache, whose entries are evicted when the transaction changing the user
+ * commits: once a rename commits, the previous username no longer matches. Offer ownership is decided on the offer
+ * loaded by the service, or with a single existence query for batches.
  *
  * @author Massimo Neri
  */
@@ -44,21 +47,55 @@ import static org.springframework.data.jpa.domain.Specification.where;
 class AuthHelper {
     private final OfferRepository offerRepository;
 
-    private final UserRepository userRepository;
+    private final VersionedCache<UUID, User> userCache;
+
+    /**
+     * Return {@code true} if the current user may modify the specified {@link Offer}, either because the user
+     * published it or because the user holds the specified authority.
+     * <p>
+     * The decision is made on the loaded offer, whose publisher must be initialized; no query is issued.
+     *
+     * @param offer        The offer.
+     * @param anyAuthority The authority granting the permission on any offer.
+     * @return {@code true} if the current user may modify the offer, {@code false} otherwise.
+     */
+    public boolean canModify(Offer offer, String anyAuthority) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication == null) {
+            return false;
+        }
+
+        return offer.getPublisher().getUsername().equals(authentication.getName())
+                || hasAuthority(authentication, anyAuthority);
+    }
 
     /**
-     * Return {@code true} if the specified {@link Offer} is published by the specified {@link User}.
+     * Return {@code true} if the current user may modify all the specified {@link Offer}s, either because the user
+     * published them or because the user holds the specified authority.
+     * <p>
+     * Ownership is checked with a single existence query for an offer published by someone else, which stops at the
+     * first match. Ids of missing offers are ignored: no operation can affect them. For the same reason, an empty batch
+     * is allowed without a query.
      *
-     * @param offerId  The offer id.
-     * @param username The user's username.
-     * @return {@code true} if the specified offer is published by the specified user, {@code false} otherwise.
+     * @param offerIds     The offer ids.
+     * @param anyAuthority The authority granting the permission on any offer.
+     * @return {@code true} if the current user may modify all the offers, {@code false} otherwise.
      */
     @Transactional
-    public boolean isPublishedByUser(UUID offerId, String username) {
-        long count = offerRepository.count(
-                where(OfferSpec.idIsEqualTo(offerId)
-                        .and(OfferSpec.publisherUsernameIsEqualTo(username))));
-        return count == 1;
+    public boolean canModifyAll(Collection<UUID> offerIds, String anyAuthority) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication == null) {
+            return false;
+        }
+
+        if (hasAuthority(authentication, anyAuthority)) {
+            return true;
+        }
+
+        return offerIds.isEmpty()
+                || !offerRepository.existsByIdInAndPublisherUsernameNot(offerIds, authentication.getName());
     }
 
     /**
@@ -70,9 +107,23 @@ class AuthHelper {
      */
     @Transactional
     public boolean isUsernameEqualTo(UUID userId, String username) {
-        long count = userRepository
-                .count(where(UserSpec.idIsEqualTo(userId))
-                        .and(UserSpec.usernameIsEqualTo(username)));
-        return count == 1;
+        return userCache
+                .get(userId)
+                .map(user -> user.getUsername().equals(username))
+                .orElse(false);
+    }
+
+    /**
+     * Return {@code true} if the specified authentication holds the specified authority.
+     *
+     * @param authentication The authentication.
+     * @param authority      The authority.
+     * @return {@code true} if the authentication holds the authority, {@code false} otherwise.
+     */
+    private boolean hasAuthority(Authentication authentication, String authority) {
+        return authentication
+                .getAuthorities()
+                .stream()
+                .anyMatch(grantedAuthority -> authority.equals(grantedAuthority.getAuthority()));
     }
 }
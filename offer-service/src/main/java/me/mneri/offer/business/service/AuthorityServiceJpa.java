@@ -22,17 +22,18 @@ import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import me.mneri.offer.data.entity.Authority;
-import me.mneri.offer.data.repository.AuthorityRepository;
-import me.mneri.offer.data.specification.AuthoritySpec;
+import me.mneri.offer.data.entity.User;
+import me.mneri.offer.data.repository.UserRepository;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
-import static org.springframework.data.jpa.domain.Specification.where;
-
 /**
  * Service for accessing the authority repository.
  *
@@ -43,11 +44,15 @@ import static org.springframework.data.jpa.domain.Specification.where;
 @RequiredArgsConstructor(access = AccessLevel.PROTECTED)
 @Service
 class AuthorityServiceJpa implements AuthorityService {
-    private final AuthorityRepository authorityRepository;
+    private final UserRepository userRepository;
 
     @Override
     @Transactional
     public List<Authority> findAllByOwnerId(UUID userId) {
-        return authorityRepository.findAll(where(AuthoritySpec.ownerIdIsEqualTo(userId)));
+        Optional<User> cached = userRepository.findCachedWithAuthoritiesById(userId);
+
+        return (cached.isPresent() ? cached : userRepository.findWithAuthoritiesById(userId))
+                .<List<Authority>>map(user -> new ArrayList<>(user.getAuthorities()))
+                .orElseGet(Collections::emptyList);
     }
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bounded retry policy for conditional updates failing because of a version conflict.
+ * <p>
+ * Waits between attempts use full jitter: each wait is a random duration up to the base backoff doubled at every
+ * attempt, so that writers racing on the same row spread out instead of colliding again. Conflicts and retries are
+ * published as the {@code offer.update.conflicts} and {@code offer.update.retries} counters.
+ *
+ * @author Massimo Neri
+ */
+@Component
+@Log4j2
+class ConflictRetryPolicy {
+    /**
+     * The maximum exponent of the backoff, keeping the wait bounded whatever the number of attempts.
+     */
+    private static final int MAX_BACKOFF_SHIFT = 10;
+
+    private final long backoffMillis;
+
+    private final Counter conflicts;
+
+    private final int maxAttempts;
+
+    private final Counter retries;
+
+    /**
+     * Create a new instance.
+     *
+     * @param backoff       The base wait between attempts.
+     * @param maxAttempts   The maximum number of attempts, including the first one.
+     * @param meterRegistry The meter registry.
+     */
+    protected ConflictRetryPolicy(@Value("${business.update.backoff}") Duration backoff,
+                                  @Value("${business.update.max-attempts}") int maxAttempts,
+                                  MeterRegistry meterRegistry) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("The maximum number of attempts is less than 1.");
+        }
+
+        this.backoffMillis = backoff.toMillis();
+        this.conflicts = meterRegistry.counter("offer.update.conflicts");
+        this.maxAttempts = maxAttempts;
+        this.retries = meterRegistry.counter("offer.update.retries");
+    }
+
+    /**
+     * Record a conflict of the specified attempt and, if another attempt is allowed, wait before it.
+     *
+     * @param attempt The number of the failed attempt, starting from 1.
+     * @return {@code true} if the caller should attempt again, {@code false} if attempts are exhausted or the thread
+     * was interrupted while waiting.
+     */
+    public boolean retry(int attempt) {
+        conflicts.increment();
+
+        if (attempt >= maxAttempts) {
+            log.debug("Conflict retries exhausted; attempts: {}", attempt);
+            return false;
+        }
+
+        long bound = backoffMillis << Math.min(attempt - 1, MAX_BACKOFF_SHIFT);
+
+        try {
+            if (bound > 0) {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        retries.increment();
+        return true;
+    }
+}
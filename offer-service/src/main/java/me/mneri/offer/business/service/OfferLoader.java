@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.service;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import me.mneri.offer.business.expiry.OfferExpiryScheduler;
+import me.mneri.offer.business.search.OfferSearchIndex;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loader of the offers open at startup into the expiry scheduler and the search index. The {@code memory} profile
+ * recovers them from the offer store log instead.
+ * <p>
+ * It is kept apart from {@link OfferServiceJpa}, whose methods are secured by {@link OfferService}, because it runs
+ * before any authentication exists.
+ *
+ * @author Massimo Neri
+ */
+@Component
+@Profile("!memory")
+@RequiredArgsConstructor(access = AccessLevel.PROTECTED)
+public class OfferLoader {
+    private final OfferExpiryScheduler offerExpiryScheduler;
+
+    private final OfferSearchIndex offerSearchIndex;
+
+    /**
+     * Track the expiry of the open offers and index them for search.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        offerExpiryScheduler.load();
+        offerSearchIndex.load();
+    }
+}
@@ -21,18 +21,25 @@ package me.mneri.offer.business.service;
 import me.mneri.offer.business.exception.OfferIsCancelledException;
 import me.mneri.offer.business.exception.OfferIsExpiredException;
 import me.mneri.offer.business.exception.OfferNotFoundException;
+import me.mneri.offer.business.exception.OfferUpdateConflictException;
 import me.mneri.offer.business.exception.UserIsNotEnabledException;
 import me.mneri.offer.business.exception.UserNotFoundException;
 import me.mneri.offer.business.pojo.OfferCreate;
 import me.mneri.offer.business.pojo.OfferUpdate;
 import me.mneri.offer.business.pojo.Paging;
+import me.mneri.offer.business.query.OfferQuery;
 import me.mneri.offer.data.entity.Offer;
 import me.mneri.offer.data.entity.User;
+import me.mneri.offer.data.projection.OfferSummary;
+import org.springframework.data.domain.Slice;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Service for accessing the offer repository.
@@ -41,38 +48,124 @@ import java.util.UUID;
  */
 @PreAuthorize("denyAll()")
 public interface OfferService {
+    /**
+     * Cancel all the open {@link Offer}s published by the specified {@link User}, with a single update.
+     *
+     * @param userId The id of the publisher.
+     * @return The ids of the cancelled offers.
+     */
+    @PreAuthorize("(hasAuthority('offer:delete') and @authHelper.isUsernameEqualTo(#userId, authentication.name))" +
+            "or hasAuthority('offer:delete-any')")
+    List<UUID> cancelAllOpenByPublisherId(UUID userId);
+
+    /**
+     * Count the open {@link Offer}s matching the specified query.
+     * <p>
+     * The offers are counted on every call; see {@link me.mneri.offer.business.count.ListingCounter} for cheaper
+     * totals.
+     *
+     * @param query The query.
+     * @return The number of matching open offers.
+     */
+    @PreAuthorize("permitAll()")
+    long countAllOpen(OfferQuery query);
+
     /**
      * Delete (cancel) an offer.
      *
+     * <p>
+     * Ownership is decided on the offer loaded for the deletion, so the offer is read once.
+     *
      * @param offerId The id of the offer to delete.
+     * @throws AccessDeniedException     If the current user is not the publisher and lacks {@code offer:delete-any}.
      * @throws OfferIsCancelledException If the offer with the specified id was previously cancelled.
      * @throws OfferIsExpiredException   If the offer with the specified id has expired.
      * @throws OfferNotFoundException    If the offer with the specified id was not found in the repository.
      */
-    @PreAuthorize("(hasAuthority('offer:delete') and @authHelper.isPublishedByUser(#offerId, authentication.name))" +
-            "or hasAuthority('offer:delete-any')")
+    @PreAuthorize("hasAuthority('offer:delete') or hasAuthority('offer:delete-any')")
     void delete(UUID offerId) throws OfferIsCancelledException, OfferIsExpiredException, OfferNotFoundException;
 
+    /**
+     * Extend by the specified TTL the end time of the specified open {@link Offer}s, with a single update.
+     * <p>
+     * Cancelled and expired offers are not extended. Ownership is checked once for the whole batch.
+     *
+     * @param offerIds The ids of the offers to extend.
+     * @param ttl      The TTL to add to the end time of the offers.
+     * @return The ids of the extended offers.
+     * @throws AccessDeniedException    If the current user is not the publisher of all the offers and lacks
+     *                                  {@code offer:write-any}.
+     * @throws IllegalArgumentException If the TTL is equal or less than zero.
+     */
+    @PreAuthorize("hasAuthority('offer:write') or hasAuthority('offer:write-any')")
+    List<UUID> extendAllOpen(Collection<UUID> offerIds, long ttl);
+
     /**
      * Find all the open {@link Offer}s.
+     * <p>
+     * Offers are ordered by end time and id. If the paging has a cursor the slice starts right after the cursor.
      *
      * @param paging The paging specification.
-     * @return The list of the open offers.
+     * @return The slice of the open offers.
      */
     @PreAuthorize("permitAll()")
-    Iterable<Offer> findAllOpen(Paging paging);
+    Slice<Offer> findAllOpen(Paging paging);
+
+    /**
+     * Find all the open {@link Offer}s matching the specified query.
+     * <p>
+     * Offers are ordered by the order of the query. If the paging has a cursor, its key must be taken in the same
+     * order, and the slice starts right after the cursor.
+     *
+     * @param query  The query.
+     * @param paging The paging specification.
+     * @return The slice of the open offers.
+     */
+    @PreAuthorize("permitAll()")
+    Slice<Offer> findAllOpen(OfferQuery query, Paging paging);
 
     /**
      * Find all the open {@link Offer}s published by the specified {@link User}.
+     * <p>
+     * Offers are ordered by end time and id. If the paging has a cursor the slice starts right after the cursor.
      *
      * @param userId The id of the user.
      * @param paging The paging specification.
-     * @return The list of the open offers published by the specified user.
+     * @return The slice of the open offers published by the specified user.
      * @throws UserIsNotEnabledException If the specified user is not enabled.
      * @throws UserNotFoundException     If the user with the specified id was not found in the repository.
      */
     @PreAuthorize("permitAll()")
-    List<Offer> findAllOpenByPublisherId(UUID userId, Paging paging)
+    Slice<Offer> findAllOpenByPublisherId(UUID userId, Paging paging)
+            throws UserIsNotEnabledException, UserNotFoundException;
+
+    /**
+     * Find all the open {@link Offer}s as read-only {@link OfferSummary}s, without their description.
+     * <p>
+     * Summaries are ordered like {@link #findAllOpen(Paging)} and their TTL is computed against the same instant used
+     * to select the open offers.
+     *
+     * @param paging The paging specification.
+     * @return The slice of the summaries of the open offers.
+     */
+    @PreAuthorize("permitAll()")
+    Slice<OfferSummary> findAllOpenSummaries(Paging paging);
+
+    /**
+     * Find all the open {@link Offer}s published by the specified {@link User} as read-only {@link OfferSummary}s,
+     * without their description.
+     * <p>
+     * Summaries are ordered like {@link #findAllOpenByPublisherId(UUID, Paging)} and their TTL is computed against
+     * the same instant used to select the open offers.
+     *
+     * @param userId The id of the user.
+     * @param paging The paging specification.
+     * @return The slice of the summaries of the open offers published by the specified user.
+     * @throws UserIsNotEnabledException If the specified user is not enabled.
+     * @throws UserNotFoundException     If the user with the specified id was not found in the repository.
+     */
+    @PreAuthorize("permitAll()")
+    Slice<OfferSummary> findAllOpenSummariesByPublisherId(UUID userId, Paging paging)
             throws UserIsNotEnabledException, UserNotFoundException;
 
     /**
@@ -84,21 +177,38 @@ public interface OfferService {
     @PreAuthorize("permitAll()")
     Optional<Offer> findById(UUID id);
 
+    /**
+     * Perform the specified action on every open {@link Offer}.
+     * <p>
+     * Offers are ordered like {@link #findAllOpen(Paging)}. They are read through a database cursor and evicted from the
+     * persistence context as the action consumes them, so memory doesn't grow with the number of open offers. The
+     * action runs inside the read transaction: a slow action keeps the cursor open, it doesn't buffer the offers.
+     *
+     * @param action The action to perform on each open offer.
+     */
+    @PreAuthorize("permitAll()")
+    void forEachOpen(Consumer<Offer> action);
+
     /**
      * Update the specified {@link Offer} given the specified user id.
      * <p>
-     * Only the publisher of a specific offer is granted the permission to update.
+     * Only the publisher of a specific offer is granted the permission to update. Ownership is decided on the offer
+     * loaded for the update, so the offer is read once.
+     * <p>
+     * The new state is written with a single conditional statement, which fails if the offer was concurrently updated
+     * or closed; in that case the offer is read again and the update is retried, a bounded number of times.
      *
      * @param offerId The id of the offer to update.
      * @param update  The data to update the offer with.
-     * @throws OfferIsCancelledException If the offer with the specified id was previously cancelled.
-     * @throws OfferIsExpiredException   If the offer with the specified id has expired.
-     * @throws OfferNotFoundException    If the offer with the specified id was not found in the repository.
+     * @throws AccessDeniedException        If the current user is not the publisher and lacks {@code offer:write-any}.
+     * @throws OfferIsCancelledException    If the offer with the specified id was previously cancelled.
+     * @throws OfferIsExpiredException      If the offer with the specified id has expired.
+     * @throws OfferNotFoundException       If the offer with the specified id was not found in the repository.
+     * @throws OfferUpdateConflictException If the offer kept being concurrently updated.
      */
-    @PreAuthorize("(hasAuthority('offer:write') and @authHelper.isPublishedByUser(#offerId, authentication.name))" +
-            "or hasAuthority('offer:write-any')")
-    void update(UUID offerId, OfferUpdate update)
-            throws OfferIsCancelledException, OfferIsExpiredException, OfferNotFoundException;
+    @PreAuthorize("hasAuthority('offer:write') or hasAuthority('offer:write-any')")
+    void update(UUID offerId, OfferUpdate update) throws OfferIsCancelledException, OfferIsExpiredException,
+            OfferNotFoundException, OfferUpdateConflictException;
 
     /**
      * Persist an offer into the database.
@@ -112,4 +222,32 @@ public interface OfferService {
     @PreAuthorize("(hasAuthority('offer:write') and @authHelper.isUsernameEqualTo(#userId, authentication.name))" +
             "or hasAuthority('offer:write-any')")
     Offer save(OfferCreate create, UUID userId) throws UserIsNotEnabledException, UserNotFoundException;
+
+    /**
+     * Create new {@link Offer}s, all published by the specified user, in a single transaction.
+     * <p>
+     * The publisher is resolved once for the whole batch and the offers are inserted with JDBC batching.
+     *
+     * @param creates The data of the new offers.
+     * @param userId  The id of the publisher.
+     * @return The new offers, in the order of the specified data.
+     * @throws UserIsNotEnabledException If the user with the specified id is not enabled.
+     * @throws UserNotFoundException     If a user with the specified id was not found in the repository.
+     */
+    @PreAuthorize("(hasAuthority('offer:write') and @authHelper.isUsernameEqualTo(#userId, authentication.name))" +
+            "or hasAuthority('offer:write-any')")
+    List<Offer> saveAll(List<OfferCreate> creates, UUID userId) throws UserIsNotEnabledException, UserNotFoundException;
+
+    /**
+     * Find the open {@link Offer}s whose title or description match the specified query.
+     * <p>
+     * Offers match any term of the query and are ordered from the most to the least relevant. The page is located by
+     * its number: the cursor of the paging is ignored.
+     *
+     * @param query  The query.
+     * @param paging The paging specification.
+     * @return The slice of the matching open offers.
+     */
+    @PreAuthorize("permitAll()")
+    Slice<Offer> search(String query, Paging paging);
 }
@@ -21,29 +21,57 @@ package me.mneri.offer.business.service;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.business.cache.VersionedCache;
 import me.mneri.offer.business.exception.OfferIsCancelledException;
 import me.mneri.offer.business.exception.OfferIsExpiredException;
 import me.mneri.offer.business.exception.OfferNotFoundException;
+import me.mneri.offer.business.exception.OfferUpdateConflictException;
 import me.mneri.offer.business.exception.UserIsNotEnabledException;
 import me.mneri.offer.business.exception.UserNotFoundException;
+import me.mneri.offer.business.expiry.OfferExpiryScheduler;
 import me.mneri.offer.business.mapping.BusinessLayerMapper;
+import me.mneri.offer.business.pojo.Cursor;
 import me.mneri.offer.business.pojo.OfferCreate;
 import me.mneri.offer.business.pojo.OfferUpdate;
 import me.mneri.offer.business.pojo.Paging;
+import me.mneri.offer.business.query.OfferOrder;
+import me.mneri.offer.business.query.OfferQuery;
+import me.mneri.offer.business.search.OfferSearchIndex;
 import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.entity.Offer_;
 import me.mneri.offer.data.entity.User;
+import me.mneri.offer.data.projection.OfferSummary;
+import me.mneri.offer.data.repository.OfferBulkRepository;
 import me.mneri.offer.data.repository.OfferRepository;
+import me.mneri.offer.data.repository.OfferViewRepository;
 import me.mneri.offer.data.repository.UserRepository;
 import me.mneri.offer.data.specification.OfferSpec;
-import me.mneri.offer.data.specification.UserSpec;
 import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManager;
 import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.springframework.data.jpa.domain.Specification.where;
 
@@ -54,15 +82,46 @@ import static org.springframework.data.jpa.domain.Specification.where;
  */
 @Log4j2
 @Primary
+@Profile("!memory")
 @RequiredArgsConstructor(access = AccessLevel.PROTECTED)
 @Service("offerService")
 public class OfferServiceJpa implements OfferService {
+    /**
+     * The order of open offers listings; the cursors of {@link Paging} refer to this order.
+     */
+    private static final Sort OPEN_ORDER = Sort.by(Offer_.END_TIME, Offer_.ID);
+
+    /**
+     * The number of streamed offers after which the persistence context is cleared; matches the fetch size.
+     */
+    private static final int STREAM_CLEAR_INTERVAL = Integer.parseInt(OfferRepository.STREAM_FETCH_SIZE);
+
+    private final AuthHelper authHelper;
+
     private final BusinessLayerMapper businessLayerMapper;
 
+    private final ConflictRetryPolicy conflictRetryPolicy;
+
     private final Clock clock;
 
+    private final EntityManager entityManager;
+
+    private final OfferBulkRepository offerBulkRepository;
+
+    private final VersionedCache<UUID, Offer> offerCache;
+
+    private final OfferExpiryScheduler offerExpiryScheduler;
+
     private final OfferRepository offerRepository;
 
+    private final OfferSearchIndex offerSearchIndex;
+
+    private final OfferViewRepository offerViewRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final VersionedCache<UUID, User> userCache;
+
     private final UserRepository userRepository;
 
     /**
@@ -70,22 +129,44 @@ public class OfferServiceJpa implements OfferService {
      */
     @Override
     @Transactional
-    public void delete(UUID offerId) throws OfferIsCancelledException, OfferIsExpiredException, OfferNotFoundException {
-        Offer offer = offerRepository
-                .findOne(where(OfferSpec.idIsEqualTo(offerId)))
-                .orElseThrow(() -> new OfferNotFoundException(offerId));
+    public List<UUID> cancelAllOpenByPublisherId(UUID userId) {
+        List<UUID> offerIds = offerBulkRepository.cancelAllOpenByPublisherId(userId, new Date(clock.millis()));
 
-        if (offer.isCancelled()) {
-            throw new OfferIsCancelledException(offerId);
-        }
+        offerIds.forEach(offerCache::evict);
+        offerIds.forEach(offerExpiryScheduler::cancel);
+        offerIds.forEach(offerSearchIndex::remove);
+        log.debug("Offers cancelled; userId: {}, count: {}", userId, offerIds.size());
 
-        if (offer.isExpired(clock)) {
-            throw new OfferIsExpiredException(offerId);
+        return offerIds;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long countAllOpen(OfferQuery query) {
+        if (query == OfferQuery.ALL) {
+            return offerRepository.countAllOpen(new Date(clock.millis()));
         }
 
+        return offerRepository.count(where(OfferSpec.isOpen(clock)).and(query.getSpecification()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional
+    public void delete(UUID offerId) throws OfferIsCancelledException, OfferIsExpiredException, OfferNotFoundException {
+        Offer offer = findOpen(offerId, "offer:delete-any");
+
         offer.setCancelled(true);
 
         offerRepository.save(offer);
+        offerCache.evictOlderThan(offerId, offer);
+        offerExpiryScheduler.cancel(offerId);
+        offerSearchIndex.remove(offerId);
         log.debug("Offer cancelled; offerId: {}", offerId);
     }
 
@@ -94,26 +175,126 @@ public class OfferServiceJpa implements OfferService {
      */
     @Override
     @Transactional
-    public List<Offer> findAllOpen(Paging paging) {
-        return offerRepository.findAll(where(OfferSpec.isOpen(clock)));
+    public List<UUID> extendAllOpen(Collection<UUID> offerIds, long ttl) {
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("TTL is less or equal to 0.");
+        }
+
+        if (!authHelper.canModifyAll(offerIds, "offer:write-any")) {
+            throw new AccessDeniedException("Access is denied");
+        }
+
+        List<UUID> extendedIds = offerBulkRepository.extendAllOpen(offerIds, ttl, new Date(clock.millis()));
+
+        extendedIds.forEach(offerCache::evict);
+        extendedIds.forEach(offerId -> offerExpiryScheduler.extend(offerId, ttl));
+        extendedIds.forEach(offerId -> offerSearchIndex.extend(offerId, ttl));
+        log.debug("Offers extended; count: {}", extendedIds.size());
+
+        return extendedIds;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    @Transactional
-    public List<Offer> findAllOpenByPublisherId(UUID userId, Paging paging)
+    @Transactional(readOnly = true)
+    public Slice<Offer> findAllOpen(Paging paging) {
+        Date now = new Date(clock.millis());
+        Cursor cursor = paging == null ? null : paging.getCursor();
+        Pageable pageable = PagingHelper.toPageableAfterCursor(paging, Sort.unsorted()); // Ordered by the query
+
+        if (cursor == null) {
+            return offerRepository.findAllOpen(now, pageable);
+        }
+
+        return offerRepository.findAllOpenAfter(now, cursor.getEndTime(), cursor.getId(), pageable);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<Offer> findAllOpen(OfferQuery query, Paging paging) {
+        OfferOrder order = query.getOrder();
+        Specification<Offer> spec = where(OfferSpec.isOpen(clock)).and(query.getSpecification());
+        Cursor cursor = paging == null ? null : paging.getCursor();
+
+        if (cursor != null) {
+            spec = spec.and(order.isAfter(cursor));
+        }
+
+        return offerRepository.findSlice(spec, PagingHelper.toPageableAfterCursor(paging, order.getSort()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<Offer> findAllOpenByPublisherId(UUID userId, Paging paging)
             throws UserIsNotEnabledException, UserNotFoundException {
         User user = userRepository
-                .findOne(where(UserSpec.idIsEqualTo(userId)))
+                .findById(userId)
                 .orElseThrow(() -> new UserNotFoundException(userId));
 
         if (!user.isEnabled()) {
             throw new UserIsNotEnabledException(userId);
         }
 
-        return offerRepository.findAll(where(OfferSpec.isOpen(clock)).and(OfferSpec.publisherIdIsEqualTo(userId)));
+        Date now = new Date(clock.millis());
+        Cursor cursor = paging == null ? null : paging.getCursor();
+        Pageable pageable = PagingHelper.toPageableAfterCursor(paging, Sort.unsorted()); // Ordered by the query
+
+        if (cursor == null) {
+            return offerRepository.findAllOpenByPublisherId(userId, now, pageable);
+        }
+
+        return offerRepository.findAllOpenByPublisherIdAfter(
+                userId, now, cursor.getEndTime(), cursor.getId(), pageable);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<OfferSummary> findAllOpenSummaries(Paging paging) {
+        Cursor cursor = paging == null ? null : paging.getCursor();
+        Pageable pageable = PagingHelper.toPageableAfterCursor(paging, OPEN_ORDER);
+
+        return offerViewRepository.findAllOpen(
+                new Date(clock.millis()),
+                cursor == null ? null : cursor.getEndTime(),
+                cursor == null ? null : cursor.getId(),
+                pageable);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<OfferSummary> findAllOpenSummariesByPublisherId(UUID userId, Paging paging)
+            throws UserIsNotEnabledException, UserNotFoundException {
+        User user = userCache
+                .get(userId)
+                .orElseThrow(() -> new UserNotFoundException(userId));
+
+        if (!user.isEnabled()) {
+            throw new UserIsNotEnabledException(userId);
+        }
+
+        Cursor cursor = paging == null ? null : paging.getCursor();
+        Pageable pageable = PagingHelper.toPageableAfterCursor(paging, OPEN_ORDER);
+
+        return offerViewRepository.findAllOpenByPublisherId(
+                userId,
+                new Date(clock.millis()),
+                cursor == null ? null : cursor.getEndTime(),
+                cursor == null ? null : cursor.getId(),
+                pageable);
     }
 
     /**
@@ -122,32 +303,49 @@ public class OfferServiceJpa implements OfferService {
     @Override
     @Transactional
     public Optional<Offer> findById(UUID id) {
-        return offerRepository.findOne(where(OfferSpec.idIsEqualTo(id)));
+        return offerCache.get(id);
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    @Transactional
-    public void update(UUID offerId, OfferUpdate update)
-            throws OfferIsCancelledException, OfferIsExpiredException, OfferNotFoundException {
-        Offer offer = offerRepository
-                .findOne(where(OfferSpec.idIsEqualTo(offerId)))
-                .orElseThrow(() -> new OfferNotFoundException(offerId));
+    @Transactional(readOnly = true)
+    public void forEachOpen(Consumer<Offer> action) {
+        try (Stream<Offer> offers = offerRepository.streamAllOpen(new Date(clock.millis()))) {
+            Iterator<Offer> iterator = offers.iterator();
+            int count = 0;
 
-        if (offer.isCancelled()) {
-            throw new OfferIsCancelledException(offerId);
-        }
+            while (iterator.hasNext()) {
+                action.accept(iterator.next());
 
-        if (offer.isExpired(clock)) {
-            throw new OfferIsExpiredException(offerId);
+                // Clearing rather than detaching each offer also drops the publisher proxies
+                if (++count % STREAM_CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                }
+            }
         }
+    }
 
-        businessLayerMapper.mergeOfferUpdateToOffer(offer, update);
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Every attempt runs in a transaction of its own; the wait before the next attempt happens outside of any
+     * transaction, so that no connection is held while backing off.
+     */
+    @Override
+    public void update(UUID offerId, OfferUpdate update) throws OfferIsCancelledException, OfferIsExpiredException,
+            OfferNotFoundException, OfferUpdateConflictException {
+        for (int attempt = 1; ; attempt++) {
+            if (updateIfOpen(offerId, update)) {
+                log.debug("Offer updated; offerId: {}, attempts: {}", offerId, attempt);
+                return;
+            }
 
-        offerRepository.save(offer);
-        log.debug("Offer updated; offerId: {}", offer.getId());
+            if (!conflictRetryPolicy.retry(attempt)) {
+                throw new OfferUpdateConflictException(offerId);
+            }
+        }
     }
 
     /**
@@ -157,7 +355,7 @@ public class OfferServiceJpa implements OfferService {
     @Transactional
     public Offer save(OfferCreate create, UUID userId) throws UserIsNotEnabledException, UserNotFoundException {
         User user = userRepository
-                .findOne(where(UserSpec.idIsEqualTo(userId)))
+                .findById(userId)
                 .orElseThrow(() -> new UserNotFoundException(userId));
 
         if (!user.isEnabled()) {
@@ -167,8 +365,184 @@ public class OfferServiceJpa implements OfferService {
         Offer offer = businessLayerMapper.mapOfferCreateToOffer(create, user);
 
         offerRepository.save(offer);
+        offerCache.evictOlderThan(offer.getId(), offer);
+        offerExpiryScheduler.schedule(offer.getId(), offer.getEndTime());
+        offerSearchIndex.index(offer);
         log.debug("Offer created; offerId: {}", offer.getId());
 
         return offer;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional
+    public List<Offer> saveAll(List<OfferCreate> creates, UUID userId)
+            throws UserIsNotEnabledException, UserNotFoundException {
+        User user = userRepository
+                .findById(userId)
+                .orElseThrow(() -> new UserNotFoundException(userId));
+
+        if (!user.isEnabled()) {
+            throw new UserIsNotEnabledException(userId);
+        }
+
+        List<Offer> offers = new ArrayList<>(creates.size());
+
+        for (OfferCreate create : creates) {
+            Offer offer = businessLayerMapper.mapOfferCreateToOffer(create, user);
+            // Persist rather than save: ids are assigned, so save would merge and select each offer before inserting
+            entityManager.persist(offer);
+            offers.add(offer);
+        }
+
+        offers.forEach(offer -> offerCache.evictOlderThan(offer.getId(), offer));
+        offers.forEach(offer -> offerExpiryScheduler.schedule(offer.getId(), offer.getEndTime()));
+        offers.forEach(offerSearchIndex::index);
+        log.debug("Offers created; userId: {}, count: {}", userId, offers.size());
+
+        return offers;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<Offer> search(String query, Paging paging) {
+        Slice<UUID> offerIds = offerSearchIndex.search(query, new Date(clock.millis()),
+                PagingHelper.toPageable(paging, Sort.unsorted()));
+        Map<UUID, Offer> offers = new HashMap<>();
+
+        offerRepository.findAllById(offerIds.getContent()).forEach(offer -> offers.put(offer.getId(), offer));
+
+        // The index is updated after commit, so offers closed meanwhile can still be found in it
+        List<Offer> content = offerIds.getContent().stream()
+                .map(offers::get)
+                .filter(offer -> offer != null && !offer.isCancelled() && !offer.isExpired(clock))
+                .collect(Collectors.toList());
+
+        return new SliceImpl<>(content, offerIds.getPageable(), offerIds.hasNext());
+    }
+
+    /**
+     * Check that the current user may modify the specified {@link Offer}.
+     *
+     * @param offer        The offer, with its publisher initialized.
+     * @param anyAuthority The authority granting the permission on offers published by other users.
+     * @throws AccessDeniedException If the current user is not the publisher and lacks the specified authority.
+     */
+    private void checkCanModify(Offer offer, String anyAuthority) {
+        if (!authHelper.canModify(offer, anyAuthority)) {
+            throw new AccessDeniedException("Access is denied");
+        }
+    }
+
+    /**
+     * Load the open offer with the specified id, on behalf of the current user.
+     * <p>
+     * The offer is read once, together with its publisher, and the ownership is decided on the loaded offer before
+     * its state is checked. Offers missing from the offer table are looked up in the archive, through the offer cache,
+     * so that archived offers are reported as closed rather than missing.
+     *
+     * @param offerId      The id of the offer.
+     * @param anyAuthority The authority granting the permission on offers published by other users.
+     * @return The offer, attached to the current persistence context.
+     * @throws AccessDeniedException     If the current user is not the publisher and lacks the specified authority.
+     * @throws OfferIsCancelledException If the offer with the specified id was previously cancelled.
+     * @throws OfferIsExpiredException   If the offer with the specified id has expired.
+     * @throws OfferNotFoundException    If the offer with the specified id was not found in the repository.
+     */
+    private Offer findOpen(UUID offerId, String anyAuthority)
+            throws OfferIsCancelledException, OfferIsExpiredException, OfferNotFoundException {
+        Optional<Offer> found = offerRepository.findWithPublisherById(offerId);
+
+        if (!found.isPresent()) {
+            Offer archived = offerCache
+                    .get(offerId)
+                    .orElseThrow(() -> new OfferNotFoundException(offerId));
+
+            checkCanModify(archived, anyAuthority);
+
+            if (archived.isCancelled()) {
+                throw new OfferIsCancelledException(offerId);
+            }
+
+            throw new OfferIsExpiredException(offerId);
+        }
+
+        Offer offer = found.get();
+
+        checkCanModify(offer, anyAuthority);
+
+        if (offer.isCancelled()) {
+            throw new OfferIsCancelledException(offerId);
+        }
+
+        if (offer.isExpired(clock)) {
+            throw new OfferIsExpiredException(offerId);
+        }
+
+        return offer;
+    }
+
+    /**
+     * Attempt the update of the specified offer in a transaction of its own.
+     *
+     * @param offerId The offer id.
+     * @param update  The data to merge into the offer.
+     * @return {@code true} if the offer was updated, {@code false} if it was concurrently modified.
+     * @throws OfferIsCancelledException If the offer was cancelled.
+     * @throws OfferIsExpiredException   If the offer is expired.
+     * @throws OfferNotFoundException    If the offer does not exist.
+     */
+    private boolean updateIfOpen(UUID offerId, OfferUpdate update)
+            throws OfferIsCancelledException, OfferIsExpiredException, OfferNotFoundException {
+        try {
+            return transactionTemplate.execute(status -> {
+                try {
+                    Offer offer = findOpen(offerId, "offer:write-any");
+                    long version = offer.getVersion();
+
+                    // Detached, the merged state is written by the conditional update only and never flushed
+                    entityManager.detach(offer);
+                    businessLayerMapper.mergeOfferUpdateToOffer(offer, update);
+
+                    if (!offerBulkRepository.updateIfOpen(offer, version, new Date(clock.millis()))) {
+                        return false;
+                    }
+
+                    offerCache.evict(offerId);
+                    offerExpiryScheduler.schedule(offerId, offer.getEndTime());
+                    offerSearchIndex.index(offer);
+                    return true;
+                } catch (OfferIsCancelledException | OfferIsExpiredException | OfferNotFoundException e) {
+                    throw new UpdateRejectedException(e);
+                }
+            });
+        } catch (UpdateRejectedException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof OfferIsCancelledException) {
+                throw (OfferIsCancelledException) cause;
+            }
+
+            if (cause instanceof OfferIsExpiredException) {
+                throw (OfferIsExpiredException) cause;
+            }
+
+            throw (OfferNotFoundException) cause;
+        }
+    }
+
+    /**
+     * Carries the checked exception rejecting an update out of its transaction callback, rolling the transaction
+     * back.
+     */
+    private static class UpdateRejectedException extends RuntimeException {
+        UpdateRejectedException(Exception cause) {
+            super(cause);
+        }
+    }
 }
@@ -0,0 +1,493 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.service;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.business.cache.VersionedCache;
+import me.mneri.offer.business.exception.OfferIsCancelledException;
+import me.mneri.offer.business.exception.OfferIsExpiredException;
+import me.mneri.offer.business.exception.OfferNotFoundException;
+import me.mneri.offer.business.exception.OfferUpdateConflictException;
+import me.mneri.offer.business.exception.UserIsNotEnabledException;
+import me.mneri.offer.business.exception.UserNotFoundException;
+import me.mneri.offer.business.expiry.OfferExpiryScheduler;
+import me.mneri.offer.business.mapping.BusinessLayerMapper;
+import me.mneri.offer.business.memory.OfferStore;
+import me.mneri.offer.business.pojo.Cursor;
+import me.mneri.offer.business.pojo.OfferCreate;
+import me.mneri.offer.business.pojo.OfferUpdate;
+import me.mneri.offer.business.pojo.Paging;
+import me.mneri.offer.business.query.OfferOrder;
+import me.mneri.offer.business.query.OfferQuery;
+import me.mneri.offer.business.search.OfferSearchIndex;
+import me.mneri.offer.data.entity.EntityFactory;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.entity.Offer_;
+import me.mneri.offer.data.entity.User;
+import me.mneri.offer.data.projection.OfferSummary;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Service keeping the offers in memory, for the {@code memory} profile.
+ * <p>
+ * Offers are held by the {@link OfferStore}; users are still read from the user repository, through the user cache.
+ * Reads don't lock and listings are range scans of the store indexes. Writes replace the stored state of an offer
+ * only if it wasn't written meanwhile, and retry otherwise. The semantics are those of {@link OfferServiceJpa}, except
+ * that listing cursors follow the order of the store, so they can't be exchanged between the two engines.
+ *
+ * @author Massimo Neri
+ */
+@Log4j2
+@Primary
+@Profile("memory")
+@RequiredArgsConstructor(access = AccessLevel.PROTECTED)
+@Service("offerService")
+public class OfferServiceMemory implements OfferService {
+    /**
+     * The order of open offers listings; the cursors of {@link Paging} refer to this order.
+     */
+    private static final Sort OPEN_ORDER = Sort.by(Offer_.END_TIME, Offer_.ID);
+
+    private final AuthHelper authHelper;
+
+    private final BusinessLayerMapper businessLayerMapper;
+
+    private final Clock clock;
+
+    private final ConflictRetryPolicy conflictRetryPolicy;
+
+    private final EntityFactory entityFactory;
+
+    private final OfferExpiryScheduler offerExpiryScheduler;
+
+    private final OfferSearchIndex offerSearchIndex;
+
+    private final OfferStore offerStore;
+
+    private final VersionedCache<UUID, User> userCache;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<UUID> cancelAllOpenByPublisherId(UUID userId) {
+        List<UUID> offerIds = new ArrayList<>();
+
+        for (Offer offer : offerStore.findOpenByPublisherAfter(userId, new Date(clock.millis()), null, null)) {
+            modifyOpen(offer.getId(), this::cancelled).ifPresent(cancelled -> offerIds.add(cancelled.getId()));
+        }
+
+        offerIds.forEach(offerExpiryScheduler::cancel);
+        offerIds.forEach(offerSearchIndex::remove);
+        log.debug("Offers cancelled; userId: {}, count: {}", userId, offerIds.size());
+
+        return offerIds;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long countAllOpen(OfferQuery query) {
+        return offerStore
+                .findOpenAfter(new Date(clock.millis()), null, null)
+                .stream()
+                .filter(query.getPredicate())
+                .count();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(UUID offerId) throws OfferIsCancelledException, OfferIsExpiredException, OfferNotFoundException {
+        Offer offer;
+
+        do {
+            offer = findOpen(offerId, "offer:delete-any");
+        } while (!offerStore.replace(offer, cancelled(offer)));
+
+        offerExpiryScheduler.cancel(offerId);
+        offerSearchIndex.remove(offerId);
+        log.debug("Offer cancelled; offerId: {}", offerId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<UUID> extendAllOpen(Collection<UUID> offerIds, long ttl) {
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("TTL is less or equal to 0.");
+        }
+
+        Collection<UUID> distinctIds = new LinkedHashSet<>(offerIds);
+
+        for (UUID offerId : distinctIds) {
+            Optional<Offer> offer = offerStore.get(offerId);
+
+            if (offer.isPresent() && !authHelper.canModify(offer.get(), "offer:write-any")) {
+                throw new AccessDeniedException("Access is denied");
+            }
+        }
+
+        List<UUID> extendedIds = new ArrayList<>(distinctIds.size());
+
+        for (UUID offerId : distinctIds) {
+            modifyOpen(offerId, offer -> copy(offer, new Date(offer.getEndTime().getTime() + ttl)))
+                    .ifPresent(extended -> extendedIds.add(extended.getId()));
+        }
+
+        extendedIds.forEach(offerId -> offerExpiryScheduler.extend(offerId, ttl));
+        extendedIds.forEach(offerId -> offerSearchIndex.extend(offerId, ttl));
+        log.debug("Offers extended; count: {}", extendedIds.size());
+
+        return extendedIds;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Slice<Offer> findAllOpen(Paging paging) {
+        Cursor cursor = paging == null ? null : paging.getCursor();
+        Collection<Offer> offers = offerStore.findOpenAfter(
+                new Date(clock.millis()),
+                cursor == null ? null : cursor.getEndTime(),
+                cursor == null ? null : cursor.getId());
+
+        return slice(offers, PagingHelper.toPageableAfterCursor(paging, OPEN_ORDER));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Slice<Offer> findAllOpen(OfferQuery query, Paging paging) {
+        OfferOrder order = query.getOrder();
+        Cursor cursor = paging == null ? null : paging.getCursor();
+        List<Offer> offers = offerStore
+                .findOpenAfter(new Date(clock.millis()), null, null)
+                .stream()
+                .filter(query.getPredicate())
+                .filter(offer -> cursor == null || order.isAfter(offer, cursor))
+                .sorted(order.comparator())
+                .collect(Collectors.toList());
+
+        return slice(offers, PagingHelper.toPageableAfterCursor(paging, order.getSort()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Slice<Offer> findAllOpenByPublisherId(UUID userId, Paging paging)
+            throws UserIsNotEnabledException, UserNotFoundException {
+        User user = userCache
+                .get(userId)
+                .orElseThrow(() -> new UserNotFoundException(userId));
+
+        if (!user.isEnabled()) {
+            throw new UserIsNotEnabledException(userId);
+        }
+
+        Cursor cursor = paging == null ? null : paging.getCursor();
+        Collection<Offer> offers = offerStore.findOpenByPublisherAfter(
+                userId,
+                new Date(clock.millis()),
+                cursor == null ? null : cursor.getEndTime(),
+                cursor == null ? null : cursor.getId());
+
+        return slice(offers, PagingHelper.toPageableAfterCursor(paging, OPEN_ORDER));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Slice<OfferSummary> findAllOpenSummaries(Paging paging) {
+        long now = clock.millis();
+        return findAllOpen(paging).map(offer -> toSummary(offer, now));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Slice<OfferSummary> findAllOpenSummariesByPublisherId(UUID userId, Paging paging)
+            throws UserIsNotEnabledException, UserNotFoundException {
+        long now = clock.millis();
+        return findAllOpenByPublisherId(userId, paging).map(offer -> toSummary(offer, now));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Offer> findById(UUID id) {
+        return offerStore.get(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void forEachOpen(Consumer<Offer> action) {
+        offerStore.findOpenAfter(new Date(clock.millis()), null, null).forEach(action);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void update(UUID offerId, OfferUpdate update) throws OfferIsCancelledException, OfferIsExpiredException,
+            OfferNotFoundException, OfferUpdateConflictException {
+        for (int attempt = 1; ; attempt++) {
+            Offer offer = findOpen(offerId, "offer:write-any");
+            Offer updated = copy(offer, offer.getEndTime());
+
+            businessLayerMapper.mergeOfferUpdateToOffer(updated, update);
+
+            if (offerStore.replace(offer, updated)) {
+                offerExpiryScheduler.schedule(offerId, updated.getEndTime());
+                offerSearchIndex.index(updated);
+                log.debug("Offer updated; offerId: {}, attempts: {}", offerId, attempt);
+                return;
+            }
+
+            if (!conflictRetryPolicy.retry(attempt)) {
+                throw new OfferUpdateConflictException(offerId);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Offer save(OfferCreate create, UUID userId) throws UserIsNotEnabledException, UserNotFoundException {
+        return saveAll(Collections.singletonList(create), userId).get(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Offer> saveAll(List<OfferCreate> creates, UUID userId)
+            throws UserIsNotEnabledException, UserNotFoundException {
+        User user = userCache
+                .get(userId)
+                .orElseThrow(() -> new UserNotFoundException(userId));
+
+        if (!user.isEnabled()) {
+            throw new UserIsNotEnabledException(userId);
+        }
+
+        List<Offer> offers = new ArrayList<>(creates.size());
+
+        for (OfferCreate create : creates) {
+            offers.add(businessLayerMapper.mapOfferCreateToOffer(create, user));
+        }
+
+        offerStore.insertAll(offers);
+        offers.forEach(offer -> offerExpiryScheduler.schedule(offer.getId(), offer.getEndTime()));
+        offers.forEach(offerSearchIndex::index);
+        log.debug("Offers created; userId: {}, count: {}", userId, offers.size());
+
+        return offers;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Slice<Offer> search(String query, Paging paging) {
+        Slice<UUID> offerIds = offerSearchIndex.search(query, new Date(clock.millis()),
+                PagingHelper.toPageable(paging, Sort.unsorted()));
+
+        // Offers closed between the check of the index and the read of the store are left out
+        List<Offer> content = offerIds.getContent().stream()
+                .map(offerStore::get)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .filter(offer -> !offer.isCancelled() && !offer.isExpired(clock))
+                .collect(Collectors.toList());
+
+        return new SliceImpl<>(content, offerIds.getPageable(), offerIds.hasNext());
+    }
+
+    /**
+     * Return a cancelled copy of the specified offer, with the next version.
+     *
+     * @param offer The offer.
+     * @return The cancelled copy.
+     */
+    private Offer cancelled(Offer offer) {
+        Offer copy = copy(offer, offer.getEndTime());
+        copy.setCancelled(true);
+        return copy;
+    }
+
+    /**
+     * Return a copy of the specified offer with the specified end time and the next version.
+     * <p>
+     * The copy shares the publisher of the offer.
+     *
+     * @param offer   The offer.
+     * @param endTime The end time of the copy.
+     * @return The copy.
+     */
+    private Offer copy(Offer offer, Date endTime) {
+        Offer copy = entityFactory.restoreOffer(offer.getId(), offer.getCreateTime(), endTime, offer.getVersion() + 1);
+        copy.setCancelled(offer.isCancelled());
+        copy.setCurrency(offer.getCurrency());
+        copy.setDescription(offer.getDescription());
+        copy.setPrice(offer.getPrice());
+        copy.setPublisher(offer.getPublisher());
+        copy.setTitle(offer.getTitle());
+        return copy;
+    }
+
+    /**
+     * Return the open offer with the specified id, on behalf of the current user.
+     * <p>
+     * The ownership is decided before the state of the offer is checked, as in {@link OfferServiceJpa}.
+     *
+     * @param offerId      The id of the offer.
+     * @param anyAuthority The authority granting the permission on offers published by other users.
+     * @return The offer, as stored.
+     * @throws AccessDeniedException     If the current user is not the publisher and lacks the specified authority.
+     * @throws OfferIsCancelledException If the offer with the specified id was previously cancelled.
+     * @throws OfferIsExpiredException   If the offer with the specified id has expired.
+     * @throws OfferNotFoundException    If the offer with the specified id was not found in the store.
+     */
+    private Offer findOpen(UUID offerId, String anyAuthority)
+            throws OfferIsCancelledException, OfferIsExpiredException, OfferNotFoundException {
+        Offer offer = offerStore
+                .get(offerId)
+                .orElseThrow(() -> new OfferNotFoundException(offerId));
+
+        if (!authHelper.canModify(offer, anyAuthority)) {
+            throw new AccessDeniedException("Access is denied");
+        }
+
+        if (offer.isCancelled()) {
+            throw new OfferIsCancelledException(offerId);
+        }
+
+        if (offer.isExpired(clock)) {
+            throw new OfferIsExpiredException(offerId);
+        }
+
+        return offer;
+    }
+
+    /**
+     * Apply the specified change to the offer with the specified id, as long as the offer is open, retrying if the
+     * offer is written meanwhile.
+     *
+     * @param offerId The id of the offer.
+     * @param change  The function returning the next state of the offer.
+     * @return The next state, or an empty optional if the offer is missing or closed.
+     */
+    private Optional<Offer> modifyOpen(UUID offerId, UnaryOperator<Offer> change) {
+        while (true) {
+            Optional<Offer> offer = offerStore
+                    .get(offerId)
+                    .filter(found -> !found.isCancelled() && !found.isExpired(clock));
+
+            if (!offer.isPresent()) {
+                return Optional.empty();
+            }
+
+            Offer next = change.apply(offer.get());
+
+            if (offerStore.replace(offer.get(), next)) {
+                return Optional.of(next);
+            }
+        }
+    }
+
+    /**
+     * Return the slice of the specified offers located by the specified pageable.
+     *
+     * @param offers   The offers, in listing order.
+     * @param pageable The pageable.
+     * @return The slice.
+     */
+    private Slice<Offer> slice(Collection<Offer> offers, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(new ArrayList<>(offers));
+        }
+
+        Iterator<Offer> iterator = offers.iterator();
+        List<Offer> content = new ArrayList<>(pageable.getPageSize());
+
+        for (long skipped = 0; skipped < pageable.getOffset() && iterator.hasNext(); skipped++) {
+            iterator.next();
+        }
+
+        while (content.size() < pageable.getPageSize() && iterator.hasNext()) {
+            content.add(iterator.next());
+        }
+
+        return new SliceImpl<>(content, pageable, iterator.hasNext());
+    }
+
+    /**
+     * Return the summary of the specified offer at the specified instant.
+     *
+     * @param offer The offer.
+     * @param now   The instant.
+     * @return The summary.
+     */
+    private OfferSummary toSummary(Offer offer, long now) {
+        return new OfferSummary(
+                offer.getId(),
+                offer.getTitle(),
+                offer.getPrice(),
+                offer.getCurrency(),
+                offer.getCreateTime(),
+                offer.getEndTime(),
+                Math.max(0, offer.getEndTime().getTime() - now));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.service;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import me.mneri.offer.business.pojo.Paging;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Helper class for translating {@link Paging} objects into {@link Pageable}s.
+ *
+ * @author Massimo Neri
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class PagingHelper {
+    /**
+     * Return the {@link Pageable} locating the page of the specified {@link Paging} by its number.
+     * <p>
+     * If the paging has no page size the result is unpaged.
+     *
+     * @param paging The paging specification, can be {@code null}.
+     * @param sort   The sort.
+     * @return The pageable.
+     */
+    static Pageable toPageable(Paging paging, Sort sort) {
+        if (paging == null || paging.getPageSize() == null) {
+            return Pageable.unpaged();
+        }
+
+        int pageNumber = paging.getPageNumber() == null ? 0 : paging.getPageNumber();
+
+        return PageRequest.of(pageNumber, paging.getPageSize(), sort);
+    }
+
+    /**
+     * Return the {@link Pageable} for the specified {@link Paging}, honouring its cursor.
+     * <p>
+     * If the paging has a cursor the first page is returned, since the cursor predicate already skips the previous
+     * pages; otherwise the page is located by its number.
+     *
+     * @param paging The paging specification, can be {@code null}.
+     * @param sort   The sort.
+     * @return The pageable.
+     */
+    static Pageable toPageableAfterCursor(Paging paging, Sort sort) {
+        if (paging != null && paging.getCursor() != null && paging.getPageSize() != null) {
+            return PageRequest.of(0, paging.getPageSize(), sort);
+        }
+
+        return toPageable(paging, sort);
+    }
+}
@@ -24,9 +24,9 @@ import me.mneri.offer.business.exception.OfferNotFoundException;
 import me.mneri.offer.business.pojo.Paging;
 import me.mneri.offer.business.pojo.UserCreate;
 import me.mneri.offer.data.entity.User;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.prepost.PreAuthorize;
 
-import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -41,10 +41,10 @@ public interface UserService {
      * Find all enabled {@link User}s.
      *
      * @param paging The paging specification.
-     * @return The list of all enabled users or an empty list if no enable user exist.
+     * @return The slice of enabled users or an empty slice if no enable user exist.
      */
     @PreAuthorize("permitAll()")
-    List<User> findAllEnabled(Paging paging);
+    Slice<User> findAllEnabled(Paging paging);
 
     /**
      * Find the user with the specified id in the repository.
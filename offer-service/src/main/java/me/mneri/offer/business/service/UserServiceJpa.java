@@ -21,6 +21,8 @@ package me.mneri.offer.business.service;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.business.cache.VersionedCache;
+import me.mneri.offer.business.count.ListingCounter;
 import me.mneri.offer.business.exception.OfferIsCancelledException;
 import me.mneri.offer.business.exception.OfferIsExpiredException;
 import me.mneri.offer.business.exception.OfferNotFoundException;
@@ -29,21 +31,18 @@ import me.mneri.offer.business.pojo.Paging;
 import me.mneri.offer.business.pojo.UserCreate;
 import me.mneri.offer.data.entity.Offer;
 import me.mneri.offer.data.entity.User;
-import me.mneri.offer.data.repository.OfferRepository;
 import me.mneri.offer.data.repository.UserRepository;
-import me.mneri.offer.data.specification.OfferSpec;
-import me.mneri.offer.data.specification.UserSpec;
 import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Clock;
-import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
-import static org.springframework.data.jpa.domain.Specification.where;
-
 /**
  * Service for accessing the user repository.
  *
@@ -51,6 +50,7 @@ import static org.springframework.data.jpa.domain.Specification.where;
  */
 @Log4j2
 @Primary
+@Profile("!memory")
 @RequiredArgsConstructor(access = AccessLevel.PROTECTED)
 @Service
 class UserServiceJpa implements UserService {
@@ -58,7 +58,11 @@ class UserServiceJpa implements UserService {
 
     private final Clock clock;
 
-    private final OfferRepository offerRepository;
+    private final ListingCounter listingCounter;
+
+    private final VersionedCache<UUID, Offer> offerCache;
+
+    private final VersionedCache<UUID, User> userCache;
 
     private final UserRepository userRepository;
 
@@ -66,9 +70,9 @@ class UserServiceJpa implements UserService {
      * {@inheritDoc}
      */
     @Override
-    @Transactional
-    public List<User> findAllEnabled(Paging paging) {
-        return userRepository.findAll(where(UserSpec.isEnabled()));
+    @Transactional(readOnly = true)
+    public Slice<User> findAllEnabled(Paging paging) {
+        return userRepository.findAllEnabled(PagingHelper.toPageable(paging, Sort.unsorted())); // Ordered by the query
     }
 
     /**
@@ -77,7 +81,7 @@ class UserServiceJpa implements UserService {
     @Override
     @Transactional
     public Optional<User> findById(UUID userId) {
-        return userRepository.findOne(where(UserSpec.idIsEqualTo(userId)));
+        return userCache.get(userId);
     }
 
     /**
@@ -87,8 +91,8 @@ class UserServiceJpa implements UserService {
     @Transactional
     public User findByOfferId(UUID offerId)
             throws OfferIsCancelledException, OfferIsExpiredException, OfferNotFoundException {
-        Offer offer = offerRepository
-                .findOne(where(OfferSpec.idIsEqualTo(offerId)))
+        Offer offer = offerCache
+                .get(offerId)
                 .orElseThrow(() -> new OfferNotFoundException(offerId));
 
         if (offer.isCancelled()) {
@@ -99,8 +103,8 @@ class UserServiceJpa implements UserService {
             throw new OfferIsExpiredException(offerId);
         }
 
-        return userRepository
-                .findOne(where(UserSpec.isPublisherOf(offerId)))
+        return userCache
+                .get(offer.getPublisher().getId())
                 .orElseThrow(IllegalStateException::new);
     }
 
@@ -109,7 +113,7 @@ class UserServiceJpa implements UserService {
      */
     @Override
     public Optional<User> findByUsername(String username) {
-        return userRepository.findOne(where(UserSpec.usernameIsEqualTo(username)));
+        return userRepository.loadByUsername(username);
     }
 
     /**
@@ -121,6 +125,8 @@ class UserServiceJpa implements UserService {
         User user = businessLayerMapper.mapUserCreateToUser(create);
 
         userRepository.save(user);
+        userCache.evictOlderThan(user.getId(), user);
+        listingCounter.onUserCreated(user);
         log.debug("User created; userId: {}", user.getId());
 
         return user;
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.service;
+
+import me.mneri.offer.business.cache.VersionedCache;
+import me.mneri.offer.business.count.ListingCounter;
+import me.mneri.offer.business.exception.OfferIsCancelledException;
+import me.mneri.offer.business.exception.OfferIsExpiredException;
+import me.mneri.offer.business.exception.OfferNotFoundException;
+import me.mneri.offer.business.mapping.BusinessLayerMapper;
+import me.mneri.offer.business.memory.OfferStore;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.entity.User;
+import me.mneri.offer.data.repository.UserRepository;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.util.UUID;
+
+/**
+ * Service for accessing the user repository, for the {@code memory} profile.
+ * <p>
+ * Users are still stored in the user repository; only the lookups by offer are answered from the {@link OfferStore}.
+ *
+ * @author Massimo Neri
+ */
+@Primary
+@Profile("memory")
+@Service
+class UserServiceMemory extends UserServiceJpa {
+    private final Clock clock;
+
+    private final OfferStore offerStore;
+
+    private final VersionedCache<UUID, User> userCache;
+
+    /**
+     * Create a new instance.
+     *
+     * @param businessLayerMapper The business layer mapper.
+     * @param clock               The clock.
+     * @param listingCounter      The listing counter.
+     * @param offerCache          The offer cache.
+     * @param offerStore          The offer store.
+     * @param userCache           The user cache.
+     * @param userRepository      The user repository.
+     */
+    protected UserServiceMemory(BusinessLayerMapper businessLayerMapper,
+                                Clock clock,
+                                ListingCounter listingCounter,
+                                VersionedCache<UUID, Offer> offerCache,
+                                OfferStore offerStore,
+                                VersionedCache<UUID, User> userCache,
+                                UserRepository userRepository) {
+        super(businessLayerMapper, clock, listingCounter, offerCache, userCache, userRepository);
+        this.clock = clock;
+        this.offerStore = offerStore;
+        this.userCache = userCache;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public User findByOfferId(UUID offerId)
+            throws OfferIsCancelledException, OfferIsExpiredException, OfferNotFoundException {
+        Offer offer = offerStore
+                .get(offerId)
+                .orElseThrow(() -> new OfferNotFoundException(offerId));
+
+        if (offer.isCancelled()) {
+            throw new OfferIsCancelledException(offerId);
+        }
+
+        if (offer.isExpired(clock)) {
+            throw new OfferIsExpiredException(offerId);
+        }
+
+        return userCache
+                .get(offer.getPublisher().getId())
+                .orElseThrow(IllegalStateException::new);
+    }
+}
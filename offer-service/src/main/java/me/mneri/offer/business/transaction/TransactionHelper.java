@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.transaction;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Helper class for deferring changes to in-process state until the current transaction commits.
+ * <p>
+ * Caches, counters and indexes kept next to the database must not expose a change that could still be rolled back,
+ * so their writers apply the change once the transaction commits, or immediately if there is no transaction.
+ *
+ * @author Massimo Neri
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class TransactionHelper {
+    /**
+     * Run the specified action once the current transaction commits, or immediately if there is no transaction. The
+     * action is discarded if the transaction rolls back.
+     *
+     * @param action The action.
+     */
+    public static void afterCommit(@NonNull Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
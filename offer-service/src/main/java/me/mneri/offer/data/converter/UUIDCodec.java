@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.converter;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Encoder and decoder for the binary representation of {@link UUID}s.
+ * <p>
+ * A UUID is stored as its most significant half followed by its least significant half, both big-endian, for a total
+ * of 16 bytes. This is the same layout Hibernate uses for {@code @Id} attributes, so keys and foreign keys compare
+ * byte by byte.
+ *
+ * @author Massimo Neri
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class UUIDCodec {
+    /**
+     * The length in bytes of an encoded UUID.
+     */
+    public static final int UUID_BYTES = 2 * Long.BYTES;
+
+    /**
+     * Decode the specified bytes.
+     *
+     * @param bytes The bytes.
+     * @return The UUID, or {@code null} if {@code bytes} is {@code null}.
+     * @throws IllegalArgumentException If {@code bytes} is not 16 bytes long.
+     */
+    public static UUID decode(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+
+        if (bytes.length != UUID_BYTES) {
+            throw new IllegalArgumentException("Illegal UUID length.");
+        }
+
+        return new UUID(readLong(bytes, 0), readLong(bytes, Long.BYTES));
+    }
+
+    /**
+     * Encode the specified UUID.
+     *
+     * @param uuid The UUID.
+     * @return The bytes, or {@code null} if {@code uuid} is {@code null}.
+     */
+    public static byte[] encode(UUID uuid) {
+        if (uuid == null) {
+            return null;
+        }
+
+        byte[] bytes = new byte[UUID_BYTES];
+        writeLong(bytes, 0, uuid.getMostSignificantBits());
+        writeLong(bytes, Long.BYTES, uuid.getLeastSignificantBits());
+        return bytes;
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+
+        for (int i = offset; i < offset + Long.BYTES; i++) {
+            value = (value << 8) | (bytes[i] & 0xff);
+        }
+
+        return value;
+    }
+
+    private static void writeLong(byte[] bytes, int offset, long value) {
+        for (int i = offset + Long.BYTES - 1; i >= offset; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+}
@@ -24,24 +24,27 @@ import java.util.UUID;
 
 /**
  * JPA attribute converter for {@link UUID} type.
+ * <p>
+ * UUIDs are stored in their 16-byte binary form, see {@link UUIDCodec}. Note that JPA does not apply converters to
+ * {@code @Id} attributes: those are mapped by Hibernate to the same binary form.
  *
  * @author Massimo Neri
  */
 @Converter(autoApply = true)
-public class UUIDConverter implements AttributeConverter<UUID, String> {
+public class UUIDConverter implements AttributeConverter<UUID, byte[]> {
     /**
      * {@inheritDoc}
      */
     @Override
-    public String convertToDatabaseColumn(UUID uuid) {
-        return uuid == null ? null : uuid.toString();
+    public byte[] convertToDatabaseColumn(UUID uuid) {
+        return UUIDCodec.encode(uuid);
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public UUID convertToEntityAttribute(String string) {
-        return string == null ? null : UUID.fromString(string);
+    public UUID convertToEntityAttribute(byte[] bytes) {
+        return UUIDCodec.decode(bytes);
     }
 }
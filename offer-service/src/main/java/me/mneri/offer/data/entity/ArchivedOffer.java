@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.entity;
+
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * ORM for the {@code offer_archive} table.
+ * <p>
+ * Closed offers, either cancelled or expired, are moved to the archive by the sweeper and never change afterwards. ORM
+ * objects are compared by their id and not their state.
+ *
+ * @author Massimo Neri
+ */
+@Entity
+@EqualsAndHashCode(of = "id")
+@Getter
+@Immutable
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Setter(AccessLevel.PROTECTED)
+@Table(name = "offer_archive")
+@ToString
+public class ArchivedOffer {
+    @Id
+    @NotNull
+    private UUID id;
+
+    @Column
+    private String title;
+
+    @Column
+    private String description;
+
+    @Column(precision = 16, scale = 2)
+    private BigDecimal price;
+
+    @Column
+    private String currency;
+
+    @Column(name = "create_time")
+    private Date createTime;
+
+    @Column(name = "end_time")
+    private Date endTime;
+
+    @Column
+    private boolean cancelled;
+
+    @JoinColumn(name = "publisher")
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @ToString.Exclude
+    private User publisher;
+
+    @Column
+    @ToString.Exclude
+    private long version;
+
+    @Column(name = "archive_time")
+    private Date archiveTime;
+}
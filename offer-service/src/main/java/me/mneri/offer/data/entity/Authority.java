@@ -24,8 +24,11 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
-import org.springframework.data.annotation.Immutable;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
@@ -40,6 +43,8 @@ import java.util.UUID;
  *
  * @author Massimo Neri
  */
+@Cache(region = "authority", usage = CacheConcurrencyStrategy.READ_ONLY)
+@Cacheable
 @Entity
 @EqualsAndHashCode(of = "id")
 @Getter
@@ -18,12 +18,47 @@
 
 package me.mneri.offer.data.entity;
 
+import java.util.Date;
+import java.util.UUID;
+
 /**
  * Factory to create data layer entities.
  *
  * @author Massimo Neri
  */
 public interface EntityFactory {
+    /**
+     * Create a detached copy of the specified {@link Offer}.
+     * <p>
+     * The publisher is copied as well, see {@link #copyUser(User)}. The copy is never attached to a persistence context,
+     * so it can be shared between transactions, but it must not be modified.
+     *
+     * @param offer The offer to copy.
+     * @return The copy.
+     */
+    Offer copyOffer(Offer offer);
+
+    /**
+     * Create a detached {@link Offer} copy of the specified {@link ArchivedOffer}.
+     * <p>
+     * The copy is closed like the archived offer and follows the same rules of {@link #copyOffer(Offer)}.
+     *
+     * @param offer The archived offer to copy.
+     * @return The copy.
+     */
+    Offer copyOffer(ArchivedOffer offer);
+
+    /**
+     * Create a detached copy of the specified {@link User}.
+     * <p>
+     * The authorities are copied only if they are already loaded, otherwise they are left {@code null}. The copy is
+     * never attached to a persistence context, so it can be shared between transactions, but it must not be modified.
+     *
+     * @param user The user to copy.
+     * @return The copy.
+     */
+    User copyUser(User user);
+
     /**
      * Create a new {@link Offer}.
      *
@@ -39,4 +74,18 @@ public interface EntityFactory {
      * @return A new user.
      */
     User createUser();
+
+    /**
+     * Create a detached {@link Offer} with the specified identity, end time and version, as stored outside of the
+     * database.
+     * <p>
+     * The remaining fields are left to the caller. The offer is never attached to a persistence context.
+     *
+     * @param id         The id of the offer.
+     * @param createTime The create time of the offer.
+     * @param endTime    The end time of the offer.
+     * @param version    The version of the offer.
+     * @return The offer.
+     */
+    Offer restoreOffer(UUID id, Date createTime, Date endTime, long version);
 }
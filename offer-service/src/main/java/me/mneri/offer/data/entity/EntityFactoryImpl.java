@@ -1,11 +1,15 @@
 package me.mneri.offer.data.entity;
 
 import lombok.AccessLevel;
+import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
 import org.springframework.stereotype.Component;
 
 import java.time.Clock;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.UUID;
 
 /**
  * Default implementation of {@link EntityFactory}.
@@ -19,6 +23,63 @@ class EntityFactoryImpl implements EntityFactory {
 
     private final UUIDProvider uuidProvider;
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Offer copyOffer(@NonNull Offer offer) {
+        Offer copy = new Offer();
+        copy.setId(offer.getId());
+        copy.setTitle(offer.getTitle());
+        copy.setDescription(offer.getDescription());
+        copy.setPrice(offer.getPrice());
+        copy.setCurrency(offer.getCurrency());
+        copy.setCreateTime(offer.getCreateTime());
+        copy.setEndTime(offer.getEndTime());
+        copy.setCancelled(offer.isCancelled());
+        copy.setPublisher(copyUser(offer.getPublisher()));
+        copy.setVersion(offer.getVersion());
+        return copy;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Offer copyOffer(@NonNull ArchivedOffer offer) {
+        Offer copy = new Offer();
+        copy.setId(offer.getId());
+        copy.setTitle(offer.getTitle());
+        copy.setDescription(offer.getDescription());
+        copy.setPrice(offer.getPrice());
+        copy.setCurrency(offer.getCurrency());
+        copy.setCreateTime(offer.getCreateTime());
+        copy.setEndTime(offer.getEndTime());
+        copy.setCancelled(offer.isCancelled());
+        copy.setPublisher(copyUser(offer.getPublisher()));
+        copy.setVersion(offer.getVersion());
+        return copy;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public User copyUser(@NonNull User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setUsername(user.getUsername());
+        copy.setEncodedPassword(user.getEncodedPassword());
+        copy.setEnabled(user.isEnabled());
+        copy.setVersion(user.getVersion());
+
+        if (user.getAuthorities() != null && Hibernate.isInitialized(user.getAuthorities())) {
+            copy.setAuthorities(new ArrayList<>(user.getAuthorities()));
+        }
+
+        return copy;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -40,4 +101,17 @@ class EntityFactoryImpl implements EntityFactory {
         user.setEnabled(true);
         return user;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Offer restoreOffer(@NonNull UUID id, @NonNull Date createTime, @NonNull Date endTime, long version) {
+        Offer offer = new Offer();
+        offer.setId(id);
+        offer.setCreateTime(createTime);
+        offer.setEndTime(endTime);
+        offer.setVersion(version);
+        return offer;
+    }
 }
@@ -124,7 +124,6 @@ public class Offer {
     private User publisher;
 
     @Column
-    @Getter(AccessLevel.PROTECTED)
     @Setter(AccessLevel.PROTECTED)
     @ToString.Exclude
     @Version
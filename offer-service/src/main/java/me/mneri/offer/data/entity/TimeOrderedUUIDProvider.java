@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.entity;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Implementation of {@link UUIDProvider} generating time-ordered version 7 {@link UUID}s.
+ * <p>
+ * The 48 most significant bits hold the Unix epoch milliseconds, followed by the version, a 12 bit sequence, the
+ * variant and 62 random bits. Ids generated later sort after ids generated earlier, so new rows are appended to the
+ * right edge of the primary key index instead of being scattered through it.
+ * <p>
+ * Each thread keeps its own sequence, so ids are strictly increasing within a thread without any locking. The
+ * sequence is seeded with a random value at every new millisecond; when it is exhausted, or when the clock moves
+ * backwards, the thread moves on to the next millisecond. Random bits come from {@link ThreadLocalRandom}: ids are
+ * unique but not unpredictable, and must not be used as secrets.
+ *
+ * @author Massimo Neri
+ */
+@Component("uuidProvider")
+@ConditionalOnProperty(name = "data.uuid.provider", havingValue = "time-ordered")
+@RequiredArgsConstructor(access = AccessLevel.PROTECTED)
+class TimeOrderedUUIDProvider implements UUIDProvider {
+    private static final int SEQUENCE_BITS = 12;
+
+    private static final int SEQUENCE_MAX_VALUE = (1 << SEQUENCE_BITS) - 1;
+
+    // Seed the sequence in its lower half, leaving at least 2048 ids per millisecond before borrowing the next one
+    private static final int SEQUENCE_SEED_BOUND = 1 << (SEQUENCE_BITS - 1);
+
+    private static final long VERSION_BITS = 0x7000L;
+
+    private static final long VARIANT_BITS = 0x8000000000000000L;
+
+    private static final long RANDOM_MASK = 0x3fffffffffffffffL;
+
+    private final Clock clock;
+
+    private final ThreadLocal<Sequence> sequences = ThreadLocal.withInitial(Sequence::new);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public UUID createRandomUuid() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Sequence sequence = sequences.get();
+        long millis = clock.millis();
+
+        if (millis > sequence.millis) {
+            sequence.millis = millis;
+            sequence.value = random.nextInt(SEQUENCE_SEED_BOUND);
+        } else if (++sequence.value > SEQUENCE_MAX_VALUE) {
+            sequence.millis++;
+            sequence.value = random.nextInt(SEQUENCE_SEED_BOUND);
+        }
+
+        long mostSigBits = (sequence.millis << 16) | VERSION_BITS | sequence.value;
+        long leastSigBits = VARIANT_BITS | (random.nextLong() & RANDOM_MASK);
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    private static class Sequence {
+        private long millis = Long.MIN_VALUE;
+
+        private int value;
+    }
+}
@@ -28,6 +28,9 @@ import java.util.UUID;
 public interface UUIDProvider {
     /**
      * Return a new randomly generated {@link UUID}.
+     * <p>
+     * Depending on the implementation, part of the bits may be derived from the current time rather than randomly
+     * generated. The implementation is selected with the {@code data.uuid.provider} property.
      *
      * @return A new randomly generated {@link UUID}.
      */
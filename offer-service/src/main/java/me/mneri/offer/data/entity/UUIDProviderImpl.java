@@ -20,16 +20,18 @@ package me.mneri.offer.data.entity;
 
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import java.util.UUID;
 
 /**
- * Default implementation of {@link UUIDProvider}.
+ * Default implementation of {@link UUIDProvider}, generating random version 4 {@link UUID}s.
  *
  * @author Massimo Neri
  */
 @Component("uuidProvider")
+@ConditionalOnProperty(name = "data.uuid.provider", havingValue = "random", matchIfMissing = true)
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 class UUIDProviderImpl implements UUIDProvider {
     /**
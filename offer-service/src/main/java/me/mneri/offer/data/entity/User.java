@@ -26,10 +26,16 @@ import lombok.NonNull;
 import lombok.Setter;
 import lombok.ToString;
 import me.mneri.offer.data.validator.Username;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
@@ -47,12 +53,19 @@ import java.util.UUID;
  * ORM for the {@code user} table.
  * <p>
  * The id is immutable and is assigned upon creation. ORM objects are compared by their id and not their state.
+ * <p>
+ * Users, their authorities and the resolution of usernames to ids are kept in the second-level cache, so that looking
+ * a user up by id or by username, together with their authorities, issues no statement once cached.
  *
  * @author Massimo Neri
  */
+@Cache(region = "user", usage = CacheConcurrencyStrategy.READ_WRITE)
+@Cacheable
 @Entity
+@EntityListeners(UserEntityListener.class)
 @EqualsAndHashCode(of = "id")
 @Getter
+@NaturalIdCache(region = "user-natural-id")
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @Setter
 @Table(name = "user")
@@ -79,6 +92,7 @@ public class User {
     private UUID id;
 
     @Column(unique = true)
+    @NaturalId(mutable = true)
     @Username
     private String username;
 
@@ -91,6 +105,7 @@ public class User {
     @Column
     private boolean enabled;
 
+    @Cache(region = "user-authorities", usage = CacheConcurrencyStrategy.READ_WRITE)
     @JoinTable(
             name = "user_authority",
             inverseJoinColumns = @JoinColumn(name = "authority"),
@@ -100,12 +115,20 @@ public class User {
     private List<Authority> authorities;
 
     @Column
-    @Getter(AccessLevel.PROTECTED)
     @Setter(AccessLevel.PROTECTED)
     @ToString.Exclude
     @Version
     private long version;
 
+    /**
+     * The enabled status as of the last load or flush, so that changes to it can be published.
+     */
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.PACKAGE)
+    @ToString.Exclude
+    @Transient
+    private boolean flushedEnabled;
+
     @Transient
     public void setEncodedPassword(@NonNull String rawPassword, @NonNull PasswordEncoder passwordEncoder) {
         setEncodedPassword(passwordEncoder.encode(rawPassword));
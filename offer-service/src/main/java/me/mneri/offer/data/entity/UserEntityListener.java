@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.entity;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import me.mneri.offer.data.event.UserChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * JPA entity listener publishing a {@link UserChangedEvent} for every updated or removed {@link User}.
+ * <p>
+ * The enabled status of a user is remembered when the user is loaded, persisted or flushed, so that each event carries
+ * the change of the status since the previous one.
+ *
+ * @author Massimo Neri
+ */
+@RequiredArgsConstructor(access = AccessLevel.PROTECTED)
+class UserEntityListener {
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    @PostRemove
+    void publishUserChangedEventOnRemove(User user) {
+        int enabledDelta = user.isFlushedEnabled() ? -1 : 0;
+        user.setFlushedEnabled(false);
+        applicationEventPublisher.publishEvent(new UserChangedEvent(user.getId(), user.getUsername(), enabledDelta));
+    }
+
+    @PostUpdate
+    void publishUserChangedEventOnUpdate(User user) {
+        int enabledDelta = (user.isEnabled() ? 1 : 0) - (user.isFlushedEnabled() ? 1 : 0);
+        user.setFlushedEnabled(user.isEnabled());
+        applicationEventPublisher.publishEvent(new UserChangedEvent(user.getId(), user.getUsername(), enabledDelta));
+    }
+
+    @PostLoad
+    @PostPersist
+    void rememberEnabled(User user) {
+        user.setFlushedEnabled(user.isEnabled());
+    }
+}
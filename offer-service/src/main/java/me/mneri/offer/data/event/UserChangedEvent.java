@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.event;
+
+import lombok.Value;
+import me.mneri.offer.data.entity.User;
+
+import java.util.UUID;
+
+/**
+ * Event published when a {@link User} is updated or removed.
+ * <p>
+ * Changes to the authorities of a user increment its version, so they are published as well. The event is published
+ * when the change is flushed, before the transaction commits, together with the change of the enabled status since the
+ * previous event, so that listeners can keep counts without querying again.
+ *
+ * @author Massimo Neri
+ */
+@Value
+public class UserChangedEvent {
+    UUID userId;
+
+    String username;
+
+    /**
+     * {@code 1} if the change enabled the user, {@code -1} if it disabled or removed an enabled user, {@code 0}
+     * otherwise.
+     */
+    int enabledDelta;
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.projection;
+
+import lombok.Value;
+import me.mneri.offer.data.entity.Offer;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Read-only projection of an open {@link Offer}, as read by listings.
+ * <p>
+ * Unlike {@link OfferView} a summary leaves the description out: descriptions are up to
+ * {@value Offer#DESCRIPTION_MAX_LENGTH} characters long and listings do not show them, so they are neither read nor
+ * serialized. The TTL is computed when the summary is read, against the same instant used to select the open offers.
+ *
+ * @author Massimo Neri
+ */
+@Value
+public class OfferSummary {
+    UUID id;
+
+    String title;
+
+    BigDecimal price;
+
+    String currency;
+
+    Date createTime;
+
+    Date endTime;
+
+    long ttl;
+}
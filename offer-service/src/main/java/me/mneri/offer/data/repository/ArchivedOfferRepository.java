@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.repository;
+
+import me.mneri.offer.data.entity.ArchivedOffer;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Repository for {@link ArchivedOffer} entities.
+ *
+ * @author Massimo Neri
+ */
+@Repository
+@SuppressWarnings("unused")
+public interface ArchivedOfferRepository extends ReadOnlyRepository<ArchivedOffer, UUID> {
+    /**
+     * Find the {@link ArchivedOffer} with the specified id, fetching its publisher in the same query.
+     *
+     * @param id The id of the offer.
+     * @return The archived offer with the specified id.
+     */
+    @EntityGraph(attributePaths = "publisher")
+    Optional<ArchivedOffer> findWithPublisherById(UUID id);
+}
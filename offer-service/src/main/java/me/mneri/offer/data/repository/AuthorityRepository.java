@@ -22,6 +22,8 @@ import me.mneri.offer.data.entity.Authority;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 
+import java.util.UUID;
+
 /**
  * Repository for {@link Authority} entities.
  *
@@ -29,5 +31,5 @@ import org.springframework.stereotype.Repository;
  */
 @Repository
 @SuppressWarnings("unused")
-public interface AuthorityRepository extends ReadOnlyRepository<Authority, String>, JpaSpecificationExecutor<Authority> {
+public interface AuthorityRepository extends ReadOnlyRepository<Authority, UUID>, JpaSpecificationExecutor<Authority> {
 }
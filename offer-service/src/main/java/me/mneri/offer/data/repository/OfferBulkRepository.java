@@ -0,0 +1,211 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.repository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import me.mneri.offer.data.converter.UUIDCodec;
+import me.mneri.offer.data.entity.Offer;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Repository for set-based updates of offers.
+ * <p>
+ * Each update locks the open offers it targets, then updates them with a single conditional statement that increments
+ * their version, so that concurrent entity updates fail their optimistic check. The ids of the updated offers are
+ * returned; offers that are cancelled or expired are left untouched. The repository also moves closed offers to the
+ * archive, in chunks. Single offers are updated with a conditional statement that only succeeds if the offer is still
+ * open and at the expected version. Operations must run inside a transaction and bypass the persistence context.
+ *
+ * @author Massimo Neri
+ */
+@Repository
+@RequiredArgsConstructor(access = AccessLevel.PROTECTED)
+public class OfferBulkRepository {
+    private static final String COLUMNS = "id, title, description, publisher, price, currency, cancelled, "
+            + "create_time, end_time, version";
+
+    private static final String DELETE_ARCHIVED = "delete from offer_archive where archive_time < :before "
+            + "limit :limit";
+
+    private static final String DELETE_BY_ID = "delete from offer where id in (:ids)";
+
+    private static final String INSERT_ARCHIVE = "insert into offer_archive (" + COLUMNS + ", archive_time) "
+            + "select " + COLUMNS + ", :now from offer where id in (:ids)";
+
+    private static final String IS_OPEN = " and cancelled = false and end_time > :now";
+
+    private static final String SELECT_CLOSED = "select id from offer "
+            + "where cancelled = true or end_time <= :expiredBefore limit :limit for update";
+
+    private static final String SELECT_OPEN_BY_ID = "select id from offer where id in (:ids)" + IS_OPEN
+            + " for update";
+
+    private static final String SELECT_OPEN_BY_PUBLISHER = "select id from offer where publisher = :publisher"
+            + IS_OPEN + " for update";
+
+    private static final String UPDATE_CANCEL = "update offer set cancelled = true, version = version + 1 "
+            + "where id in (:ids)" + IS_OPEN;
+
+    private static final String UPDATE_EXTEND = "update offer "
+            + "set end_time = dateadd('MILLISECOND', :ttl, end_time), version = version + 1 "
+            + "where id in (:ids)" + IS_OPEN;
+
+    private static final String UPDATE_IF_OPEN = "update offer "
+            + "set title = :title, description = :description, price = :price, currency = :currency, "
+            + "end_time = :endTime, version = version + 1 "
+            + "where id = :id and version = :version" + IS_OPEN;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Move to the archive at most the specified number of closed offers.
+     * <p>
+     * An offer is closed if cancelled, or if expired before the specified instant.
+     *
+     * @param now           The archive time.
+     * @param expiredBefore The instant expired offers must have expired before.
+     * @param limit         The maximum number of offers to move.
+     * @return The ids of the archived offers.
+     */
+    public List<UUID> archiveClosed(Date now, Date expiredBefore, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("expiredBefore", new Timestamp(expiredBefore.getTime()))
+                .addValue("limit", limit)
+                .addValue("now", new Timestamp(now.getTime()));
+        List<byte[]> ids = jdbcTemplate.queryForList(SELECT_CLOSED, params, byte[].class);
+
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        params.addValue("ids", ids);
+        jdbcTemplate.update(INSERT_ARCHIVE, params);
+        jdbcTemplate.update(DELETE_BY_ID, params);
+
+        return ids.stream().map(UUIDCodec::decode).collect(Collectors.toList());
+    }
+
+    /**
+     * Cancel all the offers published by the specified user and open at the specified instant.
+     *
+     * @param publisherId The id of the publisher.
+     * @param now         The instant the offers must be open at.
+     * @return The ids of the cancelled offers.
+     */
+    public List<UUID> cancelAllOpenByPublisherId(UUID publisherId, Date now) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("publisher", UUIDCodec.encode(publisherId))
+                .addValue("now", new Timestamp(now.getTime()));
+
+        return update(SELECT_OPEN_BY_PUBLISHER, UPDATE_CANCEL, params);
+    }
+
+    /**
+     * Extend by the specified TTL the end time of the specified offers, if open at the specified instant.
+     *
+     * @param offerIds The ids of the offers.
+     * @param ttl      The TTL to add to the end time, in milliseconds.
+     * @param now      The instant the offers must be open at.
+     * @return The ids of the extended offers.
+     */
+    public List<UUID> extendAllOpen(Collection<UUID> offerIds, long ttl, Date now) {
+        if (offerIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", offerIds.stream().map(UUIDCodec::encode).collect(Collectors.toList()))
+                .addValue("now", new Timestamp(now.getTime()))
+                .addValue("ttl", ttl);
+
+        return update(SELECT_OPEN_BY_ID, UPDATE_EXTEND, params);
+    }
+
+    /**
+     * Delete from the archive at most the specified number of offers archived before the specified instant.
+     *
+     * @param before The instant.
+     * @param limit  The maximum number of offers to delete.
+     * @return The number of deleted offers.
+     */
+    public int purgeArchivedBefore(Date before, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("before", new Timestamp(before.getTime()))
+                .addValue("limit", limit);
+
+        return jdbcTemplate.update(DELETE_ARCHIVED, params);
+    }
+
+    /**
+     * Write the state of the specified offer if, at the specified instant, the offer is open and still at the specified
+     * version. The version is incremented.
+     * <p>
+     * The update is a single statement: the row is neither read nor locked beforehand.
+     *
+     * @param offer   The offer holding the new state; cancelled flag, publisher and version are ignored.
+     * @param version The version the offer must be at.
+     * @param now     The instant the offer must be open at.
+     * @return {@code true} if the offer was updated, {@code false} if it is closed, missing or at another version.
+     */
+    public boolean updateIfOpen(Offer offer, long version, Date now) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("currency", offer.getCurrency())
+                .addValue("description", offer.getDescription())
+                .addValue("endTime", new Timestamp(offer.getEndTime().getTime()))
+                .addValue("id", UUIDCodec.encode(offer.getId()))
+                .addValue("now", new Timestamp(now.getTime()))
+                .addValue("price", offer.getPrice())
+                .addValue("title", offer.getTitle())
+                .addValue("version", version);
+
+        return jdbcTemplate.update(UPDATE_IF_OPEN, params) == 1;
+    }
+
+    /**
+     * Lock the offers selected by the specified query and run the specified update on them.
+     *
+     * @param select The query selecting and locking the ids of the offers.
+     * @param update The update, restricted to the {@code ids} parameter.
+     * @param params The parameters of both statements.
+     * @return The ids of the updated offers.
+     */
+    private List<UUID> update(String select, String update, MapSqlParameterSource params) {
+        List<byte[]> ids = jdbcTemplate.queryForList(select, params, byte[].class);
+
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // The rows are locked: the update affects exactly the selected offers
+        jdbcTemplate.update(update, params.addValue("ids", ids));
+
+        return ids.stream().map(UUIDCodec::decode).collect(Collectors.toList());
+    }
+}
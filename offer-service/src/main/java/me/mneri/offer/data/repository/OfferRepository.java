@@ -19,16 +19,158 @@
 package me.mneri.offer.data.repository;
 
 import me.mneri.offer.data.entity.Offer;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 /**
  * Repository for {@link Offer} entities.
+ * <p>
+ * The fixed shapes of the open offers listings are declared queries: their JPQL is validated and translated once, at
+ * startup, and each call only binds the parameters. {@link org.springframework.data.jpa.domain.Specification}s are
+ * left to the dynamic filters, whose shape depends on the request.
  *
  * @author Massimo Neri
  */
 @Repository
 @SuppressWarnings("unused")
-public interface OfferRepository extends CrudRepository<Offer, String>, JpaSpecificationExecutor<Offer> {
+public interface OfferRepository extends CrudRepository<Offer, UUID>, JpaSpecificationExecutor<Offer>,
+        SliceSpecificationExecutor<Offer> {
+    /**
+     * The JPQL predicate of the offers following the cursor {@code (:endTime, :id)} in {@link #OPEN_ORDER_BY}.
+     */
+    String AFTER_CURSOR = "(o.endTime > :endTime or (o.endTime = :endTime and o.id > :id))";
+
+    /**
+     * The JPQL predicate of the offers open at {@code :now}.
+     * <p>
+     * Equality on cancelled and a range on end time, rather than negations, so that idx_offer_open is usable.
+     */
+    String OPEN = "o.cancelled = false and o.endTime > :now";
+
+    /**
+     * The JPQL order of the open offers listings; the cursors refer to this order.
+     */
+    String OPEN_ORDER_BY = " order by o.endTime, o.id";
+
+    /**
+     * The JDBC fetch size of {@link #streamAllOpen(Date)}.
+     */
+    String STREAM_FETCH_SIZE = "256";
+
+    /**
+     * Count the offers open at the specified instant.
+     *
+     * @param now The instant the offers must be open at.
+     * @return The number of open offers.
+     */
+    @Query("select count(o) from Offer o where " + OPEN)
+    long countAllOpen(@Param("now") Date now);
+
+    /**
+     * Return {@code true} if any of the specified offers is published by a user other than the one with the specified
+     * username.
+     *
+     * @param ids      The ids of the offers.
+     * @param username The username of the publisher.
+     * @return {@code true} if any of the specified offers is published by another user, {@code false} otherwise.
+     */
+    boolean existsByIdInAndPublisherUsernameNot(Collection<UUID> ids, String username);
+
+    /**
+     * Find the offers open at the specified instant, ordered by end time and id.
+     *
+     * @param now      The instant the offers must be open at.
+     * @param pageable The pageable, must not be sorted.
+     * @return The slice of the open offers.
+     */
+    @Query("select o from Offer o where " + OPEN + OPEN_ORDER_BY)
+    Slice<Offer> findAllOpen(@Param("now") Date now, Pageable pageable);
+
+    /**
+     * Find the offers open at the specified instant following the specified cursor, ordered by end time and id.
+     *
+     * @param now      The instant the offers must be open at.
+     * @param endTime  The end time of the cursor.
+     * @param id       The id of the cursor.
+     * @param pageable The pageable, must not be sorted.
+     * @return The slice of the open offers following the cursor.
+     */
+    @Query("select o from Offer o where " + OPEN + " and " + AFTER_CURSOR + OPEN_ORDER_BY)
+    Slice<Offer> findAllOpenAfter(@Param("now") Date now,
+                                  @Param("endTime") Date endTime,
+                                  @Param("id") UUID id,
+                                  Pageable pageable);
+
+    /**
+     * Find the offers published by the specified user and open at the specified instant, ordered by end time and id.
+     *
+     * @param publisherId The id of the publisher.
+     * @param now         The instant the offers must be open at.
+     * @param pageable    The pageable, must not be sorted.
+     * @return The slice of the open offers of the publisher.
+     */
+    @Query("select o from Offer o where o.publisher.id = :publisherId and " + OPEN + OPEN_ORDER_BY)
+    Slice<Offer> findAllOpenByPublisherId(@Param("publisherId") UUID publisherId,
+                                          @Param("now") Date now,
+                                          Pageable pageable);
+
+    /**
+     * Find the offers published by the specified user and open at the specified instant following the specified
+     * cursor, ordered by end time and id.
+     *
+     * @param publisherId The id of the publisher.
+     * @param now         The instant the offers must be open at.
+     * @param endTime     The end time of the cursor.
+     * @param id          The id of the cursor.
+     * @param pageable    The pageable, must not be sorted.
+     * @return The slice of the open offers of the publisher following the cursor.
+     */
+    @Query("select o from Offer o where o.publisher.id = :publisherId and " + OPEN + " and " + AFTER_CURSOR
+            + OPEN_ORDER_BY)
+    Slice<Offer> findAllOpenByPublisherIdAfter(@Param("publisherId") UUID publisherId,
+                                               @Param("now") Date now,
+                                               @Param("endTime") Date endTime,
+                                               @Param("id") UUID id,
+                                               Pageable pageable);
+
+    /**
+     * Find the {@link Offer} with the specified id, fetching its publisher in the same query.
+     *
+     * @param id The id of the offer.
+     * @return The offer with the specified id.
+     */
+    @EntityGraph(attributePaths = "publisher")
+    Optional<Offer> findWithPublisherById(UUID id);
+
+    /**
+     * Stream the offers open at the specified instant, ordered by end time and id.
+     * <p>
+     * Rows are read through a database cursor, {@value #STREAM_FETCH_SIZE} at a time, as read-only entities. The stream
+     * must be consumed and closed inside a transaction.
+     *
+     * @param now The instant the offers must be open at.
+     * @return The stream of the open offers.
+     */
+    @Query("select o from Offer o where " + OPEN + OPEN_ORDER_BY)
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true")})
+    Stream<Offer> streamAllOpen(@Param("now") Date now);
 }
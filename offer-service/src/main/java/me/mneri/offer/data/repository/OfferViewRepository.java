@@ -0,0 +1,228 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.repository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import me.mneri.offer.data.converter.UUIDCodec;
+import me.mneri.offer.data.projection.OfferSummary;
+import me.mneri.offer.data.projection.OfferView;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Read-only repository projecting open offers into {@link OfferSummary}s, for the listings, and {@link OfferView}s.
+ * <p>
+ * Rows are read with plain JDBC: no entity is hydrated, registered in the persistence context or dirty-checked.
+ * Summaries are ordered by end time and id, like the open offer listings of the JPA repositories, so the same cursors
+ * apply. Summaries do not select the description, by far the largest column of the offer table.
+ *
+ * @author Massimo Neri
+ */
+@Repository
+@RequiredArgsConstructor(access = AccessLevel.PROTECTED)
+public class OfferViewRepository {
+    private static final String SELECT_OPEN = "select id, title, description, price, currency, create_time, end_time "
+            + "from offer where cancelled = false and end_time > :now";
+
+    private static final String SELECT_OPEN_SUMMARY = "select id, title, price, currency, create_time, end_time "
+            + "from offer where cancelled = false and end_time > :now";
+
+    private static final String SELECT_OPEN_END_TIME = "select id, end_time from offer "
+            + "where cancelled = false and end_time > :now";
+
+    private static final String AND_PUBLISHER = " and publisher = :publisher";
+
+    private static final String AND_AFTER_CURSOR = " and (end_time > :afterEndTime "
+            + "or (end_time = :afterEndTime and id > :afterId))";
+
+    private static final String ORDER = " order by end_time, id";
+
+    private static final String LIMIT = " limit :limit offset :offset";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Find the offers open at the specified instant.
+     * <p>
+     * If a cursor is specified the slice starts right after the offer with the specified end time and id. The sort of
+     * the pageable is ignored.
+     *
+     * @param now          The instant the offers must be open at; the TTL of the summaries is computed against it.
+     * @param afterEndTime The end time of the cursor, can be {@code null}.
+     * @param afterId      The id of the cursor, can be {@code null}.
+     * @param pageable     The pageable.
+     * @return The slice of the summaries of the open offers.
+     */
+    public Slice<OfferSummary> findAllOpen(Date now, Date afterEndTime, UUID afterId, Pageable pageable) {
+        return findSlice(new StringBuilder(SELECT_OPEN_SUMMARY), new MapSqlParameterSource(), now, afterEndTime,
+                afterId, pageable);
+    }
+
+    /**
+     * Find the offers published by the specified user and open at the specified instant.
+     * <p>
+     * If a cursor is specified the slice starts right after the offer with the specified end time and id. The sort of
+     * the pageable is ignored.
+     *
+     * @param publisherId  The id of the publisher.
+     * @param now          The instant the offers must be open at; the TTL of the summaries is computed against it.
+     * @param afterEndTime The end time of the cursor, can be {@code null}.
+     * @param afterId      The id of the cursor, can be {@code null}.
+     * @param pageable     The pageable.
+     * @return The slice of the summaries of the open offers published by the specified user.
+     */
+    public Slice<OfferSummary> findAllOpenByPublisherId(UUID publisherId, Date now, Date afterEndTime, UUID afterId,
+                                                        Pageable pageable) {
+        MapSqlParameterSource params = new MapSqlParameterSource("publisher", UUIDCodec.encode(publisherId));
+        return findSlice(new StringBuilder(SELECT_OPEN_SUMMARY).append(AND_PUBLISHER), params, now, afterEndTime,
+                afterId, pageable);
+    }
+
+    /**
+     * Perform the specified action on the view of every offer open at the specified instant.
+     * <p>
+     * Rows are processed as they are read, without being collected.
+     *
+     * @param now    The instant the offers must be open at; the TTL of the views is computed against it.
+     * @param action The action to perform on the view of each open offer.
+     */
+    public void forEachOpen(Date now, Consumer<OfferView> action) {
+        MapSqlParameterSource params = new MapSqlParameterSource("now", new Timestamp(now.getTime()));
+        RowMapper<OfferView> rowMapper = viewRowMapper(now);
+
+        jdbcTemplate.query(SELECT_OPEN, params, resultSet -> {
+            action.accept(rowMapper.mapRow(resultSet, resultSet.getRow()));
+        });
+    }
+
+    /**
+     * Perform the specified action on the id and end time of every offer open at the specified instant.
+     * <p>
+     * Rows are processed as they are read, without being collected.
+     *
+     * @param now    The instant the offers must be open at.
+     * @param action The action to perform on the id and end time of each open offer.
+     */
+    public void forEachOpenEndTime(Date now, BiConsumer<UUID, Date> action) {
+        MapSqlParameterSource params = new MapSqlParameterSource("now", new Timestamp(now.getTime()));
+
+        jdbcTemplate.query(SELECT_OPEN_END_TIME, params, resultSet -> {
+            action.accept(UUIDCodec.decode(resultSet.getBytes("id")), resultSet.getTimestamp("end_time"));
+        });
+    }
+
+    /**
+     * Complete the specified open offers query with the cursor predicate, the order and the limits, and run it.
+     *
+     * @param sql          The query, restricted to the open offers.
+     * @param params       The query parameters.
+     * @param now          The instant the offers must be open at.
+     * @param afterEndTime The end time of the cursor, can be {@code null}.
+     * @param afterId      The id of the cursor, can be {@code null}.
+     * @param pageable     The pageable.
+     * @return The slice of the summaries of the open offers.
+     */
+    private Slice<OfferSummary> findSlice(StringBuilder sql, MapSqlParameterSource params, Date now,
+                                          Date afterEndTime, UUID afterId, Pageable pageable) {
+        params.addValue("now", new Timestamp(now.getTime()));
+
+        if (afterEndTime != null && afterId != null) {
+            sql.append(AND_AFTER_CURSOR);
+            params.addValue("afterEndTime", new Timestamp(afterEndTime.getTime()));
+            params.addValue("afterId", UUIDCodec.encode(afterId));
+        }
+
+        sql.append(ORDER);
+
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(jdbcTemplate.query(sql.toString(), params, summaryRowMapper(now)), pageable,
+                    false);
+        }
+
+        // Fetch one more row to know whether a next slice exists
+        sql.append(LIMIT);
+        params.addValue("limit", pageable.getPageSize() + 1);
+        params.addValue("offset", pageable.getOffset());
+
+        List<OfferSummary> content = jdbcTemplate.query(sql.toString(), params, summaryRowMapper(now));
+        boolean hasNext = content.size() > pageable.getPageSize();
+
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+    }
+
+    /**
+     * Return a {@link RowMapper} of summaries computing their TTL against the specified instant.
+     *
+     * @param now The instant.
+     * @return The row mapper.
+     */
+    private static RowMapper<OfferSummary> summaryRowMapper(Date now) {
+        long millis = now.getTime();
+
+        return (resultSet, rowNum) -> {
+            Timestamp endTime = resultSet.getTimestamp("end_time");
+
+            return new OfferSummary(
+                    UUIDCodec.decode(resultSet.getBytes("id")),
+                    resultSet.getString("title"),
+                    resultSet.getBigDecimal("price"),
+                    resultSet.getString("currency"),
+                    resultSet.getTimestamp("create_time"),
+                    endTime,
+                    Math.max(0, endTime.getTime() - millis));
+        };
+    }
+
+    /**
+     * Return a {@link RowMapper} of views computing their TTL against the specified instant.
+     *
+     * @param now The instant.
+     * @return The row mapper.
+     */
+    private static RowMapper<OfferView> viewRowMapper(Date now) {
+        long millis = now.getTime();
+
+        return (resultSet, rowNum) -> {
+            Timestamp endTime = resultSet.getTimestamp("end_time");
+
+            return new OfferView(
+                    UUIDCodec.decode(resultSet.getBytes("id")),
+                    resultSet.getString("title"),
+                    resultSet.getString("description"),
+                    resultSet.getBigDecimal("price"),
+                    resultSet.getString("currency"),
+                    resultSet.getTimestamp("create_time"),
+                    endTime,
+                    Math.max(0, endTime.getTime() - millis));
+        };
+    }
+}
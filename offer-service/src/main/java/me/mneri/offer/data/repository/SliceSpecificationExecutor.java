@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.NoRepositoryBean;
+
+/**
+ * Interface to allow execution of {@link Specification}s returning {@link Slice}s.
+ * <p>
+ * Unlike {@link org.springframework.data.jpa.repository.JpaSpecificationExecutor#findAll(Specification, Pageable)}
+ * no count query is issued: one extra row is fetched to determine whether a next slice exists.
+ *
+ * @param <T> The type of the entity.
+ * @author Massimo Neri
+ */
+@NoRepositoryBean
+public interface SliceSpecificationExecutor<T> {
+    /**
+     * Returns a {@link Slice} of entities matching the given {@link Specification}.
+     *
+     * @param spec     The specification, can be {@literal null}.
+     * @param pageable The pageable, must not be {@literal null}.
+     * @return The slice of entities.
+     */
+    Slice<T> findSlice(Specification<T> spec, Pageable pageable);
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.repository;
+
+import me.mneri.offer.data.entity.User;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Lookups of {@link User} entities by their natural id, the username, and of cached users.
+ * <p>
+ * Unlike queries, natural id lookups go through the second-level cache: once cached, a user is found by username with
+ * no statement. The {@code findCached*} lookups only ever read the second-level cache, so that callers can fall back to
+ * the single-statement loaders of {@link UserRepository} when a user is not cached.
+ *
+ * @author Massimo Neri
+ */
+public interface UserNaturalIdRepository {
+    /**
+     * Find the {@link User} with the specified id, with their authorities, in the second-level cache only.
+     *
+     * @param id The id of the user.
+     * @return The user with the specified id, or an empty optional if the user or their authorities are not cached.
+     */
+    Optional<User> findCachedWithAuthoritiesById(UUID id);
+
+    /**
+     * Find the {@link User} with the specified username, with their authorities, in the second-level cache only.
+     *
+     * @param username The username of the user.
+     * @return The user with the specified username, or an empty optional if the username does not resolve through the
+     * natural-id cache, or the user or their authorities are not cached.
+     */
+    Optional<User> findCachedWithAuthoritiesByUsername(String username);
+
+    /**
+     * Load the {@link User} with the specified username.
+     *
+     * @param username The username of the user.
+     * @return The user with the specified username.
+     */
+    Optional<User> loadByUsername(String username);
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.repository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import me.mneri.offer.data.entity.User;
+import me.mneri.offer.data.entity.User_;
+import org.hibernate.Cache;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.Serializable;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Default implementation of the {@link UserNaturalIdRepository} fragment.
+ * <p>
+ * Cached lookups check the second-level cache before loading, and resolve usernames through the natural-id cache
+ * only, so that a miss issues no statement.
+ *
+ * @author Massimo Neri
+ */
+@RequiredArgsConstructor(access = AccessLevel.PROTECTED)
+class UserNaturalIdRepositoryImpl implements UserNaturalIdRepository {
+    private static final String AUTHORITIES_ROLE = User.class.getName() + "." + User_.AUTHORITIES;
+
+    private final EntityManager entityManager;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<User> findCachedWithAuthoritiesById(UUID id) {
+        Cache cache = entityManager.unwrap(Session.class).getSessionFactory().getCache();
+
+        if (!cache.containsEntity(User.class, id) || !cache.containsCollection(AUTHORITIES_ROLE, id)) {
+            return Optional.empty();
+        }
+
+        Optional<User> user = Optional.ofNullable(entityManager.find(User.class, id));
+        user.ifPresent(found -> Hibernate.initialize(found.getAuthorities()));
+        return user;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<User> findCachedWithAuthoritiesByUsername(String username) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(User.class);
+        Serializable id = session
+                .getPersistenceContext()
+                .getNaturalIdHelper()
+                .findCachedNaturalIdResolution(persister, new Object[]{username});
+
+        // Also rules out the marker of a natural id known not to exist
+        if (!(id instanceof UUID)) {
+            return Optional.empty();
+        }
+
+        return findCachedWithAuthoritiesById((UUID) id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<User> loadByUsername(String username) {
+        return entityManager
+                .unwrap(Session.class)
+                .bySimpleNaturalId(User.class)
+                .loadOptional(username);
+    }
+}
@@ -19,16 +19,62 @@
 package me.mneri.offer.data.repository;
 
 import me.mneri.offer.data.entity.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+import java.util.UUID;
+
 /**
  * Repository for {@link User} entities.
+ * <p>
+ * Users are cached in the second-level cache: prefer {@link #findById(Object)} and the lookups of
+ * {@link UserNaturalIdRepository} to queries, which always hit the database. On a cache miss, load a user and their
+ * authorities with the entity-graph loaders, in one statement.
  *
  * @author Massimo Neri
  */
 @Repository
 @SuppressWarnings("unused")
-public interface UserRepository extends CrudRepository<User, String>, JpaSpecificationExecutor<User> {
+public interface UserRepository extends CrudRepository<User, UUID>, JpaSpecificationExecutor<User>,
+        SliceSpecificationExecutor<User>, UserNaturalIdRepository {
+    /**
+     * Count the enabled users.
+     *
+     * @return The number of enabled users.
+     */
+    @Query("select count(u) from User u where u.enabled = true")
+    long countAllEnabled();
+
+    /**
+     * Find the enabled users, ordered by username.
+     *
+     * @param pageable The pageable, must not be sorted.
+     * @return The slice of the enabled users.
+     */
+    @Query("select u from User u where u.enabled = true order by u.username")
+    Slice<User> findAllEnabled(Pageable pageable);
+
+    /**
+     * Find the {@link User} with the specified id, fetching their authorities in the same query.
+     *
+     * @param id The id of the user.
+     * @return The user with the specified id.
+     */
+    @EntityGraph(attributePaths = "authorities")
+    Optional<User> findWithAuthoritiesById(UUID id);
+
+    /**
+     * Find the {@link User} with the specified username, fetching their authorities in the same query.
+     *
+     * @param username The username of the user.
+     * @return The user with the specified username.
+     */
+    @EntityGraph(attributePaths = "authorities")
+    Optional<User> findWithAuthoritiesByUsername(String username);
 }
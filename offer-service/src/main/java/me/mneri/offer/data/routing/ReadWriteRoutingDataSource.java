@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.routing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.NonNull;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link DataSource} routing the connections of read-only transactions to the replicas and every other connection to
+ * the primary.
+ * <p>
+ * Only replicas reported in sync by {@link ReplicaLagMonitor} are eligible; they are picked round robin. If no replica
+ * is in sync, read-only transactions fall back to the primary. The routing decision is taken when the connection is
+ * fetched, so the data source must be wrapped in a lazy connection proxy for the transaction attributes to be known by
+ * then. Decisions are published as the {@code datasource.routing} counter, tagged with the target and the reason.
+ *
+ * @author Massimo Neri
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    private static final String PRIMARY = "primary";
+
+    private static final String REPLICA = "replica-";
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final DataSource primary;
+
+    private final List<DataSource> replicas;
+
+    private final MeterRegistry meterRegistry;
+
+    private volatile List<String> syncedReplicas = Collections.emptyList();
+
+    /**
+     * Create a new instance.
+     *
+     * @param primary       The primary data source.
+     * @param replicas      The replica data sources.
+     * @param meterRegistry The meter registry.
+     */
+    public ReadWriteRoutingDataSource(@NonNull DataSource primary,
+                                      @NonNull List<DataSource> replicas,
+                                      @NonNull MeterRegistry meterRegistry) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(REPLICA + i, replicas.get(i));
+        }
+
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas);
+        this.meterRegistry = meterRegistry;
+
+        setDefaultTargetDataSource(primary);
+        setTargetDataSources(targets);
+    }
+
+    /**
+     * Return the primary data source.
+     *
+     * @return The primary data source.
+     */
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    /**
+     * Return the replica data sources, in configuration order.
+     *
+     * @return The replica data sources.
+     */
+    public List<DataSource> getReplicas() {
+        return Collections.unmodifiableList(replicas);
+    }
+
+    /**
+     * Set which replicas are in sync with the primary, and so eligible for read-only transactions.
+     *
+     * @param synced For each replica, in configuration order, {@code true} if the replica is in sync.
+     */
+    public void setSynced(@NonNull boolean[] synced) {
+        List<String> keys = new ArrayList<>(synced.length);
+
+        for (int i = 0; i < synced.length; i++) {
+            if (synced[i]) {
+                keys.add(REPLICA + i);
+            }
+        }
+
+        syncedReplicas = keys;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return route(PRIMARY, "write");
+        }
+
+        List<String> keys = syncedReplicas;
+
+        if (keys.isEmpty()) {
+            return route(PRIMARY, "lag");
+        }
+
+        return route(keys.get(Math.floorMod(next.getAndIncrement(), keys.size())), "read");
+    }
+
+    /**
+     * Count the specified routing decision and return the specified key.
+     *
+     * @param key    The lookup key of the target data source.
+     * @param reason The reason of the decision.
+     * @return The lookup key.
+     */
+    private String route(String key, String reason) {
+        meterRegistry.counter("datasource.routing", "target", key, "reason", reason).increment();
+        return key;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.routing;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+
+/**
+ * Guard against stale reads from replicas lagging behind the primary.
+ * <p>
+ * At a fixed delay the monitor writes the current time to the {@code replication_heartbeat} table of the primary and
+ * reads it back from each replica; the difference with the current time is the replica lag. Replicas lagging more than
+ * the maximum lag, or failing to answer, are excluded from routing until they catch up. Lags are published as the
+ * {@code datasource.replica.lag} gauge, in milliseconds, tagged with the replica index.
+ *
+ * @author Massimo Neri
+ */
+@Log4j2
+public class ReplicaLagMonitor {
+    private static final String SELECT_HEARTBEAT = "select beat_time from replication_heartbeat where id = 1";
+
+    private static final String UPDATE_HEARTBEAT = "update replication_heartbeat set beat_time = ? where id = 1";
+
+    private final Clock clock;
+
+    private final AtomicLongArray lags;
+
+    private final long maxLagMillis;
+
+    private final JdbcTemplate primary;
+
+    private final List<JdbcTemplate> replicas;
+
+    private final ReadWriteRoutingDataSource routingDataSource;
+
+    /**
+     * Create a new instance.
+     *
+     * @param clock             The clock.
+     * @param maxLag            The maximum lag of a replica eligible for routing.
+     * @param meterRegistry     The meter registry.
+     * @param routingDataSource The routing data source.
+     */
+    public ReplicaLagMonitor(Clock clock,
+                             Duration maxLag,
+                             MeterRegistry meterRegistry,
+                             ReadWriteRoutingDataSource routingDataSource) {
+        this.clock = clock;
+        this.maxLagMillis = maxLag.toMillis();
+        this.primary = new JdbcTemplate(routingDataSource.getPrimary());
+        this.replicas = routingDataSource.getReplicas().stream().map(JdbcTemplate::new).collect(Collectors.toList());
+        this.routingDataSource = routingDataSource;
+
+        lags = new AtomicLongArray(replicas.size());
+
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = i;
+            lags.set(i, Long.MAX_VALUE);
+            Gauge.builder("datasource.replica.lag", lags, l -> l.get(index))
+                    .tag("replica", String.valueOf(index))
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Write a heartbeat to the primary, measure the lag of each replica and update the routing accordingly.
+     */
+    @Scheduled(fixedDelayString = "${data.routing.heartbeat-delay}")
+    public void probe() {
+        long now = clock.millis();
+
+        try {
+            primary.update(UPDATE_HEARTBEAT, new Timestamp(now));
+        } catch (DataAccessException e) {
+            log.warn("Cannot write the replication heartbeat", e);
+        }
+
+        boolean[] synced = new boolean[replicas.size()];
+
+        for (int i = 0; i < replicas.size(); i++) {
+            long lag = lag(replicas.get(i), now);
+            lags.set(i, lag);
+            synced[i] = lag <= maxLagMillis;
+
+            if (!synced[i]) {
+                log.debug("Replica lagging; replica: {}, lag: {}", i, lag);
+            }
+        }
+
+        routingDataSource.setSynced(synced);
+    }
+
+    /**
+     * Return the lag of the specified replica at the specified instant.
+     *
+     * @param replica The replica.
+     * @param now     The current time.
+     * @return The lag in milliseconds, or {@link Long#MAX_VALUE} if the replica cannot be read.
+     */
+    private long lag(JdbcTemplate replica, long now) {
+        try {
+            Timestamp beatTime = replica.queryForObject(SELECT_HEARTBEAT, Timestamp.class);
+            return beatTime == null ? Long.MAX_VALUE : Math.max(0, now - beatTime.getTime());
+        } catch (DataAccessException e) {
+            log.warn("Cannot read the replication heartbeat: {}", e.getMessage());
+            return Long.MAX_VALUE;
+        }
+    }
+}
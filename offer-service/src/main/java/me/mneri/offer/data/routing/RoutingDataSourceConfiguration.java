@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.routing;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of the read/write splitting of the database traffic.
+ * <p>
+ * When {@code data.routing.enabled} is set, the application data source is a {@link ReadWriteRoutingDataSource}. The
+ * primary is configured by the {@code spring.datasource} properties; the replicas are listed in
+ * {@code data.routing.replica-urls} and use the credentials of the primary. Every pool, the primary's and the
+ * replicas', is configured by the {@code spring.datasource.hikari} properties. Transactions declared
+ * {@code readOnly} are served by the replicas, any other connection by the primary. The replicas are expected to
+ * receive the migrations of the primary through replication.
+ * <p>
+ * Caches loaded by read-only transactions may hold the replica state, which is at most the maximum lag behind; for
+ * this reason the lookups served by the business caches don't declare their transactions read-only.
+ *
+ * @author Massimo Neri
+ */
+@ConditionalOnProperty(name = "data.routing.enabled", havingValue = "true")
+@Configuration
+class RoutingDataSourceConfiguration {
+    /**
+     * The application data source, deferring the routing decision to the first statement of each connection, when the
+     * transaction attributes are known.
+     *
+     * @param routingDataSource The routing data source.
+     * @return The data source.
+     */
+    @Bean
+    @Primary
+    protected DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * The pool settings shared by the primary and the replicas, bound to the {@code spring.datasource.hikari}
+     * properties as the default data source would be.
+     *
+     * @return The pool settings.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    protected HikariConfig hikariConfig() {
+        return new HikariConfig();
+    }
+
+    /**
+     * The replica lag monitor.
+     *
+     * @param clock             The clock.
+     * @param maxLag            The maximum lag of a replica eligible for routing.
+     * @param meterRegistry     The meter registry.
+     * @param routingDataSource The routing data source.
+     * @return The replica lag monitor.
+     */
+    @Bean
+    protected ReplicaLagMonitor replicaLagMonitor(Clock clock,
+                                                  @Value("${data.routing.max-lag}") Duration maxLag,
+                                                  MeterRegistry meterRegistry,
+                                                  ReadWriteRoutingDataSource routingDataSource) {
+        return new ReplicaLagMonitor(clock, maxLag, meterRegistry, routingDataSource);
+    }
+
+    /**
+     * The routing data source.
+     *
+     * @param dataSourceProperties The properties of the primary data source.
+     * @param hikariConfig         The pool settings.
+     * @param meterRegistry        The meter registry.
+     * @param replicaUrls          The JDBC urls of the replicas.
+     * @return The routing data source.
+     */
+    @Bean
+    protected ReadWriteRoutingDataSource routingDataSource(
+            DataSourceProperties dataSourceProperties,
+            HikariConfig hikariConfig,
+            MeterRegistry meterRegistry,
+            @Value("${data.routing.replica-urls}") List<String> replicaUrls) {
+        String poolName = hikariConfig.getPoolName() != null
+                ? hikariConfig.getPoolName()
+                : dataSourceProperties.getName();
+        DataSource primary = pool(dataSourceProperties, hikariConfig, poolName,
+                dataSourceProperties.determineUrl());
+        List<DataSource> replicas = new ArrayList<>(replicaUrls.size());
+
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            String replicaPoolName = poolName == null ? null : poolName + "-replica-" + i;
+            replicas.add(pool(dataSourceProperties, hikariConfig, replicaPoolName, replicaUrls.get(i)));
+        }
+
+        return new ReadWriteRoutingDataSource(primary, replicas, meterRegistry);
+    }
+
+    /**
+     * Create a pool with the specified settings, connecting to the specified url with the credentials of the primary.
+     * The pool starts at the first connection request.
+     *
+     * @param dataSourceProperties The properties of the primary data source.
+     * @param hikariConfig         The pool settings.
+     * @param poolName             The name of the pool, can be {@code null}.
+     * @param url                  The JDBC url.
+     * @return The pool.
+     */
+    private static HikariDataSource pool(DataSourceProperties dataSourceProperties, HikariConfig hikariConfig,
+                                         String poolName, String url) {
+        HikariDataSource pool = new HikariDataSource();
+        hikariConfig.copyStateTo(pool);
+        pool.setDriverClassName(dataSourceProperties.determineDriverClassName());
+        pool.setJdbcUrl(url);
+        pool.setPassword(dataSourceProperties.determinePassword());
+        pool.setPoolName(poolName);
+        pool.setUsername(dataSourceProperties.determineUsername());
+        return pool;
+    }
+}
@@ -28,10 +28,20 @@ import lombok.NoArgsConstructor;
  */
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class APIParameters {
+    public static final int PARAM_BATCH_SIZE_MAX = 1024;
+
+    public static final String PARAM_FILTER = "filter";
+
+    public static final String PARAM_PAGE_COUNT = "page.count";
+
+    public static final String PARAM_PAGE_CURSOR = "page.cursor";
+
     public static final String PARAM_PAGE_NUMBER = "page.number";
 
     public static final int PARAM_PAGE_NUMBER_DEFAULT = 0;
 
+    public static final int PARAM_PAGE_NUMBER_MIN = 0;
+
     public static final String PARAM_PAGE_SIZE = "page.size";
 
     public static final int PARAM_PAGE_SIZE_DEFAULT = 24;
@@ -39,4 +49,8 @@ public final class APIParameters {
     public static final int PARAM_PAGE_SIZE_MAX = 128;
 
     public static final int PARAM_PAGE_SIZE_MIN = 24;
+
+    public static final String PARAM_QUERY = "q";
+
+    public static final String PARAM_SORT = "sort";
 }
@@ -25,20 +25,27 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import me.mneri.offer.business.exception.IllegalOfferQueryException;
 import me.mneri.offer.business.exception.OfferIsCancelledException;
 import me.mneri.offer.business.exception.OfferIsExpiredException;
 import me.mneri.offer.business.exception.OfferNotFoundException;
+import me.mneri.offer.business.exception.OfferUpdateConflictException;
 import me.mneri.offer.business.exception.UserIsNotEnabledException;
 import me.mneri.offer.business.exception.UserNotFoundException;
 import me.mneri.offer.data.entity.Offer;
 import me.mneri.offer.data.entity.User;
 import me.mneri.offer.presentation.dto.OfferCreateDto;
+import me.mneri.offer.presentation.dto.OfferCreateResultDto;
 import me.mneri.offer.presentation.dto.OfferDto;
+import me.mneri.offer.presentation.dto.OfferExtendDto;
+import me.mneri.offer.presentation.dto.OfferSummaryDto;
 import me.mneri.offer.presentation.dto.OfferUpdateDto;
 import me.mneri.offer.presentation.dto.PagingDto;
 import me.mneri.offer.presentation.dto.ResponseDto;
 import me.mneri.offer.presentation.dto.UserDto;
+import me.mneri.offer.presentation.exception.IllegalBatchSizeException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -48,7 +55,9 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 import java.security.Principal;
@@ -93,13 +102,45 @@ public interface OffersAPI {
     /**
      * Retrieve all the open {@link Offer}s. An open offer is an offer that is not yet expired nor has been canceled
      * by its publisher.
+     * <p>
+     * Offers are ordered by end time, unless a sort is specified, and can be narrowed by a filter. The response carries
+     * the cursor of the next page, if any; the cursor is only valid with the same sort. If requested, the response also
+     * carries the total of the listing, possibly stale unless an exact count is requested. Listed offers omit the
+     * description, which is returned by {@link #getOfferById}.
      *
+     * @param filter The filter expression, can be {@code null}.
+     * @param sort   The sort expression, can be {@code null}.
      * @return A list of open offers.
+     * @throws IllegalOfferQueryException If the filter or the sort expression is not legal.
      */
     @Operation(
             summary = "Return the list of open offers.",
             description = "Return the list of the non-expired, non-canceled offers.",
             parameters = {
+                    @Parameter(
+                            name = APIParameters.PARAM_PAGE_COUNT,
+                            description = "Count the total of the listing: none (default), exact or approximate. " +
+                                    "Approximate totals may be a few seconds stale.",
+                            in = ParameterIn.QUERY,
+                            schema = @Schema(
+                                    allowableValues = {"none", "exact", "approximate"},
+                                    implementation = String.class)),
+                    @Parameter(
+                            name = APIParameters.PARAM_FILTER,
+                            description = "Conditions joined by 'and', each in the form '<property> <operator> " +
+                                    "<value>'. Properties: price, currency, createTime, endTime, publisher. " +
+                                    "Operators: eq, ne, lt, le, gt, ge. Times are ISO instants or ISO durations " +
+                                    "relative to now, e.g. 'endTime lt PT1H'.",
+                            in = ParameterIn.QUERY,
+                            schema = @Schema(
+                                    implementation = String.class)),
+                    @Parameter(
+                            name = APIParameters.PARAM_SORT,
+                            description = "One of price, createTime, endTime, prefixed by '-' for the descending " +
+                                    "order. Defaults to endTime.",
+                            in = ParameterIn.QUERY,
+                            schema = @Schema(
+                                    implementation = String.class)),
                     @Parameter(
                             name = APIParameters.PARAM_PAGE_NUMBER,
                             in = ParameterIn.QUERY,
@@ -109,13 +150,74 @@ public interface OffersAPI {
                             name = APIParameters.PARAM_PAGE_SIZE,
                             in = ParameterIn.QUERY,
                             schema = @Schema(
-                                    implementation = Integer.class))},
+                                    implementation = Integer.class)),
+                    @Parameter(
+                            name = APIParameters.PARAM_PAGE_CURSOR,
+                            description = "The cursor returned as next by the previous page. If present the page " +
+                                    "number is ignored.",
+                            in = ParameterIn.QUERY,
+                            schema = @Schema(
+                                    implementation = String.class))},
             responses = {
                     @ApiResponse(
                             responseCode = "200",
                             description = "Successful operation.")})
     @GetMapping(produces = MimeTypeUtils.APPLICATION_JSON_VALUE)
-    ResponseDto<List<OfferDto>> getOffers(@ModelAttribute @Parameter(hidden = true) PagingDto pagingDto);
+    ResponseDto<List<OfferSummaryDto>> getOffers(
+            @RequestParam(value = APIParameters.PARAM_FILTER, required = false) String filter,
+            @RequestParam(value = APIParameters.PARAM_SORT, required = false) String sort,
+            @ModelAttribute @Parameter(hidden = true) PagingDto pagingDto)
+            throws IllegalOfferQueryException;
+
+    /**
+     * Search the open {@link Offer}s whose title or description match the specified query.
+     * <p>
+     * Offers match any word of the query, regardless of case and diacritics, and are ordered from the most to the
+     * least relevant. Pages are located by their number only. Listed offers omit the description.
+     *
+     * @param query The query.
+     * @return A list of matching open offers.
+     */
+    @Operation(
+            summary = "Search the open offers.",
+            description = "Return the non-expired, non-canceled offers whose title or description match the query, " +
+                    "most relevant first.",
+            parameters = {
+                    @Parameter(
+                            name = APIParameters.PARAM_PAGE_NUMBER,
+                            in = ParameterIn.QUERY,
+                            schema = @Schema(
+                                    implementation = Integer.class)),
+                    @Parameter(
+                            name = APIParameters.PARAM_PAGE_SIZE,
+                            in = ParameterIn.QUERY,
+                            schema = @Schema(
+                                    implementation = Integer.class))},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation.")})
+    @GetMapping(value = "/search", produces = MimeTypeUtils.APPLICATION_JSON_VALUE)
+    ResponseDto<List<OfferSummaryDto>> getOffersSearch(@RequestParam(APIParameters.PARAM_QUERY) String query,
+                                                       @ModelAttribute @Parameter(hidden = true) PagingDto pagingDto);
+
+    /**
+     * Stream all the open {@link Offer}s as newline delimited JSON, one offer per line.
+     * <p>
+     * Offers are ordered by end time. Each offer is written as soon as it is read from the repository; the stream reads
+     * no faster than the client consumes it.
+     *
+     * @return The body writing the open offers.
+     */
+    @Operation(
+            summary = "Stream all the open offers.",
+            description = "Stream all the non-expired, non-canceled offers as newline delimited JSON.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation.")})
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    StreamingResponseBody getOffersStream();
 
     /**
      * Retrieve the {@link Offer} identified by the specified id, if open. An open offer is an offer that is not yet
@@ -191,14 +293,69 @@ public interface OffersAPI {
     ResponseDto<OfferDto> postOffer(@Valid @RequestBody OfferCreateDto createDto, Principal principal)
             throws UserIsNotEnabledException, UserNotFoundException;
 
+    /**
+     * Create a batch of new {@link Offer}s in a single transaction.
+     * <p>
+     * Each item is validated on its own: invalid items are reported in the result, the valid ones are created.
+     *
+     * @param createDtos The offers.
+     * @param principal  The authenticated user.
+     * @return The result of each item, in the order of the batch.
+     * @throws IllegalBatchSizeException If the batch is empty or too large.
+     * @throws UserIsNotEnabledException If the user with the specified id is not enabled.
+     * @throws UserNotFoundException     If a user with the specified id was not found in the repository.
+     */
+    @Operation(
+            summary = "Insert a batch of new open offers.",
+            description = "Insert a batch of new open offers in the repository, reporting the result of each item.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation."),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "If the batch is empty or too large.",
+                            content = @Content),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "If the user doesn't exist or it's not enabled.",
+                            content = @Content)})
+    @PostMapping(value = "/batch", consumes = MimeTypeUtils.APPLICATION_JSON_VALUE)
+    ResponseDto<List<OfferCreateResultDto>> postOffers(@RequestBody List<OfferCreateDto> createDtos,
+                                                       Principal principal)
+            throws IllegalBatchSizeException, UserIsNotEnabledException, UserNotFoundException;
+
+    /**
+     * Extend the TTL of a batch of open {@link Offer}s with a single update.
+     * <p>
+     * Cancelled and expired offers are skipped; the response lists the ids of the extended offers.
+     *
+     * @param extendDto The offers and the TTL to add.
+     * @return The ids of the extended offers.
+     */
+    @Operation(
+            summary = "Extend the TTL of a batch of open offers.",
+            description = "Extend the TTL of the open offers of the batch, skipping the closed ones.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation."),
+                    @ApiResponse(
+                            responseCode = "401",
+                            description = "If the user has no rights to modify all the offers.",
+                            content = @Content)})
+    @PostMapping(value = "/batch/extend", consumes = MimeTypeUtils.APPLICATION_JSON_VALUE)
+    ResponseDto<List<UUID>> postOffersExtension(@Valid @RequestBody OfferExtendDto extendDto);
+
     /**
      * Modify the specified {@link Offer}.
      *
      * @param offerId   The offer id.
      * @param updateDto The update data.
-     * @throws OfferIsCancelledException If the offer with the specified id was previously cancelled.
-     * @throws OfferIsExpiredException   If the offer with the specified id has expired.
-     * @throws OfferNotFoundException    If the offer with the specified id was not found in the repository.
+     * @throws OfferIsCancelledException    If the offer with the specified id was previously cancelled.
+     * @throws OfferIsExpiredException      If the offer with the specified id has expired.
+     * @throws OfferNotFoundException       If the offer with the specified id was not found in the repository.
+     * @throws OfferUpdateConflictException If the offer kept being concurrently updated.
      */
     @Operation(
             summary = "Modify an open offer.",
@@ -214,9 +371,13 @@ public interface OffersAPI {
                     @ApiResponse(
                             responseCode = "404",
                             description = "If the user or the offer don't exist or they are not enabled.",
+                            content = @Content),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "If the offer kept being concurrently modified.",
                             content = @Content)})
     @PutMapping(value = "/{offerId}", consumes = MimeTypeUtils.APPLICATION_JSON_VALUE)
     void putOffer(@PathVariable UUID offerId,
-                  @Valid @RequestBody OfferUpdateDto updateDto)
-            throws OfferIsCancelledException, OfferIsExpiredException, OfferNotFoundException;
+                  @Valid @RequestBody OfferUpdateDto updateDto) throws OfferIsCancelledException,
+            OfferIsExpiredException, OfferNotFoundException, OfferUpdateConflictException;
 }
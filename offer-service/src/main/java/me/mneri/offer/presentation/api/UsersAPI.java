@@ -30,12 +30,16 @@ import me.mneri.offer.business.exception.UserNotFoundException;
 import me.mneri.offer.data.entity.Offer;
 import me.mneri.offer.data.entity.User;
 import me.mneri.offer.presentation.dto.OfferCreateDto;
+import me.mneri.offer.presentation.dto.OfferCreateResultDto;
 import me.mneri.offer.presentation.dto.OfferDto;
+import me.mneri.offer.presentation.dto.OfferSummaryDto;
 import me.mneri.offer.presentation.dto.PagingDto;
 import me.mneri.offer.presentation.dto.ResponseDto;
 import me.mneri.offer.presentation.dto.UserDto;
+import me.mneri.offer.presentation.exception.IllegalBatchSizeException;
 import org.springframework.http.HttpStatus;
 import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -53,8 +57,30 @@ import java.util.UUID;
         name = "users",
         description = "The User API")
 public interface UsersAPI {
+    /**
+     * Close (cancel) all the open {@link Offer}s published by the specified {@link User} with a single update.
+     *
+     * @param userId The id of the publisher.
+     * @return The ids of the cancelled offers.
+     */
+    @Operation(
+            summary = "Delete all the open offers of a user.",
+            description = "Delete all the open offers published by the user identified by the specified id.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation."),
+                    @ApiResponse(
+                            responseCode = "401",
+                            description = "If the user has no rights to modify the offers.",
+                            content = @Content)})
+    @DeleteMapping(value = "/{userId}/offers", produces = MimeTypeUtils.APPLICATION_JSON_VALUE)
+    ResponseDto<List<UUID>> deleteOffersByPublisherId(@PathVariable UUID userId);
+
     /**
      * Retrieve the list of all {@link User}s.
+     * <p>
+     * If requested, the response carries the exact number of enabled users.
      *
      * @return The list of all users.
      */
@@ -62,6 +88,14 @@ public interface UsersAPI {
             summary = "Return the list of enabled users.",
             description = "Return the list of enabled users.",
             parameters = {
+                    @Parameter(
+                            name = APIParameters.PARAM_PAGE_COUNT,
+                            description = "Count the total of the listing: none (default), exact or approximate. " +
+                                    "Approximate totals of filtered listings may be a few seconds stale.",
+                            in = ParameterIn.QUERY,
+                            schema = @Schema(
+                                    allowableValues = {"none", "exact", "approximate"},
+                                    implementation = String.class)),
                     @Parameter(
                             name = APIParameters.PARAM_PAGE_NUMBER,
                             in = ParameterIn.QUERY,
@@ -105,7 +139,7 @@ public interface UsersAPI {
     ResponseDto<UserDto> getUserById(@PathVariable UUID userId) throws UserIsNotEnabledException, UserNotFoundException;
 
     /**
-     * Retrieve the list of {@link Offer}s given a {@link User} id.
+     * Retrieve the list of {@link Offer}s given a {@link User} id. Listed offers omit the description.
      *
      * @param userId The id of the user.
      * @return The list of offers published by the specified user.
@@ -124,7 +158,14 @@ public interface UsersAPI {
                             name = APIParameters.PARAM_PAGE_SIZE,
                             in = ParameterIn.QUERY,
                             schema = @Schema(
-                                    implementation = Integer.class))},
+                                    implementation = Integer.class)),
+                    @Parameter(
+                            name = APIParameters.PARAM_PAGE_CURSOR,
+                            description = "The cursor returned as next by the previous page. If present the page " +
+                                    "number is ignored.",
+                            in = ParameterIn.QUERY,
+                            schema = @Schema(
+                                    implementation = String.class))},
             responses = {
                     @ApiResponse(
                             responseCode = "200",
@@ -138,7 +179,7 @@ public interface UsersAPI {
                             description = "If the user doesn't exist.",
                             content = @Content)})
     @GetMapping(value = "/{userId}/offers", produces = MimeTypeUtils.APPLICATION_JSON_VALUE)
-    ResponseDto<List<OfferDto>> getOffersByPublisherId(
+    ResponseDto<List<OfferSummaryDto>> getOffersByPublisherId(
             @PathVariable UUID userId,
             @ModelAttribute @Parameter(hidden = true) PagingDto pagingDto)
             throws UserIsNotEnabledException, UserNotFoundException;
@@ -167,4 +208,36 @@ public interface UsersAPI {
     @ResponseStatus(HttpStatus.CREATED)
     ResponseDto<OfferDto> postOffer(@PathVariable UUID userId, @Valid @RequestBody OfferCreateDto createDto)
             throws UserIsNotEnabledException, UserNotFoundException;
+
+    /**
+     * Create a batch of new {@link Offer}s in a single transaction.
+     * <p>
+     * Each item is validated on its own: invalid items are reported in the result, the valid ones are created.
+     *
+     * @param userId     The id of the publisher.
+     * @param createDtos The offers.
+     * @return The result of each item, in the order of the batch.
+     * @throws IllegalBatchSizeException If the batch is empty or too large.
+     * @throws UserIsNotEnabledException If the user with the specified id is not enabled.
+     * @throws UserNotFoundException     If a user with the specified id was not found in the repository.
+     */
+    @Operation(
+            summary = "Insert a batch of new open offers.",
+            description = "Insert a batch of new open offers in the repository, reporting the result of each item.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation."),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "If the batch is empty or too large.",
+                            content = @Content),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "If the user doesn't exist or it's not enabled.",
+                            content = @Content)})
+    @PostMapping(value = "/{userId}/offers/batch", consumes = MimeTypeUtils.APPLICATION_JSON_VALUE)
+    ResponseDto<List<OfferCreateResultDto>> postOffers(@PathVariable UUID userId,
+                                                       @RequestBody List<OfferCreateDto> createDtos)
+            throws IllegalBatchSizeException, UserIsNotEnabledException, UserNotFoundException;
 }
@@ -21,13 +21,19 @@ package me.mneri.offer.presentation.controller;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.business.exception.IllegalOfferQueryException;
 import me.mneri.offer.business.exception.OfferIsCancelledException;
 import me.mneri.offer.business.exception.OfferIsExpiredException;
 import me.mneri.offer.business.exception.OfferNotFoundException;
+import me.mneri.offer.business.exception.OfferUpdateConflictException;
 import me.mneri.offer.business.exception.UserIsNotEnabledException;
 import me.mneri.offer.business.exception.UserNotAuthorizedException;
 import me.mneri.offer.business.exception.UserNotFoundException;
 import me.mneri.offer.presentation.dto.ErrorDto;
+import me.mneri.offer.presentation.exception.IllegalBatchSizeException;
+import me.mneri.offer.presentation.exception.IllegalCountModeException;
+import me.mneri.offer.presentation.exception.IllegalCursorException;
+import me.mneri.offer.presentation.exception.IllegalPageNumberException;
 import me.mneri.offer.presentation.exception.IllegalPageSizeException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -43,6 +49,57 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @RestControllerAdvice
 class ErrorHandlerControllerAdvice {
+    /**
+     * Handler for {@link IllegalBatchSizeException}
+     */
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(IllegalBatchSizeException.class)
+    public ErrorDto illegalBatchSize(IllegalBatchSizeException exception) {
+        log.info("The specified batch size is not legal: batchSize={}", exception.getBatchSize());
+        return new ErrorDto(exception.getMessage());
+    }
+
+    /**
+     * Handler for {@link IllegalCountModeException}
+     */
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(IllegalCountModeException.class)
+    public ErrorDto illegalCountMode(IllegalCountModeException exception) {
+        log.info("The specified count mode is not legal: countMode={}", exception.getCountMode());
+        return new ErrorDto(exception.getMessage());
+    }
+
+    /**
+     * Handler for {@link IllegalCursorException}
+     */
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(IllegalCursorException.class)
+    public ErrorDto illegalCursor(IllegalCursorException exception) {
+        log.info("The specified cursor is not legal: cursor={}", exception.getCursor());
+        return new ErrorDto(exception.getMessage());
+    }
+
+    /**
+     * Handler for {@link IllegalOfferQueryException}
+     */
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(IllegalOfferQueryException.class)
+    public ErrorDto illegalOfferQuery(IllegalOfferQueryException exception) {
+        log.info("The specified offer query is not legal: expression={}, reason={}",
+                exception.getExpression(), exception.getReason());
+        return new ErrorDto(exception.getMessage());
+    }
+
+    /**
+     * Handler for {@link IllegalPageNumberException}
+     */
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(IllegalPageNumberException.class)
+    public ErrorDto illegalPageNumber(IllegalPageNumberException exception) {
+        log.info("The specified page number is not legal: pageNumber={}", exception.getPageNumber());
+        return new ErrorDto(exception.getMessage());
+    }
+
     /**
      * Handler for {@link IllegalPageSizeException}
      */
@@ -83,6 +140,16 @@ class ErrorHandlerControllerAdvice {
         return new ErrorDto(exception.getMessage());
     }
 
+    /**
+     * Handler for {@link OfferUpdateConflictException}.
+     */
+    @ResponseStatus(value = HttpStatus.CONFLICT)
+    @ExceptionHandler(OfferUpdateConflictException.class)
+    public ErrorDto offerUpdateConflict(OfferUpdateConflictException exception) {
+        log.info("The specified offer was concurrently updated: offerId={}", exception.getOfferId());
+        return new ErrorDto(exception.getMessage());
+    }
+
     /**
      * Handler for {@link UserIsNotEnabledException}.
      */
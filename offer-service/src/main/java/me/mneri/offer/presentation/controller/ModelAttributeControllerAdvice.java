@@ -20,13 +20,20 @@ package me.mneri.offer.presentation.controller;
 
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
+import me.mneri.offer.business.pojo.CountMode;
 import me.mneri.offer.presentation.api.APIParameters;
 import me.mneri.offer.presentation.dto.PagingDto;
+import me.mneri.offer.presentation.exception.IllegalCountModeException;
+import me.mneri.offer.presentation.exception.IllegalCursorException;
+import me.mneri.offer.presentation.exception.IllegalPageNumberException;
 import me.mneri.offer.presentation.exception.IllegalPageSizeException;
+import me.mneri.offer.presentation.mapping.CursorCodec;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.util.Locale;
+
 /**
  * General controller advice for complex attribute construction.
  *
@@ -37,10 +44,15 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 class ModelAttributeControllerAdvice {
     @ModelAttribute
     public PagingDto pagingDto(@RequestParam(value = APIParameters.PARAM_PAGE_NUMBER, required = false) Integer pageNumber,
-                               @RequestParam(value = APIParameters.PARAM_PAGE_SIZE, required = false) Integer pageSize)
-            throws IllegalPageSizeException {
+                               @RequestParam(value = APIParameters.PARAM_PAGE_SIZE, required = false) Integer pageSize,
+                               @RequestParam(value = APIParameters.PARAM_PAGE_CURSOR, required = false) String cursor,
+                               @RequestParam(value = APIParameters.PARAM_PAGE_COUNT, required = false) String count)
+            throws IllegalCountModeException, IllegalCursorException, IllegalPageNumberException,
+            IllegalPageSizeException {
         if (pageNumber == null) {
             pageNumber = APIParameters.PARAM_PAGE_NUMBER_DEFAULT;
+        } else if (pageNumber < APIParameters.PARAM_PAGE_NUMBER_MIN) {
+            throw new IllegalPageNumberException(pageNumber);
         }
 
         if (pageSize == null) {
@@ -49,6 +61,24 @@ class ModelAttributeControllerAdvice {
             throw new IllegalPageSizeException(pageSize);
         }
 
-        return new PagingDto(pageNumber, pageSize);
+        if (cursor != null) {
+            try {
+                CursorCodec.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalCursorException(cursor);
+            }
+        }
+
+        CountMode countMode = CountMode.NONE;
+
+        if (count != null) {
+            try {
+                countMode = CountMode.valueOf(count.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalCountModeException(count);
+            }
+        }
+
+        return new PagingDto(pageNumber, pageSize, cursor, countMode);
     }
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.presentation.controller;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import me.mneri.offer.business.exception.UserIsNotEnabledException;
+import me.mneri.offer.business.exception.UserNotFoundException;
+import me.mneri.offer.business.pojo.OfferCreate;
+import me.mneri.offer.business.service.OfferService;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.presentation.api.APIParameters;
+import me.mneri.offer.presentation.dto.OfferCreateDto;
+import me.mneri.offer.presentation.dto.OfferCreateResultDto;
+import me.mneri.offer.presentation.exception.IllegalBatchSizeException;
+import me.mneri.offer.presentation.mapping.PresentationLayerMapper;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Helper for the batch offer creation endpoints.
+ * <p>
+ * Items are validated one by one: invalid items are reported without failing the whole batch, valid items are created
+ * together in a single service call.
+ *
+ * @author Massimo Neri
+ */
+@Component
+@RequiredArgsConstructor(access = AccessLevel.PROTECTED)
+class OfferBatchHelper {
+    private final OfferService offerService;
+
+    private final PresentationLayerMapper presentationLayerMapper;
+
+    private final Validator validator;
+
+    /**
+     * Create the valid offers of the specified batch, all published by the specified user.
+     *
+     * @param createDtos The batch.
+     * @param userId     The id of the publisher.
+     * @return The result of each item of the batch, in the same order.
+     * @throws IllegalBatchSizeException If the batch is empty or larger than
+     *                                   {@link APIParameters#PARAM_BATCH_SIZE_MAX}.
+     * @throws UserIsNotEnabledException If the user with the specified id is not enabled.
+     * @throws UserNotFoundException     If a user with the specified id was not found in the repository.
+     */
+    List<OfferCreateResultDto> saveAll(List<OfferCreateDto> createDtos, UUID userId)
+            throws IllegalBatchSizeException, UserIsNotEnabledException, UserNotFoundException {
+        if (createDtos.isEmpty() || createDtos.size() > APIParameters.PARAM_BATCH_SIZE_MAX) {
+            throw new IllegalBatchSizeException(createDtos.size());
+        }
+
+        List<OfferCreateResultDto> results = new ArrayList<>(Collections.nCopies(createDtos.size(), null));
+        List<Integer> indexes = new ArrayList<>(createDtos.size());
+        List<OfferCreate> creates = new ArrayList<>(createDtos.size());
+
+        for (int i = 0; i < createDtos.size(); i++) {
+            List<String> errors = validate(createDtos.get(i));
+
+            if (errors.isEmpty()) {
+                indexes.add(i);
+                creates.add(presentationLayerMapper.mapOfferCreateDtoToOfferCreate(createDtos.get(i)));
+            } else {
+                results.set(i, new OfferCreateResultDto(i, null, errors));
+            }
+        }
+
+        if (!creates.isEmpty()) {
+            List<Offer> offers = offerService.saveAll(creates, userId);
+
+            for (int i = 0; i < offers.size(); i++) {
+                int index = indexes.get(i);
+                results.set(index, new OfferCreateResultDto(
+                        index, presentationLayerMapper.mapOfferToOfferDto(offers.get(i)), null));
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Validate the specified item.
+     *
+     * @param createDto The item, can be {@code null}.
+     * @return The validation errors, sorted; empty if the item is valid.
+     */
+    private List<String> validate(OfferCreateDto createDto) {
+        if (createDto == null) {
+            return Collections.singletonList("offer: must not be null");
+        }
+
+        return validator
+                .validate(createDto)
+                .stream()
+                .map(this::format)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Format the specified constraint violation as a validation error.
+     *
+     * @param violation The violation.
+     * @return The validation error.
+     */
+    private String format(ConstraintViolation<OfferCreateDto> violation) {
+        return violation.getPropertyPath() + ": " + violation.getMessage();
+    }
+}
@@ -18,29 +18,45 @@
 
 package me.mneri.offer.presentation.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.business.count.ListingCounter;
+import me.mneri.offer.business.exception.IllegalOfferQueryException;
 import me.mneri.offer.business.exception.OfferIsCancelledException;
 import me.mneri.offer.business.exception.OfferIsExpiredException;
 import me.mneri.offer.business.exception.OfferNotFoundException;
+import me.mneri.offer.business.exception.OfferUpdateConflictException;
 import me.mneri.offer.business.exception.UserIsNotEnabledException;
 import me.mneri.offer.business.exception.UserNotFoundException;
 import me.mneri.offer.business.pojo.Paging;
+import me.mneri.offer.business.query.OfferQuery;
+import me.mneri.offer.business.query.OfferQueryCompiler;
 import me.mneri.offer.business.service.OfferService;
 import me.mneri.offer.business.service.UserService;
 import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.projection.OfferSummary;
 import me.mneri.offer.presentation.api.OffersAPI;
+import me.mneri.offer.presentation.dto.CountDto;
 import me.mneri.offer.presentation.dto.OfferCreateDto;
+import me.mneri.offer.presentation.dto.OfferCreateResultDto;
 import me.mneri.offer.presentation.dto.OfferDto;
+import me.mneri.offer.presentation.dto.OfferExtendDto;
+import me.mneri.offer.presentation.dto.OfferSummaryDto;
 import me.mneri.offer.presentation.dto.OfferUpdateDto;
 import me.mneri.offer.presentation.dto.PagingDto;
 import me.mneri.offer.presentation.dto.ResponseDto;
 import me.mneri.offer.presentation.dto.UserDto;
+import me.mneri.offer.presentation.exception.IllegalBatchSizeException;
 import me.mneri.offer.presentation.mapping.PresentationLayerMapper;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.security.Principal;
 import java.time.Clock;
 import java.util.List;
@@ -57,6 +73,14 @@ import java.util.UUID;
 class OffersController implements OffersAPI {
     private final Clock clock;
 
+    private final ListingCounter listingCounter;
+
+    private final ObjectMapper objectMapper;
+
+    private final OfferBatchHelper offerBatchHelper;
+
+    private final OfferQueryCompiler offerQueryCompiler;
+
     private final OfferService offerService;
 
     private final PresentationLayerMapper presentationLayerMapper;
@@ -76,9 +100,63 @@ class OffersController implements OffersAPI {
      * {@inheritDoc}
      */
     @Override
-    public ResponseDto<List<OfferDto>> getOffers(PagingDto pagingDto) {
+    public ResponseDto<List<OfferSummaryDto>> getOffers(String filter, String sort, PagingDto pagingDto)
+            throws IllegalOfferQueryException {
+        OfferQuery query = offerQueryCompiler.compile(filter, sort);
         Paging paging = presentationLayerMapper.mapPagingDtoToPaging(pagingDto);
-        return new ResponseDto<>(presentationLayerMapper.mapOfferToOfferDto(offerService.findAllOpen(paging)));
+        CountDto count = presentationLayerMapper.mapCountToCountDto(
+                listingCounter.countOpenOffers(query, paging.getCountMode()));
+
+        if (query == OfferQuery.ALL) {
+            Slice<OfferSummary> offers = offerService.findAllOpenSummaries(paging);
+
+            return new ResponseDto<>(
+                    presentationLayerMapper.mapOfferSummaryToOfferSummaryDto(offers),
+                    presentationLayerMapper.mapOfferSummarySliceToNextCursor(offers),
+                    count);
+        }
+
+        Slice<Offer> offers = offerService.findAllOpen(query, paging);
+
+        return new ResponseDto<>(
+                presentationLayerMapper.mapOfferToOfferSummaryDto(offers),
+                presentationLayerMapper.mapOfferSliceToNextCursor(offers, query.getOrder()),
+                count);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResponseDto<List<OfferSummaryDto>> getOffersSearch(String query, PagingDto pagingDto) {
+        Paging paging = presentationLayerMapper.mapPagingDtoToPaging(pagingDto);
+
+        return new ResponseDto<>(
+                presentationLayerMapper.mapOfferToOfferSummaryDto(offerService.search(query, paging)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StreamingResponseBody getOffersStream() {
+        return outputStream -> {
+            try {
+                offerService.forEachOpen(offer -> {
+                    try {
+                        outputStream.write(objectMapper.writeValueAsBytes(
+                                presentationLayerMapper.mapOfferToOfferDto(offer)));
+                        outputStream.write('\n');
+                        // Blocks while the client is slower than the database, instead of buffering
+                        outputStream.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
     }
 
     /**
@@ -131,8 +209,30 @@ class OffersController implements OffersAPI {
      * {@inheritDoc}
      */
     @Override
-    public void putOffer(UUID offerId, OfferUpdateDto updateDto)
-            throws OfferIsCancelledException, OfferIsExpiredException, OfferNotFoundException {
+    public ResponseDto<List<OfferCreateResultDto>> postOffers(List<OfferCreateDto> createDtos, Principal principal)
+            throws IllegalBatchSizeException, UserIsNotEnabledException, UserNotFoundException {
+        UUID userId = userService
+                .findByUsername(principal.getName())
+                .orElseThrow(() -> new UsernameNotFoundException(principal.getName()))
+                .getId();
+
+        return new ResponseDto<>(offerBatchHelper.saveAll(createDtos, userId));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResponseDto<List<UUID>> postOffersExtension(OfferExtendDto extendDto) {
+        return new ResponseDto<>(offerService.extendAllOpen(extendDto.getOfferIds(), extendDto.getTtl()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void putOffer(UUID offerId, OfferUpdateDto updateDto) throws OfferIsCancelledException,
+            OfferIsExpiredException, OfferNotFoundException, OfferUpdateConflictException {
         offerService.update(offerId, presentationLayerMapper.mapOfferUpdateDtoToOfferUpdate(updateDto));
     }
 }
@@ -21,6 +21,7 @@ package me.mneri.offer.presentation.controller;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.business.count.ListingCounter;
 import me.mneri.offer.business.exception.UserIsNotEnabledException;
 import me.mneri.offer.business.exception.UserNotFoundException;
 import me.mneri.offer.business.pojo.Paging;
@@ -28,13 +29,18 @@ import me.mneri.offer.business.service.OfferService;
 import me.mneri.offer.business.service.UserService;
 import me.mneri.offer.data.entity.Offer;
 import me.mneri.offer.data.entity.User;
+import me.mneri.offer.data.projection.OfferSummary;
 import me.mneri.offer.presentation.api.UsersAPI;
 import me.mneri.offer.presentation.dto.OfferCreateDto;
+import me.mneri.offer.presentation.dto.OfferCreateResultDto;
 import me.mneri.offer.presentation.dto.OfferDto;
+import me.mneri.offer.presentation.dto.OfferSummaryDto;
 import me.mneri.offer.presentation.dto.PagingDto;
 import me.mneri.offer.presentation.dto.ResponseDto;
 import me.mneri.offer.presentation.dto.UserDto;
+import me.mneri.offer.presentation.exception.IllegalBatchSizeException;
 import me.mneri.offer.presentation.mapping.PresentationLayerMapper;
+import org.springframework.data.domain.Slice;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -49,12 +55,24 @@ import java.util.UUID;
 @RequiredArgsConstructor(access = AccessLevel.PROTECTED)
 @RestController
 class UsersController implements UsersAPI {
+    private final ListingCounter listingCounter;
+
+    private final OfferBatchHelper offerBatchHelper;
+
     private final OfferService offerService;
 
     private final PresentationLayerMapper presentationLayerMapper;
 
     private final UserService userService;
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResponseDto<List<UUID>> deleteOffersByPublisherId(UUID userId) {
+        return new ResponseDto<>(offerService.cancelAllOpenByPublisherId(userId));
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -63,7 +81,11 @@ class UsersController implements UsersAPI {
     @Override
     public ResponseDto<List<UserDto>> getUsers(PagingDto pagingDto) {
         Paging paging = presentationLayerMapper.mapPagingDtoToPaging(pagingDto);
-        return new ResponseDto<>(presentationLayerMapper.mapUserToUserDto(userService.findAllEnabled(paging)));
+
+        return new ResponseDto<>(
+                presentationLayerMapper.mapUserToUserDto(userService.findAllEnabled(paging)),
+                null,
+                presentationLayerMapper.mapCountToCountDto(listingCounter.countEnabledUsers(paging.getCountMode())));
     }
 
     /**
@@ -88,13 +110,14 @@ class UsersController implements UsersAPI {
      * @return
      */
     @Override
-    public ResponseDto<List<OfferDto>> getOffersByPublisherId(UUID userId, PagingDto pagingDto)
+    public ResponseDto<List<OfferSummaryDto>> getOffersByPublisherId(UUID userId, PagingDto pagingDto)
             throws UserIsNotEnabledException, UserNotFoundException {
         Paging paging = presentationLayerMapper.mapPagingDtoToPaging(pagingDto);
-        List<OfferDto> offers =
-                presentationLayerMapper.mapOfferToOfferDto(offerService.findAllOpenByPublisherId(userId, paging));
+        Slice<OfferSummary> offers = offerService.findAllOpenSummariesByPublisherId(userId, paging);
 
-        return new ResponseDto<>(offers);
+        return new ResponseDto<>(
+                presentationLayerMapper.mapOfferSummaryToOfferSummaryDto(offers),
+                presentationLayerMapper.mapOfferSummarySliceToNextCursor(offers));
     }
 
     @Override
@@ -103,4 +126,13 @@ class UsersController implements UsersAPI {
         Offer offer = offerService.save(presentationLayerMapper.mapOfferCreateDtoToOfferCreate(createDto), userId);
         return new ResponseDto<>(presentationLayerMapper.mapOfferToOfferDto(offer));
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResponseDto<List<OfferCreateResultDto>> postOffers(UUID userId, List<OfferCreateDto> createDtos)
+            throws IllegalBatchSizeException, UserIsNotEnabledException, UserNotFoundException {
+        return new ResponseDto<>(offerBatchHelper.saveAll(createDtos, userId));
+    }
 }
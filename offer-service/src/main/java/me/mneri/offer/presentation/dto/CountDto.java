@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.presentation.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Value;
+
+/**
+ * DTO for the total number of items of a listing.
+ *
+ * @author Massimo Neri
+ */
+@Value
+@Schema(name = "Count")
+public class CountDto {
+    @Schema(description = "The total number of items of the listing.", example = "1024")
+    long value;
+
+    @Schema(description = "Whether the value is exact; approximate values may be a few seconds stale.")
+    boolean exact;
+}
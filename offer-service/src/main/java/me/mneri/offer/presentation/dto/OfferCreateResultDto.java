@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.presentation.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * DTO for the result of a single item of a batch offer creation.
+ * <p>
+ * Either the offer or the errors are present.
+ *
+ * @author Massimo Neri
+ */
+@AllArgsConstructor
+@Value
+@Schema(name = "OfferCreateResult")
+public class OfferCreateResultDto {
+    @Schema(description = "The position of the item in the batch.",
+            example = "0",
+            required = true)
+    int index;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Schema(description = "The created offer, absent if the item is not valid.")
+    OfferDto offer;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Schema(description = "The validation errors of the item, absent if the offer was created.",
+            example = "[\"title: must not be empty\"]")
+    List<String> errors;
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.presentation.dto;
+
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.presentation.api.APIParameters;
+import me.mneri.offer.presentation.validator.Ttl;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * DTO for a user's request to extend the TTL of a batch of {@link Offer}s.
+ *
+ * @author Massimo Neri
+ */
+@Data
+@Schema(name = "OfferExtend")
+public class OfferExtendDto {
+    @ArraySchema(
+            arraySchema = @Schema(description = "The ids of the offers to extend."),
+            maxItems = APIParameters.PARAM_BATCH_SIZE_MAX,
+            minItems = 1)
+    @NotEmpty
+    @Size(max = APIParameters.PARAM_BATCH_SIZE_MAX)
+    private List<UUID> offerIds;
+
+    @Schema(description = "The time in milliseconds to add to the offers' TTL.",
+            example = "60000",
+            required = true)
+    @Ttl
+    private long ttl;
+}
@@ -22,6 +22,7 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import me.mneri.offer.business.pojo.CountMode;
 
 /**
  * DTO for pagination data.
@@ -36,4 +37,29 @@ public class PagingDto {
     private Integer pageNumber;
 
     private Integer pageSize;
+
+    private String cursor;
+
+    private CountMode countMode;
+
+    /**
+     * Create a new instance without cursor.
+     *
+     * @param pageNumber The page number.
+     * @param pageSize   The page size.
+     */
+    public PagingDto(Integer pageNumber, Integer pageSize) {
+        this(pageNumber, pageSize, null);
+    }
+
+    /**
+     * Create a new instance without count.
+     *
+     * @param pageNumber The page number.
+     * @param pageSize   The page size.
+     * @param cursor     The cursor token.
+     */
+    public PagingDto(Integer pageNumber, Integer pageSize, String cursor) {
+        this(pageNumber, pageSize, cursor, CountMode.NONE);
+    }
 }
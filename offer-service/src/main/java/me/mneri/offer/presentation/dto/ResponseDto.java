@@ -18,11 +18,42 @@
 
 package me.mneri.offer.presentation.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
 import lombok.Value;
 
+@AllArgsConstructor
 @Value
 @Schema(name = "Response")
 public class ResponseDto<T> {
     T data;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Schema(description = "Opaque cursor of the next page, absent on the last page.",
+            example = "AAABdmOp3QCyG2T9T-xF0J5Kf0E2gW2P")
+    String next;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Schema(description = "Total number of items of the listing, absent unless requested with page.count.")
+    CountDto count;
+
+    /**
+     * Create a new instance without next page cursor.
+     *
+     * @param data The data.
+     */
+    public ResponseDto(T data) {
+        this(data, null);
+    }
+
+    /**
+     * Create a new instance without count.
+     *
+     * @param data The data.
+     * @param next The cursor of the next page, can be {@code null}.
+     */
+    public ResponseDto(T data, String next) {
+        this(data, next, null);
+    }
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.presentation.exception;
+
+/**
+ * Thrown when the specified count mode is not legal.
+ *
+ * @author Massimo Neri
+ */
+public class IllegalCountModeException extends Exception {
+    private final String countMode;
+
+    /**
+     * Create a new instance.
+     *
+     * @param countMode The count mode.
+     */
+    public IllegalCountModeException(String countMode) {
+        this.countMode = countMode;
+    }
+
+    @Override
+    public String getMessage() {
+        return String.format("The specified count mode is not legal: countMode=%s", getCountMode());
+    }
+
+    /**
+     * Return the count mode.
+     *
+     * @return The count mode.
+     */
+    public String getCountMode() {
+        return countMode;
+    }
+}
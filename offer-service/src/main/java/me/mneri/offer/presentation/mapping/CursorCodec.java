@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.presentation.mapping;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import me.mneri.offer.business.pojo.Cursor;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Encoder and decoder for the opaque cursor tokens exchanged with the clients.
+ * <p>
+ * A token is the URL-safe Base64 encoding of the cursor key followed by the two halves of the cursor id, for a total of
+ * 24 bytes.
+ *
+ * @author Massimo Neri
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class CursorCodec {
+    private static final int TOKEN_BYTES = 3 * Long.BYTES;
+
+    /**
+     * Decode the specified token.
+     *
+     * @param token The token.
+     * @return The cursor.
+     * @throws IllegalArgumentException If the token is not a valid cursor token.
+     */
+    public static Cursor decode(@NonNull String token) {
+        byte[] bytes = Base64.getUrlDecoder().decode(token);
+
+        if (bytes.length != TOKEN_BYTES) {
+            throw new IllegalArgumentException("Illegal cursor token length.");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new Cursor(buffer.getLong(), new UUID(buffer.getLong(), buffer.getLong()));
+    }
+
+    /**
+     * Encode the specified cursor.
+     *
+     * @param cursor The cursor.
+     * @return The token.
+     */
+    public static String encode(@NonNull Cursor cursor) {
+        ByteBuffer buffer = ByteBuffer.allocate(TOKEN_BYTES)
+                .putLong(cursor.getKey())
+                .putLong(cursor.getId().getMostSignificantBits())
+                .putLong(cursor.getId().getLeastSignificantBits());
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+}
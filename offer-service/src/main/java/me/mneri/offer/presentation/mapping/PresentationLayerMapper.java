@@ -18,19 +18,26 @@
 
 package me.mneri.offer.presentation.mapping;
 
+import me.mneri.offer.business.pojo.Count;
+import me.mneri.offer.business.pojo.Cursor;
 import me.mneri.offer.business.pojo.OfferCreate;
 import me.mneri.offer.business.pojo.OfferUpdate;
 import me.mneri.offer.business.pojo.Paging;
+import me.mneri.offer.business.query.OfferOrder;
 import me.mneri.offer.data.entity.Offer;
 import me.mneri.offer.data.entity.User;
+import me.mneri.offer.data.projection.OfferSummary;
+import me.mneri.offer.presentation.dto.CountDto;
 import me.mneri.offer.presentation.dto.OfferCreateDto;
 import me.mneri.offer.presentation.dto.OfferDto;
+import me.mneri.offer.presentation.dto.OfferSummaryDto;
 import me.mneri.offer.presentation.dto.OfferUpdateDto;
 import me.mneri.offer.presentation.dto.PagingDto;
 import me.mneri.offer.presentation.dto.UserDto;
 import org.mapstruct.InjectionStrategy;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
@@ -43,6 +50,14 @@ import java.util.List;
         injectionStrategy = InjectionStrategy.CONSTRUCTOR,
         uses = PresentationLayerMapperHelper.class)
 public interface PresentationLayerMapper {
+    /**
+     * Map an instance of {@link Count} to a new instance of {@link CountDto}.
+     *
+     * @param count The {@link Count} instance, can be {@code null}.
+     * @return A new {@link CountDto} instance, or {@code null} if the count is {@code null}.
+     */
+    CountDto mapCountToCountDto(Count count);
+
     /**
      * Map an instance of {@link OfferCreateDto} to a new instance of {@link OfferCreate}.
      *
@@ -51,6 +66,38 @@ public interface PresentationLayerMapper {
      */
     OfferCreate mapOfferCreateDtoToOfferCreate(OfferCreateDto dto);
 
+    /**
+     * Map the specified {@link Slice} of {@link Offer}s to the cursor token of the next slice.
+     *
+     * @param offers The slice of offers.
+     * @return The cursor token of the next slice, or {@code null} if the specified slice is the last one.
+     */
+    default String mapOfferSliceToNextCursor(Slice<Offer> offers) {
+        if (!offers.hasNext() || !offers.hasContent()) {
+            return null;
+        }
+
+        Offer last = offers.getContent().get(offers.getNumberOfElements() - 1);
+        return CursorCodec.encode(new Cursor(last.getEndTime(), last.getId()));
+    }
+
+    /**
+     * Map the specified {@link Slice} of {@link Offer}s, sorted in the specified {@link OfferOrder}, to the cursor
+     * token of the next slice.
+     *
+     * @param offers The slice of offers.
+     * @param order  The order of the slice.
+     * @return The cursor token of the next slice, or {@code null} if the specified slice is the last one.
+     */
+    default String mapOfferSliceToNextCursor(Slice<Offer> offers, OfferOrder order) {
+        if (!offers.hasNext() || !offers.hasContent()) {
+            return null;
+        }
+
+        Offer last = offers.getContent().get(offers.getNumberOfElements() - 1);
+        return CursorCodec.encode(new Cursor(order.key(last), last.getId()));
+    }
+
     /**
      * Map the specified {@link Offer} instances to new instances of {@link OfferDto}.
      *
@@ -68,6 +115,56 @@ public interface PresentationLayerMapper {
     @Mapping(target = "ttl", ignore = true) // Done by the helper
     OfferDto mapOfferToOfferDto(Offer offer);
 
+    /**
+     * Map the specified {@link Offer} instances to new instances of {@link OfferSummaryDto}, for listings.
+     *
+     * @param offers The {@link Offer} instances.
+     * @return A {@link List} of newly instantiated {@link OfferSummaryDto}s.
+     */
+    List<OfferSummaryDto> mapOfferToOfferSummaryDto(Iterable<Offer> offers);
+
+    /**
+     * Map the specified {@link Offer} instance to a new instance of {@link OfferSummaryDto}, for listings.
+     *
+     * @param offer The {@link Offer} instance.
+     * @return A new {@link OfferSummaryDto} instance.
+     */
+    @Mapping(target = "ttl", ignore = true) // Done by the helper
+    OfferSummaryDto mapOfferToOfferSummaryDto(Offer offer);
+
+    /**
+     * Map the specified {@link Slice} of {@link OfferSummary}s to the cursor token of the next slice.
+     *
+     * @param offers The slice of offer summaries.
+     * @return The cursor token of the next slice, or {@code null} if the specified slice is the last one.
+     */
+    default String mapOfferSummarySliceToNextCursor(Slice<OfferSummary> offers) {
+        if (!offers.hasNext() || !offers.hasContent()) {
+            return null;
+        }
+
+        OfferSummary last = offers.getContent().get(offers.getNumberOfElements() - 1);
+        return CursorCodec.encode(new Cursor(last.getEndTime(), last.getId()));
+    }
+
+    /**
+     * Map the specified {@link OfferSummary} instances to new instances of {@link OfferSummaryDto}.
+     *
+     * @param offers The {@link OfferSummary} instances.
+     * @return A {@link List} of newly instantiated {@link OfferSummaryDto}s.
+     */
+    List<OfferSummaryDto> mapOfferSummaryToOfferSummaryDto(Iterable<OfferSummary> offers);
+
+    /**
+     * Map the specified {@link OfferSummary} instance to a new instance of {@link OfferSummaryDto}.
+     * <p>
+     * Unlike {@link #mapOfferToOfferSummaryDto(Offer)} the TTL is not computed again but copied from the summary.
+     *
+     * @param offer The {@link OfferSummary} instance.
+     * @return A new {@link OfferSummaryDto} instance.
+     */
+    OfferSummaryDto mapOfferSummaryToOfferSummaryDto(OfferSummary offer);
+
     /**
      * Map an instance of {@link OfferUpdateDto} to a new instance of {@link OfferUpdate}.
      *
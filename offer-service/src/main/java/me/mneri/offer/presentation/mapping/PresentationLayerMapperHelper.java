@@ -20,8 +20,10 @@ package me.mneri.offer.presentation.mapping;
 
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
+import me.mneri.offer.business.pojo.Cursor;
 import me.mneri.offer.data.entity.Offer;
 import me.mneri.offer.presentation.dto.OfferDto;
+import me.mneri.offer.presentation.dto.OfferSummaryDto;
 import org.mapstruct.AfterMapping;
 import org.mapstruct.MappingTarget;
 import org.springframework.stereotype.Component;
@@ -50,4 +52,27 @@ class PresentationLayerMapperHelper {
             dto.setTtl(offer.getTtl(clock));
         }
     }
+
+    /**
+     * Called after a {@link Offer} to {@link OfferSummaryDto} mapping.
+     *
+     * @param dto   The offer summary DTO.
+     * @param offer The offer.
+     */
+    @AfterMapping
+    void afterMapOfferToOfferSummaryDto(@MappingTarget OfferSummaryDto dto, Offer offer) {
+        if (offer != null) {
+            dto.setTtl(offer.getTtl(clock));
+        }
+    }
+
+    /**
+     * Map the specified cursor token to a new {@link Cursor} instance.
+     *
+     * @param token The cursor token.
+     * @return A new cursor, or {@code null} if the token is {@code null}.
+     */
+    Cursor mapStringToCursor(String token) {
+        return token == null ? null : CursorCodec.decode(token);
+    }
 }
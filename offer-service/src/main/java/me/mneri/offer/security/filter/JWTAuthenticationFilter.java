@@ -18,15 +18,11 @@
 
 package me.mneri.offer.security.filter;
 
-import com.auth0.jwt.JWT;
-import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
-import com.auth0.jwt.interfaces.JWTVerifier;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContext;
@@ -53,11 +49,10 @@ import java.io.IOException;
 @Log4j2
 @RequiredArgsConstructor(access = AccessLevel.PROTECTED)
 public class JWTAuthenticationFilter extends OncePerRequestFilter {
-    @Value("${security.jwt.secret}")
-    private String secret;
-
     private final UserDetailsService userDetailsService;
 
+    private final VerifiedTokenCache verifiedTokenCache;
+
     /**
      * Authenticate the user.
      *
@@ -110,7 +105,7 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
 
             if (token != null) {
                 try {
-                    DecodedJWT jwt = verifyToken(token);
+                    DecodedJWT jwt = verifiedTokenCache.verify(token);
                     String username = jwt.getSubject();
 
                     if (username != null) {
@@ -124,16 +119,4 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
 
         chain.doFilter(request, response);
     }
-
-    /**
-     * Verify and decrypt an authentication token.
-     *
-     * @param token The authentication token.
-     * @return The decrypted JWT.
-     */
-    private DecodedJWT verifyToken(String token) {
-        Algorithm algorithm = Algorithm.HMAC256(secret);
-        JWTVerifier verifier = JWT.require(algorithm).build();
-        return verifier.verify(token);
-    }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.security.filter;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.interfaces.JWTVerifier;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifier of JWT authentication tokens, remembering the tokens it has already verified.
+ * <p>
+ * Verified tokens are cached by their SHA-256 digest until their {@code exp} claim, so that a token presented again is
+ * not decoded and its signature is not checked again. Tokens without an {@code exp} claim and tokens failing the
+ * verification are not cached.
+ *
+ * @author Massimo Neri
+ */
+@Component
+class VerifiedTokenCache {
+    private final Cache<ByteBuffer, DecodedJWT> cache;
+
+    private final Clock clock;
+
+    private final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(VerifiedTokenCache::createDigest);
+
+    private final JWTVerifier verifier;
+
+    /**
+     * Create a new cache.
+     *
+     * @param secret        The secret the tokens are signed with.
+     * @param maximumSize   The maximum number of cached tokens.
+     * @param clock         The system clock.
+     * @param meterRegistry The meter registry.
+     */
+    protected VerifiedTokenCache(@Value("${security.jwt.secret}") String secret,
+                                 @Value("${security.jwt.cache.maximum-size}") long maximumSize,
+                                 Clock clock,
+                                 MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfter(new ExpiresAtExpiry())
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        this.clock = clock;
+        this.verifier = JWT.require(Algorithm.HMAC256(secret)).build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "verifiedTokens");
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Discard all the verified tokens.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Verify and decode an authentication token.
+     *
+     * @param token The authentication token.
+     * @return The decoded JWT.
+     * @throws JWTVerificationException If the token is not valid.
+     */
+    public DecodedJWT verify(@NonNull String token) throws JWTVerificationException {
+        ByteBuffer key = ByteBuffer.wrap(digests.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+        return cache.get(key, k -> verifier.verify(token));
+    }
+
+    /**
+     * Expire the tokens at their {@code exp} claim, or immediately if they have none.
+     */
+    private class ExpiresAtExpiry implements Expiry<ByteBuffer, DecodedJWT> {
+        @Override
+        public long expireAfterCreate(ByteBuffer key, DecodedJWT jwt, long currentTime) {
+            Date expiresAt = jwt.getExpiresAt();
+
+            if (expiresAt == null) {
+                return 0;
+            }
+
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiresAt.getTime() - clock.millis()));
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, DecodedJWT jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, DecodedJWT jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.security.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import me.mneri.offer.data.event.UserChangedEvent;
+import me.mneri.offer.security.service.UserDetailsServiceJpa.UserDetailsImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Cache of the {@link UserDetails} resolved during authentication, keyed by username.
+ * <p>
+ * Entries are evicted as soon as the transaction changing the corresponding user commits; a renamed user is evicted
+ * under their previous username as well, so that it stops authenticating at once. Changes that bypass the
+ * application, such as manual updates to the database, are picked up when entries expire: the maximum staleness is
+ * set with the {@code security.user-details.cache.max-staleness} property.
+ *
+ * @author Massimo Neri
+ */
+@Component
+class UserDetailsCache {
+    private final Cache<String, UserDetailsImpl> cache;
+
+    /**
+     * Create a new cache.
+     *
+     * @param maxStaleness  The time after which cached entries expire.
+     * @param maximumSize   The maximum number of cached entries.
+     * @param meterRegistry The meter registry.
+     */
+    protected UserDetailsCache(@Value("${security.user-details.cache.max-staleness}") Duration maxStaleness,
+                               @Value("${security.user-details.cache.maximum-size}") long maximumSize,
+                               MeterRegistry meterRegistry) {
+        cache = Caffeine.newBuilder()
+                .expireAfterWrite(maxStaleness)
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userDetails");
+    }
+
+    /**
+     * Return the {@link UserDetails} of the specified username, loading them if they are not cached.
+     *
+     * @param username The username.
+     * @param loader   The function loading the user details.
+     * @return The user details.
+     */
+    public UserDetails get(String username, Function<String, UserDetailsImpl> loader) {
+        return cache.get(username, loader);
+    }
+
+    /**
+     * Evict the details of the changed user.
+     * <p>
+     * The event carries the username after the change; the entry of a renamed user is found by id, scanning the cache,
+     * which is affordable as users change rarely.
+     *
+     * @param event The event.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        cache.invalidate(event.getUsername());
+
+        if (event.getUserId() != null) {
+            cache.asMap().values().removeIf(userDetails -> event.getUserId().equals(userDetails.getId()));
+        }
+    }
+}
@@ -24,10 +24,7 @@ import lombok.EqualsAndHashCode;
 import lombok.RequiredArgsConstructor;
 import me.mneri.offer.data.entity.Authority;
 import me.mneri.offer.data.entity.User;
-import me.mneri.offer.data.repository.AuthorityRepository;
 import me.mneri.offer.data.repository.UserRepository;
-import me.mneri.offer.data.specification.AuthoritySpec;
-import me.mneri.offer.data.specification.UserSpec;
 import org.mapstruct.InjectionStrategy;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -36,13 +33,12 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-
-import static org.springframework.data.jpa.domain.Specification.where;
+import java.util.Optional;
+import java.util.UUID;
 
 /**
  * Simple implementation of the {@link UserDetailsService} interface.
@@ -62,6 +58,8 @@ class UserDetailsServiceJpa implements UserDetailsService {
     static class UserDetailsImpl implements UserDetails {
         private Collection<? extends GrantedAuthority> authorities;
 
+        private UUID id;
+
         private String password;
 
         private String username;
@@ -145,25 +143,40 @@ class UserDetailsServiceJpa implements UserDetailsService {
 
     private final AuthMapper authMapper;
 
-    private final AuthorityRepository authorityRepository;
+    private final UserDetailsCache userDetailsCache;
 
     private final UserRepository userRepository;
 
     /**
-     * {@inheritDoc}
+     * Load the details of the specified user from the repositories.
+     * <p>
+     * The user and their authorities are served from the second-level cache if the username resolves through the
+     * natural-id cache, or are loaded in one statement otherwise.
+     *
+     * @param username The username.
+     * @return The user details.
+     * @throws UsernameNotFoundException If the user could not be found.
      */
-    @Override
-    @Transactional
-    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository
-                .findOne(where(UserSpec.usernameIsEqualTo(username)))
+    private UserDetailsImpl load(String username) throws UsernameNotFoundException {
+        Optional<User> cached = userRepository.findCachedWithAuthoritiesByUsername(username);
+        User user = (cached.isPresent() ? cached : userRepository.findWithAuthoritiesByUsername(username))
                 .orElseThrow(() -> new UsernameNotFoundException(username));
 
-        List<Authority> authorities = authorityRepository.findAll(AuthoritySpec.ownerIdIsEqualTo(user.getId()));
-
         UserDetailsImpl userDetails = authMapper.mapUserToUserDetailsImpl(user);
-        userDetails.setAuthorities(Collections.unmodifiableList(authMapper.mapAuthorityToGrantedAuthorityImpl(authorities)));
+        userDetails.setAuthorities(
+                Collections.unmodifiableList(authMapper.mapAuthorityToGrantedAuthorityImpl(user.getAuthorities())));
 
         return userDetails;
     }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Details are served from a {@link UserDetailsCache}. No transaction is started here, so that cache hits do not
+     * take a database connection.
+     */
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return userDetailsCache.get(username, this::load);
+    }
 }
@@ -0,0 +1,13 @@
+alter table offer
+    drop constraint fk_offer_publisher;
+alter table user_authority
+    drop constraint fk_user_authority_authority;
+
+create index idx_offer_open on offer (cancelled, end_time, id);
+create index idx_offer_publisher_open on offer (publisher, cancelled, end_time, id);
+create index idx_user_authority_authority on user_authority (authority);
+
+alter table offer
+    add constraint fk_offer_publisher foreign key (publisher) references user;
+alter table user_authority
+    add constraint fk_user_authority_authority foreign key (authority) references authority;
@@ -0,0 +1,29 @@
+alter table offer
+    drop constraint fk_offer_publisher;
+alter table user_authority
+    drop constraint fk_user_authority_user;
+alter table user_authority
+    drop constraint fk_user_authority_authority;
+
+update offer
+    set publisher = replace(publisher, '-', '');
+
+alter table authority
+    alter column id binary(16) not null;
+alter table user
+    alter column id binary(16) not null;
+alter table offer
+    alter column id binary(16) not null;
+alter table offer
+    alter column publisher binary(16) not null;
+alter table user_authority
+    alter column user binary(16) not null;
+alter table user_authority
+    alter column authority binary(16) not null;
+
+alter table offer
+    add constraint fk_offer_publisher foreign key (publisher) references user;
+alter table user_authority
+    add constraint fk_user_authority_user foreign key (user) references user;
+alter table user_authority
+    add constraint fk_user_authority_authority foreign key (authority) references authority;
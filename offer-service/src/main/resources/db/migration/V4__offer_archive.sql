@@ -0,0 +1,19 @@
+create table offer_archive (
+    id binary(16) not null,
+    title varchar(256),
+    description varchar(8192),
+    publisher binary(16) not null,
+    price decimal(16,2) not null,
+    currency varchar(255),
+    cancelled boolean,
+    create_time timestamp not null,
+    end_time timestamp not null,
+    version integer not null default 0,
+    archive_time timestamp not null,
+    primary key (id));
+
+create index idx_offer_archive_archive_time on offer_archive (archive_time);
+create index idx_offer_closed on offer (end_time, cancelled);
+
+alter table offer_archive
+    add constraint fk_offer_archive_publisher foreign key (publisher) references user;
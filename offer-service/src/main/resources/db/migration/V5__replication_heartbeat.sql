@@ -0,0 +1,6 @@
+create table replication_heartbeat (
+    id integer not null,
+    beat_time timestamp not null,
+    primary key (id));
+
+insert into replication_heartbeat (id, beat_time) values (1, current_timestamp);
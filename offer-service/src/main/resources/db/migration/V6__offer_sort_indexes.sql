@@ -0,0 +1,2 @@
+create index idx_offer_open_create_time on offer (cancelled, create_time, id);
+create index idx_offer_open_price on offer (cancelled, price, id);
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.archive;
+
+import me.mneri.offer.business.cache.VersionedCache;
+import me.mneri.offer.data.converter.UUIDCodec;
+import me.mneri.offer.data.entity.Offer;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * Verify that {@link OfferArchiveSweeper} moves closed offers to the archive, keeps them visible to single-offer
+ * lookups and purges them after the retention period.
+ *
+ * @author Massimo Neri
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "business.archive.chunk-size=2",
+        "business.archive.enabled=true",
+        "spring.datasource.generate-unique-name=false",
+        "spring.datasource.name=offer-archive"})
+class OfferArchiveSweeperTest {
+    private static final UUID ADMIN_ID = UUID.fromString("b4d9a272-4685-2647-91d6-185b65e60bdf");
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private VersionedCache<UUID, Offer> offerCache;
+
+    @Autowired
+    private OfferArchiveSweeper offerArchiveSweeper;
+
+    @Test
+    void givenClosedOffers_whenSweepIsCalled_thenOnlyOffersPastTheGracePeriodAreArchived() {
+        // Given
+        long now = System.currentTimeMillis();
+        UUID openId = insert(false, now + HOUR);
+        UUID cancelledId = insert(true, now + HOUR);
+        UUID recentlyExpiredId = insert(false, now - HOUR / 2);
+        UUID expiredId = insert(false, now - 2 * HOUR);
+        UUID anotherExpiredId = insert(false, now - 3 * HOUR);
+
+        // When
+        offerArchiveSweeper.sweep();
+
+        // Then
+        Assertions.assertThat(count("offer", openId)).isOne();
+        Assertions.assertThat(count("offer", recentlyExpiredId)).isOne();
+        Assertions.assertThat(count("offer", cancelledId)).isZero();
+        Assertions.assertThat(count("offer_archive", cancelledId)).isOne();
+        Assertions.assertThat(count("offer_archive", expiredId)).isOne();
+        Assertions.assertThat(count("offer_archive", anotherExpiredId)).isOne();
+        Assertions.assertThat(offerCache.get(cancelledId)).hasValueSatisfying(offer ->
+                Assertions.assertThat(offer.isCancelled()).isTrue());
+        Assertions.assertThat(offerCache.get(expiredId)).hasValueSatisfying(offer ->
+                Assertions.assertThat(offer.getEndTime().getTime()).isEqualTo(now - 2 * HOUR));
+    }
+
+    @Test
+    void givenOfferArchivedBeforeTheRetentionPeriod_whenSweepIsCalled_thenOfferIsPurged() {
+        // Given
+        long now = System.currentTimeMillis();
+        UUID offerId = UUID.randomUUID();
+        jdbcTemplate.update("insert into offer_archive (id, title, publisher, price, currency, cancelled, "
+                        + "create_time, end_time, archive_time) values (?, 'title', ?, 10, 'EUR', true, ?, ?, ?)",
+                UUIDCodec.encode(offerId), UUIDCodec.encode(ADMIN_ID), new Timestamp(now - 200 * 24 * HOUR),
+                new Timestamp(now - 100 * 24 * HOUR), new Timestamp(now - 100 * 24 * HOUR));
+
+        // When
+        offerArchiveSweeper.sweep();
+
+        // Then
+        Assertions.assertThat(count("offer_archive", offerId)).isZero();
+    }
+
+    private int count(String table, UUID offerId) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table + " where id = ?", Integer.class,
+                UUIDCodec.encode(offerId));
+    }
+
+    private UUID insert(boolean cancelled, long endTime) {
+        UUID offerId = UUID.randomUUID();
+        jdbcTemplate.update("insert into offer (id, title, publisher, price, currency, cancelled, create_time, "
+                        + "end_time) values (?, 'title', ?, 10, 'EUR', ?, ?, ?)",
+                UUIDCodec.encode(offerId), UUIDCodec.encode(ADMIN_ID), cancelled,
+                new Timestamp(endTime - 24 * HOUR), new Timestamp(endTime));
+        return offerId;
+    }
+}
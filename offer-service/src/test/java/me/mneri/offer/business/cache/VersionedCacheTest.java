@@ -0,0 +1,174 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.cache;
+
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+class VersionedCacheTest {
+    @Test
+    void givenCachedKey_whenGetIsCalled_thenLoaderIsNotCalledAgain() {
+        // Given
+        val loads = new AtomicInteger();
+        val cache = new VersionedCache<String, Long>(10, key -> {
+            loads.incrementAndGet();
+            return Optional.of(1L);
+        }, Long::longValue);
+        cache.get("key");
+
+        // When
+        val actual = cache.get("key");
+
+        // Then
+        Assertions.assertThat(actual).contains(1L);
+        Assertions.assertThat(loads).hasValue(1);
+        Assertions.assertThat(cache.asCache().stats().hitCount()).isEqualTo(1);
+        Assertions.assertThat(cache.asCache().stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void givenAbsentValue_whenGetIsCalled_thenAbsenceIsNotCached() {
+        // Given
+        val loads = new AtomicInteger();
+        val cache = new VersionedCache<String, Long>(10, key -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        }, Long::longValue);
+        cache.get("key");
+
+        // When
+        val actual = cache.get("key");
+
+        // Then
+        Assertions.assertThat(actual).isEmpty();
+        Assertions.assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void givenFailingLoader_whenGetIsCalled_thenExceptionIsThrownAndNothingIsCached() {
+        // Given
+        val loads = new AtomicInteger();
+        val cache = new VersionedCache<String, Long>(10, key -> {
+            if (loads.incrementAndGet() == 1) {
+                throw new IllegalStateException();
+            }
+
+            return Optional.of(1L);
+        }, Long::longValue);
+
+        // When/Then
+        Assertions.assertThatIllegalStateException().isThrownBy(() -> cache.get("key"));
+        Assertions.assertThat(cache.get("key")).contains(1L);
+    }
+
+    @Test
+    void givenOlderCachedVersion_whenEvictOlderThanIsCalled_thenKeyIsEvicted() {
+        // Given
+        val version = new AtomicLong(1);
+        val cache = new VersionedCache<String, Long>(10, key -> Optional.of(version.get()), Long::longValue);
+        cache.get("key");
+        version.set(2);
+
+        // When
+        cache.evictOlderThan("key", 2L);
+
+        // Then
+        Assertions.assertThat(cache.get("key")).contains(2L);
+    }
+
+    @Test
+    void givenSameCachedVersion_whenEvictOlderThanIsCalled_thenKeyIsNotEvicted() {
+        // Given
+        val version = new AtomicLong(2);
+        val cache = new VersionedCache<String, Long>(10, key -> Optional.of(version.get()), Long::longValue);
+        cache.get("key");
+        version.set(3);
+
+        // When
+        cache.evictOlderThan("key", 2L);
+
+        // Then
+        Assertions.assertThat(cache.get("key")).contains(2L);
+    }
+
+    @Test
+    void givenCachedKey_whenEvictIsCalled_thenKeyIsEvicted() {
+        // Given
+        val version = new AtomicLong(1);
+        val cache = new VersionedCache<String, Long>(10, key -> Optional.of(version.get()), Long::longValue);
+        cache.get("key");
+        version.set(2);
+
+        // When
+        cache.evict("key");
+
+        // Then
+        Assertions.assertThat(cache.get("key")).contains(2L);
+    }
+
+    @Test
+    void givenConcurrentMisses_whenGetIsCalled_thenValueIsLoadedOnce() throws Exception {
+        // Given
+        val loads = new AtomicInteger();
+        val loading = new CountDownLatch(1);
+        val release = new CountDownLatch(1);
+        val cache = new VersionedCache<String, Long>(10, key -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return Optional.of(1L);
+        }, Long::longValue);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            // When
+            Future<Optional<Long>> first = executor.submit(() -> cache.get("key"));
+            loading.await();
+            Future<Optional<Long>> second = executor.submit(() -> cache.get("key"));
+            Future<Optional<Long>> third = executor.submit(() -> cache.get("key"));
+            release.countDown();
+
+            // Then
+            Assertions.assertThat(first.get(5, TimeUnit.SECONDS)).contains(1L);
+            Assertions.assertThat(second.get(5, TimeUnit.SECONDS)).contains(1L);
+            Assertions.assertThat(third.get(5, TimeUnit.SECONDS)).contains(1L);
+            Assertions.assertThat(loads).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
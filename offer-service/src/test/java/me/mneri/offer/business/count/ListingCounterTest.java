@@ -0,0 +1,166 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.count;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import me.mneri.offer.business.expiry.OfferExpiryScheduler;
+import me.mneri.offer.business.pojo.Count;
+import me.mneri.offer.business.pojo.CountMode;
+import me.mneri.offer.business.query.OfferOrder;
+import me.mneri.offer.business.query.OfferQuery;
+import me.mneri.offer.business.service.OfferService;
+import me.mneri.offer.data.entity.User;
+import me.mneri.offer.data.event.UserChangedEvent;
+import me.mneri.offer.data.repository.UserRepository;
+import me.mneri.offer.test.answer.UnsupportedOperationAnswer;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Unit tests for {@link ListingCounter} class.
+ *
+ * @author Massimo Neri
+ */
+class ListingCounterTest {
+    private static final String FILTER = "price lt 50";
+
+    private static final OfferQuery QUERY = new OfferQuery(
+            FILTER, (root, query, builder) -> builder.conjunction(), offer -> true, OfferOrder.END_TIME);
+
+    private static final OfferQuery SORTED_QUERY = new OfferQuery(
+            FILTER, QUERY.getSpecification(), QUERY.getPredicate(), OfferOrder.PRICE);
+
+    private ListingCounter counter;
+
+    private OfferService offerService;
+
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        OfferExpiryScheduler offerExpiryScheduler = Mockito.mock(OfferExpiryScheduler.class,
+                new UnsupportedOperationAnswer());
+        Mockito.doReturn(42).when(offerExpiryScheduler).getOpenCount();
+
+        offerService = Mockito.mock(OfferService.class, new UnsupportedOperationAnswer());
+        Mockito.doReturn(40L).when(offerService).countAllOpen(OfferQuery.ALL);
+        Mockito.doReturn(7L).when(offerService).countAllOpen(QUERY);
+        Mockito.doReturn(7L).when(offerService).countAllOpen(SORTED_QUERY);
+
+        userRepository = Mockito.mock(UserRepository.class, new UnsupportedOperationAnswer());
+        Mockito.doReturn(3L).when(userRepository).countAllEnabled();
+
+        counter = new ListingCounter(new SimpleMeterRegistry(), offerExpiryScheduler, offerService, userRepository,
+                Duration.ofMinutes(1), 16);
+        counter.load();
+    }
+
+    @Test
+    void givenNoneMode_whenCountIsCalled_thenNothingIsCounted() {
+        // When
+        Count offers = counter.countOpenOffers(QUERY, CountMode.NONE);
+        Count users = counter.countEnabledUsers(null);
+
+        // Then
+        Assertions.assertThat(offers).isNull();
+        Assertions.assertThat(users).isNull();
+        Mockito.verify(offerService, Mockito.never()).countAllOpen(ArgumentMatchers.any());
+    }
+
+    @Test
+    void givenUnfilteredListing_whenApproximateCountIsCalled_thenApproximateCounterIsReturned() {
+        // When
+        Count actual = counter.countOpenOffers(OfferQuery.ALL, CountMode.APPROXIMATE);
+
+        // Then
+        Assertions.assertThat(actual).isEqualTo(new Count(42, false));
+        Mockito.verify(offerService, Mockito.never()).countAllOpen(ArgumentMatchers.any());
+    }
+
+    @Test
+    void givenUnfilteredListing_whenExactCountIsCalled_thenOffersAreCounted() {
+        // When
+        Count actual = counter.countOpenOffers(OfferQuery.ALL, CountMode.EXACT);
+
+        // Then
+        Assertions.assertThat(actual).isEqualTo(new Count(40, true));
+        Mockito.verify(offerService, Mockito.times(1)).countAllOpen(OfferQuery.ALL);
+    }
+
+    @Test
+    void givenSameFilterInAnotherOrder_whenApproximateCountIsCalledTwice_thenOffersAreCountedOnce() {
+        // When
+        Count first = counter.countOpenOffers(QUERY, CountMode.APPROXIMATE);
+        Count second = counter.countOpenOffers(SORTED_QUERY, CountMode.APPROXIMATE);
+
+        // Then
+        Assertions.assertThat(first).isEqualTo(new Count(7, false));
+        Assertions.assertThat(second).isEqualTo(first);
+        Mockito.verify(offerService, Mockito.times(1)).countAllOpen(ArgumentMatchers.any());
+    }
+
+    @Test
+    void givenFilteredListing_whenExactCountIsCalledTwice_thenOffersAreCountedTwice() {
+        // When
+        Count first = counter.countOpenOffers(QUERY, CountMode.EXACT);
+        Count second = counter.countOpenOffers(QUERY, CountMode.EXACT);
+
+        // Then
+        Assertions.assertThat(first).isEqualTo(new Count(7, true));
+        Assertions.assertThat(second).isEqualTo(first);
+        Mockito.verify(offerService, Mockito.times(2)).countAllOpen(QUERY);
+    }
+
+    @Test
+    void givenCreatedUsers_whenCountEnabledUsersIsCalled_thenEnabledUsersAreCounted() {
+        // Given
+        User enabled = Mockito.mock(User.class, new UnsupportedOperationAnswer());
+        Mockito.doReturn(true).when(enabled).isEnabled();
+        User disabled = Mockito.mock(User.class, new UnsupportedOperationAnswer());
+        Mockito.doReturn(false).when(disabled).isEnabled();
+        counter.onUserCreated(enabled);
+        counter.onUserCreated(disabled);
+
+        // When
+        Count actual = counter.countEnabledUsers(CountMode.EXACT);
+
+        // Then
+        Assertions.assertThat(actual).isEqualTo(new Count(4, true));
+    }
+
+    @Test
+    void givenChangedUsers_whenCountEnabledUsersIsCalled_thenEnabledUsersAreNotCountedAgain() {
+        // Given
+        counter.onUserChanged(new UserChangedEvent(UUID.randomUUID(), "disabled", -1));
+        counter.onUserChanged(new UserChangedEvent(UUID.randomUUID(), "renamed", 0));
+
+        // When
+        Count actual = counter.countEnabledUsers(CountMode.EXACT);
+
+        // Then
+        Assertions.assertThat(actual).isEqualTo(new Count(2, true));
+        Mockito.verify(userRepository, Mockito.times(1)).countAllEnabled();
+    }
+}
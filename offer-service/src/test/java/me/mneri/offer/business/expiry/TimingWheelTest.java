@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.expiry;
+
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+class TimingWheelTest {
+    @Test
+    void givenScheduledKey_whenAdvanceIsCalledBeforeTheEndOfItsTick_thenKeyDoesNotExpire() {
+        // Given
+        val wheel = new TimingWheel<String>(10, 4, 0);
+        wheel.schedule("key", 15);
+
+        // When
+        val actual = wheel.advance(19);
+
+        // Then
+        Assertions.assertThat(actual).isEmpty();
+        Assertions.assertThat(wheel.size()).isOne();
+    }
+
+    @Test
+    void givenScheduledKey_whenAdvanceIsCalledPastItsTick_thenKeyExpires() {
+        // Given
+        val wheel = new TimingWheel<String>(10, 4, 0);
+        wheel.schedule("key", 15);
+
+        // When
+        val actual = wheel.advance(20);
+
+        // Then
+        Assertions.assertThat(actual).containsExactly("key");
+        Assertions.assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void givenKeyBeyondTheLowestLevel_whenAdvanceIsCalledPastItsDeadline_thenKeyExpiresOnce() {
+        // Given
+        val wheel = new TimingWheel<String>(10, 4, 0);
+        wheel.schedule("key", 12345);
+
+        // When
+        val early = wheel.advance(12339);
+        val actual = wheel.advance(12350);
+        val late = wheel.advance(100000);
+
+        // Then
+        Assertions.assertThat(early).isEmpty();
+        Assertions.assertThat(actual).containsExactly("key");
+        Assertions.assertThat(late).isEmpty();
+    }
+
+    @Test
+    void givenCancelledKey_whenAdvanceIsCalledPastItsDeadline_thenKeyDoesNotExpire() {
+        // Given
+        val wheel = new TimingWheel<String>(10, 4, 0);
+        wheel.schedule("key", 15);
+
+        // When
+        val cancelled = wheel.cancel("key");
+        val actual = wheel.advance(100);
+
+        // Then
+        Assertions.assertThat(cancelled).isTrue();
+        Assertions.assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void givenRescheduledKey_whenAdvanceIsCalled_thenKeyExpiresAtItsNewDeadline() {
+        // Given
+        val wheel = new TimingWheel<String>(10, 4, 0);
+        wheel.schedule("key", 15);
+        wheel.schedule("key", 500);
+
+        // When
+        val early = wheel.advance(100);
+        val actual = wheel.advance(510);
+
+        // Then
+        Assertions.assertThat(early).isEmpty();
+        Assertions.assertThat(actual).containsExactly("key");
+        Assertions.assertThat(wheel.deadline("key")).isEmpty();
+    }
+
+    @Test
+    void givenPastDeadline_whenScheduleIsCalled_thenKeyIsNotScheduled() {
+        // Given
+        val wheel = new TimingWheel<String>(10, 4, 100);
+
+        // When
+        val actual = wheel.schedule("key", 50);
+
+        // Then
+        Assertions.assertThat(actual).isFalse();
+        Assertions.assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void givenFarDeadline_whenScheduleIsCalled_thenKeyIsKeptWithoutOverflow() {
+        // Given
+        val wheel = new TimingWheel<String>(1000, 64, 0);
+
+        // When
+        wheel.schedule("key", Long.MAX_VALUE);
+        val actual = wheel.advance(1000000);
+
+        // Then
+        Assertions.assertThat(actual).isEmpty();
+        Assertions.assertThat(wheel.deadline("key")).contains(Long.MAX_VALUE);
+    }
+
+    @Test
+    void givenRandomOperations_whenAdvanceIsCalled_thenExactlyTheKeysPastTheirTickExpire() {
+        // Given
+        val random = new Random(42);
+        val wheel = new TimingWheel<Integer>(7, 5, 0);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        long now = 0;
+
+        for (int step = 0; step < 10000; step++) {
+            int key = random.nextInt(500);
+
+            if (random.nextInt(3) > 0) {
+                long deadline = now + random.nextInt(random.nextInt(10) == 0 ? 1000000 : 2000);
+                wheel.schedule(key, deadline);
+                deadlines.put(key, deadline);
+            } else {
+                wheel.cancel(key);
+                deadlines.remove(key);
+            }
+
+            if (random.nextInt(4) == 0) {
+                now += random.nextInt(random.nextInt(20) == 0 ? 100000 : 100);
+                long tickStart = now / 7 * 7;
+
+                // When
+                List<Integer> actual = wheel.advance(now);
+
+                // Then
+                List<Integer> expected = deadlines.entrySet().stream()
+                        .filter(entry -> entry.getValue() < tickStart)
+                        .map(Map.Entry::getKey)
+                        .collect(Collectors.toList());
+                Assertions.assertThat(actual).containsExactlyInAnyOrderElementsOf(expected);
+                new ArrayList<>(expected).forEach(deadlines::remove);
+            }
+        }
+
+        Assertions.assertThat(wheel.size()).isEqualTo(deadlines.size());
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.memory;
+
+import me.mneri.offer.business.cache.VersionedCache;
+import me.mneri.offer.data.entity.EntityFactory;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.entity.User;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Verify that {@link MappedOfferLog} replays the records it appended across segments, stops at a torn record, resumes
+ * the last segment when reopened and drops the segments superseded by a compaction.
+ *
+ * @author Massimo Neri
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "spring.datasource.generate-unique-name=false",
+        "spring.datasource.name=mapped-offer-log"})
+class MappedOfferLogTest {
+    private static final UUID ADMIN_ID = UUID.fromString("b4d9a272-4685-2647-91d6-185b65e60bdf");
+
+    private static final int SEGMENT_SIZE = 512;
+
+    @Autowired
+    private Clock clock;
+
+    @TempDir
+    Path directory;
+
+    @Autowired
+    private EntityFactory entityFactory;
+
+    @Autowired
+    private VersionedCache<UUID, User> userCache;
+
+    @Test
+    void givenAppendedOffers_whenLogIsReplayed_thenOffersAreReplayedAcrossSegments() throws Exception {
+        // Given
+        List<Offer> offers = offers(16);
+        MappedOfferLog offerLog = open();
+        offerLog.append(OfferEventType.CREATED, offers);
+        offerLog.close();
+
+        // When
+        List<Offer> actual = replay();
+
+        // Then
+        Assertions.assertThat(segments()).hasSizeGreaterThan(1);
+        Assertions.assertThat(actual).extracting(Offer::getId)
+                .containsExactlyElementsOf(offers.stream().map(Offer::getId).collect(Collectors.toList()));
+        Assertions.assertThat(actual.get(0).getTitle()).isEqualTo(offers.get(0).getTitle());
+    }
+
+    @Test
+    void givenTornRecord_whenLogIsReplayed_thenReplayStopsBeforeIt() throws Exception {
+        // Given
+        Offer first = offer();
+        Offer torn = offer();
+        MappedOfferLog offerLog = open();
+        offerLog.append(OfferEventType.CREATED, Arrays.asList(first, torn));
+        offerLog.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            // Flip a byte of the content of the second record
+            long position = 8 + file.readInt() + 8 + 1;
+            file.seek(position);
+            byte value = file.readByte();
+            file.seek(position);
+            file.writeByte(~value);
+        }
+
+        // When
+        List<Offer> actual = replay();
+
+        // Then
+        Assertions.assertThat(actual).extracting(Offer::getId).containsExactly(first.getId());
+    }
+
+    @Test
+    void givenReopenedLog_whenOffersAreAppended_thenLastSegmentIsResumed() throws Exception {
+        // Given
+        Offer first = offer();
+        MappedOfferLog offerLog = open();
+        offerLog.append(OfferEventType.CREATED, Collections.singletonList(first));
+        offerLog.close();
+        Offer second = offer();
+
+        // When
+        offerLog = open();
+        offerLog.append(OfferEventType.CREATED, Collections.singletonList(second));
+        offerLog.close();
+
+        // Then
+        Assertions.assertThat(segments()).hasSize(1);
+        Assertions.assertThat(replay()).extracting(Offer::getId).containsExactly(first.getId(), second.getId());
+    }
+
+    @Test
+    void givenTornRecord_whenLogIsReopened_thenOffersAreAppendedInItsPlace() throws Exception {
+        // Given
+        Offer first = offer();
+        Offer torn = offer();
+        Offer last = offer();
+        MappedOfferLog offerLog = open();
+        offerLog.append(OfferEventType.CREATED, Arrays.asList(first, torn, last));
+        offerLog.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            // Flip a byte of the content of the second record
+            long position = 8 + file.readInt() + 8 + 1;
+            file.seek(position);
+            byte value = file.readByte();
+            file.seek(position);
+            file.writeByte(~value);
+        }
+
+        Offer next = offer();
+
+        // When
+        offerLog = open();
+        offerLog.append(OfferEventType.CREATED, Collections.singletonList(next));
+        offerLog.close();
+
+        // Then
+        Assertions.assertThat(segments()).hasSize(1);
+        Assertions.assertThat(replay()).extracting(Offer::getId).containsExactly(first.getId(), next.getId());
+    }
+
+    @Test
+    void givenCompaction_whenLogIsReplayed_thenLatestStatesAreReplayedFromBaseAndNewSegments() throws Exception {
+        // Given
+        List<Offer> offers = offers(8);
+        MappedOfferLog offerLog = open();
+        offerLog.append(OfferEventType.CREATED, offers);
+        Offer original = offers.get(0);
+        Offer cancelled = entityFactory.restoreOffer(original.getId(), original.getCreateTime(),
+                original.getEndTime(), original.getVersion() + 1);
+        cancelled.setCancelled(true);
+        cancelled.setCurrency(original.getCurrency());
+        cancelled.setPrice(original.getPrice());
+        cancelled.setPublisher(original.getPublisher());
+        cancelled.setTitle(original.getTitle());
+        offerLog.append(OfferEventType.CANCELLED, Collections.singletonList(cancelled));
+        long firstSegment = offerLog.roll();
+        Offer created = offer();
+        offerLog.append(OfferEventType.CREATED, Collections.singletonList(created));
+        List<Offer> latest = new ArrayList<>(offers);
+        latest.set(0, cancelled);
+
+        // When
+        offerLog.compact(latest, firstSegment);
+        offerLog.close();
+        Map<UUID, Offer> actual = new LinkedHashMap<>();
+        replay().forEach(offer -> actual.put(offer.getId(), offer));
+
+        // Then
+        Assertions.assertThat(segments()).hasSize(1);
+        Assertions.assertThat(actual).hasSize(offers.size() + 1).containsKey(created.getId());
+        Assertions.assertThat(actual.get(cancelled.getId()).isCancelled()).isTrue();
+    }
+
+    private Offer offer() {
+        Offer offer = entityFactory.restoreOffer(UUID.randomUUID(), new Date(clock.millis()),
+                new Date(clock.millis() + 60 * 60 * 1000L), 0);
+        offer.setCurrency("EUR");
+        offer.setPrice(BigDecimal.TEN);
+        offer.setPublisher(userCache.get(ADMIN_ID).orElseThrow(IllegalStateException::new));
+        offer.setTitle("title");
+        return offer;
+    }
+
+    private List<Offer> offers(int count) {
+        List<Offer> offers = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            offers.add(offer());
+        }
+
+        return offers;
+    }
+
+    private MappedOfferLog open() throws IOException {
+        MappedOfferLog offerLog = new MappedOfferLog(directory, entityFactory, false, SEGMENT_SIZE);
+        offerLog.open();
+        return offerLog;
+    }
+
+    private List<Offer> replay() throws IOException {
+        List<Offer> offers = new ArrayList<>();
+        new MappedOfferLog(directory, entityFactory, false, SEGMENT_SIZE).replay(userCache::get, offers::add);
+        return offers;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths
+                    .filter(path -> path.getFileName().toString().startsWith("segment-"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
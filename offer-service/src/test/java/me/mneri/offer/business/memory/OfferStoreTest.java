@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.memory;
+
+import me.mneri.offer.business.cache.VersionedCache;
+import me.mneri.offer.business.expiry.OfferExpiryScheduler;
+import me.mneri.offer.business.search.OfferSearchIndex;
+import me.mneri.offer.data.entity.EntityFactory;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.entity.User;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Verify that {@link OfferStore} indexes the open offers in listing order and recovers its content, from the snapshot
+ * and the change log, after a restart.
+ *
+ * @author Massimo Neri
+ */
+@ActiveProfiles({"memory", "test"})
+@SpringBootTest(properties = {"spring.datasource.generate-unique-name=false", "spring.datasource.name=offer-store"})
+class OfferStoreTest {
+    private static final UUID ADMIN_ID = UUID.fromString("b4d9a272-4685-2647-91d6-185b65e60bdf");
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    @Autowired
+    private Clock clock;
+
+    @Autowired
+    private EntityFactory entityFactory;
+
+    @Autowired
+    private OfferExpiryScheduler offerExpiryScheduler;
+
+    @Autowired
+    private OfferSearchIndex offerSearchIndex;
+
+    @Autowired
+    private OfferStore offerStore;
+
+    @Autowired
+    private VersionedCache<UUID, User> userCache;
+
+    @Test
+    void givenOffers_whenFindOpenAfterIsCalled_thenOpenOffersAreReturnedByEndTime() {
+        // Given
+        long now = clock.millis();
+        Offer later = offer(now + 2 * HOUR);
+        Offer sooner = offer(now + HOUR);
+        Offer expired = offer(now - HOUR);
+        offerStore.insertAll(Arrays.asList(later, sooner, expired));
+
+        // When
+        Collection<UUID> actual = ids(offerStore.findOpenAfter(new Date(now), null, null));
+
+        // Then
+        Assertions.assertThat(actual)
+                .containsSubsequence(sooner.getId(), later.getId())
+                .doesNotContain(expired.getId());
+    }
+
+    @Test
+    void givenSnapshotAndChangeLog_whenStoreIsRecovered_thenLatestStatesAreRestored(@TempDir Path directory)
+            throws Exception {
+        // Given
+        long now = clock.millis();
+        Offer cancelled = offer(now + HOUR);
+        Offer beforeSnapshot = offer(now + HOUR);
+        Offer afterSnapshot = offer(now + HOUR);
+        OfferStore store = store(directory);
+        store.recover();
+        store.insertAll(Arrays.asList(cancelled, beforeSnapshot));
+        Offer cancelledCopy = entityFactory.restoreOffer(cancelled.getId(), cancelled.getCreateTime(),
+                cancelled.getEndTime(), cancelled.getVersion() + 1);
+        cancelledCopy.setCancelled(true);
+        cancelledCopy.setCurrency(cancelled.getCurrency());
+        cancelledCopy.setPrice(cancelled.getPrice());
+        cancelledCopy.setPublisher(cancelled.getPublisher());
+        store.replace(cancelled, cancelledCopy);
+        store.snapshot();
+        store.insertAll(Collections.singletonList(afterSnapshot));
+        store.close();
+
+        // When
+        OfferStore recovered = store(directory);
+        recovered.recover();
+        recovered.close();
+
+        // Then
+        Assertions.assertThat(recovered.get(cancelled.getId())).hasValueSatisfying(offer ->
+                Assertions.assertThat(offer.isCancelled()).isTrue());
+        Assertions.assertThat(ids(recovered.findOpenAfter(new Date(now), null, null)))
+                .contains(beforeSnapshot.getId(), afterSnapshot.getId())
+                .doesNotContain(cancelled.getId());
+    }
+
+    private Collection<UUID> ids(Collection<Offer> offers) {
+        return offers.stream().map(Offer::getId).collect(Collectors.toList());
+    }
+
+    private Offer offer(long endTime) {
+        Offer offer = entityFactory.restoreOffer(UUID.randomUUID(), new Date(clock.millis()), new Date(endTime), 0);
+        offer.setCurrency("EUR");
+        offer.setPrice(BigDecimal.TEN);
+        offer.setPublisher(userCache.get(ADMIN_ID).orElseThrow(IllegalStateException::new));
+        offer.setTitle("title");
+        return offer;
+    }
+
+    private OfferStore store(Path directory) {
+        return new OfferStore(clock, entityFactory, offerExpiryScheduler, offerSearchIndex, userCache, "mapped",
+                directory.toString(), false, DataSize.ofMegabytes(1), Duration.ofDays(1));
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.query;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import me.mneri.offer.business.exception.IllegalOfferQueryException;
+import me.mneri.offer.business.pojo.Cursor;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.test.answer.UnsupportedOperationAnswer;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Unit tests for {@link OfferQueryCompiler} class.
+ *
+ * @author Massimo Neri
+ */
+class OfferQueryCompilerTest {
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private static final Date NOW = Date.from(Instant.parse("2020-01-01T08:00:00Z"));
+
+    private OfferQueryCompiler compiler;
+
+    @BeforeEach
+    void setUp() {
+        Clock clock = Mockito.mock(Clock.class, new UnsupportedOperationAnswer());
+        Mockito.doReturn(NOW.getTime()).when(clock).millis();
+
+        compiler = new OfferQueryCompiler(clock, new SimpleMeterRegistry(), 16);
+    }
+
+    @Test
+    void givenNoExpression_whenCompileIsCalled_thenAllIsReturned() throws IllegalOfferQueryException {
+        // Given
+        String filter = " ";
+
+        // When
+        OfferQuery actual = compiler.compile(filter, null);
+
+        // Then
+        Assertions.assertThat(actual).isSameAs(OfferQuery.ALL);
+    }
+
+    @Test
+    void givenFilter_whenCompileIsCalled_thenPredicateSelectsMatchingOffers() throws IllegalOfferQueryException {
+        // Given
+        Offer cheap = offer("9.99", "GBP", NOW.getTime() + HOUR / 2);
+        Offer expensive = offer("99.00", "GBP", NOW.getTime() + HOUR / 2);
+        Offer euro = offer("9.99", "EUR", NOW.getTime() + HOUR / 2);
+        Offer late = offer("9.99", "GBP", NOW.getTime() + 2 * HOUR);
+
+        // When
+        OfferQuery query = compiler.compile("currency eq gbp and price lt 50 and endTime lt PT1H", null);
+
+        // Then
+        List<Offer> actual = Arrays.asList(cheap, expensive, euro, late).stream()
+                .filter(query.getPredicate())
+                .collect(Collectors.toList());
+        Assertions.assertThat(actual).containsExactly(cheap);
+        Assertions.assertThat(query.getSpecification()).isNotNull();
+        Assertions.assertThat(query.getOrder()).isEqualTo(OfferOrder.END_TIME);
+    }
+
+    @Test
+    void givenSameExpressions_whenCompileIsCalledTwice_thenCachedQueryIsReturned()
+            throws IllegalOfferQueryException {
+        // Given
+        OfferQuery expected = compiler.compile("price ge 10", "-price");
+
+        // When
+        OfferQuery actual = compiler.compile("price ge 10", "-price");
+
+        // Then
+        Assertions.assertThat(actual).isSameAs(expected);
+        Assertions.assertThat(actual.getOrder()).isEqualTo(OfferOrder.PRICE_DESC);
+    }
+
+    @Test
+    void givenDifferentlySpacedExpressions_whenCompileIsCalled_thenCachedQueryIsReturned()
+            throws IllegalOfferQueryException {
+        // Given
+        OfferQuery expected = compiler.compile("price ge 10 and currency eq GBP", "-price");
+
+        // When
+        OfferQuery actual = compiler.compile("  price GE  10  and currency eq GBP ", " -price");
+
+        // Then
+        Assertions.assertThat(actual).isSameAs(expected);
+        Assertions.assertThat(actual.getFilter()).isEqualTo("price ge 10 and currency eq GBP");
+    }
+
+    @Test
+    void givenIllegalExpressions_whenCompileIsCalled_thenIllegalOfferQueryExceptionIsThrown() {
+        // Given
+        List<String[]> expressions = Arrays.asList(
+                new String[]{"price", null},
+                new String[]{"price xx 10", null},
+                new String[]{"price lt ten", null},
+                new String[]{"currency lt GBP", null},
+                new String[]{"endTime eq PT1H", null},
+                new String[]{"title eq Coffee", null},
+                new String[]{null, "title"});
+
+        for (String[] expression : expressions) {
+            // When
+            Throwable actual = Assertions.catchThrowable(() -> compiler.compile(expression[0], expression[1]));
+
+            // Then
+            Assertions.assertThat(actual).isInstanceOf(IllegalOfferQueryException.class);
+        }
+    }
+
+    @Test
+    void givenDescendingOrder_whenCursorIsUsed_thenOnlyFollowingOffersAreAfter() {
+        // Given
+        Offer first = offer("20.00", "GBP", NOW.getTime() + HOUR);
+        Offer second = offer("10.00", "GBP", NOW.getTime() + HOUR);
+        Cursor cursor = new Cursor(OfferOrder.PRICE_DESC.key(first), first.getId());
+
+        // When
+        boolean firstIsAfter = OfferOrder.PRICE_DESC.isAfter(first, cursor);
+        boolean secondIsAfter = OfferOrder.PRICE_DESC.isAfter(second, cursor);
+
+        // Then
+        Assertions.assertThat(firstIsAfter).isFalse();
+        Assertions.assertThat(secondIsAfter).isTrue();
+    }
+
+    private static Offer offer(String price, String currency, long endTime) {
+        Offer offer = Mockito.mock(Offer.class, new UnsupportedOperationAnswer());
+        Mockito.doReturn(UUID.randomUUID()).when(offer).getId();
+        Mockito.doReturn(new BigDecimal(price)).when(offer).getPrice();
+        Mockito.doReturn(currency).when(offer).getCurrency();
+        Mockito.doReturn(new Date(endTime)).when(offer).getEndTime();
+        return offer;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.search;
+
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.repository.OfferViewRepository;
+import me.mneri.offer.test.answer.UnsupportedOperationAnswer;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Unit tests for {@link OfferSearchIndex} class.
+ *
+ * @author Massimo Neri
+ */
+class OfferSearchIndexTest {
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private static final Date NOW = Date.from(Instant.parse("2020-01-01T08:00:00Z"));
+
+    private OfferSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        Clock clock = Mockito.mock(Clock.class, new UnsupportedOperationAnswer());
+        Mockito.doReturn(NOW.getTime()).when(clock).millis();
+
+        index = new OfferSearchIndex(clock, Mockito.mock(OfferViewRepository.class, new UnsupportedOperationAnswer()));
+    }
+
+    @Test
+    void givenOffers_whenSearchIsCalled_thenMatchingOffersAreReturnedByRelevance() {
+        // Given
+        Offer mentioned = offer("Coffee machine", "Grinds the coffee beans and brews an excellent espresso.");
+        Offer repeated = offer("Coffee", "Coffee, coffee and coffee.");
+        Offer unrelated = offer("Tea pot", "Brews tea.");
+        index.index(mentioned);
+        index.index(repeated);
+        index.index(unrelated);
+
+        // When
+        List<UUID> actual = index.search("COFFEE", NOW, 0, 10);
+
+        // Then
+        Assertions.assertThat(actual).containsExactly(repeated.getId(), mentioned.getId());
+    }
+
+    @Test
+    void givenDiacritics_whenSearchIsCalled_thenTermsAreFolded() {
+        // Given
+        Offer offer = offer("Café crème", null);
+        index.index(offer);
+
+        // When
+        List<UUID> actual = index.search("cafe-creme", NOW, 0, 10);
+
+        // Then
+        Assertions.assertThat(actual).containsExactly(offer.getId());
+    }
+
+    @Test
+    void givenUpdatedOffer_whenSearchIsCalled_thenOnlyTheLatestTextMatches() {
+        // Given
+        Offer offer = offer("Bicycle", "Red frame.");
+        index.index(offer);
+        index.index(offer(offer.getId(), "Bicycle", "Blue frame.", new Date(NOW.getTime() + HOUR)));
+
+        // When
+        List<UUID> red = index.search("red", NOW, 0, 10);
+        List<UUID> blue = index.search("blue", NOW, 0, 10);
+
+        // Then
+        Assertions.assertThat(red).isEmpty();
+        Assertions.assertThat(blue).containsExactly(offer.getId());
+        Assertions.assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void givenRemovedAndEndedOffers_whenSearchIsCalled_thenOnlyOpenOffersAreReturned() {
+        // Given
+        Offer open = offer("Lamp", null);
+        Offer removed = offer("Lamp", null);
+        Offer ended = offer(UUID.randomUUID(), "Lamp", null, new Date(NOW.getTime() - HOUR));
+        index.index(open);
+        index.index(removed);
+        index.index(ended);
+        index.remove(removed.getId());
+
+        // When
+        List<UUID> actual = index.search("lamp", NOW, 0, 10);
+
+        // Then
+        Assertions.assertThat(actual).containsExactly(open.getId());
+    }
+
+    @Test
+    void givenManyRemovedOffers_whenSearchIsCalled_thenRemainingOffersAreReturnedAfterCompaction() {
+        // Given
+        List<Offer> offers = new ArrayList<>();
+
+        for (int i = 0; i < 3000; i++) {
+            Offer offer = offer("Chair " + (i % 2 == 0 ? "oak" : "pine"), null);
+            offers.add(offer);
+            index.index(offer);
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            index.remove(offers.get(i).getId());
+        }
+
+        // When
+        List<UUID> actual = index.search("oak", NOW, 0, 1000);
+
+        // Then
+        Set<UUID> remaining = offers.subList(2000, 3000).stream().map(Offer::getId).collect(Collectors.toSet());
+
+        Assertions.assertThat(index.size()).isEqualTo(1000);
+        Assertions.assertThat(actual).hasSize(500).isSubsetOf(remaining);
+    }
+
+    @Test
+    void givenMoreMatchesThanThePageSize_whenSearchIsCalled_thenSliceHasNext() {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            index.index(offer("Desk", null));
+        }
+
+        // When
+        Slice<UUID> first = index.search("desk", NOW, PageRequest.of(0, 3));
+        Slice<UUID> second = index.search("desk", NOW, PageRequest.of(1, 3));
+
+        // Then
+        Assertions.assertThat(first.getContent()).hasSize(3);
+        Assertions.assertThat(first.hasNext()).isTrue();
+        Assertions.assertThat(second.getContent()).hasSize(2).doesNotContainAnyElementsOf(first.getContent());
+        Assertions.assertThat(second.hasNext()).isFalse();
+    }
+
+    private Offer offer(String title, String description) {
+        return offer(UUID.randomUUID(), title, description, new Date(NOW.getTime() + HOUR));
+    }
+
+    private Offer offer(UUID id, String title, String description, Date endTime) {
+        Offer offer = Mockito.mock(Offer.class, new UnsupportedOperationAnswer());
+        Mockito.doReturn(id).when(offer).getId();
+        Mockito.doReturn(title).when(offer).getTitle();
+        Mockito.doReturn(description).when(offer).getDescription();
+        Mockito.doReturn(endTime).when(offer).getEndTime();
+        return offer;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.search;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unit tests for {@link ScoreTable} class.
+ *
+ * @author Massimo Neri
+ */
+class ScoreTableTest {
+    @Test
+    void givenMoreDocumentsThanExpected_whenAddIsCalled_thenEveryScoreIsAccumulated() {
+        // Given
+        ScoreTable table = new ScoreTable(1);
+        Map<Integer, Float> expected = new HashMap<>();
+
+        // When
+        for (int i = 0; i < 1000; i++) {
+            int doc = i % 300 * 7;
+            table.add(doc, 1f);
+            expected.merge(doc, 1f, Float::sum);
+        }
+
+        // Then
+        Map<Integer, Float> actual = new HashMap<>();
+
+        for (int slot = 0; slot < table.capacity(); slot++) {
+            if (table.doc(slot) != ScoreTable.FREE) {
+                actual.put(table.doc(slot), table.score(slot));
+            }
+        }
+
+        Assertions.assertThat(table.size()).isEqualTo(expected.size());
+        Assertions.assertThat(table.capacity()).isGreaterThanOrEqualTo(2 * table.size());
+        Assertions.assertThat(actual).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.service;
+
+import lombok.val;
+import me.mneri.offer.data.converter.UUIDCodec;
+import me.mneri.offer.data.repository.UserRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.UUID;
+
+/**
+ * Verify the decisions of {@link AuthHelper} that don't depend on a single loaded offer.
+ *
+ * @author Massimo Neri
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = {"spring.datasource.generate-unique-name=false", "spring.datasource.name=auth-helper"})
+class AuthHelperTest {
+    @Autowired
+    private AuthHelper authHelper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    @WithMockUser(username = "admin", authorities = "offer:write")
+    void givenNoOffers_whenCanModifyAllIsCalled_thenTrueIsReturned() {
+        // Given
+        val offerIds = Collections.<UUID>emptyList();
+
+        // When
+        val actual = authHelper.canModifyAll(offerIds, "offer:write-any");
+
+        // Then
+        Assertions.assertThat(actual).isTrue();
+    }
+
+    @Test
+    void givenCachedUser_whenUserIsRenamed_thenPreviousUsernameIsDenied() {
+        // Given
+        val userId = UUID.randomUUID();
+        jdbcTemplate.update("insert into user (id, username, password, enabled) values (?, 'before', 'password', true)",
+                UUIDCodec.encode(userId));
+        Assertions.assertThat(authHelper.isUsernameEqualTo(userId, "before")).isTrue();
+        Assertions.assertThat(userDetailsService.loadUserByUsername("before").getUsername()).isEqualTo("before");
+
+        // When
+        transactionTemplate.executeWithoutResult(status -> userRepository
+                .findById(userId)
+                .orElseThrow(IllegalStateException::new)
+                .setUsername("after"));
+
+        // Then
+        Assertions.assertThat(authHelper.isUsernameEqualTo(userId, "before")).isFalse();
+        Assertions.assertThat(authHelper.isUsernameEqualTo(userId, "after")).isTrue();
+        Assertions.assertThat(Assertions.catchThrowable(() -> userDetailsService.loadUserByUsername("before")))
+                .isInstanceOf(UsernameNotFoundException.class);
+        Assertions.assertThat(userDetailsService.loadUserByUsername("after").getUsername()).isEqualTo("after");
+    }
+}
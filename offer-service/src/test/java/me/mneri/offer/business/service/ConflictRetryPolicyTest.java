@@ -0,0 +1,96 @@
+package me.mneri.offer.business.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+/**
+ * Unit tests for {@link ConflictRetryPolicy} class.
+ *
+ * @author Massimo Neri
+ */
+class ConflictRetryPolicyTest {
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Never leak the interrupt flag to the next test running on this thread
+        Thread.interrupted();
+    }
+
+    @Test
+    void givenAttemptBelowMaxAttempts_whenRetryIsCalled_thenTrueIsReturned() {
+        // Given
+        ConflictRetryPolicy policy = new ConflictRetryPolicy(Duration.ZERO, 3, meterRegistry);
+
+        // When
+        boolean actual = policy.retry(2);
+
+        // Then
+        Assertions.assertThat(actual).isTrue();
+        Assertions.assertThat(meterRegistry.counter("offer.update.conflicts").count()).isEqualTo(1);
+        Assertions.assertThat(meterRegistry.counter("offer.update.retries").count()).isEqualTo(1);
+    }
+
+    @Test
+    void givenInterruptedThread_whenRetryIsCalled_thenFalseIsReturnedAndInterruptIsKept() {
+        // Given
+        ConflictRetryPolicy policy = new ConflictRetryPolicy(Duration.ofMinutes(1), 3, meterRegistry);
+        Thread.currentThread().interrupt();
+
+        // When
+        boolean actual = policy.retry(1);
+
+        // Then
+        Assertions.assertThat(actual).isFalse();
+        Assertions.assertThat(Thread.currentThread().isInterrupted()).isTrue();
+        Assertions.assertThat(meterRegistry.counter("offer.update.retries").count()).isZero();
+    }
+
+    @Test
+    void givenLastAttempt_whenRetryIsCalled_thenFalseIsReturned() {
+        // Given
+        ConflictRetryPolicy policy = new ConflictRetryPolicy(Duration.ofMinutes(1), 3, meterRegistry);
+
+        // When
+        boolean actual = policy.retry(3);
+
+        // Then
+        Assertions.assertThat(actual).isFalse();
+        Assertions.assertThat(meterRegistry.counter("offer.update.conflicts").count()).isEqualTo(1);
+        Assertions.assertThat(meterRegistry.counter("offer.update.retries").count()).isZero();
+    }
+
+    @Test
+    void givenManyAttempts_whenRetryIsCalled_thenWaitIsBounded() {
+        // Given
+        ConflictRetryPolicy policy = new ConflictRetryPolicy(Duration.ofMillis(1), Integer.MAX_VALUE, meterRegistry);
+        long start = System.nanoTime();
+
+        // When
+        boolean actual = policy.retry(64);
+
+        // Then
+        Assertions.assertThat(actual).isTrue();
+        Assertions.assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void givenMaxAttemptsLessThanOne_whenPolicyIsCreated_thenIllegalArgumentExceptionIsThrown() {
+        // When
+        Throwable actual = Assertions.catchThrowable(() -> new ConflictRetryPolicy(Duration.ZERO, 0, meterRegistry));
+
+        // Then
+        Assertions.assertThat(actual).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.service;
+
+import lombok.val;
+import me.mneri.offer.business.exception.OfferUpdateConflictException;
+import me.mneri.offer.business.pojo.OfferUpdate;
+import me.mneri.offer.data.converter.UUIDCodec;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.entity.Offer_;
+import me.mneri.offer.data.repository.OfferBulkRepository;
+import me.mneri.offer.data.repository.OfferRepository;
+import me.mneri.offer.data.specification.OfferSpec;
+import org.assertj.core.api.Assertions;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Verify the behaviour of {@link OfferServiceJpa} against its own database.
+ * <p>
+ * Along with the cases of {@link OfferServiceTest}, this verifies the streaming of the open offers, the conditional
+ * update statement and the set-based ownership check.
+ *
+ * @author Massimo Neri
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = {"spring.datasource.generate-unique-name=false", "spring.datasource.name=offer-service"})
+class OfferServiceJpaTest extends OfferServiceTest {
+    @Autowired
+    private AuthHelper authHelper;
+
+    @SpyBean
+    private ConflictRetryPolicy conflictRetryPolicy;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Value("${business.update.max-attempts}")
+    private int maxAttempts;
+
+    @SpyBean
+    private OfferBulkRepository offerBulkRepository;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Test
+    @WithMockUser
+    void givenMoreOffersThanTheFetchSize_whenForEachOpenIsCalled_thenPersistenceContextIsCleared() {
+        // Given
+        val fetchSize = Integer.parseInt(OfferRepository.STREAM_FETCH_SIZE);
+        jdbcTemplate.update("insert into offer (id, title, description, publisher, price, currency, cancelled, "
+                + "create_time, end_time) select random_uuid(), 'title', 'description', ?, 10, 'EUR', false, now(), "
+                + "dateadd('DAY', 1, now()) from system_range(1, ?)", UUIDCodec.encode(ADMIN_ID), 2 * fetchSize + 1);
+        val visited = new AtomicInteger();
+        val maxManaged = new AtomicInteger();
+
+        // When
+        offerService.forEachOpen(offer -> {
+            visited.incrementAndGet();
+            // Inside the transaction of forEachOpen, the shared entity manager is the one streaming the offers
+            int managed = entityManager.unwrap(Session.class).getStatistics().getEntityCount();
+            maxManaged.accumulateAndGet(managed, Math::max);
+        });
+
+        // Then
+        Assertions.assertThat(visited.get()).isGreaterThan(2 * fetchSize);
+        Assertions.assertThat(maxManaged.get()).isLessThanOrEqualTo(fetchSize);
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = "offer:write")
+    void givenMixedOwnership_whenCanModifyAllIsCalled_thenFalseIsReturned() {
+        // Given
+        val offerIds = Arrays.asList(insertOffer(ADMIN_ID), insertOffer(OTHER_ID));
+
+        // When
+        val actual = authHelper.canModifyAll(offerIds, "offer:write-any");
+
+        // Then
+        Assertions.assertThat(actual).isFalse();
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = "offer:write")
+    void givenOwnOffers_whenCanModifyAllIsCalled_thenTrueIsReturned() {
+        // Given
+        val offerIds = Arrays.asList(insertOffer(ADMIN_ID), insertOffer(ADMIN_ID));
+
+        // When
+        val actual = authHelper.canModifyAll(offerIds, "offer:write-any");
+
+        // Then
+        Assertions.assertThat(actual).isTrue();
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = "offer:write")
+    void givenPersistentConflict_whenUpdateIsCalled_thenOfferUpdateConflictExceptionIsThrown() {
+        // Given
+        val offerId = insertOffer(ADMIN_ID);
+        val update = new OfferUpdate();
+        update.setTitle("Updated");
+        Mockito.doReturn(false).when(offerBulkRepository)
+                .updateIfOpen(ArgumentMatchers.any(), ArgumentMatchers.anyLong(), ArgumentMatchers.any());
+        val backedOffInTransaction = new AtomicBoolean();
+        Mockito.doAnswer(invocation -> {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                backedOffInTransaction.set(true);
+            }
+
+            return invocation.callRealMethod();
+        }).when(conflictRetryPolicy).retry(ArgumentMatchers.anyInt());
+
+        // When
+        val actual = Assertions.catchThrowable(() -> offerService.update(offerId, update));
+
+        // Then
+        Assertions.assertThat(actual).isInstanceOf(OfferUpdateConflictException.class);
+        Assertions.assertThat(((OfferUpdateConflictException) actual).getOfferId()).isEqualTo(offerId);
+        Mockito.verify(offerBulkRepository, Mockito.times(maxAttempts))
+                .updateIfOpen(ArgumentMatchers.any(), ArgumentMatchers.anyLong(), ArgumentMatchers.any());
+        Assertions.assertThat(backedOffInTransaction).isFalse();
+        Assertions.assertThat(titleOf(offerId)).isEqualTo("title");
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Closed offers are found in the archive.
+     */
+    @Override
+    protected UUID insertClosedOffer(UUID publisherId) {
+        UUID offerId = UUID.randomUUID();
+        long now = clock.millis();
+        jdbcTemplate.update("insert into offer_archive (id, title, description, publisher, price, currency, "
+                        + "cancelled, create_time, end_time, archive_time) "
+                        + "values (?, 'title', 'description', ?, 10, 'EUR', true, ?, ?, ?)",
+                UUIDCodec.encode(offerId), UUIDCodec.encode(publisherId), new Timestamp(now - 2 * DAY),
+                new Timestamp(now - DAY), new Timestamp(now - DAY));
+        return offerId;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void insertOffer(UUID offerId, UUID publisherId, BigDecimal price, boolean cancelled, Date endTime) {
+        jdbcTemplate.update("insert into offer (id, title, description, publisher, price, currency, cancelled, "
+                        + "create_time, end_time) values (?, 'title', 'description', ?, ?, 'EUR', ?, ?, ?)",
+                UUIDCodec.encode(offerId), UUIDCodec.encode(publisherId), price, cancelled,
+                new Timestamp(clock.millis()), new Timestamp(endTime.getTime()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean isCancelled(UUID offerId) {
+        return jdbcTemplate.queryForObject("select cancelled from offer where id = ?", Boolean.class,
+                UUIDCodec.encode(offerId));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<UUID> openOfferIds(UUID publisherId) {
+        val spec = publisherId == null
+                ? OfferSpec.isOpen(clock)
+                : OfferSpec.isOpen(clock).and(OfferSpec.publisherIdIsEqualTo(publisherId));
+
+        return offerRepository
+                .findAll(spec, Sort.by(Offer_.END_TIME, Offer_.ID))
+                .stream()
+                .map(Offer::getId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String titleOf(UUID offerId) {
+        return jdbcTemplate.queryForObject("select title from offer where id = ?", String.class,
+                UUIDCodec.encode(offerId));
+    }
+}
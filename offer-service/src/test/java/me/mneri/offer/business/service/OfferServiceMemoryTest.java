@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.service;
+
+import lombok.val;
+import me.mneri.offer.business.cache.VersionedCache;
+import me.mneri.offer.business.exception.OfferUpdateConflictException;
+import me.mneri.offer.business.memory.OfferStore;
+import me.mneri.offer.business.pojo.OfferUpdate;
+import me.mneri.offer.data.entity.EntityFactory;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.entity.User;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Verify the behaviour of {@link OfferServiceMemory} against its own offer store.
+ * <p>
+ * Along with the cases of {@link OfferServiceTest}, this verifies that an update replacing a state written meanwhile
+ * is retried.
+ *
+ * @author Massimo Neri
+ */
+@ActiveProfiles({"memory", "test"})
+@SpringBootTest(properties = {
+        "spring.datasource.generate-unique-name=false",
+        "spring.datasource.name=offer-service-memory"})
+class OfferServiceMemoryTest extends OfferServiceTest {
+    @Autowired
+    private EntityFactory entityFactory;
+
+    @Value("${business.update.max-attempts}")
+    private int maxAttempts;
+
+    @SpyBean
+    private OfferStore offerStore;
+
+    @Autowired
+    private VersionedCache<UUID, User> userCache;
+
+    @Test
+    @WithMockUser(username = "admin", authorities = "offer:write")
+    void givenPersistentConflict_whenUpdateIsCalled_thenOfferUpdateConflictExceptionIsThrown() {
+        // Given
+        val offerId = insertOffer(ADMIN_ID);
+        val update = new OfferUpdate();
+        update.setTitle("Updated");
+        Mockito.doReturn(false).when(offerStore).replace(ArgumentMatchers.any(), ArgumentMatchers.any());
+
+        // When
+        val actual = Assertions.catchThrowable(() -> offerService.update(offerId, update));
+
+        // Then
+        Assertions.assertThat(actual).isInstanceOf(OfferUpdateConflictException.class);
+        Assertions.assertThat(((OfferUpdateConflictException) actual).getOfferId()).isEqualTo(offerId);
+        Mockito.verify(offerStore, Mockito.times(maxAttempts))
+                .replace(ArgumentMatchers.any(), ArgumentMatchers.any());
+        Assertions.assertThat(titleOf(offerId)).isEqualTo("title");
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Closed offers stay in the store until the retention has elapsed.
+     */
+    @Override
+    protected UUID insertClosedOffer(UUID publisherId) {
+        UUID offerId = UUID.randomUUID();
+        insertOffer(offerId, publisherId, BigDecimal.TEN, true, new Date(clock.millis() - DAY));
+        return offerId;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void insertOffer(UUID offerId, UUID publisherId, BigDecimal price, boolean cancelled, Date endTime) {
+        Offer offer = entityFactory.restoreOffer(offerId, new Date(clock.millis()), endTime, 0);
+        offer.setCancelled(cancelled);
+        offer.setCurrency("EUR");
+        offer.setDescription("description");
+        offer.setPrice(price);
+        offer.setPublisher(userCache.get(publisherId).orElseThrow(IllegalStateException::new));
+        offer.setTitle("title");
+        offerStore.insertAll(Collections.singletonList(offer));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean isCancelled(UUID offerId) {
+        return offerStore.get(offerId).map(Offer::isCancelled).orElseThrow(IllegalStateException::new);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<UUID> openOfferIds(UUID publisherId) {
+        Date now = new Date(clock.millis());
+        Collection<Offer> offers = publisherId == null
+                ? offerStore.findOpenAfter(now, null, null)
+                : offerStore.findOpenByPublisherAfter(publisherId, now, null, null);
+
+        return offers.stream().map(Offer::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String titleOf(UUID offerId) {
+        return offerStore.get(offerId).map(Offer::getTitle).orElseThrow(IllegalStateException::new);
+    }
+}
@@ -0,0 +1,510 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.business.service;
+
+import lombok.val;
+import me.mneri.offer.business.exception.IllegalOfferQueryException;
+import me.mneri.offer.business.exception.OfferIsCancelledException;
+import me.mneri.offer.business.exception.OfferIsExpiredException;
+import me.mneri.offer.business.exception.UserIsNotEnabledException;
+import me.mneri.offer.business.exception.UserNotFoundException;
+import me.mneri.offer.business.pojo.Cursor;
+import me.mneri.offer.business.pojo.OfferCreate;
+import me.mneri.offer.business.pojo.OfferUpdate;
+import me.mneri.offer.business.pojo.Paging;
+import me.mneri.offer.business.query.OfferQuery;
+import me.mneri.offer.business.query.OfferQueryCompiler;
+import me.mneri.offer.data.converter.UUIDCodec;
+import me.mneri.offer.data.entity.Offer;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Verify the behaviour shared by the {@link OfferService} engines; each subclass runs the cases against one engine.
+ * <p>
+ * The engine is populated with a few publishers and offers sharing their end times, so that the id tie-break of the
+ * cursors is exercised. Users live in the database under every engine.
+ *
+ * @author Massimo Neri
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+abstract class OfferServiceTest {
+    protected static final UUID ADMIN_ID = UUID.fromString("b4d9a272-4685-2647-91d6-185b65e60bdf");
+
+    protected static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private static final UUID FILTERED_ID = UUID.fromString("5b0f7e8c-2a61-4d3e-8c4f-7a9d1e6b2c30");
+
+    protected static final UUID OTHER_ID = UUID.fromString("0e6f3a52-7d1c-4f0b-9a43-2f4c8f6d1b70");
+
+    @Autowired
+    protected Clock clock;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OfferQueryCompiler offerQueryCompiler;
+
+    @Autowired
+    protected OfferService offerService;
+
+    @BeforeAll
+    void populate() {
+        List<UUID> publisherIds = new ArrayList<>(Arrays.asList(ADMIN_ID, OTHER_ID));
+        insertUser(OTHER_ID, "other", true);
+        insertUser(FILTERED_ID, "filtered", true);
+
+        for (int i = 1; i <= 5; i++) {
+            UUID userId = UUID.randomUUID();
+            insertUser(userId, "user" + i, true);
+            publisherIds.add(userId);
+        }
+
+        long now = clock.millis();
+
+        for (UUID publisherId : publisherIds) {
+            for (int x = 1; x <= 20; x++) {
+                insertOffer(UUID.randomUUID(), publisherId, BigDecimal.TEN, x % 10 == 0,
+                        new Date(now + (x % 4 - 1) * DAY));
+            }
+        }
+    }
+
+    @Test
+    @WithMockUser
+    void givenCursorPages_whenFindAllOpenIsCalled_thenEveryOpenOfferIsReturnedOnceInOrder() throws Exception {
+        // Given
+        val expected = openOfferIds(null);
+
+        // When
+        val actual = walk(null);
+
+        // Then
+        Assertions.assertThat(expected).isNotEmpty();
+        Assertions.assertThat(actual).doesNotHaveDuplicates().containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    @WithMockUser
+    void givenCursorPages_whenFindAllOpenByPublisherIdIsCalled_thenEveryOpenOfferOfThePublisherIsReturnedOnceInOrder()
+            throws Exception {
+        // Given
+        val expected = openOfferIds(ADMIN_ID);
+
+        // When
+        val actual = walk(ADMIN_ID);
+
+        // Then
+        Assertions.assertThat(expected).isNotEmpty();
+        Assertions.assertThat(actual).doesNotHaveDuplicates().containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = "offer:delete")
+    void givenCancelledOffer_whenDeleteIsCalled_thenOfferIsCancelledExceptionIsThrown() {
+        // Given
+        val offerId = UUID.randomUUID();
+        insertOffer(offerId, ADMIN_ID, BigDecimal.TEN, true, new Date(clock.millis() + DAY));
+
+        // When
+        val actual = Assertions.catchThrowable(() -> offerService.delete(offerId));
+
+        // Then
+        Assertions.assertThat(actual).isInstanceOf(OfferIsCancelledException.class);
+    }
+
+    @Test
+    @WithMockUser(authorities = "offer:write-any")
+    void givenDisabledPublisher_whenSaveAllIsCalled_thenUserIsNotEnabledExceptionIsThrown() {
+        // Given
+        val userId = UUID.randomUUID();
+        insertUser(userId, "disabled", false);
+        val creates = Collections.singletonList(newOfferCreate());
+
+        // When
+        val actual = Assertions.catchThrowable(() -> offerService.saveAll(creates, userId));
+
+        // Then
+        Assertions.assertThat(actual).isInstanceOf(UserIsNotEnabledException.class);
+    }
+
+    @Test
+    @WithMockUser(username = "other", authorities = "offer:delete-any")
+    void givenDeleteAnyAuthority_whenDeleteIsCalledOnAnotherUsersOffer_thenOfferIsCancelled() throws Exception {
+        // Given
+        val offerId = insertOffer(ADMIN_ID);
+
+        // When
+        offerService.delete(offerId);
+
+        // Then
+        Assertions.assertThat(isCancelled(offerId)).isTrue();
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = "offer:write")
+    void givenExpiredOffer_whenUpdateIsCalled_thenOfferIsExpiredExceptionIsThrown() {
+        // Given
+        val offerId = UUID.randomUUID();
+        insertOffer(offerId, ADMIN_ID, BigDecimal.TEN, false, new Date(clock.millis() - DAY));
+        val update = new OfferUpdate();
+        update.setTitle("Updated");
+
+        // When
+        val actual = Assertions.catchThrowable(() -> offerService.update(offerId, update));
+
+        // Then
+        Assertions.assertThat(actual).isInstanceOf(OfferIsExpiredException.class);
+        Assertions.assertThat(titleOf(offerId)).isEqualTo("title");
+    }
+
+    @Test
+    @WithMockUser
+    void givenFilterAndSort_whenFindAllOpenIsCalled_thenMatchingOpenOffersAreReturnedInOrder()
+            throws IllegalOfferQueryException {
+        // Given
+        long now = clock.millis();
+        insertOffer(FILTERED_ID, new BigDecimal("20.00"), false, now + DAY);
+        val dear = insertOffer(FILTERED_ID, new BigDecimal("80.00"), false, now + DAY);
+        val fair = insertOffer(FILTERED_ID, new BigDecimal("60.00"), false, now + DAY);
+        insertOffer(FILTERED_ID, new BigDecimal("90.00"), true, now + DAY);
+        insertOffer(FILTERED_ID, new BigDecimal("70.00"), false, now - DAY);
+        val query = offerQueryCompiler.compile("publisher eq " + FILTERED_ID + " and price ge 50", "-price");
+
+        // When
+        val actual = walkMatching(query);
+
+        // Then
+        Assertions.assertThat(actual).containsExactly(dear, fair);
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = "offer:write")
+    void givenMixedOwnership_whenExtendAllOpenIsCalled_thenAccessDeniedExceptionIsThrown() {
+        // Given
+        val offerIds = Arrays.asList(insertOffer(ADMIN_ID), insertOffer(OTHER_ID));
+
+        // When
+        val actual = Assertions.catchThrowable(() -> offerService.extendAllOpen(offerIds, 60 * 1000L));
+
+        // Then
+        Assertions.assertThat(actual).isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    @WithMockUser(username = "other", authorities = "offer:delete")
+    void givenNonOwnerAndClosedOffer_whenDeleteIsCalled_thenAccessDeniedExceptionIsThrown() {
+        // Given
+        val offerId = insertClosedOffer(ADMIN_ID);
+
+        // When
+        val actual = Assertions.catchThrowable(() -> offerService.delete(offerId));
+
+        // Then
+        Assertions.assertThat(actual).isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    @WithMockUser(username = "other", authorities = "offer:write")
+    void givenNonOwnerAndClosedOffer_whenUpdateIsCalled_thenAccessDeniedExceptionIsThrown() {
+        // Given
+        val offerId = insertClosedOffer(ADMIN_ID);
+        val update = new OfferUpdate();
+        update.setTitle("Updated");
+
+        // When
+        val actual = Assertions.catchThrowable(() -> offerService.update(offerId, update));
+
+        // Then
+        Assertions.assertThat(actual).isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    @WithMockUser(username = "other", authorities = "offer:delete")
+    void givenNonOwnerWithDeleteAuthority_whenDeleteIsCalled_thenAccessDeniedExceptionIsThrown() {
+        // Given
+        val offerId = insertOffer(ADMIN_ID);
+
+        // When
+        val actual = Assertions.catchThrowable(() -> offerService.delete(offerId));
+
+        // Then
+        Assertions.assertThat(actual).isInstanceOf(AccessDeniedException.class);
+        Assertions.assertThat(isCancelled(offerId)).isFalse();
+    }
+
+    @Test
+    @WithMockUser(username = "other", authorities = "offer:write")
+    void givenNonOwnerWithWriteAuthority_whenUpdateIsCalled_thenAccessDeniedExceptionIsThrown() {
+        // Given
+        val offerId = insertOffer(ADMIN_ID);
+        val update = new OfferUpdate();
+        update.setTitle("Updated");
+
+        // When
+        val actual = Assertions.catchThrowable(() -> offerService.update(offerId, update));
+
+        // Then
+        Assertions.assertThat(actual).isInstanceOf(AccessDeniedException.class);
+        Assertions.assertThat(titleOf(offerId)).isEqualTo("title");
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = "offer:delete")
+    void givenOwner_whenDeleteIsCalled_thenOfferIsCancelled() throws Exception {
+        // Given
+        val offerId = insertOffer(ADMIN_ID);
+
+        // When
+        offerService.delete(offerId);
+
+        // Then
+        Assertions.assertThat(isCancelled(offerId)).isTrue();
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = "offer:write")
+    void givenOwner_whenUpdateIsCalled_thenOfferIsUpdated() throws Exception {
+        // Given
+        val offerId = insertOffer(ADMIN_ID);
+        val update = new OfferUpdate();
+        update.setTitle("Updated");
+
+        // When
+        offerService.update(offerId, update);
+
+        // Then
+        Assertions.assertThat(titleOf(offerId)).isEqualTo("Updated");
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = "offer:write")
+    void givenPublisher_whenSaveAllIsCalled_thenEveryOfferIsWritten() throws Exception {
+        // Given
+        val creates = Arrays.asList(newOfferCreate(), newOfferCreate(), newOfferCreate());
+
+        // When
+        val actual = offerService.saveAll(creates, ADMIN_ID);
+
+        // Then
+        Assertions.assertThat(actual).hasSize(creates.size());
+        Assertions.assertThat(actual).allSatisfy(offer ->
+                Assertions.assertThat(titleOf(offer.getId())).isEqualTo(offer.getTitle()));
+    }
+
+    @Test
+    @WithMockUser(authorities = "offer:write-any")
+    void givenUnknownPublisher_whenSaveAllIsCalled_thenUserNotFoundExceptionIsThrown() {
+        // Given
+        val userId = UUID.randomUUID();
+        val creates = Collections.singletonList(newOfferCreate());
+
+        // When
+        val actual = Assertions.catchThrowable(() -> offerService.saveAll(creates, userId));
+
+        // Then
+        Assertions.assertThat(actual).isInstanceOf(UserNotFoundException.class);
+    }
+
+    @Test
+    @WithMockUser(username = "other", authorities = "offer:write-any")
+    void givenWriteAnyAuthority_whenUpdateIsCalledOnAnotherUsersOffer_thenOfferIsUpdated() throws Exception {
+        // Given
+        val offerId = insertOffer(ADMIN_ID);
+        val update = new OfferUpdate();
+        update.setTitle("Updated");
+
+        // When
+        offerService.update(offerId, update);
+
+        // Then
+        Assertions.assertThat(titleOf(offerId)).isEqualTo("Updated");
+    }
+
+    /**
+     * Insert a closed offer published by the specified user, as the engine keeps it once closed.
+     *
+     * @param publisherId The id of the publisher.
+     * @return The id of the offer.
+     */
+    protected abstract UUID insertClosedOffer(UUID publisherId);
+
+    /**
+     * Insert an offer with the specified state.
+     *
+     * @param offerId     The id of the offer.
+     * @param publisherId The id of the publisher.
+     * @param price       The price.
+     * @param cancelled   {@code true} if the offer is cancelled.
+     * @param endTime     The end time.
+     */
+    protected abstract void insertOffer(UUID offerId, UUID publisherId, BigDecimal price, boolean cancelled,
+                                        Date endTime);
+
+    /**
+     * Return {@code true} if the offer with the specified id is cancelled, as stored by the engine.
+     *
+     * @param offerId The id of the offer.
+     * @return {@code true} if the offer is cancelled, {@code false} otherwise.
+     */
+    protected abstract boolean isCancelled(UUID offerId);
+
+    /**
+     * Return the ids of the open offers, optionally filtered by publisher, in the order of the listings, as read from
+     * the storage of the engine.
+     *
+     * @param publisherId The id of the publisher, can be {@code null}.
+     * @return The ids of the open offers.
+     */
+    protected abstract List<UUID> openOfferIds(UUID publisherId);
+
+    /**
+     * Return the title of the offer with the specified id, as stored by the engine.
+     *
+     * @param offerId The id of the offer.
+     * @return The title.
+     */
+    protected abstract String titleOf(UUID offerId);
+
+    /**
+     * Insert an open offer published by the specified user.
+     *
+     * @param publisherId The id of the publisher.
+     * @return The id of the offer.
+     */
+    protected UUID insertOffer(UUID publisherId) {
+        return insertOffer(publisherId, BigDecimal.TEN, false, clock.millis() + DAY);
+    }
+
+    /**
+     * Insert an offer with the specified state and a random id.
+     *
+     * @param publisherId The id of the publisher.
+     * @param price       The price.
+     * @param cancelled   {@code true} if the offer is cancelled.
+     * @param endTime     The end time, in milliseconds.
+     * @return The id of the offer.
+     */
+    private UUID insertOffer(UUID publisherId, BigDecimal price, boolean cancelled, long endTime) {
+        UUID offerId = UUID.randomUUID();
+        insertOffer(offerId, publisherId, price, cancelled, new Date(endTime));
+        return offerId;
+    }
+
+    /**
+     * Insert a user with the specified id and the specified username.
+     *
+     * @param userId   The id of the user.
+     * @param username The username.
+     * @param enabled  {@code true} if the user is enabled.
+     */
+    private void insertUser(UUID userId, String username, boolean enabled) {
+        jdbcTemplate.update("insert into user (id, username, password, enabled) values (?, ?, 'password', ?)",
+                UUIDCodec.encode(userId), username, enabled);
+    }
+
+    /**
+     * Return the data of a new valid offer.
+     *
+     * @return The data of the new offer.
+     */
+    private OfferCreate newOfferCreate() {
+        OfferCreate create = new OfferCreate();
+        create.setCurrency("GBP");
+        create.setDescription("Buy one and get one free!");
+        create.setPrice(new BigDecimal("0.00"));
+        create.setTitle("Free Coffee");
+        create.setTtl(24 * 60 * 60 * 1000L);
+        return create;
+    }
+
+    /**
+     * Collect the ids of all the open offers, optionally filtered by publisher, following the cursors of small pages.
+     *
+     * @param publisherId The id of the publisher, can be {@code null}.
+     * @return The ids of the open offers.
+     * @throws UserIsNotEnabledException If the publisher is not enabled.
+     * @throws UserNotFoundException     If the publisher does not exist.
+     */
+    private List<UUID> walk(UUID publisherId) throws UserIsNotEnabledException, UserNotFoundException {
+        List<UUID> offerIds = new ArrayList<>();
+        Paging paging = new Paging();
+        Slice<Offer> slice;
+
+        paging.setPageSize(7);
+
+        do {
+            slice = publisherId == null
+                    ? offerService.findAllOpen(paging)
+                    : offerService.findAllOpenByPublisherId(publisherId, paging);
+
+            slice.forEach(offer -> offerIds.add(offer.getId()));
+
+            if (slice.hasContent()) {
+                Offer last = slice.getContent().get(slice.getNumberOfElements() - 1);
+                paging.setCursor(new Cursor(last.getEndTime(), last.getId()));
+            }
+        } while (slice.hasNext());
+
+        return offerIds;
+    }
+
+    /**
+     * Collect the ids of the open offers matching the specified query, following the cursors of single-offer pages.
+     *
+     * @param query The query.
+     * @return The ids of the matching offers.
+     */
+    private List<UUID> walkMatching(OfferQuery query) {
+        List<UUID> offerIds = new ArrayList<>();
+        Paging paging = new Paging();
+        Slice<Offer> slice;
+
+        paging.setPageSize(1);
+
+        do {
+            slice = offerService.findAllOpen(query, paging);
+            slice.forEach(offer -> offerIds.add(offer.getId()));
+
+            if (slice.hasContent()) {
+                Offer last = slice.getContent().get(slice.getNumberOfElements() - 1);
+                paging.setCursor(new Cursor(query.getOrder().key(last), last.getId()));
+            }
+        } while (slice.hasNext());
+
+        return offerIds;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.converter;
+
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+class UUIDCodecTest {
+    @Test
+    void givenUuid_whenEncodedAndDecoded_thenTheSameUuidIsReturned() {
+        // Given
+        val uuid = UUID.fromString("123e4567-e89b-12d3-a456-556642440000");
+
+        // When
+        val actual = UUIDCodec.decode(UUIDCodec.encode(uuid));
+
+        // Then
+        Assertions.assertThat(actual).isEqualTo(uuid);
+    }
+
+    @Test
+    void givenUuid_whenEncodeIsCalled_thenBytesAreBigEndian() {
+        // Given
+        val uuid = UUID.fromString("00010203-0405-0607-0809-0a0b0c0d0e0f");
+
+        // When
+        val actual = UUIDCodec.encode(uuid);
+
+        // Then
+        Assertions.assertThat(actual).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15);
+    }
+
+    @Test
+    void givenNegativeHalves_whenEncodedAndDecoded_thenTheSameUuidIsReturned() {
+        // Given
+        val uuid = new UUID(-1L, Long.MIN_VALUE);
+
+        // When
+        val actual = UUIDCodec.decode(UUIDCodec.encode(uuid));
+
+        // Then
+        Assertions.assertThat(actual).isEqualTo(uuid);
+    }
+
+    @Test
+    void givenNull_whenEncodeAndDecodeAreCalled_thenNullIsReturned() {
+        // When/Then
+        Assertions.assertThat(UUIDCodec.encode(null)).isNull();
+        Assertions.assertThat(UUIDCodec.decode(null)).isNull();
+    }
+
+    @Test
+    void givenBytesOfWrongLength_whenDecodeIsCalled_thenIllegalArgumentExceptionIsThrown() {
+        // Given
+        val bytes = new byte[36];
+
+        // When/Then
+        Assertions.assertThatIllegalArgumentException().isThrownBy(() -> UUIDCodec.decode(bytes));
+    }
+}
@@ -73,4 +73,64 @@ public class EntityFactoryImplTest {
         // Then
         Assertions.assertThat(user.isEnabled()).isTrue();
     }
+
+    @Test
+    public void givenOffer_whenCopyOfferIsCalled_thenCopyHasTheSameStateAndPublisher() {
+        // Given
+        val offer = entityFactory.createOffer();
+        offer.setTitle("Title");
+        offer.setCancelled(true);
+        offer.setPublisher(entityFactory.createUser());
+        offer.setVersion(3);
+
+        // When
+        val copy = entityFactory.copyOffer(offer);
+
+        // Then
+        Assertions.assertThat(copy).isNotSameAs(offer).isEqualTo(offer);
+        Assertions.assertThat(copy.getTitle()).isEqualTo("Title");
+        Assertions.assertThat(copy.isCancelled()).isTrue();
+        Assertions.assertThat(copy.getVersion()).isEqualTo(3);
+        Assertions.assertThat(copy.getPublisher()).isNotSameAs(offer.getPublisher()).isEqualTo(offer.getPublisher());
+    }
+
+    @Test
+    public void givenArchivedOffer_whenCopyOfferIsCalled_thenCopyHasTheSameStateAndPublisher() {
+        // Given
+        val archived = new ArchivedOffer();
+        archived.setId(uuid);
+        archived.setTitle("Title");
+        archived.setEndTime(new Date(0));
+        archived.setCancelled(true);
+        archived.setPublisher(entityFactory.createUser());
+        archived.setVersion(3);
+
+        // When
+        val copy = entityFactory.copyOffer(archived);
+
+        // Then
+        Assertions.assertThat(copy.getId()).isEqualTo(uuid);
+        Assertions.assertThat(copy.getTitle()).isEqualTo("Title");
+        Assertions.assertThat(copy.getEndTime()).isEqualTo(new Date(0));
+        Assertions.assertThat(copy.isCancelled()).isTrue();
+        Assertions.assertThat(copy.getVersion()).isEqualTo(3);
+        Assertions.assertThat(copy.getPublisher()).isNotSameAs(archived.getPublisher())
+                .isEqualTo(archived.getPublisher());
+    }
+
+    @Test
+    public void givenState_whenRestoreOfferIsCalled_thenFieldsAreSetCorrectly() {
+        // Given
+        val createTime = new Date(0);
+        val endTime = new Date(1);
+
+        // When
+        val offer = entityFactory.restoreOffer(uuid, createTime, endTime, 3);
+
+        // Then
+        Assertions.assertThat(offer.getId()).isEqualTo(uuid);
+        Assertions.assertThat(offer.getCreateTime()).isEqualTo(createTime);
+        Assertions.assertThat(offer.getEndTime()).isEqualTo(endTime);
+        Assertions.assertThat(offer.getVersion()).isEqualTo(3);
+    }
 }
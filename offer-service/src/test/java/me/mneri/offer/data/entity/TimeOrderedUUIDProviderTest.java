@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.entity;
+
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+class TimeOrderedUUIDProviderTest {
+    private static final Instant NOW = Instant.parse("2020-01-31T22:00:00.00Z");
+
+    @Test
+    void givenClock_whenCreateRandomUuidIsCalled_thenVersion7UuidIsReturned() {
+        // Given
+        val uuidProvider = new TimeOrderedUUIDProvider(Clock.fixed(NOW, ZoneOffset.UTC));
+
+        // When
+        val actual = uuidProvider.createRandomUuid();
+
+        // Then
+        Assertions.assertThat(actual.version()).isEqualTo(7);
+        Assertions.assertThat(actual.variant()).isEqualTo(2);
+        Assertions.assertThat(actual.getMostSignificantBits() >>> 16).isEqualTo(NOW.toEpochMilli());
+    }
+
+    @Test
+    void givenFixedClock_whenCreateRandomUuidIsCalledRepeatedly_thenUuidsAreStrictlyIncreasing() {
+        // Given
+        val uuidProvider = new TimeOrderedUUIDProvider(Clock.fixed(NOW, ZoneOffset.UTC));
+        UUID previous = uuidProvider.createRandomUuid();
+
+        // When/Then
+        for (int i = 0; i < 10_000; i++) {
+            UUID current = uuidProvider.createRandomUuid();
+            Assertions.assertThat(Long.compareUnsigned(current.getMostSignificantBits(),
+                    previous.getMostSignificantBits())).isPositive();
+            previous = current;
+        }
+    }
+
+    @Test
+    void givenClockMovingBackwards_whenCreateRandomUuidIsCalled_thenUuidsAreStillIncreasing() {
+        // Given
+        val clock = Mockito.mock(Clock.class);
+        Mockito.when(clock.millis()).thenReturn(NOW.toEpochMilli(), NOW.toEpochMilli() - 1000);
+        val uuidProvider = new TimeOrderedUUIDProvider(clock);
+        val uuid = uuidProvider.createRandomUuid();
+
+        // When
+        val actual = uuidProvider.createRandomUuid();
+
+        // Then
+        Assertions.assertThat(Long.compareUnsigned(actual.getMostSignificantBits(), uuid.getMostSignificantBits()))
+                .isPositive();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.entity;
+
+import lombok.val;
+import me.mneri.offer.business.count.ListingCounter;
+import me.mneri.offer.business.pojo.CountMode;
+import me.mneri.offer.data.converter.UUIDCodec;
+import me.mneri.offer.data.repository.UserRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Verify that {@link UserEntityListener} publishes the changes of the enabled status of the users, as applied by the
+ * {@link ListingCounter}.
+ *
+ * @author Massimo Neri
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "spring.datasource.generate-unique-name=false",
+        "spring.datasource.name=user-entity-listener"})
+class UserEntityListenerTest {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ListingCounter listingCounter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void givenEnabledUser_whenUserIsDisabledRenamedAndEnabled_thenEnabledUsersFollow() {
+        // Given
+        val userId = UUID.randomUUID();
+        jdbcTemplate.update("insert into user (id, username, password, enabled) values (?, 'listened', 'password', true)",
+                UUIDCodec.encode(userId));
+        val initial = enabledUserCount();
+
+        // When
+        updateUser(userId, user -> user.setEnabled(false));
+        val disabled = enabledUserCount();
+        updateUser(userId, user -> user.setUsername("renamed"));
+        val renamed = enabledUserCount();
+        updateUser(userId, user -> user.setEnabled(true));
+        val enabled = enabledUserCount();
+
+        // Then
+        Assertions.assertThat(disabled).isEqualTo(initial - 1);
+        Assertions.assertThat(renamed).isEqualTo(disabled);
+        Assertions.assertThat(enabled).isEqualTo(initial);
+    }
+
+    private long enabledUserCount() {
+        return listingCounter.countEnabledUsers(CountMode.EXACT).getValue();
+    }
+
+    private void updateUser(UUID userId, Consumer<User> update) {
+        transactionTemplate.executeWithoutResult(status -> update.accept(
+                userRepository.findById(userId).orElseThrow(IllegalStateException::new)));
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.repository;
+
+import lombok.val;
+import me.mneri.offer.data.converter.UUIDCodec;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Verify that {@link OfferBulkRepository} only updates open offers and reports exactly the updated ones.
+ * <p>
+ * Each test runs in a rolled back transaction against its own database, populated with an open, a cancelled and an
+ * expired offer of the same publisher.
+ *
+ * @author Massimo Neri
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = {"spring.datasource.generate-unique-name=false", "spring.datasource.name=offer-bulk"})
+@Transactional
+class OfferBulkRepositoryTest {
+    private static final UUID ADMIN_ID = UUID.fromString("b4d9a272-4685-2647-91d6-185b65e60bdf");
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private final Date now = new Date();
+
+    private final UUID cancelledId = UUID.randomUUID();
+
+    private final UUID expiredId = UUID.randomUUID();
+
+    private final UUID openId = UUID.randomUUID();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OfferBulkRepository offerBulkRepository;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @BeforeEach
+    void populate() {
+        insert(openId, false, now.getTime() + DAY);
+        insert(cancelledId, true, now.getTime() + DAY);
+        insert(expiredId, false, now.getTime() - DAY);
+    }
+
+    @Test
+    void givenOffersOfPublisher_whenCancelAllOpenByPublisherIdIsCalled_thenOnlyOpenOffersAreCancelled() {
+        // When
+        val actual = offerBulkRepository.cancelAllOpenByPublisherId(ADMIN_ID, now);
+
+        // Then
+        Assertions.assertThat(actual).containsExactly(openId);
+        Assertions.assertThat(isCancelled(openId)).isTrue();
+        Assertions.assertThat(isCancelled(expiredId)).isFalse();
+        Assertions.assertThat(version(openId)).isEqualTo(1);
+        Assertions.assertThat(version(expiredId)).isZero();
+    }
+
+    @Test
+    void givenOffers_whenExtendAllOpenIsCalled_thenOnlyOpenOffersAreExtended() {
+        // Given
+        val offerIds = Arrays.asList(openId, cancelledId, expiredId);
+
+        // When
+        val actual = offerBulkRepository.extendAllOpen(offerIds, DAY, now);
+
+        // Then
+        Assertions.assertThat(actual).containsExactly(openId);
+        Assertions.assertThat(endTime(openId)).isEqualTo(now.getTime() + 2 * DAY);
+        Assertions.assertThat(endTime(cancelledId)).isEqualTo(now.getTime() + DAY);
+        Assertions.assertThat(version(openId)).isEqualTo(1);
+        Assertions.assertThat(version(cancelledId)).isZero();
+    }
+
+    @Test
+    void givenNoOffers_whenExtendAllOpenIsCalled_thenNothingIsExtended() {
+        // When
+        List<UUID> actual = offerBulkRepository.extendAllOpen(Collections.emptyList(), DAY, now);
+
+        // Then
+        Assertions.assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void givenOpenOfferAtVersion_whenUpdateIfOpenIsCalled_thenOfferIsUpdated() {
+        // Given
+        val offer = offerRepository.findById(openId).get();
+        offer.setTitle("updated");
+
+        // When
+        val actual = offerBulkRepository.updateIfOpen(offer, 0, now);
+
+        // Then
+        Assertions.assertThat(actual).isTrue();
+        Assertions.assertThat(title(openId)).isEqualTo("updated");
+        Assertions.assertThat(version(openId)).isEqualTo(1);
+    }
+
+    @Test
+    void givenOpenOfferAtAnotherVersion_whenUpdateIfOpenIsCalled_thenOfferIsNotUpdated() {
+        // Given
+        val offer = offerRepository.findById(openId).get();
+        offer.setTitle("updated");
+
+        // When
+        val actual = offerBulkRepository.updateIfOpen(offer, 1, now);
+
+        // Then
+        Assertions.assertThat(actual).isFalse();
+        Assertions.assertThat(title(openId)).isEqualTo("title");
+        Assertions.assertThat(version(openId)).isZero();
+    }
+
+    @Test
+    void givenCancelledOffer_whenUpdateIfOpenIsCalled_thenOfferIsNotUpdated() {
+        // Given
+        val offer = offerRepository.findById(cancelledId).get();
+        offer.setTitle("updated");
+
+        // When
+        val actual = offerBulkRepository.updateIfOpen(offer, 0, now);
+
+        // Then
+        Assertions.assertThat(actual).isFalse();
+        Assertions.assertThat(title(cancelledId)).isEqualTo("title");
+    }
+
+    private long endTime(UUID offerId) {
+        return jdbcTemplate
+                .queryForObject("select end_time from offer where id = ?", Timestamp.class, UUIDCodec.encode(offerId))
+                .getTime();
+    }
+
+    private void insert(UUID offerId, boolean cancelled, long endTime) {
+        jdbcTemplate.update("insert into offer (id, title, publisher, price, currency, cancelled, create_time, "
+                        + "end_time, version) values (?, 'title', ?, 10, 'EUR', ?, ?, ?, 0)",
+                UUIDCodec.encode(offerId), UUIDCodec.encode(ADMIN_ID), cancelled, new Timestamp(now.getTime()),
+                new Timestamp(endTime));
+    }
+
+    private boolean isCancelled(UUID offerId) {
+        return jdbcTemplate.queryForObject("select cancelled from offer where id = ?", Boolean.class,
+                UUIDCodec.encode(offerId));
+    }
+
+    private String title(UUID offerId) {
+        return jdbcTemplate.queryForObject("select title from offer where id = ?", String.class,
+                UUIDCodec.encode(offerId));
+    }
+
+    private long version(UUID offerId) {
+        return jdbcTemplate.queryForObject("select version from offer where id = ?", Long.class,
+                UUIDCodec.encode(offerId));
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.repository;
+
+import lombok.val;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.entity.Offer_;
+import me.mneri.offer.data.projection.OfferSummary;
+import me.mneri.offer.data.specification.OfferSpec;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Verify that {@link OfferViewRepository} lists the same open offers, in the same order, as the JPA repository.
+ * <p>
+ * The test runs against its own database, populated with a few publishers and offers sharing their end times so that
+ * the id tie-break is exercised.
+ *
+ * @author Massimo Neri
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = {"spring.datasource.generate-unique-name=false", "spring.datasource.name=offer-view"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class OfferViewRepositoryTest {
+    private static final UUID ADMIN_ID = UUID.fromString("b4d9a272-4685-2647-91d6-185b65e60bdf");
+
+    private final Date now = new Date();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private OfferViewRepository offerViewRepository;
+
+    @BeforeAll
+    void populate() {
+        jdbcTemplate.update("insert into user (id, username, password, enabled) "
+                + "select random_uuid(), 'user' || x, 'password', true from system_range(1, 5)");
+        jdbcTemplate.update("insert into offer (id, title, publisher, price, currency, cancelled, create_time, end_time) "
+                + "select random_uuid(), 'title', u.id, 10, 'EUR', x % 10 = 0, now(), dateadd('DAY', x % 4 - 1, now()) "
+                + "from system_range(1, 20) cross join user u");
+    }
+
+    @Test
+    void givenCursorPages_whenFindAllOpenIsCalled_thenOffersOfTheJpaListingAreReturnedInOrder() {
+        // Given
+        val expected = offerRepository
+                .findAll(OfferSpec.isOpen(Clock.fixed(now.toInstant(), ZoneOffset.UTC)),
+                        Sort.by(Offer_.END_TIME, Offer_.ID))
+                .stream()
+                .map(Offer::getId)
+                .collect(Collectors.toList());
+
+        // When
+        val actual = walk(null);
+
+        // Then
+        Assertions.assertThat(expected).isNotEmpty();
+        Assertions.assertThat(actual).extracting(OfferSummary::getId).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void givenCursorPages_whenFindAllOpenByPublisherIdIsCalled_thenOnlyOffersOfThePublisherAreReturned() {
+        // Given
+        val expected = offerRepository
+                .findAll(OfferSpec.isOpen(Clock.fixed(now.toInstant(), ZoneOffset.UTC))
+                                .and(OfferSpec.publisherIdIsEqualTo(ADMIN_ID)),
+                        Sort.by(Offer_.END_TIME, Offer_.ID))
+                .stream()
+                .map(Offer::getId)
+                .collect(Collectors.toList());
+
+        // When
+        val actual = walk(ADMIN_ID);
+
+        // Then
+        Assertions.assertThat(expected).isNotEmpty();
+        Assertions.assertThat(actual).extracting(OfferSummary::getId).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void givenOpenOffers_whenFindAllOpenIsCalled_thenTtlIsComputedAgainstTheSpecifiedInstant() {
+        // When
+        val actual = offerViewRepository.findAllOpen(now, null, null, Pageable.unpaged());
+
+        // Then
+        Assertions.assertThat(actual.getContent()).isNotEmpty().allSatisfy(summary ->
+                Assertions.assertThat(summary.getTtl()).isEqualTo(summary.getEndTime().getTime() - now.getTime()));
+    }
+
+    /**
+     * Collect all the open offers, optionally filtered by publisher, following the cursors of small slices.
+     *
+     * @param publisherId The id of the publisher, can be {@code null}.
+     * @return The open offers.
+     */
+    private List<OfferSummary> walk(UUID publisherId) {
+        List<OfferSummary> summaries = new ArrayList<>();
+        Pageable pageable = PageRequest.of(0, 7);
+        OfferSummary last = null;
+        Slice<OfferSummary> slice;
+
+        do {
+            Date afterEndTime = last == null ? null : last.getEndTime();
+            UUID afterId = last == null ? null : last.getId();
+
+            slice = publisherId == null
+                    ? offerViewRepository.findAllOpen(now, afterEndTime, afterId, pageable)
+                    : offerViewRepository.findAllOpenByPublisherId(publisherId, now, afterEndTime, afterId, pageable);
+
+            summaries.addAll(slice.getContent());
+            last = slice.hasContent() ? slice.getContent().get(slice.getNumberOfElements() - 1) : null;
+        } while (slice.hasNext());
+
+        return summaries;
+    }
+}
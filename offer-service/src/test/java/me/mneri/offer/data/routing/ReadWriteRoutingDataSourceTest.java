@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Verify that {@link ReadWriteRoutingDataSource} sends read-only transactions to replicas in sync and everything else
+ * to the primary.
+ * <p>
+ * Two in-memory H2 databases stand for the primary and the replica; the replica only holds the heartbeat table, whose
+ * content each test sets to simulate replication.
+ *
+ * @author Massimo Neri
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "data.routing.enabled=true",
+        "data.routing.heartbeat-delay=3600000",
+        "data.routing.replica-urls=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+        "spring.datasource.generate-unique-name=false",
+        "spring.datasource.hikari.maximum-pool-size=3",
+        "spring.datasource.name=routing-primary"})
+class ReadWriteRoutingDataSourceTest {
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private JdbcTemplate replica;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void createReplica() {
+        replica = new JdbcTemplate(routingDataSource.getReplicas().get(0));
+        replica.execute("create table if not exists replication_heartbeat (id integer not null, "
+                + "beat_time timestamp not null, primary key (id))");
+    }
+
+    @Test
+    void givenHikariProperties_whenRoutingDataSourceIsCreated_thenEveryPoolIsBoundToThem() {
+        // Given
+        List<DataSource> pools = new ArrayList<>(routingDataSource.getReplicas());
+        pools.add(routingDataSource.getPrimary());
+
+        // When
+        List<Integer> actual = pools.stream()
+                .map(pool -> ((HikariDataSource) pool).getMaximumPoolSize())
+                .collect(Collectors.toList());
+
+        // Then
+        Assertions.assertThat(actual).containsOnly(3);
+    }
+
+    @Test
+    void givenReplicaInSync_whenReadOnlyTransactionRuns_thenReplicaIsUsed() {
+        // Given
+        replicate(System.currentTimeMillis());
+        replicaLagMonitor.probe();
+
+        // When
+        String actual = database(true);
+
+        // Then
+        Assertions.assertThat(actual).containsIgnoringCase("replica");
+    }
+
+    @Test
+    void givenReplicaInSync_whenReadWriteTransactionRuns_thenPrimaryIsUsed() {
+        // Given
+        replicate(System.currentTimeMillis());
+        replicaLagMonitor.probe();
+
+        // When
+        String actual = database(false);
+
+        // Then
+        Assertions.assertThat(actual).containsIgnoringCase("primary");
+    }
+
+    @Test
+    void givenReplicaLagging_whenReadOnlyTransactionRuns_thenPrimaryIsUsed() {
+        // Given
+        replicate(System.currentTimeMillis() - HOUR);
+        replicaLagMonitor.probe();
+
+        // When
+        String actual = database(true);
+
+        // Then
+        Assertions.assertThat(actual).containsIgnoringCase("primary");
+    }
+
+    private String database(boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status -> jdbcTemplate.queryForObject("select database()", String.class));
+    }
+
+    private void replicate(long beatTime) {
+        replica.update("merge into replication_heartbeat (id, beat_time) key (id) values (1, ?)",
+                new Timestamp(beatTime));
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.data.specification;
+
+import lombok.val;
+import me.mneri.offer.business.pojo.Cursor;
+import me.mneri.offer.business.query.OfferOrder;
+import me.mneri.offer.data.entity.Authority;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.entity.User;
+import me.mneri.offer.data.repository.OfferRepository;
+import org.assertj.core.api.Assertions;
+import org.hibernate.engine.query.spi.HQLQueryPlan;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Verify that the hot {@link Specification}s and declared queries are served by the indexes created by the
+ * migrations.
+ * <p>
+ * The SQL Hibernate generates for each specification or query is run through H2 {@code EXPLAIN}: the test fails as soon
+ * as a change to a specification, a query or the schema makes the query stop using its index. The plans of an empty
+ * table are not meaningful, so the test runs against its own database, populated with a few publishers and offers and
+ * analyzed.
+ *
+ * @author Massimo Neri
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = {"spring.datasource.generate-unique-name=false", "spring.datasource.name=index-usage"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class IndexUsageTest {
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void populate() {
+        jdbcTemplate.update("insert into user (id, username, password, enabled) "
+                + "select random_uuid(), 'user' || x, 'password', true from system_range(1, 100)");
+        jdbcTemplate.update("insert into offer (id, title, publisher, price, currency, cancelled, create_time, end_time) "
+                + "select random_uuid(), 'title', rawtohex(u.id), 10, 'EUR', x % 10 = 0, now(), dateadd('DAY', x, now()) "
+                + "from system_range(1, 50) cross join user u");
+        jdbcTemplate.execute("analyze");
+    }
+
+    @Test
+    void givenFindAllOpenAfterQuery_whenExplainIsCalled_thenOpenIndexIsUsed() {
+        // Given
+        val hql = declaredQuery(OfferRepository.class, "findAllOpenAfter");
+
+        // When
+        val actual = explain(hql);
+
+        // Then
+        Assertions.assertThat(actual).containsIgnoringCase("idx_offer_open");
+    }
+
+    @Test
+    void givenFindAllOpenByPublisherIdAfterQuery_whenExplainIsCalled_thenPublisherIndexIsUsed() {
+        // Given
+        val hql = declaredQuery(OfferRepository.class, "findAllOpenByPublisherIdAfter");
+
+        // When
+        val actual = explain(hql);
+
+        // Then
+        Assertions.assertThat(actual).containsIgnoringCase("idx_offer_publisher_open");
+    }
+
+    @Test
+    void givenIsOpenSpec_whenExplainIsCalled_thenOpenIndexIsUsed() {
+        // Given
+        val spec = OfferSpec.isOpen(Clock.systemUTC());
+
+        // When
+        val actual = explain(Offer.class, spec);
+
+        // Then
+        Assertions.assertThat(actual).containsIgnoringCase("idx_offer_open");
+    }
+
+    @Test
+    void givenIsOpenAndIsAfterSpec_whenExplainIsCalled_thenOpenIndexIsUsed() {
+        // Given
+        val spec = OfferSpec.isOpen(Clock.systemUTC()).and(OfferSpec.isAfter(new Date(), UUID.randomUUID()));
+
+        // When
+        val actual = explain(Offer.class, spec);
+
+        // Then
+        Assertions.assertThat(actual).containsIgnoringCase("idx_offer_open");
+    }
+
+    @Test
+    void givenIsOpenAndIsAfterCreateTimeSpec_whenExplainIsCalled_thenCreateTimeIndexIsUsed() {
+        // Given
+        val order = OfferOrder.CREATE_TIME;
+        val spec = OfferSpec.isOpen(Clock.systemUTC()).and(order.isAfter(new Cursor(new Date(), UUID.randomUUID())));
+
+        // When
+        val actual = explain(Offer.class, spec, order.getSort());
+
+        // Then
+        Assertions.assertThat(actual).containsIgnoringCase("idx_offer_open_create_time");
+    }
+
+    @Test
+    void givenIsOpenAndIsAfterPriceSpec_whenExplainIsCalled_thenPriceIndexIsUsed() {
+        // Given
+        val order = OfferOrder.PRICE;
+        val spec = OfferSpec.isOpen(Clock.systemUTC()).and(order.isAfter(new Cursor(1000L, UUID.randomUUID())));
+
+        // When
+        val actual = explain(Offer.class, spec, order.getSort());
+
+        // Then
+        Assertions.assertThat(actual).containsIgnoringCase("idx_offer_open_price");
+    }
+
+    @Test
+    void givenIsOpenAndPublisherIdIsEqualToSpec_whenExplainIsCalled_thenPublisherIndexIsUsed() {
+        // Given
+        val spec = OfferSpec.isOpen(Clock.systemUTC()).and(OfferSpec.publisherIdIsEqualTo(UUID.randomUUID()));
+
+        // When
+        val actual = explain(Offer.class, spec);
+
+        // Then
+        Assertions.assertThat(actual).containsIgnoringCase("idx_offer_publisher_open");
+    }
+
+    @Test
+    void givenOwnerIdIsEqualToSpec_whenExplainIsCalled_thenNoTableIsScanned() {
+        // Given
+        val spec = AuthoritySpec.ownerIdIsEqualTo(UUID.randomUUID());
+
+        // When
+        val actual = explain(Authority.class, spec);
+
+        // Then
+        Assertions.assertThat(actual).doesNotContainIgnoringCase("tableScan");
+    }
+
+    @Test
+    void givenUsernameIsEqualToSpec_whenExplainIsCalled_thenUsernameIndexIsUsed() {
+        // Given
+        val spec = UserSpec.usernameIsEqualTo("admin");
+
+        // When
+        val actual = explain(User.class, spec);
+
+        // Then
+        Assertions.assertThat(actual).containsIgnoringCase("idx_user_username_unq");
+    }
+
+    /**
+     * Return the JPQL of the {@link Query} declared by the repository method with the specified name.
+     *
+     * @param repository The repository type.
+     * @param methodName The name of the method.
+     * @return The JPQL of the query.
+     */
+    private String declaredQuery(Class<?> repository, String methodName) {
+        return Arrays.stream(repository.getMethods())
+                .filter(method -> method.getName().equals(methodName))
+                .map(method -> method.getAnnotation(Query.class))
+                .findFirst()
+                .orElseThrow(IllegalArgumentException::new)
+                .value();
+    }
+
+    /**
+     * Return the H2 execution plan of the SQL query Hibernate generates for the specified {@link Specification}.
+     *
+     * @param type The entity type.
+     * @param spec The specification.
+     * @param <T>  The entity type.
+     * @return The execution plan.
+     */
+    private <T> String explain(Class<T> type, Specification<T> spec) {
+        return explain(type, spec, Sort.unsorted());
+    }
+
+    /**
+     * Return the H2 execution plan of the SQL query Hibernate generates for the specified {@link Specification} and
+     * {@link Sort}.
+     *
+     * @param type The entity type.
+     * @param spec The specification.
+     * @param sort The sort.
+     * @param <T>  The entity type.
+     * @return The execution plan.
+     */
+    private <T> String explain(Class<T> type, Specification<T> spec, Sort sort) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = builder.createQuery(type);
+        Root<T> root = query.from(type);
+        query.where(spec.toPredicate(root, query, builder));
+        query.orderBy(QueryUtils.toOrders(sort, root, builder));
+
+        return explain(entityManager.createQuery(query).unwrap(org.hibernate.query.Query.class).getQueryString());
+    }
+
+    /**
+     * Return the H2 execution plan of the SQL query Hibernate generates for the specified HQL.
+     *
+     * @param hql The HQL query.
+     * @return The execution plan.
+     */
+    private String explain(String hql) {
+        HQLQueryPlan plan = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getQueryPlanCache()
+                .getHQLQueryPlan(hql, false, Collections.emptyMap());
+        String sql = plan.getSqlStrings()[0];
+
+        return jdbcTemplate.query("explain " + sql, statement -> {
+            int parameterCount = statement.getParameterMetaData().getParameterCount();
+
+            for (int i = 1; i <= parameterCount; i++) {
+                statement.setObject(i, null);
+            }
+        }, resultSet -> {
+            resultSet.next();
+            return resultSet.getString(1);
+        });
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.presentation.controller;
+
+import lombok.val;
+import me.mneri.offer.business.pojo.OfferCreate;
+import me.mneri.offer.business.service.OfferService;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.presentation.api.APIParameters;
+import me.mneri.offer.presentation.dto.OfferCreateDto;
+import me.mneri.offer.presentation.dto.OfferCreateResultDto;
+import me.mneri.offer.presentation.dto.OfferDto;
+import me.mneri.offer.presentation.exception.IllegalBatchSizeException;
+import me.mneri.offer.presentation.mapping.PresentationLayerMapper;
+import me.mneri.offer.test.answer.UnsupportedOperationAnswer;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import javax.validation.Validation;
+import javax.validation.ValidatorFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Verify that {@link OfferBatchHelper} reports invalid items at their index and creates the valid ones together.
+ *
+ * @author Massimo Neri
+ */
+class OfferBatchHelperTest {
+    private static final UUID USER_ID = UUID.fromString("b4d9a272-4685-2647-91d6-185b65e60bdf");
+
+    private static ValidatorFactory validatorFactory;
+
+    private OfferBatchHelper offerBatchHelper;
+
+    private OfferService offerService;
+
+    @AfterAll
+    static void afterAll() {
+        validatorFactory.close();
+    }
+
+    @BeforeAll
+    static void beforeAll() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        offerService = Mockito.mock(OfferService.class, new UnsupportedOperationAnswer());
+
+        val presentationLayerMapper = Mockito.mock(PresentationLayerMapper.class, new UnsupportedOperationAnswer());
+        Mockito.doAnswer(invocation -> new OfferCreate())
+                .when(presentationLayerMapper).mapOfferCreateDtoToOfferCreate(ArgumentMatchers.any());
+        Mockito.doAnswer(invocation -> newOfferDto(invocation.getArgument(0)))
+                .when(presentationLayerMapper).mapOfferToOfferDto(ArgumentMatchers.any(Offer.class));
+
+        offerBatchHelper = new OfferBatchHelper(offerService, presentationLayerMapper, validatorFactory.getValidator());
+    }
+
+    @Test
+    void givenEmptyBatch_whenSaveAllIsCalled_thenIllegalBatchSizeExceptionIsThrown() {
+        // Given
+        List<OfferCreateDto> createDtos = Collections.emptyList();
+
+        // When
+        val actual = Assertions.catchThrowable(() -> offerBatchHelper.saveAll(createDtos, USER_ID));
+
+        // Then
+        Assertions.assertThat(actual).isInstanceOf(IllegalBatchSizeException.class);
+    }
+
+    @Test
+    void givenMixedItems_whenSaveAllIsCalled_thenEachResultKeepsTheIndexOfItsItem() throws Exception {
+        // Given
+        val invalid = newValidOfferCreateDto();
+        invalid.setTitle("");
+        val createDtos = Arrays.asList(newValidOfferCreateDto(), null, newValidOfferCreateDto(), invalid);
+        val offers = Arrays.asList(newOffer(), newOffer());
+        Mockito.doReturn(offers).when(offerService).saveAll(ArgumentMatchers.anyList(), ArgumentMatchers.eq(USER_ID));
+
+        // When
+        val actual = offerBatchHelper.saveAll(createDtos, USER_ID);
+
+        // Then
+        Assertions.assertThat(actual).extracting(OfferCreateResultDto::getIndex).containsExactly(0, 1, 2, 3);
+        Assertions.assertThat(actual.get(0).getOffer().getId()).isEqualTo(offers.get(0).getId());
+        Assertions.assertThat(actual.get(0).getErrors()).isNull();
+        Assertions.assertThat(actual.get(1).getOffer()).isNull();
+        Assertions.assertThat(actual.get(1).getErrors()).containsExactly("offer: must not be null");
+        Assertions.assertThat(actual.get(2).getOffer().getId()).isEqualTo(offers.get(1).getId());
+        Assertions.assertThat(actual.get(2).getErrors()).isNull();
+        Assertions.assertThat(actual.get(3).getOffer()).isNull();
+        Assertions.assertThat(actual.get(3).getErrors()).anySatisfy(error ->
+                Assertions.assertThat(error).startsWith("title: "));
+        Mockito.verify(offerService).saveAll(
+                ArgumentMatchers.argThat(creates -> creates.size() == 2), ArgumentMatchers.eq(USER_ID));
+    }
+
+    @Test
+    void givenOnlyInvalidItems_whenSaveAllIsCalled_thenServiceIsNotCalled() throws Exception {
+        // Given
+        List<OfferCreateDto> createDtos = Collections.singletonList(null);
+
+        // When
+        val actual = offerBatchHelper.saveAll(createDtos, USER_ID);
+
+        // Then
+        Assertions.assertThat(actual).hasSize(1);
+        Assertions.assertThat(actual.get(0).getErrors()).isNotEmpty();
+        Mockito.verify(offerService, Mockito.never()).saveAll(ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    @Test
+    void givenTooLargeBatch_whenSaveAllIsCalled_thenIllegalBatchSizeExceptionIsThrown() {
+        // Given
+        List<OfferCreateDto> createDtos = new ArrayList<>();
+
+        for (int i = 0; i <= APIParameters.PARAM_BATCH_SIZE_MAX; i++) {
+            createDtos.add(newValidOfferCreateDto());
+        }
+
+        // When
+        val actual = Assertions.catchThrowable(() -> offerBatchHelper.saveAll(createDtos, USER_ID));
+
+        // Then
+        Assertions.assertThat(actual).isInstanceOf(IllegalBatchSizeException.class);
+        Assertions.assertThat(((IllegalBatchSizeException) actual).getBatchSize())
+                .isEqualTo(APIParameters.PARAM_BATCH_SIZE_MAX + 1);
+    }
+
+    private Offer newOffer() {
+        val offer = Mockito.mock(Offer.class, new UnsupportedOperationAnswer());
+        Mockito.doReturn(UUID.randomUUID()).when(offer).getId();
+        return offer;
+    }
+
+    private OfferDto newOfferDto(Offer offer) {
+        val offerDto = new OfferDto();
+        offerDto.setId(offer.getId());
+        return offerDto;
+    }
+
+    private OfferCreateDto newValidOfferCreateDto() {
+        val createDto = new OfferCreateDto();
+        createDto.setCurrency("GBP");
+        createDto.setDescription("Buy one and get one free!");
+        createDto.setPrice(new BigDecimal("0.00"));
+        createDto.setTitle("Free Coffee");
+        createDto.setTtl(24 * 60 * 60 * 1000L);
+        return createDto;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.presentation.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.val;
+import me.mneri.offer.data.entity.Offer;
+import me.mneri.offer.data.entity.Offer_;
+import me.mneri.offer.data.repository.OfferRepository;
+import me.mneri.offer.data.specification.OfferSpec;
+import me.mneri.offer.presentation.api.OffersAPI;
+import me.mneri.offer.presentation.dto.OfferDto;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Verify the responses of {@link OffersController} that are not plain DTOs.
+ * <p>
+ * The test runs against its own database, populated with a few publishers and open, cancelled and expired offers.
+ *
+ * @author Massimo Neri
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "spring.datasource.generate-unique-name=false",
+        "spring.datasource.name=offers-controller"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class OffersControllerTest {
+    @Autowired
+    private Clock clock;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private OffersAPI offersAPI;
+
+    @BeforeAll
+    void populate() {
+        jdbcTemplate.update("insert into user (id, username, password, enabled) "
+                + "select random_uuid(), 'user' || x, 'password', true from system_range(1, 5)");
+        jdbcTemplate.update("insert into offer (id, title, description, publisher, price, currency, cancelled, "
+                + "create_time, end_time) select random_uuid(), 'title', 'description', u.id, 10, 'EUR', x % 10 = 0, "
+                + "now(), dateadd('DAY', x % 4 - 1, now()) from system_range(1, 20) cross join user u");
+    }
+
+    @Test
+    @WithMockUser
+    void givenOpenAndClosedOffers_whenGetOffersStreamIsWritten_thenEachOpenOfferIsWrittenOnItsOwnLine()
+            throws Exception {
+        // Given
+        val expected = offerRepository
+                .findAll(OfferSpec.isOpen(clock), Sort.by(Offer_.END_TIME, Offer_.ID))
+                .stream()
+                .map(Offer::getId)
+                .collect(Collectors.toList());
+        val outputStream = new ByteArrayOutputStream();
+
+        // When
+        offersAPI.getOffersStream().writeTo(outputStream);
+
+        // Then
+        val body = new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+        List<UUID> actual = new ArrayList<>();
+
+        for (String line : body.split("\n")) {
+            actual.add(objectMapper.readValue(line, OfferDto.class).getId());
+        }
+
+        Assertions.assertThat(expected).isNotEmpty();
+        Assertions.assertThat(body).endsWith("\n");
+        Assertions.assertThat(actual).containsExactlyElementsOf(expected);
+    }
+}
@@ -0,0 +1,19 @@
+package me.mneri.offer.presentation.exception;
+
+import lombok.val;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class IllegalBatchSizeExceptionTest {
+    @Test
+    void givenBatchSize_whenAllArgsConstructorIsCalled_thenAllFieldsAreCorrectlyInitialised() {
+        // Given
+        val batchSize = 2048;
+
+        // When
+        val actual = new IllegalBatchSizeException(batchSize);
+
+        // Then
+        Assertions.assertEquals(batchSize, actual.getBatchSize());
+    }
+}
@@ -0,0 +1,19 @@
+package me.mneri.offer.presentation.exception;
+
+import lombok.val;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class IllegalPageNumberExceptionTest {
+    @Test
+    void givenPageNumber_whenAllArgsConstructorIsCalled_thenAllFieldsAreCorrectlyInitialised() {
+        // Given
+        val pageNumber = -1;
+
+        // When
+        val actual = new IllegalPageNumberException(pageNumber);
+
+        // Then
+        Assertions.assertEquals(pageNumber, actual.getPageNumber());
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.presentation.mapping;
+
+import lombok.val;
+import me.mneri.offer.business.pojo.Cursor;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+
+class CursorCodecTest {
+    @Test
+    void givenCursor_whenEncodedAndDecoded_thenTheSameCursorIsReturned() {
+        // Given
+        val cursor = new Cursor(
+                Date.from(Instant.parse("2020-01-31T22:00:00.00Z")),
+                UUID.fromString("123e4567-e89b-12d3-a456-556642440000"));
+
+        // When
+        val actual = CursorCodec.decode(CursorCodec.encode(cursor));
+
+        // Then
+        Assertions.assertThat(actual).isEqualTo(cursor);
+    }
+
+    @Test
+    void givenCursor_whenEncodeIsCalled_thenTokenIsUrlSafe() {
+        // Given
+        val cursor = new Cursor(new Date(-1L), new UUID(-1L, -1L));
+
+        // When
+        val actual = CursorCodec.encode(cursor);
+
+        // Then
+        Assertions.assertThat(actual).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void givenMalformedToken_whenDecodeIsCalled_thenIllegalArgumentExceptionIsThrown() {
+        // Given
+        val token = "not a cursor";
+
+        // When/Then
+        Assertions.assertThatIllegalArgumentException().isThrownBy(() -> CursorCodec.decode(token));
+    }
+
+    @Test
+    void givenTokenOfWrongLength_whenDecodeIsCalled_thenIllegalArgumentExceptionIsThrown() {
+        // Given
+        val token = "AAAAAAAAAAA";
+
+        // When/Then
+        Assertions.assertThatIllegalArgumentException().isThrownBy(() -> CursorCodec.decode(token));
+    }
+}
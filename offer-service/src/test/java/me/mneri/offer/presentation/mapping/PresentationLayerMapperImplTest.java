@@ -1,13 +1,17 @@
 package me.mneri.offer.presentation.mapping;
 
 import lombok.val;
+import me.mneri.offer.business.pojo.CountMode;
+import me.mneri.offer.business.pojo.Cursor;
 import me.mneri.offer.business.pojo.OfferCreate;
 import me.mneri.offer.business.pojo.OfferUpdate;
 import me.mneri.offer.business.pojo.Paging;
 import me.mneri.offer.data.entity.Offer;
 import me.mneri.offer.data.entity.User;
+import me.mneri.offer.data.projection.OfferSummary;
 import me.mneri.offer.presentation.dto.OfferCreateDto;
 import me.mneri.offer.presentation.dto.OfferDto;
+import me.mneri.offer.presentation.dto.OfferSummaryDto;
 import me.mneri.offer.presentation.dto.OfferUpdateDto;
 import me.mneri.offer.presentation.dto.PagingDto;
 import me.mneri.offer.presentation.dto.UserDto;
@@ -16,6 +20,8 @@ import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
@@ -23,6 +29,7 @@ import org.springframework.test.context.ActiveProfiles;
 import java.math.BigDecimal;
 import java.time.Clock;
 import java.time.Instant;
+import java.util.Collections;
 import java.util.Date;
 import java.util.UUID;
 
@@ -65,6 +72,46 @@ class PresentationLayerMapperImplTest {
         Assertions.assertThat(OfferDto.class.getDeclaredFields().length).isEqualTo(7);
     }
 
+    @Test
+    void givenOffer_whenMapOfferToOfferSummaryDto_thenAllFieldsAreCorrectlyInitialised() {
+        // Given
+        val offer = newOfferMock();
+
+        // When
+        val actual = presentationLayerMapperImpl.mapOfferToOfferSummaryDto(offer);
+
+        // Then
+        Assertions.assertThat(actual.getCreateTime()).isEqualTo(offer.getCreateTime());
+        Assertions.assertThat(actual.getCurrency()).isEqualTo(offer.getCurrency());
+        Assertions.assertThat(actual.getId()).isEqualTo(offer.getId());
+        Assertions.assertThat(actual.getPrice()).isEqualTo(offer.getPrice());
+        Assertions.assertThat(actual.getTitle()).isEqualTo(offer.getTitle());
+        Assertions.assertThat(actual.getTtl()).isEqualTo(offer.getTtl(startClock));
+
+        // Fail as soon as a new field is added so we get a chance to update this test.
+        Assertions.assertThat(OfferSummaryDto.class.getDeclaredFields().length).isEqualTo(6);
+    }
+
+    @Test
+    void givenOfferSummary_whenMapOfferSummaryToOfferSummaryDto_thenAllFieldsAreCorrectlyInitialised() {
+        // Given
+        val summary = newOfferSummary();
+
+        // When
+        val actual = presentationLayerMapperImpl.mapOfferSummaryToOfferSummaryDto(summary);
+
+        // Then
+        Assertions.assertThat(actual.getCreateTime()).isEqualTo(summary.getCreateTime());
+        Assertions.assertThat(actual.getCurrency()).isEqualTo(summary.getCurrency());
+        Assertions.assertThat(actual.getId()).isEqualTo(summary.getId());
+        Assertions.assertThat(actual.getPrice()).isEqualTo(summary.getPrice());
+        Assertions.assertThat(actual.getTitle()).isEqualTo(summary.getTitle());
+        Assertions.assertThat(actual.getTtl()).isEqualTo(summary.getTtl());
+
+        // Fail as soon as a new field is added so we get a chance to update this test.
+        Assertions.assertThat(OfferSummaryDto.class.getDeclaredFields().length).isEqualTo(6);
+    }
+
     @Test
     void givenOfferCreateDto_whenMapOfferCreateDtoToOfferCreateIsCalled_thenAllFieldsAreCorrectlyInitialised() {
         // Given
@@ -114,9 +161,50 @@ class PresentationLayerMapperImplTest {
         // Then
         Assertions.assertThat(actual.getPageNumber()).isEqualTo(pagingDto.getPageNumber());
         Assertions.assertThat(actual.getPageSize()).isEqualTo(pagingDto.getPageSize());
+        Assertions.assertThat(actual.getCursor()).isEqualTo(CursorCodec.decode(pagingDto.getCursor()));
+        Assertions.assertThat(actual.getCountMode()).isEqualTo(pagingDto.getCountMode());
 
         // Fail as soon as a new field is added so we get a chance to update this test.
-        Assertions.assertThat(Paging.class.getDeclaredFields().length).isEqualTo(2);
+        Assertions.assertThat(Paging.class.getDeclaredFields().length).isEqualTo(4);
+    }
+
+    @Test
+    void givenSliceWithNext_whenMapOfferSliceToNextCursorIsCalled_thenCursorOfTheLastOfferIsReturned() {
+        // Given
+        val offer = newOfferMock();
+        val slice = new SliceImpl<>(Collections.singletonList(offer), PageRequest.of(0, 1), true);
+
+        // When
+        val actual = presentationLayerMapperImpl.mapOfferSliceToNextCursor(slice);
+
+        // Then
+        Assertions.assertThat(CursorCodec.decode(actual)).isEqualTo(new Cursor(offer.getEndTime(), offer.getId()));
+    }
+
+    @Test
+    void givenLastSlice_whenMapOfferSliceToNextCursorIsCalled_thenNullIsReturned() {
+        // Given
+        val offer = newOfferMock();
+        val slice = new SliceImpl<>(Collections.singletonList(offer), PageRequest.of(0, 1), false);
+
+        // When
+        val actual = presentationLayerMapperImpl.mapOfferSliceToNextCursor(slice);
+
+        // Then
+        Assertions.assertThat(actual).isNull();
+    }
+
+    @Test
+    void givenSummarySliceWithNext_whenMapOfferSummarySliceToNextCursorIsCalled_thenCursorOfTheLastSummaryIsReturned() {
+        // Given
+        val summary = newOfferSummary();
+        val slice = new SliceImpl<>(Collections.singletonList(summary), PageRequest.of(0, 1), true);
+
+        // When
+        val actual = presentationLayerMapperImpl.mapOfferSummarySliceToNextCursor(slice);
+
+        // Then
+        Assertions.assertThat(CursorCodec.decode(actual)).isEqualTo(new Cursor(summary.getEndTime(), summary.getId()));
     }
 
     @Test
@@ -170,6 +258,21 @@ class PresentationLayerMapperImplTest {
         return offer;
     }
 
+    private OfferSummary newOfferSummary() {
+        Date startDate = new Date(startClock.millis());
+        Date endDate = Date.from(Instant.parse("2020-01-31T22:00:00.00Z"));
+        long ttl = endDate.getTime() - startDate.getTime();
+
+        return new OfferSummary(
+                UUID.fromString("00000000-0000-0000-0000-000000000000"),
+                "Free Coffee",
+                new BigDecimal("0.00"),
+                "GBP",
+                startDate,
+                endDate,
+                ttl);
+    }
+
     private OfferUpdateDto newOfferUpdateDtoMock() {
         val offerCreateDto = Mockito.mock(OfferUpdateDto.class, new UnsupportedOperationAnswer());
 
@@ -191,6 +294,8 @@ class PresentationLayerMapperImplTest {
 
         Mockito.doReturn(0).when(pagingDto).getPageNumber();
         Mockito.doReturn(64).when(pagingDto).getPageSize();
+        Mockito.doReturn("AAABb2AeXAAAAAAAAAAAAAAAAAAAAAAA").when(pagingDto).getCursor();
+        Mockito.doReturn(CountMode.EXACT).when(pagingDto).getCountMode();
 
         return pagingDto;
     }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.security.filter;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.util.Date;
+
+class VerifiedTokenCacheTest {
+    private static final String SECRET = "secret";
+
+    private Clock clock;
+
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @BeforeEach
+    void beforeEach() {
+        clock = Clock.systemUTC();
+        verifiedTokenCache = new VerifiedTokenCache(SECRET, 10, clock, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void givenValidToken_whenVerifyIsCalledTwice_thenTheCachedJwtIsReturned() {
+        // Given
+        val token = JWT.create()
+                .withSubject("admin")
+                .withExpiresAt(new Date(clock.millis() + 60_000))
+                .sign(Algorithm.HMAC256(SECRET));
+        val jwt = verifiedTokenCache.verify(token);
+
+        // When
+        val actual = verifiedTokenCache.verify(token);
+
+        // Then
+        Assertions.assertThat(actual).isSameAs(jwt);
+        Assertions.assertThat(actual.getSubject()).isEqualTo("admin");
+    }
+
+    @Test
+    void givenTokenWithoutExpiration_whenVerifyIsCalledTwice_thenTheTokenIsVerifiedAgain() {
+        // Given
+        val token = JWT.create().withSubject("admin").sign(Algorithm.HMAC256(SECRET));
+        val jwt = verifiedTokenCache.verify(token);
+
+        // When
+        val actual = verifiedTokenCache.verify(token);
+
+        // Then
+        Assertions.assertThat(actual).isNotSameAs(jwt);
+    }
+
+    @Test
+    void givenTokenSignedWithAnotherSecret_whenVerifyIsCalled_thenJWTVerificationExceptionIsThrown() {
+        // Given
+        val token = JWT.create().withSubject("admin").sign(Algorithm.HMAC256("another"));
+
+        // When/Then
+        Assertions.assertThatThrownBy(() -> verifiedTokenCache.verify(token))
+                .isInstanceOf(JWTVerificationException.class);
+    }
+
+    @Test
+    void givenExpiredToken_whenVerifyIsCalled_thenJWTVerificationExceptionIsThrown() {
+        // Given
+        val token = JWT.create()
+                .withSubject("admin")
+                .withExpiresAt(new Date(clock.millis() - 60_000))
+                .sign(Algorithm.HMAC256(SECRET));
+
+        // When/Then
+        Assertions.assertThatThrownBy(() -> verifiedTokenCache.verify(token))
+                .isInstanceOf(JWTVerificationException.class);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.security.service;
+
+import lombok.val;
+import me.mneri.offer.data.entity.User;
+import me.mneri.offer.data.event.UserChangedEvent;
+import me.mneri.offer.data.repository.UserRepository;
+import me.mneri.offer.data.specification.UserSpec;
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.function.Consumer;
+
+import static org.springframework.data.jpa.domain.Specification.where;
+
+@ActiveProfiles("test")
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class UserDetailsServiceJpaTest {
+    private static final String USERNAME = "admin";
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void givenLoadedUser_whenLoadUserByUsernameIsCalled_thenCachedDetailsAreReturned() {
+        // Given
+        val userDetails = userDetailsService.loadUserByUsername(USERNAME);
+
+        // When
+        val actual = userDetailsService.loadUserByUsername(USERNAME);
+
+        // Then
+        Assertions.assertThat(actual).isSameAs(userDetails);
+    }
+
+    @Test
+    void givenEvictedDetails_whenLoadUserByUsernameIsRepeated_thenNoStatementIsPrepared() {
+        // Given
+        userDetailsCache.onUserChanged(new UserChangedEvent(null, USERNAME, 0));
+        userDetailsService.loadUserByUsername(USERNAME);
+        userDetailsCache.onUserChanged(new UserChangedEvent(null, USERNAME, 0));
+        val statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When
+        val actual = userDetailsService.loadUserByUsername(USERNAME);
+
+        // Then
+        Assertions.assertThat(actual.getAuthorities()).isNotEmpty();
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isZero();
+        Assertions.assertThat(statistics.getNaturalIdCacheHitCount()).isPositive();
+        Assertions.assertThat(statistics.getDomainDataRegionStatistics("user").getHitCount()).isPositive();
+        Assertions.assertThat(statistics.getDomainDataRegionStatistics("user-authorities").getHitCount()).isPositive();
+    }
+
+    @Test
+    void givenUncachedUser_whenLoadUserByUsernameIsCalled_thenUserAndAuthoritiesAreLoadedInOneStatement() {
+        // Given
+        userDetailsCache.onUserChanged(new UserChangedEvent(null, USERNAME, 0));
+        val sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        val statistics = sessionFactory.getStatistics();
+        statistics.clear();
+
+        // When
+        val actual = userDetailsService.loadUserByUsername(USERNAME);
+
+        // Then
+        Assertions.assertThat(actual.getAuthorities()).isNotEmpty();
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void givenLoadedUser_whenUserIsDisabled_thenDetailsAreEvicted() {
+        // Given
+        userDetailsService.loadUserByUsername(USERNAME);
+
+        try {
+            // When
+            updateUser(user -> user.setEnabled(false));
+
+            // Then
+            Assertions.assertThat(userDetailsService.loadUserByUsername(USERNAME).isEnabled()).isFalse();
+        } finally {
+            updateUser(user -> user.setEnabled(true));
+        }
+
+        Assertions.assertThat(userDetailsService.loadUserByUsername(USERNAME).isEnabled()).isTrue();
+    }
+
+    @Test
+    void givenLoadedUser_whenAuthoritiesChange_thenDetailsAreEvicted() {
+        // Given
+        val authorityCount = userDetailsService.loadUserByUsername(USERNAME).getAuthorities().size();
+        val removed = transactionTemplate.execute(status -> {
+            User user = findUser();
+            return user.getAuthorities().remove(0);
+        });
+
+        try {
+            // When
+            val actual = userDetailsService.loadUserByUsername(USERNAME).getAuthorities();
+
+            // Then
+            Assertions.assertThat(actual)
+                    .hasSize(authorityCount - 1)
+                    .extracting(GrantedAuthority::getAuthority)
+                    .doesNotContain(removed.getName());
+        } finally {
+            updateUser(user -> user.getAuthorities().add(removed));
+        }
+
+        Assertions.assertThat(userDetailsService.loadUserByUsername(USERNAME).getAuthorities()).hasSize(authorityCount);
+    }
+
+    private User findUser() {
+        return userRepository.findOne(where(UserSpec.usernameIsEqualTo(USERNAME))).orElseThrow(IllegalStateException::new);
+    }
+
+    private void updateUser(Consumer<User> update) {
+        transactionTemplate.executeWithoutResult(status -> update.accept(findUser()));
+    }
+}